@@ -0,0 +1,209 @@
+package com.cloudling.imageloader;
+
+import android.app.Application;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.gifdecoder.GifHeader;
+import com.bumptech.glide.gifdecoder.GifHeaderParser;
+import com.bumptech.glide.gifdecoder.StandardGifDecoder;
+import com.bumptech.glide.load.resource.gif.GifBitmapProvider;
+import com.bumptech.glide.load.resource.gif.GifDrawable;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 动图播放：AnimatedFrameDrawable（有界帧缓冲、后台提前解码）每显示一帧的解码CPU时间和帧缓冲峰值内存，
+ * 分别在主线程跟得上（每16ms处理一次）和跟不上（每250ms才处理一次，过期帧被跳过）时运行；
+ * 对比边显示边解码（每帧都在主线程解码）的CPU时间，以及全部帧预先解码缓存的内存。
+ * 主线程时间由Robolectric模拟，解码在真实的解码线程中进行，CPU时间按该线程统计。
+ * GIF的每一帧在前一帧的基础上合成，跳过的帧同样需要解码，主线程跟不上时每显示一帧的CPU时间包括被跳过的帧
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AnimatedImageBenchmark {
+    private static final int SIZE = 240;
+    private static final int FRAMES = 30;
+    private static final int FRAME_DELAY_MS = 40;
+    private static final long PLAY_MS = 20_000;
+    /*Drawable只弱引用callback，需要像视图一样持有*/
+    private final Drawable.Callback mCallback = new NoOpCallback();
+
+    @Test
+    public void playback() throws Exception {
+        Application application = RuntimeEnvironment.application;
+        ImageLoader.getInstance().init(application, ImageLoaderConfig.newBuilder());
+        final byte[] gif = gif();
+        GifDrawable source = background(new Callable<GifDrawable>() {
+            @Override
+            public GifDrawable call() throws Exception {
+                return Glide.with(RuntimeEnvironment.application).asGif().load(gif).submit().get();
+            }
+        });
+        int frameBytes = source.getFirstFrame().getAllocationByteCount();
+        String suffix = "(" + SIZE + "x" + SIZE + ", " + FRAMES + " frames, " + FRAME_DELAY_MS + "ms)";
+
+        play("AnimatedFrameDrawable, host at 60fps " + suffix, application, source, 16);
+        play("AnimatedFrameDrawable, host every 250ms " + suffix, application, source, 250);
+        Benchmark.report(String.format(Locale.US, "%-56s %14d bytes peak frame buffer (%d frames)",
+                "AnimatedFrameDrawable " + suffix, ImageLoader.getInstance().getAnimatedImageStats().getPeakBufferedBytes(),
+                ImageLoader.getInstance().getAnimatedImageStats().getPeakBufferedBytes() / frameBytes));
+
+        /*边显示边解码：每一帧都需要解码，CPU与上面相同量级，但解码在主线程上*/
+        long cpu = decodeAll(application, gif);
+        Benchmark.report(String.format(Locale.US, "%-56s %14d ns decode CPU per displayed frame (on main thread)",
+                "decode on the fly " + suffix, cpu / FRAMES));
+        Benchmark.report(String.format(Locale.US, "%-56s %14d bytes peak frame buffer (%d frames)",
+                "decode all frames ahead " + suffix, (long) frameBytes * FRAMES, FRAMES));
+    }
+
+    private void play(String name, Application application, GifDrawable source, long stepMs) throws Exception {
+        AnimatedImageStats stats = ImageLoader.getInstance().getAnimatedImageStats();
+        long displayed = stats.getDisplayedFrames(), dropped = stats.getDroppedFrames(), decoded = stats.getDecodedFrames();
+        AnimatedFrameDrawable drawable = new AnimatedFrameDrawable(application, source, ImageShape.none(null), null);
+        drawable.setCallback(mCallback);
+        Looper decodeLooper = ((Handler) ReflectionHelpers.getStaticField(AnimatedFrameDrawable.class, "sDecodeHandler")).getLooper();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long decodeThread = decodeLooper.getThread().getId();
+        long cpuStart = threads.getThreadCpuTime(decodeThread);
+        drawable.start();
+        for (long elapsed = 0; elapsed < PLAY_MS; elapsed += stepMs) {
+            shadowOf(decodeLooper).idle();
+            shadowOf(Looper.getMainLooper()).idleFor(stepMs, TimeUnit.MILLISECONDS);
+        }
+        drawable.stop();
+        shadowOf(decodeLooper).idle();
+        long cpu = threads.getThreadCpuTime(decodeThread) - cpuStart;
+        drawable.recycle();
+        shadowOf(decodeLooper).idle();
+        displayed = stats.getDisplayedFrames() - displayed;
+        decoded = stats.getDecodedFrames() - decoded;
+        Benchmark.report(String.format(Locale.US, "%-56s %14d ns decode CPU per displayed frame  %d ns per decoded frame  %d displayed %d dropped %d decoded",
+                name, displayed == 0 ? 0 : cpu / displayed, decoded == 0 ? 0 : cpu / decoded, displayed, stats.getDroppedFrames() - dropped, decoded));
+    }
+
+    /**
+     * 在当前线程按顺序解码全部帧，返回CPU时间
+     */
+    private static long decodeAll(Application application, byte[] gif) {
+        Glide glide = Glide.get(application);
+        ByteBuffer buffer = ByteBuffer.wrap(gif);
+        GifHeader header = new GifHeaderParser().setData(buffer).parseHeader();
+        StandardGifDecoder decoder = new StandardGifDecoder(new GifBitmapProvider(glide.getBitmapPool(), glide.getArrayPool()), header, buffer, 1);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long start = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < FRAMES; i++) {
+            decoder.advance();
+            Bitmap frame = decoder.getNextFrame();
+            Benchmark.consume(frame);
+            glide.getBitmapPool().put(frame);
+        }
+        long cpu = threads.getCurrentThreadCpuTime() - start;
+        decoder.clear();
+        return cpu;
+    }
+
+    /**
+     * 每帧有一块移动的色块的GIF
+     */
+    private static byte[] gif() throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(out);
+        writer.setOutput(stream);
+        writer.prepareWriteSequence(null);
+        for (int i = 0; i < FRAMES; i++) {
+            BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = image.createGraphics();
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, SIZE, SIZE);
+            graphics.setColor(Color.getHSBColor(i / (float) FRAMES, 0.8f, 0.9f));
+            graphics.fillOval(i * (SIZE - 60) / FRAMES, SIZE / 3, 60, 60);
+            graphics.dispose();
+            IIOMetadata metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image), null);
+            String format = metadata.getNativeMetadataFormatName();
+            IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+            IIOMetadataNode control = new IIOMetadataNode("GraphicControlExtension");
+            control.setAttribute("disposalMethod", "none");
+            control.setAttribute("userInputFlag", "FALSE");
+            control.setAttribute("transparentColorFlag", "FALSE");
+            control.setAttribute("delayTime", String.valueOf(FRAME_DELAY_MS / 10));
+            control.setAttribute("transparentColorIndex", "0");
+            root.appendChild(control);
+            if (i == 0) {
+                /*无限循环*/
+                IIOMetadataNode extensions = new IIOMetadataNode("ApplicationExtensions");
+                IIOMetadataNode loop = new IIOMetadataNode("ApplicationExtension");
+                loop.setAttribute("applicationID", "NETSCAPE");
+                loop.setAttribute("authenticationCode", "2.0");
+                loop.setUserObject(new byte[]{1, 0, 0});
+                extensions.appendChild(loop);
+                root.appendChild(extensions);
+            }
+            metadata.setFromTree(format, root);
+            writer.writeToSequence(new IIOImage(image, null, metadata), null);
+        }
+        writer.endWriteSequence();
+        stream.close();
+        writer.dispose();
+        return out.toByteArray();
+    }
+
+    /**
+     * Glide不允许在主线程同步等待结果
+     */
+    private static <T> T background(Callable<T> callable) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(callable).get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static final class NoOpCallback implements Drawable.Callback {
+        @Override
+        public void invalidateDrawable(@NonNull Drawable who) {
+        }
+
+        @Override
+        public void scheduleDrawable(@NonNull Drawable who, @NonNull Runnable what, long when) {
+        }
+
+        @Override
+        public void unscheduleDrawable(@NonNull Drawable who, @NonNull Runnable what) {
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.cloudling.imageloader;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 主机JVM上的微基准测试：预热后按批次计时，输出吞吐量（ops/s）、每次操作的分配字节数和每次操作耗时的p50/p90/p99。
+ * 每批次至少运行MIN_BATCH_NANOS，批次内取平均作为一个样本，避免nanoTime本身的开销影响纳秒级的操作。
+ * 在Robolectric中运行时Android框架类经过插桩，绝对数值比设备上大，只用于同一环境下的前后对比和回归检查
+ */
+final class Benchmark {
+    private static final long MIN_BATCH_NANOS = 20_000;
+    private static final long WARM_UP_NANOS = 300_000_000L;
+    private static final long MEASURE_NANOS = 1_000_000_000L;
+    /*消费被测操作的结果，避免JIT把没有副作用的操作整个消除*/
+    private static volatile int sSink;
+
+    interface Op {
+        void run(int iteration) throws Exception;
+    }
+
+    static final class Result {
+        final String name;
+        final long operations;
+        final double opsPerSecond;
+        final double bytesPerOp;
+        final double p50, p90, p99;
+
+        Result(String name, long operations, double opsPerSecond, double bytesPerOp, double p50, double p90, double p99) {
+            this.name = name;
+            this.operations = operations;
+            this.opsPerSecond = opsPerSecond;
+            this.bytesPerOp = bytesPerOp;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%-56s %14.1f ops/s %10.1f B/op   p50 %12.1f ns  p90 %12.1f ns  p99 %12.1f ns",
+                    name, opsPerSecond, bytesPerOp, p50, p90, p99);
+        }
+    }
+
+    private Benchmark() {
+    }
+
+    static Result run(String name, Op op) throws Exception {
+        return run(name, WARM_UP_NANOS, MEASURE_NANOS, op);
+    }
+
+    static Result run(String name, long warmUpNanos, long measureNanos, Op op) throws Exception {
+        int iteration = 0;
+        long end = System.nanoTime() + warmUpNanos;
+        int batch = 1;
+        /*预热，同时确定批次大小*/
+        while (System.nanoTime() < end) {
+            long start = System.nanoTime();
+            for (int i = 0; i < batch; i++) op.run(iteration++);
+            if (System.nanoTime() - start < MIN_BATCH_NANOS && batch < (1 << 20)) batch <<= 1;
+        }
+        long[] samples = new long[1024];
+        int count = 0;
+        long operations = 0;
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        end = start + measureNanos;
+        long now = start;
+        while (now < end) {
+            long batchStart = System.nanoTime();
+            for (int i = 0; i < batch; i++) op.run(iteration++);
+            now = System.nanoTime();
+            if (count == samples.length) samples = Arrays.copyOf(samples, count * 2);
+            samples[count++] = now - batchStart;
+            operations += batch;
+        }
+        long elapsed = now - start;
+        allocated = allocatedBytes() - allocated;
+        Arrays.sort(samples, 0, count);
+        Result result = new Result(name, operations, operations * 1e9 / elapsed, (double) allocated / operations,
+                percentile(samples, count, 0.50) / batch, percentile(samples, count, 0.90) / batch, percentile(samples, count, 0.99) / batch);
+        report(result.toString());
+        return result;
+    }
+
+    /**
+     * 只运行一次的较重操作（如冷启动），按次数单独计时
+     */
+    static Result runOnce(String name, int repetitions, Op op) throws Exception {
+        long[] samples = new long[repetitions];
+        long allocated = allocatedBytes();
+        long total = 0;
+        for (int i = 0; i < repetitions; i++) {
+            long start = System.nanoTime();
+            op.run(i);
+            samples[i] = System.nanoTime() - start;
+            total += samples[i];
+        }
+        allocated = allocatedBytes() - allocated;
+        Arrays.sort(samples);
+        Result result = new Result(name, repetitions, repetitions * 1e9 / total, (double) allocated / repetitions,
+                percentile(samples, repetitions, 0.50), percentile(samples, repetitions, 0.90), percentile(samples, repetitions, 0.99));
+        report(result.toString());
+        return result;
+    }
+
+    /**
+     * 多个线程并发运行时，按收集到的每次操作耗时汇总（不统计分配字节数）
+     *
+     * @param elapsedNanos 全部操作的总用时，用于计算吞吐量
+     */
+    static Result summarize(String name, long[] samples, long elapsedNanos) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        Result result = new Result(name, sorted.length, sorted.length * 1e9 / elapsedNanos, 0,
+                percentile(sorted, sorted.length, 0.50), percentile(sorted, sorted.length, 0.90), percentile(sorted, sorted.length, 0.99));
+        report(result.toString());
+        return result;
+    }
+
+    static void consume(boolean value) {
+        if (value) sSink++;
+    }
+
+    static void consume(Object value) {
+        sSink += System.identityHashCode(value) & 1;
+    }
+
+    /**
+     * 当前线程累计分配的字节数（HotSpot），不支持时为0
+     */
+    static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static double percentile(long[] sorted, int count, double fraction) {
+        return sorted[Math.min(count - 1, (int) (count * fraction))];
+    }
+
+    /**
+     * 输出一行结果，同时追加到benchmark.output指定的文件
+     */
+    static synchronized void report(String line) {
+        System.out.println(line);
+        String output = System.getProperty("benchmark.output");
+        if (output == null) return;
+        File file = new File(output);
+        file.getParentFile().mkdirs();
+        try (Writer writer = new FileWriter(file, true)) {
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException ignored) {
+        }
+    }
+}
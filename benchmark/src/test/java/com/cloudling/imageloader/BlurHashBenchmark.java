@@ -0,0 +1,91 @@
+package com.cloudling.imageloader;
+
+import com.bumptech.glide.load.Options;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Random;
+
+/**
+ * 哈希占位图的解码耗时与分配：按分量数（4x3为常见取值，9x9为上限）直接解码到复用的像素数组，
+ * 以及经过BlurHashDecoder（Glide的ResourceDecoder）时预览图缓存命中和未命中（解码并创建Bitmap）的耗时。
+ * 未命中使用4096个不同的哈希循环请求，超过缓存容量（约256张预览图），每次都需要解码
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BlurHashBenchmark {
+    private static final String CHARACTERS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+    /*https://blurha.sh 的示例哈希，4x3个分量*/
+    private static final String HASH = "LEHV6nWB2yk8pyo0adR*.7kCMdnj";
+    private static final int MISS_HASHES = 4096;
+
+    @Test
+    public void decode() throws Exception {
+        final int[] pixels = new int[32 * 32];
+        final String large = hash(9, 9, new Random(0));
+        Benchmark.run("BlurHashDecoder.decode 4x3 -> 32x20", new Benchmark.Op() {
+            @Override
+            public void run(int iteration) {
+                Benchmark.consume(BlurHashDecoder.decode(HASH, 32, 20, 1f, pixels));
+            }
+        });
+        Benchmark.run("BlurHashDecoder.decode 4x3 -> 32x32", new Benchmark.Op() {
+            @Override
+            public void run(int iteration) {
+                Benchmark.consume(BlurHashDecoder.decode(HASH, 32, 32, 1f, pixels));
+            }
+        });
+        Benchmark.run("BlurHashDecoder.decode 9x9 -> 32x32", new Benchmark.Op() {
+            @Override
+            public void run(int iteration) {
+                Benchmark.consume(BlurHashDecoder.decode(large, 32, 32, 1f, pixels));
+            }
+        });
+    }
+
+    @Test
+    public void previewCache() throws Exception {
+        final BlurHashDecoder decoder = new BlurHashDecoder();
+        final Options options = new Options();
+        final PlaceholderHash hit = new PlaceholderHash(HASH);
+        decoder.decode(hit, 320, 200, options);
+        Benchmark.run("ResourceDecoder.decode cache hit (320x200 target)", new Benchmark.Op() {
+            @Override
+            public void run(int iteration) {
+                Benchmark.consume(decoder.decode(hit, 320, 200, options));
+            }
+        });
+        Random random = new Random(1);
+        final PlaceholderHash[] misses = new PlaceholderHash[MISS_HASHES];
+        for (int i = 0; i < misses.length; i++) misses[i] = new PlaceholderHash(hash(4, 3, random));
+        Benchmark.run("ResourceDecoder.decode cache miss (320x200 target)", new Benchmark.Op() {
+            @Override
+            public void run(int iteration) {
+                Benchmark.consume(decoder.decode(misses[iteration % MISS_HASHES], 320, 200, options));
+            }
+        });
+    }
+
+    /**
+     * 生成指定分量数的随机哈希
+     */
+    private static String hash(int numX, int numY, Random random) {
+        StringBuilder builder = new StringBuilder();
+        encode83(builder, (numY - 1) * 9 + (numX - 1), 1);
+        encode83(builder, random.nextInt(83), 1);
+        encode83(builder, random.nextInt(1 << 24), 4);
+        for (int i = 1; i < numX * numY; i++) {
+            encode83(builder, random.nextInt(19 * 19 * 19), 2);
+        }
+        return builder.toString();
+    }
+
+    private static void encode83(StringBuilder builder, int value, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            int divisor = 1;
+            for (int j = 0; j < i; j++) divisor *= 83;
+            builder.append(CHARACTERS.charAt(value / divisor % 83));
+        }
+    }
+}
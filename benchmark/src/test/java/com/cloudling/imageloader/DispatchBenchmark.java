@@ -0,0 +1,96 @@
+package com.cloudling.imageloader;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.graphics.drawable.ColorDrawable;
+import android.net.Uri;
+import android.widget.ImageView;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+
+/**
+ * ImageLoader.load/circle/round的分发开销（到Glide开始等待视图尺寸为止，包括清除视图上之前的请求），
+ * 以及supportLoad按地址类型的判断
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DispatchBenchmark {
+    private static final String[] URLS = new String[64];
+
+    @BeforeClass
+    public static void urls() {
+        for (int i = 0; i < URLS.length; i++) {
+            URLS[i] = "https://example.com/avatar/" + i + ".jpg";
+        }
+    }
+
+    private ImageView view() {
+        ImageLoader.getInstance().init(RuntimeEnvironment.application, ImageLoaderConfig.newBuilder());
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        ImageView view = new ImageView(activity);
+        activity.setContentView(view);
+        return view;
+    }
+
+    @Test
+    public void load() throws Exception {
+        final ImageView view = view();
+        Benchmark.run("ImageLoader.load", new Benchmark.Op() {
+            @Override
+            public void run(int iteration) {
+                ImageLoader.getInstance().load(view.getContext(), URLS[iteration & 63], view);
+            }
+        });
+    }
+
+    @Test
+    public void circle() throws Exception {
+        final ImageView view = view();
+        Benchmark.run("ImageLoader.circle", new Benchmark.Op() {
+            @Override
+            public void run(int iteration) {
+                ImageLoader.getInstance().circle(view.getContext(), URLS[iteration & 63], view);
+            }
+        });
+    }
+
+    @Test
+    public void round() throws Exception {
+        final ImageView view = view();
+        Benchmark.run("ImageLoader.round", new Benchmark.Op() {
+            @Override
+            public void run(int iteration) {
+                ImageLoader.getInstance().round(view.getContext(), URLS[iteration & 63], view, 12);
+            }
+        });
+    }
+
+    @Test
+    public void supportLoad() throws Exception {
+        final BaseImageLoaderStrategy<?, ?> strategy = new GlideImageLoaderStrategy();
+        final Object[] addresses = {
+                "https://example.com/a.jpg",
+                Uri.parse("content://media/external/images/1"),
+                android.R.drawable.ic_menu_camera,
+                new File("/sdcard/a.jpg"),
+                new byte[16],
+                Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888),
+                new ColorDrawable(),
+                new Object(),
+        };
+        for (final Object address : addresses) {
+            Benchmark.run("supportLoad(" + address.getClass().getSimpleName() + ")", new Benchmark.Op() {
+                @Override
+                public void run(int iteration) {
+                    Benchmark.consume(strategy.supportLoad(address));
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.cloudling.imageloader;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+
+import com.bumptech.glide.request.target.DrawableImageViewTarget;
+import com.bumptech.glide.request.target.ImageViewTarget;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowDisplayEventReceiver;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 按帧批量交付（FrameBatcher）与立即交付（Glide默认，每个结果单独一条主线程消息）的帧耗时对比：
+ * 30个缩略图（6行5列、wrap_content）的结果同时完成（内存缓存中的列表首屏）和在120ms内陆续完成（磁盘缓存），
+ * 每个结果设置到视图并回调一次onSuccess。vsync按16ms模拟，主线程按16ms分段运行，
+ * 输出每段（约一帧）的主线程耗时、全部结果交付并完成布局所用的帧数和布局次数。
+ * Robolectric不进行光栅化，绘制耗时需在设备上用FrameMetrics或Perfetto确认
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FrameDeliveryBenchmark {
+    private static final int ROWS = 6;
+    private static final int COLUMNS = 5;
+    private static final int REPETITIONS = 50;
+    private static final long FRAME_MS = 16;
+    private static final long SPREAD_MS = 120;
+
+    private final Handler mMain = new Handler(Looper.getMainLooper());
+    private ImageView[] mViews;
+    private CountingLayout mRoot;
+    private Drawable[] mDrawables;
+    private int mCallbacks;
+
+    @Before
+    public void setUp() {
+        /*vsync间隔16ms：同一帧内的多次requestLayout合并为一次布局*/
+        ReflectionHelpers.callStaticMethod(ShadowDisplayEventReceiver.class, "setAsyncVsync",
+                ReflectionHelpers.ClassParameter.from(int.class, (int) FRAME_MS));
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        mRoot = new CountingLayout(activity);
+        LinearLayout grid = new LinearLayout(activity);
+        grid.setOrientation(LinearLayout.VERTICAL);
+        mViews = new ImageView[ROWS * COLUMNS];
+        for (int row = 0; row < ROWS; row++) {
+            LinearLayout line = new LinearLayout(activity);
+            for (int column = 0; column < COLUMNS; column++) {
+                ImageView view = new ImageView(activity);
+                line.addView(view, new LinearLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+                mViews[row * COLUMNS + column] = view;
+            }
+            grid.addView(line);
+        }
+        mRoot.addView(grid);
+        activity.setContentView(mRoot);
+        mDrawables = new Drawable[mViews.length];
+        for (int i = 0; i < mDrawables.length; i++) {
+            mDrawables[i] = new BitmapDrawable(activity.getResources(), Bitmap.createBitmap(96, 96, Bitmap.Config.ARGB_8888));
+        }
+        shadowOf(Looper.getMainLooper()).idleFor(FRAME_MS * 4, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void tearDown() {
+        FrameBatcher.setEnabled(false);
+        ReflectionHelpers.callStaticMethod(ShadowDisplayEventReceiver.class, "setAsyncVsync",
+                ReflectionHelpers.ClassParameter.from(int.class, 0));
+    }
+
+    @Test
+    public void burst() {
+        compare("burst of " + mViews.length + " results", 0);
+    }
+
+    @Test
+    public void spread() {
+        compare(mViews.length + " results over " + SPREAD_MS + "ms", SPREAD_MS);
+    }
+
+    private void compare(String name, long spreadMillis) {
+        /*预热，不输出*/
+        run(null, false, spreadMillis);
+        run(null, true, spreadMillis);
+        run("immediate delivery: " + name, false, spreadMillis);
+        run("batched delivery: " + name, true, spreadMillis);
+    }
+
+    /**
+     * @param name 为null时只运行不输出
+     */
+    private void run(String name, boolean batched, long spreadMillis) {
+        FrameBatcher.setEnabled(batched);
+        Random random = new Random(0);
+        long[] slices = new long[REPETITIONS * (int) (SPREAD_MS / FRAME_MS + 8)];
+        int sliceCount = 0, frames = 0;
+        long layouts = 0, total = 0;
+        for (int repetition = 0; repetition < REPETITIONS; repetition++) {
+            reset();
+            mCallbacks = 0;
+            long layoutsBefore = mRoot.layouts;
+            long now = SystemClock.uptimeMillis();
+            for (int i = 0; i < mViews.length; i++) {
+                long delay = spreadMillis == 0 ? 0 : random.nextInt((int) spreadMillis);
+                mMain.postAtTime(deliver(batched, mViews[i], mDrawables[i]), now + delay);
+            }
+            /*按16ms分段运行主线程，直到全部结果交付、布局完成*/
+            while (mCallbacks < mViews.length || mRoot.isLayoutRequested()) {
+                long start = System.nanoTime();
+                shadowOf(Looper.getMainLooper()).idleFor(FRAME_MS, TimeUnit.MILLISECONDS);
+                long elapsed = System.nanoTime() - start;
+                if (sliceCount == slices.length) slices = Arrays.copyOf(slices, sliceCount * 2);
+                slices[sliceCount++] = elapsed;
+                total += elapsed;
+                frames++;
+            }
+            layouts += mRoot.layouts - layoutsBefore;
+        }
+        if (name == null) return;
+        Benchmark.summarize(name + " per frame", Arrays.copyOf(slices, sliceCount), total);
+        Benchmark.report(String.format(Locale.US, "%-56s %10.1f frames %10.1f layouts per %d results", name,
+                (double) frames / REPETITIONS, (double) layouts / REPETITIONS, mViews.length));
+    }
+
+    /**
+     * 与Glide一致：结果在主线程的一条消息中先回调RequestListener（ImageLoader在其中回调onSuccess），再设置到target
+     */
+    private Runnable deliver(final boolean batched, ImageView view, final Drawable drawable) {
+        final ImageViewTarget<Drawable> target = batched ? new BatchedImageViewTarget(view) : new DrawableImageViewTarget(view);
+        final Runnable callback = new Runnable() {
+            @Override
+            public void run() {
+                mCallbacks++;
+            }
+        };
+        return new Runnable() {
+            @Override
+            public void run() {
+                if (!batched || !FrameBatcher.deferCallback(target, callback)) callback.run();
+                target.onResourceReady(drawable, null);
+            }
+        };
+    }
+
+    /**
+     * 清空所有视图（尺寸变为0）并完成布局，下一次设置结果时每个视图都会请求布局
+     */
+    private void reset() {
+        for (ImageView view : mViews) view.setImageDrawable(null);
+        shadowOf(Looper.getMainLooper()).idleFor(FRAME_MS * 2, TimeUnit.MILLISECONDS);
+    }
+
+    private static final class CountingLayout extends FrameLayout {
+        long layouts;
+
+        CountingLayout(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+            layouts++;
+            super.onLayout(changed, left, top, right, bottom);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.cloudling.imageloader;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.data.HttpUrlFetcher;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 网络图片下载的吞吐量和延迟（本地HTTP服务器，32KB响应体）：
+ * 单线程下对比Glide默认的HttpUrlFetcher（每次请求后断开连接）与GlideHttpFetcher（连接复用）；
+ * 并发时模拟Glide的加载线程同时请求同一个响应较慢的域名，对比不同的每域名名额，延迟包括排队时间。
+ * 本地回环没有真实网络的往返和TLS握手，连接复用在真实网络上的收益更大
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HttpBenchmark {
+    private static final int BODY_SIZE = 32 * 1024;
+    private static final int REQUESTS = 500;
+    private static final int LOADER_THREADS = 16;
+    private static final int REQUESTS_PER_THREAD = 40;
+    private static final long SLOW_RESPONSE_MILLIS = 5;
+
+    private HttpServer mServer;
+
+    @Before
+    public void setUp() throws IOException {
+        final byte[] body = new byte[BODY_SIZE];
+        new Random(0).nextBytes(body);
+        /*响应头和响应体分开写出，不关闭Nagle时每个请求都会等待约40ms的延迟确认*/
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), 64);
+        mServer.setExecutor(Executors.newFixedThreadPool(32));
+        mServer.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if (exchange.getRequestURI().getPath().startsWith("/slow/")) {
+                    try {
+                        Thread.sleep(SLOW_RESPONSE_MILLIS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+    }
+
+    private GlideUrl url(String path, int index) {
+        return new GlideUrl("http://127.0.0.1:" + mServer.getAddress().getPort() + path + index + ".jpg");
+    }
+
+    @Test
+    public void sequential() throws Exception {
+        final HttpHostLimiter limiter = new HttpHostLimiter(4);
+        final NegativeCache negativeCache = new NegativeCache(16);
+        final DefaultImageHttpClient client = DefaultImageHttpClient.newBuilder();
+        for (int round = 0; round < 2; round++) {
+            /*第一轮预热*/
+            String suffix = round == 0 ? " warm-up" : "";
+            Benchmark.runOnce("HttpUrlFetcher (disconnect per request)" + suffix, REQUESTS, new Benchmark.Op() {
+                @Override
+                public void run(int iteration) throws Exception {
+                    load(new HttpUrlFetcher(url("/image/", iteration), 2500), Priority.NORMAL);
+                }
+            });
+            Benchmark.runOnce("GlideHttpFetcher (keep-alive)" + suffix, REQUESTS, new Benchmark.Op() {
+                @Override
+                public void run(int iteration) throws Exception {
+                    load(new GlideHttpFetcher(client, limiter, negativeCache, url("/image/", iteration)), Priority.NORMAL);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void concurrentSlowHost() throws Exception {
+        for (int maxPerHost : new int[]{LOADER_THREADS, 4, 2}) {
+            concurrent(maxPerHost);
+        }
+    }
+
+    private void concurrent(int maxPerHost) throws Exception {
+        final HttpHostLimiter limiter = new HttpHostLimiter(maxPerHost);
+        final NegativeCache negativeCache = new NegativeCache(16);
+        final DefaultImageHttpClient client = DefaultImageHttpClient.newBuilder();
+        final long[] samples = new long[LOADER_THREADS * REQUESTS_PER_THREAD];
+        final CountDownLatch done = new CountDownLatch(LOADER_THREADS);
+        final AtomicInteger failures = new AtomicInteger();
+        long start = System.nanoTime();
+        for (int t = 0; t < LOADER_THREADS; t++) {
+            final int thread = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+                        int index = thread * REQUESTS_PER_THREAD + i;
+                        long begin = System.nanoTime();
+                        try {
+                            /*一半为预加载使用的低优先级*/
+                            load(new GlideHttpFetcher(client, limiter, negativeCache, url("/slow/", index)),
+                                    i % 2 == 0 ? Priority.NORMAL : Priority.LOW);
+                        } catch (Exception e) {
+                            failures.incrementAndGet();
+                        }
+                        samples[index] = System.nanoTime() - begin;
+                    }
+                    done.countDown();
+                }
+            }, "glide-source-" + t).start();
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        Benchmark.summarize("GlideHttpFetcher " + LOADER_THREADS + " threads, " + maxPerHost + " per host, "
+                + SLOW_RESPONSE_MILLIS + "ms server", samples, elapsed);
+        if (failures.get() > 0) throw new AssertionError(failures.get() + " requests failed");
+    }
+
+    /**
+     * 模拟Glide：loadData后等待回调，读完响应体，最后cleanup
+     */
+    private static void load(DataFetcher<InputStream> fetcher, Priority priority) throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Exception[] error = new Exception[1];
+        fetcher.loadData(priority, new DataFetcher.DataCallback<InputStream>() {
+            @Override
+            public void onDataReady(@Nullable InputStream data) {
+                try {
+                    byte[] buffer = new byte[8192];
+                    int total = 0, read;
+                    while ((read = data.read(buffer)) != -1) total += read;
+                    if (total != BODY_SIZE) throw new IOException("Read " + total + " bytes");
+                } catch (IOException e) {
+                    error[0] = e;
+                }
+                latch.countDown();
+            }
+
+            @Override
+            public void onLoadFailed(@NonNull Exception e) {
+                error[0] = e;
+                latch.countDown();
+            }
+        });
+        if (!latch.await(10, TimeUnit.SECONDS)) throw new IOException("Timed out");
+        fetcher.cleanup();
+        if (error[0] != null) throw error[0];
+    }
+}
@@ -0,0 +1,161 @@
+package com.cloudling.imageloader;
+
+import android.app.Application;
+import android.graphics.Bitmap;
+import android.os.Looper;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.request.FutureTarget;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.robolectric.Shadows.shadowOf;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.imageio.ImageIO;
+
+/**
+ * 从本地File和byte[]端到端加载（loadImageBitmapAsync：分发、解码、结果返回）的耗时，
+ * 与不经过本地快速路径的Glide默认请求（读写磁盘缓存）对比。
+ * 每次加载使用不同的输入，不命中内存缓存；解码在Glide的线程中进行，B/op只包括调用线程的分配
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LocalDecodeBenchmark {
+    private static final int COUNT = 200;
+    private static final int[][] SIZES = {{256, 256}, {1080, 720}};
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void decode() throws Throwable {
+        final Application application = RuntimeEnvironment.application;
+        ImageLoader.getInstance().init(application, ImageLoaderConfig.newBuilder());
+        for (int[] size : SIZES) {
+            final int width = size[0], height = size[1];
+            final String suffix = width + "x" + height + ")";
+            /*每组使用不同的输入，不命中内存缓存和磁盘缓存*/
+            final File[] warmUp = files(width, height, "warm-up", COUNT / 4);
+            final File[] generalFiles = files(width, height, "general", COUNT);
+            final File[] fastFiles = files(width, height, "fast", COUNT);
+            final byte[][] generalArrays = arrays(width, height, 2 * COUNT);
+            final byte[][] fastArrays = arrays(width, height, 3 * COUNT);
+            /*Glide不允许在主线程同步等待结果，在单独的线程中运行*/
+            background(new Benchmark.Op() {
+                @Override
+                public void run(int ignored) throws Exception {
+                    for (int i = 0; i < warmUp.length; i++) {
+                        generalPath(application, warmUp[i], width, height);
+                        release(ImageLoader.getInstance().loadImageBitmapAsync(application, warmUp[i], width, height, null).get());
+                    }
+                    /*改动前的路径：Glide默认的磁盘缓存策略，本地文件解码后还会编码写入结果缓存*/
+                    Benchmark.runOnce("general pipeline: decode(File, " + suffix, COUNT, new Benchmark.Op() {
+                        @Override
+                        public void run(int iteration) throws Exception {
+                            generalPath(application, generalFiles[iteration], width, height);
+                        }
+                    });
+                    Benchmark.runOnce("decode(File, " + suffix, COUNT, new Benchmark.Op() {
+                        @Override
+                        public void run(int iteration) throws Exception {
+                            release(ImageLoader.getInstance().loadImageBitmapAsync(application, fastFiles[iteration], width, height, null).get());
+                        }
+                    });
+                    Benchmark.runOnce("general pipeline: decode(byte[], " + suffix, COUNT, new Benchmark.Op() {
+                        @Override
+                        public void run(int iteration) throws Exception {
+                            generalPath(application, generalArrays[iteration], width, height);
+                        }
+                    });
+                    Benchmark.runOnce("decode(byte[], " + suffix, COUNT, new Benchmark.Op() {
+                        @Override
+                        public void run(int iteration) throws Exception {
+                            release(ImageLoader.getInstance().loadImageBitmapAsync(application, fastArrays[iteration], width, height, null).get());
+                        }
+                    });
+                }
+            });
+            /*释放结果时清除请求被投递到主线程*/
+            shadowOf(Looper.getMainLooper()).idle();
+        }
+    }
+
+    /**
+     * 不经过本地快速路径的加载（Glide默认的请求参数）
+     */
+    private static void generalPath(Application application, Object model, int width, int height) throws Exception {
+        FutureTarget<Bitmap> target = Glide.with(application).asBitmap().load(model).submit(width, height);
+        Benchmark.consume(target.get());
+        Glide.with(application).clear(target);
+    }
+
+    private File[] files(int width, int height, String name, int count) throws IOException {
+        File[] files = new File[count];
+        for (int i = 0; i < count; i++) {
+            files[i] = write(jpeg(width, height, i), mFolder.newFile(name + "-" + width + "-" + i + ".jpg"));
+        }
+        return files;
+    }
+
+    private static byte[][] arrays(int width, int height, int seed) throws IOException {
+        byte[][] arrays = new byte[COUNT][];
+        for (int i = 0; i < COUNT; i++) arrays[i] = jpeg(width, height, seed + i);
+        return arrays;
+    }
+
+    private static void release(ImageResult result) {
+        Benchmark.consume(result.getBitmap());
+        if (result.getLease() != null) result.getLease().release();
+    }
+
+    private static void background(final Benchmark.Op op) throws Throwable {
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    op.run(0);
+                } catch (Throwable e) {
+                    error.set(e);
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+        if (error.get() != null) throw error.get();
+    }
+
+    /**
+     * 生成带渐变的JPEG（每张内容不同）
+     */
+    private static byte[] jpeg(int width, int height, int seed) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, (x * 255 / width) << 16 | (y * 255 / height) << 8 | (seed & 0xff));
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    private static File write(byte[] data, File file) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,73 @@
+package com.cloudling.imageloader;
+
+import android.graphics.Bitmap;
+import android.widget.ImageView;
+
+import com.bumptech.glide.request.RequestOptions;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * 每次加载构建请求参数和请求监听的耗时与分配：GlideOptionsCache命中与每次新建RequestOptions对比，
+ * GlideRequestListener按回调对象复用
+ */
+@RunWith(RobolectricTestRunner.class)
+public class OptionsCacheBenchmark {
+
+    @Test
+    public void options() throws Exception {
+        final GlideOptionsCache cache = new GlideOptionsCache();
+        Benchmark.run("GlideOptionsCache.get(ROUND)", new Benchmark.Op() {
+            @Override
+            public void run(int iteration) {
+                Benchmark.consume(cache.get(ImageShapeType.ROUND, 12, 12, 12, 12, ImageView.ScaleType.CENTER_CROP, 0, 0, false, null));
+            }
+        });
+        Benchmark.run("GlideOptionsCache.get(CIRCLE)", new Benchmark.Op() {
+            @Override
+            public void run(int iteration) {
+                Benchmark.consume(cache.get(ImageShapeType.CIRCLE, 0, 0, 0, 0, null, 0, 0, false, null));
+            }
+        });
+        /*对照：不缓存时每次加载的做法*/
+        Benchmark.run("new RequestOptions().transform(GlideRoundTransform)", new Benchmark.Op() {
+            @Override
+            public void run(int iteration) {
+                Benchmark.consume(new RequestOptions()
+                        .transform(new GlideRoundTransform(12, ImageView.ScaleType.CENTER_CROP))
+                        .dontAnimate());
+            }
+        });
+        Benchmark.run("new RequestOptions().circleCrop()", new Benchmark.Op() {
+            @Override
+            public void run(int iteration) {
+                Benchmark.consume(new RequestOptions().circleCrop().dontAnimate());
+            }
+        });
+    }
+
+    @Test
+    public void listener() throws Exception {
+        final ImageLoaderCallback<ImageResult> callback = new ImageLoaderCallback<ImageResult>() {
+            @Override
+            public void onSuccess(ImageResult... result) {
+            }
+
+            @Override
+            public void onFailure(ImageResult... result) {
+            }
+
+            @Override
+            public void onCancel(ImageResult... result) {
+            }
+        };
+        Benchmark.run("GlideRequestListener.obtain", new Benchmark.Op() {
+            @Override
+            public void run(int iteration) {
+                Benchmark.consume(GlideRequestListener.<Bitmap>obtain(callback, ImageShapeType.ROUND));
+            }
+        });
+    }
+}
@@ -0,0 +1,46 @@
+package com.cloudling.imageloader;
+
+import android.graphics.Bitmap;
+import android.widget.ImageView;
+
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * GlideRoundTransform.transform按ScaleType和位图尺寸的耗时与分配（输出位图从LruBitmapPool复用，
+ * 每次transform后放回池中，与Glide中结果被回收后的复用情况一致）
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RoundTransformBenchmark {
+    private static final int[][] SIZES = {{64, 64}, {256, 256}, {1080, 720}};
+    private static final ImageView.ScaleType[] SCALE_TYPES = {
+            ImageView.ScaleType.CENTER_CROP,
+            ImageView.ScaleType.FIT_CENTER,
+            ImageView.ScaleType.CENTER_INSIDE,
+            ImageView.ScaleType.FIT_XY,
+    };
+
+    @Test
+    public void transform() throws Exception {
+        final LruBitmapPool pool = new LruBitmapPool(64 * 1024 * 1024);
+        for (int[] size : SIZES) {
+            /*源图宽高比与目标不同，CENTER_CROP/FIT_CENTER需要实际缩放*/
+            final Bitmap source = Bitmap.createBitmap(size[0] * 4 / 3, size[1], Bitmap.Config.ARGB_8888);
+            final int width = size[0], height = size[1];
+            for (ImageView.ScaleType scaleType : SCALE_TYPES) {
+                final GlideRoundTransform transform = new GlideRoundTransform(12, scaleType);
+                Benchmark.run("GlideRoundTransform(" + scaleType + ", " + width + "x" + height + ")", new Benchmark.Op() {
+                    @Override
+                    public void run(int iteration) {
+                        Bitmap result = transform.transform(pool, source, width, height);
+                        if (result != source) pool.put(result);
+                    }
+                });
+            }
+            source.recycle();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.cloudling.imageloader;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.widget.ImageView;
+
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Locale;
+
+/**
+ * 圆角的两种处理方式对比：GlideRoundTransform（解码线程中生成形状处理后的第二张Bitmap）
+ * 与ShapedBitmapDrawable（不生成新Bitmap，每次绘制时用BitmapShader画进圆角路径）。
+ * 分别输出处理耗时、绘制耗时和每张图片额外占用的Bitmap字节数（transform不使用复用池，即复用池为空时的情况）。
+ * Robolectric的Canvas只记录绘制调用，不进行光栅化，绘制耗时需在设备上用宿主应用的帧耗时确认
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ShapeRenderBenchmark {
+    private static final int[][] SIZES = {{256, 256}, {1080, 720}};
+
+    @Test
+    public void round() throws Exception {
+        for (int[] size : SIZES) {
+            final int width = size[0], height = size[1];
+            final Bitmap source = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            final String suffix = width + "x" + height + ")";
+            final GlideRoundTransform transform = new GlideRoundTransform(24, ImageView.ScaleType.CENTER_CROP);
+            final BitmapPoolAdapter pool = new BitmapPoolAdapter();
+            Bitmap shaped = transform.transform(pool, source, width, height);
+            Benchmark.report(String.format(Locale.US, "%-56s %14d extra bitmap bytes per image", "transform(" + suffix,
+                    shaped == source ? 0 : shaped.getAllocationByteCount()));
+            Benchmark.report(String.format(Locale.US, "%-56s %14d extra bitmap bytes per image", "drawTime(" + suffix, 0));
+            Benchmark.run("transform(" + suffix, new Benchmark.Op() {
+                @Override
+                public void run(int iteration) {
+                    Bitmap result = transform.transform(pool, source, width, height);
+                    if (result != source) result.recycle();
+                }
+            });
+            final Canvas canvas = new Canvas(Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888));
+            Benchmark.run("drawTime: create + bounds(" + suffix, new Benchmark.Op() {
+                @Override
+                public void run(int iteration) {
+                    ShapedBitmapDrawable drawable = new ShapedBitmapDrawable(source, ImageShape.round(24, ImageView.ScaleType.CENTER_CROP),
+                            ImageView.ScaleType.CENTER_CROP);
+                    drawable.setBounds(0, 0, width, height);
+                    Benchmark.consume(drawable);
+                }
+            });
+            final ShapedBitmapDrawable drawable = new ShapedBitmapDrawable(source, ImageShape.round(24, ImageView.ScaleType.CENTER_CROP),
+                    ImageView.ScaleType.CENTER_CROP);
+            drawable.setBounds(0, 0, width, height);
+            /*形状结果的绘制只是drawBitmap，形状在绘制时处理则每帧都要按路径绘制*/
+            Benchmark.run("drawTime: draw per frame(" + suffix, new Benchmark.Op() {
+                @Override
+                public void run(int iteration) {
+                    drawable.draw(canvas);
+                }
+            });
+        }
+    }
+}
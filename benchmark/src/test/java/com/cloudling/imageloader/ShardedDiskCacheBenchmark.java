@@ -0,0 +1,241 @@
+package com.cloudling.imageloader;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.disklrucache.DiskLruCache;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.cache.DiskLruCacheWrapper;
+import com.bumptech.glide.signature.ObjectKey;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分片磁盘缓存与Glide默认磁盘缓存（DiskLruCacheWrapper）在10k、100k、1M个缓存文件时的对比：
+ * 冷启动（打开缓存到第一次读取返回）、多线程读写（90%命中读取、10%写入4KB）的吞吐量和延迟、分片磁盘缓存的淘汰耗时。
+ * 已有的缓存文件为空文件，快照和日志中记录的大小为4KB，只测索引、日志和文件系统操作的开销；
+ * 1M个文件的准备和清理需要数分钟
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ShardedDiskCacheBenchmark {
+    private static final int[] ENTRIES = {10_000, 100_000, 1_000_000};
+    private static final int RECORDED_SIZE = 4096;
+    private static final int COLD_STARTS = 5;
+    private static final int THREADS = 8;
+    private static final int OPS_PER_THREAD = 2000;
+    private static final int EVICTION_PUTS = 2000;
+    /*与ShardedDiskCache的快照格式一致*/
+    private static final int INDEX_MAGIC = 0x49534443;
+    private static final int INDEX_VERSION = 1;
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+    private final byte[] mData = new byte[RECORDED_SIZE];
+
+    @Test
+    public void diskCache() throws Exception {
+        for (int entries : ENTRIES) {
+            File sharded = mFolder.newFolder();
+            File lru = mFolder.newFolder();
+            prepare(entries, sharded, lru);
+            String suffix = "(" + entries + " entries)";
+            long maxSize = 2L * entries * RECORDED_SIZE;
+
+            coldStartSharded("coldStart sharded" + suffix, sharded, maxSize);
+            coldStartLru("coldStart DiskLruCacheWrapper" + suffix, lru, maxSize);
+
+            ShardedDiskCache cache = new ShardedDiskCache(sharded, maxSize);
+            awaitBackground();
+            concurrent("readWrite sharded" + suffix, cache, entries);
+            awaitBackground();
+            DiskCache wrapper = DiskLruCacheWrapper.create(lru, maxSize);
+            concurrent("readWrite DiskLruCacheWrapper" + suffix, wrapper, entries);
+            close(wrapper);
+
+            eviction("eviction sharded" + suffix, sharded, (long) entries * RECORDED_SIZE);
+            mFolder.delete();
+            mFolder.create();
+        }
+    }
+
+    private static Key key(int id) {
+        return new ObjectKey("image-" + id);
+    }
+
+    /**
+     * 按两种缓存的文件名规则为key(0)到key(entries - 1)创建空文件，并写入分片磁盘缓存的快照和DiskLruCache的日志
+     */
+    private static void prepare(int entries, File sharded, File lru) throws Exception {
+        for (int i = 0; i < 16; i++) new File(sharded, Integer.toHexString(i)).mkdirs();
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (DataOutputStream index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(sharded, "index")), 64 * 1024));
+             Writer journal = new BufferedWriter(new FileWriter(new File(lru, "journal")), 64 * 1024)) {
+            index.writeInt(INDEX_MAGIC);
+            index.writeInt(INDEX_VERSION);
+            index.writeInt(entries);
+            journal.write("libcore.io.DiskLruCache\n1\n1\n1\n\n");
+            for (int i = 0; i < entries; i++) {
+                digest.reset();
+                key(i).updateDiskCacheKey(digest);
+                byte[] hash = digest.digest();
+                StringBuilder hex = new StringBuilder(64);
+                for (byte b : hash) hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+                String name = hex.substring(0, 32);
+                new File(new File(sharded, name.substring(0, 1)), name).createNewFile();
+                for (int j = 0; j < 16; j++) index.write(hash[j]);
+                index.writeInt(RECORDED_SIZE);
+                new File(lru, hex + ".0").createNewFile();
+                journal.write("CLEAN " + hex + " " + RECORDED_SIZE + "\n");
+            }
+        }
+    }
+
+    /**
+     * 等待分片磁盘缓存后台线程中已提交的核对和淘汰执行完（不包括延迟写入的快照）
+     */
+    private static void awaitBackground() throws Exception {
+        ScheduledThreadPoolExecutor background = ReflectionHelpers.getStaticField(ShardedDiskCache.class, "BACKGROUND");
+        background.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get();
+    }
+
+    /**
+     * DiskLruCacheWrapper没有关闭方法，关闭其中的DiskLruCache，释放日志文件
+     */
+    private static void close(DiskCache wrapper) throws IOException {
+        DiskLruCache cache = ReflectionHelpers.getField(wrapper, "diskLruCache");
+        if (cache != null) cache.close();
+    }
+
+    private static void coldStartSharded(String name, File directory, long maxSize) throws Exception {
+        long[] samples = new long[COLD_STARTS];
+        long total = 0;
+        for (int i = 0; i < COLD_STARTS; i++) {
+            /*上一次打开时提交的核对不计入这一次*/
+            awaitBackground();
+            long start = System.nanoTime();
+            Benchmark.consume(new ShardedDiskCache(directory, maxSize).get(key(i)));
+            samples[i] = System.nanoTime() - start;
+            total += samples[i];
+        }
+        awaitBackground();
+        Benchmark.summarize(name, samples, total);
+    }
+
+    /**
+     * DiskLruCacheWrapper在第一次读写时打开DiskLruCache并回放日志
+     */
+    private static void coldStartLru(String name, File directory, long maxSize) throws Exception {
+        long[] samples = new long[COLD_STARTS];
+        long total = 0;
+        for (int i = 0; i < COLD_STARTS; i++) {
+            long start = System.nanoTime();
+            DiskCache wrapper = DiskLruCacheWrapper.create(directory, maxSize);
+            Benchmark.consume(wrapper.get(key(i)));
+            samples[i] = System.nanoTime() - start;
+            total += samples[i];
+            close(wrapper);
+        }
+        Benchmark.summarize(name, samples, total);
+    }
+
+    private void concurrent(String name, final DiskCache cache, final int entries) throws Exception {
+        final long[] samples = new long[THREADS * OPS_PER_THREAD];
+        final AtomicInteger nextKey = new AtomicInteger(entries);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        final DiskCache.Writer writer = writer();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Random random = new Random(thread);
+                    try {
+                        start.await();
+                        for (int i = 0; i < OPS_PER_THREAD; i++) {
+                            long begin = System.nanoTime();
+                            if (random.nextInt(10) == 0) {
+                                cache.put(key(nextKey.getAndIncrement()), writer);
+                            } else {
+                                Benchmark.consume(cache.get(key(random.nextInt(entries))));
+                            }
+                            samples[thread * OPS_PER_THREAD + i] = System.nanoTime() - begin;
+                        }
+                    } catch (InterruptedException ignored) {
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        Benchmark.summarize(name, samples, System.nanoTime() - begin);
+    }
+
+    /**
+     * 容量恰好为已有文件的总大小，之后每次写入都使所在分片超出容量，在后台淘汰最久未使用的文件；
+     * 输出写入的延迟和淘汰一个文件的平均耗时（包括删除文件）
+     */
+    private void eviction(String name, File directory, long maxSize) throws Exception {
+        ShardedDiskCache cache = new ShardedDiskCache(directory, maxSize);
+        /*文件分布不均匀，核对时先淘汰超出分片容量的部分*/
+        awaitBackground();
+        long evicted = cache.getEvictionCount();
+        long evictionNanos = cache.getEvictionNanos();
+        DiskCache.Writer writer = writer();
+        long[] samples = new long[EVICTION_PUTS];
+        long total = 0;
+        for (int i = 0; i < EVICTION_PUTS; i++) {
+            long start = System.nanoTime();
+            cache.put(key(-1 - i), writer);
+            samples[i] = System.nanoTime() - start;
+            total += samples[i];
+        }
+        awaitBackground();
+        Benchmark.summarize(name + " put", samples, total);
+        evicted = cache.getEvictionCount() - evicted;
+        evictionNanos = cache.getEvictionNanos() - evictionNanos;
+        Benchmark.report(String.format(Locale.US, "%-56s %14d files evicted %12.1f ns per file", name,
+                evicted, evicted == 0 ? 0 : (double) evictionNanos / evicted));
+    }
+
+    private DiskCache.Writer writer() {
+        return new DiskCache.Writer() {
+            @Override
+            public boolean write(@NonNull File file) {
+                try (FileOutputStream out = new FileOutputStream(file)) {
+                    out.write(mData);
+                    return true;
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,96 @@
+package com.cloudling.imageloader;
+
+import android.app.Application;
+import android.os.Looper;
+
+import com.bumptech.glide.Glide;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 冷启动时图片加载框架初始化占用主线程的时间：
+ * 第一次请求时由Glide.get在主线程初始化（不调用init、不调用warmUp）、在Application.onCreate中调用init、调用warmUp（后台线程初始化）。
+ * 每次测量前销毁Glide并使用新的加载策略；同一进程中只有第一次是真正的冷启动（类加载、JIT），之后各次只反映初始化本身，
+ * 冷启动的完整收益需在设备上用宿主应用的启动耗时（systrace中的ImageLoader#warmUp）确认
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WarmUpBenchmark {
+    private static final int REPETITIONS = 10;
+
+    @After
+    public void tearDown() {
+        ImageLoader.getInstance().setImageLoaderStrategy(new GlideImageLoaderStrategy());
+        Glide.tearDown();
+    }
+
+    @Test
+    public void coldStart() throws Exception {
+        final Application application = RuntimeEnvironment.application;
+        /*第一次初始化包括类加载，单独输出*/
+        Glide.tearDown();
+        long start = System.nanoTime();
+        Glide.get(application);
+        Benchmark.report(String.format(Locale.US, "%-56s %12.1f ms", "first Glide.get in process (class loading)", (System.nanoTime() - start) / 1e6));
+        reset();
+        start = System.nanoTime();
+        ImageLoader.getInstance().init(application, ImageLoaderConfig.newBuilder());
+        Benchmark.report(String.format(Locale.US, "%-56s %12.1f ms", "first ImageLoader.init in process (class loading)", (System.nanoTime() - start) / 1e6));
+
+        Benchmark.runOnce("main thread: lazy Glide.get on first request", REPETITIONS, new Benchmark.Op() {
+            @Override
+            public void run(int iteration) {
+                Glide.tearDown();
+                Glide.get(application);
+            }
+        });
+        Benchmark.runOnce("main thread: ImageLoader.init", REPETITIONS, new Benchmark.Op() {
+            @Override
+            public void run(int iteration) {
+                reset();
+                ImageLoader.getInstance().init(application, ImageLoaderConfig.newBuilder());
+            }
+        });
+        long[] main = new long[REPETITIONS];
+        long[] background = new long[REPETITIONS];
+        long mainTotal = 0, backgroundTotal = 0;
+        for (int i = 0; i < REPETITIONS; i++) {
+            reset();
+            final AtomicBoolean ready = new AtomicBoolean();
+            start = System.nanoTime();
+            ImageLoader.getInstance().warmUp(application, ImageLoaderConfig.newBuilder(), new Runnable() {
+                @Override
+                public void run() {
+                    ready.set(true);
+                }
+            });
+            main[i] = System.nanoTime() - start;
+            /*等待后台初始化完成、暂存的请求执行（不计入主线程占用时间）*/
+            while (!ready.get()) {
+                Thread.yield();
+                shadowOf(Looper.getMainLooper()).idle();
+            }
+            background[i] = ImageLoader.getInstance().getWarmUpNanos();
+            mainTotal += main[i];
+            backgroundTotal += background[i];
+        }
+        Benchmark.summarize("main thread: ImageLoader.warmUp", main, mainTotal);
+        Benchmark.summarize("background thread: warmUp until ready", background, backgroundTotal);
+    }
+
+    /**
+     * 销毁Glide并换用新的加载策略，下一次init或warmUp重新创建Glide
+     */
+    private static void reset() {
+        Glide.tearDown();
+        ImageLoader.getInstance().setImageLoaderStrategy(new GlideImageLoaderStrategy());
+    }
+}
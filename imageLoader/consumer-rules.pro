@@ -0,0 +1,2 @@
+# RecyclerView is a compileOnly dependency used by ImageScrollScheduler.attach(RecyclerView)
+-dontwarn androidx.recyclerview.widget.**
@@ -0,0 +1,390 @@
+package com.cloudling.imageloader;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Animatable;
+import android.graphics.drawable.Drawable;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.gifdecoder.GifDecoder;
+import com.bumptech.glide.gifdecoder.GifHeader;
+import com.bumptech.glide.gifdecoder.GifHeaderParser;
+import com.bumptech.glide.gifdecoder.StandardGifDecoder;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.gif.GifBitmapProvider;
+import com.bumptech.glide.load.resource.gif.GifDrawable;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * 描述: 有界帧缓冲的动图Drawable（代替GifDrawable播放）。
+ * 后台线程提前解码最多BUFFER_FRAMES帧，主线程只在帧到期时切换显示，不等待解码：
+ * 主线程来不及显示时跳过已过期的帧，解码跟不上时停留在当前帧、等下一帧解码完成后重新计时。
+ * 不可见（ImageView隐藏、移出窗口）或页面onStop时暂停并释放帧缓冲，圆形、圆角在绘制时处理，不对每一帧做transform
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+final class AnimatedFrameDrawable extends Drawable implements Animatable {
+    /**
+     * 提前解码的帧数上限（不含正在显示的帧）
+     */
+    private static final int BUFFER_FRAMES = 3;
+    /**
+     * 还不知道当前帧时长时（第一帧由Glide解码）使用的时长
+     */
+    private static final int DEFAULT_DELAY_MS = 100;
+    static final AnimatedImageStats STATS = new AnimatedImageStats();
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+    private static Handler sDecodeHandler;
+
+    private final GifDrawable mSource;
+    private final BitmapPool mPool;
+    private final GifBitmapProvider mProvider;
+    @Nullable
+    private final ShapedBitmapDrawable mShaped;
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    /**
+     * 已解码、等待显示的帧（主线程和解码线程共用，以自身为锁）
+     */
+    private final ArrayDeque<Frame> mReady = new ArrayDeque<>(BUFFER_FRAMES);
+    private final Handler mDecodeHandler;
+    /**
+     * Glide解码的第一帧的宽度，用于推算采样率
+     */
+    private final int mFrameWidth;
+    /*以下只在解码线程访问*/
+    private GifDecoder mDecoder;
+    private int mLoops;
+    /*以下只在主线程访问*/
+    private Bitmap mCurrent;
+    /**
+     * 当前帧是否由本Drawable解码（需要放回复用池），第一帧来自Glide，由Glide管理
+     */
+    private boolean mCurrentOwned;
+    private int mCurrentDelay = DEFAULT_DELAY_MS;
+    private long mNextFrameTime;
+    private boolean mRunning;
+    /**
+     * 正在播放（已start、可见且未回收），解码线程据此决定是否继续解码
+     */
+    private volatile boolean mActive;
+    private volatile boolean mRecycled;
+    /**
+     * 下一帧已到期但还没有解码完成，解码完成后需要通知主线程
+     */
+    private volatile boolean mWaiting;
+
+    private final Runnable mTick = new Runnable() {
+        @Override
+        public void run() {
+            tick();
+        }
+    };
+    private final Runnable mFill = new Runnable() {
+        @Override
+        public void run() {
+            fill();
+        }
+    };
+
+    AnimatedFrameDrawable(Context context, GifDrawable source, ImageShape shape, @Nullable ImageView.ScaleType scaleType) {
+        mSource = source;
+        Glide glide = Glide.get(context);
+        mPool = glide.getBitmapPool();
+        mProvider = new GifBitmapProvider(mPool, glide.getArrayPool());
+        mCurrent = source.getFirstFrame();
+        mFrameWidth = source.getIntrinsicWidth();
+        mShaped = shape.getType() == ImageShapeType.NONE ? null : new ShapedBitmapDrawable(mCurrent, shape, scaleType);
+        mDecodeHandler = decodeHandler();
+    }
+
+    private static synchronized Handler decodeHandler() {
+        if (sDecodeHandler == null) {
+            /*所有动图共用一个解码线程，优先级低于主线程和Glide的解码线程*/
+            HandlerThread thread = new HandlerThread("image-animated-decode", Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            sDecodeHandler = new Handler(thread.getLooper());
+        }
+        return sDecodeHandler;
+    }
+
+    @Override
+    public void start() {
+        mRunning = true;
+        update();
+    }
+
+    @Override
+    public void stop() {
+        mRunning = false;
+        update();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    @Override
+    public boolean setVisible(boolean visible, boolean restart) {
+        boolean changed = super.setVisible(visible, restart);
+        update();
+        return changed;
+    }
+
+    /**
+     * 按start/stop、可见性更新播放状态
+     */
+    private void update() {
+        boolean active = mRunning && isVisible() && !mRecycled && mSource.getFrameCount() > 1;
+        if (active == mActive) return;
+        mActive = active;
+        if (active) {
+            mNextFrameTime = SystemClock.uptimeMillis() + mCurrentDelay;
+            mDecodeHandler.post(mFill);
+            MAIN.postAtTime(mTick, mNextFrameTime);
+        } else {
+            MAIN.removeCallbacks(mTick);
+            mWaiting = false;
+            drain();
+        }
+    }
+
+    /**
+     * 主线程：切换到已到期的帧
+     */
+    private void tick() {
+        if (!mActive) return;
+        if (getCallback() == null) {
+            /*已不再显示在视图上（如视图被移除但没有回调setVisible），暂停*/
+            mActive = false;
+            drain();
+            return;
+        }
+        long now = SystemClock.uptimeMillis();
+        Frame shown = null;
+        int dropped = 0;
+        synchronized (mReady) {
+            while (mNextFrameTime <= now && !mReady.isEmpty()) {
+                Frame frame = mReady.poll();
+                if (shown != null) {
+                    /*主线程来不及显示，跳过已过期的帧*/
+                    release(shown);
+                    dropped++;
+                }
+                shown = frame;
+                mNextFrameTime += frame.delay;
+            }
+        }
+        if (shown != null) {
+            STATS.onReleased(shown.bitmap.getAllocationByteCount());
+            STATS.onDisplayed(dropped);
+            setCurrent(shown);
+            if (mNextFrameTime <= now) {
+                /*解码跟不上，从现在开始重新计时，而不是连续跳帧*/
+                mNextFrameTime = now + shown.delay;
+            }
+            mDecodeHandler.post(mFill);
+        }
+        if (mNextFrameTime > now) {
+            MAIN.postAtTime(mTick, mNextFrameTime);
+        } else {
+            mWaiting = true;
+            synchronized (mReady) {
+                /*设置标记前解码线程可能已经放入了新的帧*/
+                if (!mReady.isEmpty()) {
+                    mWaiting = false;
+                    MAIN.post(mTick);
+                }
+            }
+        }
+    }
+
+    private void setCurrent(Frame frame) {
+        Bitmap previous = mCurrent;
+        boolean owned = mCurrentOwned;
+        mCurrent = frame.bitmap;
+        mCurrentOwned = true;
+        mCurrentDelay = frame.delay;
+        if (mShaped != null) mShaped.setBitmap(frame.bitmap);
+        invalidateSelf();
+        if (owned && previous != null) mPool.put(previous);
+    }
+
+    /**
+     * 解码线程：补满帧缓冲
+     */
+    private void fill() {
+        while (mActive && !mRecycled) {
+            synchronized (mReady) {
+                if (mReady.size() >= BUFFER_FRAMES) return;
+            }
+            if (mDecoder == null && !open()) return;
+            if (mDecoder.getCurrentFrameIndex() == mDecoder.getFrameCount() - 1) {
+                mLoops++;
+                int total = mDecoder.getTotalIterationCount();
+                /*达到动图设置的循环次数后停在最后一帧*/
+                if (total != GifDecoder.TOTAL_ITERATION_COUNT_FOREVER && mLoops >= total) return;
+            }
+            long start = Debug.threadCpuTimeNanos();
+            mDecoder.advance();
+            Bitmap bitmap = mDecoder.getNextFrame();
+            if (bitmap == null) return;
+            Frame frame = new Frame(bitmap, mDecoder.getNextDelay());
+            STATS.onDecoded(Debug.threadCpuTimeNanos() - start, bitmap.getAllocationByteCount());
+            synchronized (mReady) {
+                if (!mActive || mRecycled) {
+                    release(frame);
+                    return;
+                }
+                mReady.add(frame);
+            }
+            if (mWaiting) {
+                mWaiting = false;
+                MAIN.post(mTick);
+            }
+        }
+    }
+
+    /**
+     * 解码线程：创建解码器，并解码掉已经由Glide显示的第一帧（后续帧需要在前一帧的基础上合成）
+     */
+    private boolean open() {
+        ByteBuffer buffer = mSource.getBuffer();
+        if (buffer == null) return false;
+        GifHeaderParser parser = new GifHeaderParser().setData(buffer);
+        GifHeader header = parser.parseHeader();
+        parser.clear();
+        /*与Glide解码第一帧时使用同样的采样率，帧尺寸一致*/
+        int sampleSize = Math.max(1, Integer.highestOneBit(Math.max(1, header.getWidth() / Math.max(1, mFrameWidth))));
+        mDecoder = new StandardGifDecoder(mProvider, header, buffer, sampleSize);
+        mDecoder.advance();
+        Bitmap first = mDecoder.getNextFrame();
+        if (first == null) {
+            mDecoder.clear();
+            mDecoder = null;
+            return false;
+        }
+        mPool.put(first);
+        return true;
+    }
+
+    /**
+     * 释放帧缓冲中的全部帧（暂停时调用，解码器保留当前位置，恢复时继续）
+     */
+    private void drain() {
+        synchronized (mReady) {
+            Frame frame;
+            while ((frame = mReady.poll()) != null) {
+                release(frame);
+            }
+        }
+    }
+
+    private void release(Frame frame) {
+        STATS.onReleased(frame.bitmap.getAllocationByteCount());
+        mPool.put(frame.bitmap);
+    }
+
+    /**
+     * 不再显示时回收（主线程调用）：停止播放，释放帧缓冲、当前帧和解码器
+     */
+    void recycle() {
+        if (mRecycled) return;
+        mRecycled = true;
+        mActive = false;
+        MAIN.removeCallbacks(mTick);
+        drain();
+        if (mCurrentOwned && mCurrent != null) {
+            mPool.put(mCurrent);
+            mCurrent = null;
+        }
+        mDecodeHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mDecoder != null) {
+                    mDecoder.clear();
+                    mDecoder = null;
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        super.onBoundsChange(bounds);
+        if (mShaped != null) mShaped.setBounds(bounds);
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        Bitmap frame = mCurrent;
+        if (frame == null || frame.isRecycled()) return;
+        if (mShaped != null) {
+            mShaped.draw(canvas);
+        } else {
+            canvas.drawBitmap(frame, null, getBounds(), mPaint);
+        }
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        mPaint.setAlpha(alpha);
+        if (mShaped != null) mShaped.setAlpha(alpha);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getAlpha() {
+        return mPaint.getAlpha();
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        mPaint.setColorFilter(colorFilter);
+        if (mShaped != null) mShaped.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    /*有形状时与ShapedBitmapDrawable一致返回-1，由绘制矩阵完成缩放；普通形状返回帧尺寸，由ImageView按scaleType缩放*/
+    @Override
+    public int getIntrinsicWidth() {
+        return mShaped != null ? -1 : mSource.getIntrinsicWidth();
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return mShaped != null ? -1 : mSource.getIntrinsicHeight();
+    }
+
+    private static final class Frame {
+        final Bitmap bitmap;
+        final int delay;
+
+        Frame(Bitmap bitmap, int delay) {
+            this.bitmap = bitmap;
+            this.delay = delay;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.cloudling.imageloader;
+
+/**
+ * 描述: 动图播放统计（通过ImageLoader.getAnimatedImageStats获取，全部动图累计），用于衡量每显示一帧的解码开销和帧缓冲的内存峰值
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public class AnimatedImageStats {
+    private long mDecodedFrames, mDisplayedFrames, mDroppedFrames;
+    private long mDecodeCpuNanos;
+    private long mBufferedBytes, mPeakBufferedBytes;
+
+    AnimatedImageStats() {
+    }
+
+    synchronized void onDecoded(long cpuNanos, long bytes) {
+        mDecodedFrames++;
+        mDecodeCpuNanos += cpuNanos;
+        mBufferedBytes += bytes;
+        if (mBufferedBytes > mPeakBufferedBytes) mPeakBufferedBytes = mBufferedBytes;
+    }
+
+    synchronized void onReleased(long bytes) {
+        mBufferedBytes -= bytes;
+    }
+
+    synchronized void onDisplayed(int dropped) {
+        mDisplayedFrames++;
+        mDroppedFrames += dropped;
+    }
+
+    /**
+     * 解码的帧数
+     */
+    public synchronized long getDecodedFrames() {
+        return mDecodedFrames;
+    }
+
+    /**
+     * 显示的帧数
+     */
+    public synchronized long getDisplayedFrames() {
+        return mDisplayedFrames;
+    }
+
+    /**
+     * 因主线程来不及显示而跳过的帧数（已解码但没有显示）
+     */
+    public synchronized long getDroppedFrames() {
+        return mDroppedFrames;
+    }
+
+    /**
+     * 平均每显示一帧消耗的解码线程CPU时间（纳秒）
+     */
+    public synchronized long getDecodeCpuNanosPerDisplayedFrame() {
+        return mDisplayedFrames == 0 ? 0 : mDecodeCpuNanos / mDisplayedFrames;
+    }
+
+    /**
+     * 当前所有动图帧缓冲中的字节数（不含正在显示的帧）
+     */
+    public synchronized long getBufferedBytes() {
+        return mBufferedBytes;
+    }
+
+    /**
+     * 帧缓冲字节数的峰值
+     */
+    public synchronized long getPeakBufferedBytes() {
+        return mPeakBufferedBytes;
+    }
+}
@@ -1,10 +1,14 @@
 package com.cloudling.imageloader;
 
 import android.content.Context;
+import android.util.Size;
 import android.view.View;
 
+import java.util.List;
+
 /**
- * 描述: 图片加载策略
+ * 描述: 图片加载策略。在最初版本之后增加的方法都有默认实现（退回到已有的方法，或返回失败的ImageLoadFuture），
+ * 已有的实现类不需要修改；自定义的实现类通过ImageLoadFuture的构造方法、complete、fail返回异步结果
  * 联系: 1966353889@qq.com
  * 日期: 2019/10/29
  */
@@ -29,8 +33,59 @@ public interface BaseImageLoaderStrategy<V extends View, L> {
      */
     <LoadAddress> void load(Context context, LoadAddress url, V view, ImageLoaderCallback<L> listener, int... placeholder);
 
+    /**
+     * 加载图片（按options指定形状等参数）
+     *
+     * @param context     上下文
+     * @param url         图片加载地址
+     * @param view        不同的图片加载框架要设置的视图可能不一样，如Glide为ImageView而Fresco则为SimpleDraweeView
+     * @param options     加载参数（形状、是否在绘制时处理形状等），为null时与普通加载一致
+     * @param listener    加载监听
+     * @param placeholder 占位图（加载时或加载错误占位图），可选参数，第一个元素代表加载时占位图，第二个元素代表加载错误占位图
+     */
+    default <LoadAddress> void load(Context context, LoadAddress url, V view, ImageOptions options, ImageLoaderCallback<L> listener, int... placeholder) {
+        /*默认只按形状退回到circle/round/load，忽略其他参数*/
+        ImageShape shape = options == null ? null : options.getShape();
+        if (shape != null && shape.getType() == ImageShapeType.CIRCLE) {
+            circle(context, url, view, listener, placeholder);
+        } else if (shape != null && shape.getType() == ImageShapeType.ROUND) {
+            round(context, url, view, new float[]{shape.getLeftTop(), shape.getRightTop(), shape.getLeftBottom(), shape.getRightBottom()}, listener, placeholder);
+        } else {
+            load(context, url, view, listener, placeholder);
+        }
+    }
+
     <LoadAddress> void loadImageBitmap(Context context, LoadAddress url, int maxWidth, int maxHeight, ImageLoaderCallback<L> listener);
 
+    /**
+     * 加载图片为Bitmap
+     *
+     * @param context   上下文
+     * @param url       图片加载地址
+     * @param maxWidth  最大宽度
+     * @param maxHeight 最大高度
+     * @param policy    解码策略（像素格式、采样方式、内存上限），为null时使用全局设置
+     * @param listener  加载监听
+     */
+    default <LoadAddress> void loadImageBitmap(Context context, LoadAddress url, int maxWidth, int maxHeight, DecodePolicy policy, ImageLoaderCallback<L> listener) {
+        /*默认忽略解码策略*/
+        loadImageBitmap(context, url, maxWidth, maxHeight, listener);
+    }
+
+    /**
+     * 异步加载图片为Bitmap，可在任意线程调用
+     *
+     * @param context   上下文
+     * @param url       图片加载地址
+     * @param maxWidth  最大宽度
+     * @param maxHeight 最大高度
+     * @param policy    解码策略，为null时使用全局设置
+     * @return 可取消、可超时等待、可通过ImageLoadFuture.allOf合并的加载结果，默认返回失败的结果
+     */
+    default <LoadAddress> ImageLoadFuture<ImageResult> loadImageBitmapAsync(Context context, LoadAddress url, int maxWidth, int maxHeight, DecodePolicy policy) {
+        return ImageLoadFuture.failed(ImageResult.class, new UnsupportedOperationException("loadImageBitmapAsync"));
+    }
+
     /**
      * 加载图片（圆形）
      *
@@ -93,6 +148,50 @@ public interface BaseImageLoaderStrategy<V extends View, L> {
      */
     <LoadAddress> void round(Context context, LoadAddress url, V view, float[] radius, ImageLoaderCallback<L> listener, int... placeholder);
 
+    /**
+     * 预加载图片（预热磁盘缓存和内存缓存），按地址去重并限制并发数；再次调用时不在本次列表中的预加载会被取消，传入空列表即取消全部
+     *
+     * @param context 上下文
+     * @param urls    图片加载地址（如列表中即将显示的若干项）
+     * @param width   显示时视图的宽度（不含padding），需与之后显示时一致才能命中内存缓存
+     * @param height  显示时视图的高度（不含padding）
+     * @param shape   显示时的形状，需与之后调用的load/circle/round参数一致
+     */
+    default <LoadAddress> void prefetch(Context context, List<LoadAddress> urls, int width, int height, ImageShape shape) {
+        /*预加载只是优化，默认不预加载*/
+    }
+
+    /**
+     * 预加载图片，同prefetch(Context, List, int, int, ImageShape)
+     *
+     * @param options 显示时的加载参数，需与之后调用load时传入的参数一致
+     */
+    default <LoadAddress> void prefetch(Context context, List<LoadAddress> urls, int width, int height, ImageOptions options) {
+    }
+
+    /**
+     * 打开大图用于区域解码（地图、扫描文档、超长全景图等），网络图片先完整下载到磁盘缓存，不解码整张图片
+     *
+     * @param context 上下文
+     * @param url     图片加载地址
+     * @return 打开结果，通过ImageRegionSource.loadRegion按可见区域加载瓦片，默认返回失败的结果
+     */
+    default <LoadAddress> ImageLoadFuture<ImageRegionSource> openRegion(Context context, LoadAddress url) {
+        return ImageLoadFuture.failed(ImageRegionSource.class, new UnsupportedOperationException("openRegion"));
+    }
+
+    /**
+     * 获取图片原始尺寸（按EXIF方向旋转后，与显示时一致），只读取文件头，不解码像素、不经过磁盘缓存；
+     * 网络图片只请求文件头部分，结果按缓存key持久化记录，之后查询直接返回
+     *
+     * @param context 上下文
+     * @param url     图片加载地址
+     * @return 默认返回失败的结果
+     */
+    default <LoadAddress> ImageLoadFuture<Size> probeSize(Context context, LoadAddress url) {
+        return ImageLoadFuture.failed(Size.class, new UnsupportedOperationException("probeSize"));
+    }
+
     /**
      * 是否为支持的加载类型（不同图片加载框架支持的加载类型可能不一样，在具体的实现类中实现逻辑）
      */
@@ -0,0 +1,52 @@
+package com.cloudling.imageloader;
+
+import android.graphics.drawable.Drawable;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.request.target.DrawableImageViewTarget;
+import com.bumptech.glide.request.transition.Transition;
+
+/**
+ * 描述: 开启按帧批量交付时代替Glide默认的ImageView target：异步完成的结果由FrameBatcher在下一帧统一设置
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+class BatchedImageViewTarget extends DrawableImageViewTarget {
+
+    BatchedImageViewTarget(ImageView view) {
+        super(view);
+    }
+
+    @Override
+    public void onResourceReady(@NonNull final Drawable resource, @Nullable final Transition<? super Drawable> transition) {
+        if (!FrameBatcher.deferApply(this, new Runnable() {
+            @Override
+            public void run() {
+                BatchedImageViewTarget.super.onResourceReady(resource, transition);
+            }
+        })) {
+            super.onResourceReady(resource, transition);
+        }
+    }
+
+    @Override
+    public void onLoadStarted(@Nullable Drawable placeholder) {
+        FrameBatcher.cancel(this);
+        super.onLoadStarted(placeholder);
+    }
+
+    @Override
+    public void onLoadFailed(@Nullable Drawable errorDrawable) {
+        FrameBatcher.cancel(this);
+        super.onLoadFailed(errorDrawable);
+    }
+
+    @Override
+    public void onLoadCleared(@Nullable Drawable placeholder) {
+        FrameBatcher.cancel(this);
+        super.onLoadCleared(placeholder);
+    }
+}
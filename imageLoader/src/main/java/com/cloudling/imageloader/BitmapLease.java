@@ -0,0 +1,156 @@
+package com.cloudling.imageloader;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.util.Util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 描述: loadImageBitmap、loadImageBitmapAsync加载结果的Bitmap租约（通过ImageResult.getLease获取），带引用计数。
+ * 创建时计数为1，每个额外的持有者调用acquire，每个持有者用完后调用一次release；计数归零后Bitmap交还图片加载框架，
+ * 不再被其他界面使用时放回内存缓存，淘汰后进入Bitmap复用池，供之后的解码和圆角处理复用，此后不能再使用该Bitmap。
+ * loadImageBitmap的结果跟随context的页面生命周期，页面销毁时租约失效（getBitmap返回null）；loadImageBitmapAsync的结果只由租约释放。
+ * 调试时可通过ImageLoaderConfig.detectBitmapLeaks开启泄漏检测，租约没有release就不再被引用时输出获取时的调用栈
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public final class BitmapLease {
+    private static final String TAG = "BitmapLease";
+    private static volatile boolean sDetectLeaks;
+    private static final ReferenceQueue<BitmapLease> QUEUE = new ReferenceQueue<>();
+    private static final Set<LeakReference> TRACKED = Collections.newSetFromMap(new ConcurrentHashMap<LeakReference, Boolean>());
+    private static final AtomicLong LEAKS = new AtomicLong();
+
+    private final Bitmap mBitmap;
+    private Runnable mReleaser;
+    private int mCount = 1;
+    private boolean mRevoked;
+    private final LeakReference mLeak;
+
+    /**
+     * @param releaser 计数归零时调用（可在任意线程），交还Bitmap
+     */
+    BitmapLease(Bitmap bitmap, Runnable releaser) {
+        mBitmap = bitmap;
+        mReleaser = releaser;
+        mLeak = sDetectLeaks ? track(this) : null;
+    }
+
+    /**
+     * Bitmap，已释放或已失效时返回null
+     */
+    @Nullable
+    public synchronized Bitmap getBitmap() {
+        return mCount > 0 && !mRevoked ? mBitmap : null;
+    }
+
+    /**
+     * 增加一个持有者，该持有者用完后需调用一次release
+     *
+     * @throws IllegalStateException 已全部释放
+     */
+    public synchronized BitmapLease acquire() {
+        if (mCount <= 0) throw new IllegalStateException("BitmapLease already released");
+        mCount++;
+        return this;
+    }
+
+    /**
+     * 释放一次，计数归零时交还Bitmap（可在任意线程调用）
+     *
+     * @throws IllegalStateException 释放次数多于acquire次数
+     */
+    public void release() {
+        Runnable releaser;
+        synchronized (this) {
+            if (mCount <= 0) throw new IllegalStateException("BitmapLease already released");
+            if (--mCount > 0) return;
+            releaser = mReleaser;
+            mReleaser = null;
+        }
+        untrack();
+        if (releaser != null) releaser.run();
+    }
+
+    /**
+     * 是否已全部释放或已失效
+     */
+    public synchronized boolean isReleased() {
+        return mCount <= 0 || mRevoked;
+    }
+
+    /**
+     * 图片加载框架已收回Bitmap（请求随页面销毁被清除），之后getBitmap返回null，release不再有作用
+     */
+    void revoke() {
+        synchronized (this) {
+            if (mRevoked) return;
+            mRevoked = true;
+            mReleaser = null;
+        }
+        untrack();
+    }
+
+    private void untrack() {
+        if (mLeak != null) {
+            TRACKED.remove(mLeak);
+            mLeak.clear();
+        }
+    }
+
+    /**
+     * 开启或关闭泄漏检测（记录每个租约获取时的调用栈，只用于调试）
+     */
+    static void setLeakDetection(boolean enable) {
+        sDetectLeaks = enable;
+    }
+
+    /**
+     * 检测到的泄漏次数（没有release就不再被引用的租约数），未开启检测时为0
+     */
+    public static long getLeakCount() {
+        reportLeaks();
+        return LEAKS.get();
+    }
+
+    private static LeakReference track(BitmapLease lease) {
+        reportLeaks();
+        LeakReference reference = new LeakReference(lease, lease.mBitmap);
+        TRACKED.add(reference);
+        return reference;
+    }
+
+    /**
+     * 取出已被回收但没有释放的租约并输出获取时的调用栈，在获取新租约时顺带检查
+     */
+    private static void reportLeaks() {
+        Reference<? extends BitmapLease> polled;
+        while ((polled = QUEUE.poll()) != null) {
+            LeakReference reference = (LeakReference) polled;
+            if (!TRACKED.remove(reference)) continue;
+            LEAKS.incrementAndGet();
+            Log.w(TAG, "BitmapLease " + reference.description + " was never released", reference.site);
+        }
+    }
+
+    private static final class LeakReference extends WeakReference<BitmapLease> {
+        final String description;
+        final Throwable site;
+
+        LeakReference(BitmapLease lease, Bitmap bitmap) {
+            super(lease, QUEUE);
+            description = bitmap.getWidth() + "x" + bitmap.getHeight() + " (" + Util.getBitmapByteSize(bitmap) + " bytes)";
+            site = new Throwable("acquired here");
+        }
+    }
+}
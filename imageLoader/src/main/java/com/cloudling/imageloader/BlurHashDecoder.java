@@ -0,0 +1,225 @@
+package com.cloudling.imageloader;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceDecoder;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.util.Util;
+
+import java.util.Arrays;
+
+/**
+ * 描述: BlurHash解码（https://blurha.sh）。
+ * 按目标宽高比解码为长边不超过32像素的预览图，保存在单独的LRU缓存中（不进入Glide的BitmapPool，也不会被回收），
+ * 之后的形状处理和缩放由Glide按正式图片的参数完成
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+final class BlurHashDecoder implements ResourceDecoder<PlaceholderHash, Bitmap> {
+    private static final String CHARACTERS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+    /**
+     * 预览图长边的像素数，BlurHash最多9x9个分量，32像素已经足够，放大显示时由ImageView插值
+     */
+    private static final int PREVIEW_SIZE = 32;
+    /**
+     * 预览图缓存大小（字节），32x32的ARGB_8888预览图为4KB，可缓存约256张
+     */
+    private static final int CACHE_BYTES = 1024 * 1024;
+    private static final float[] SRGB_TO_LINEAR = new float[256];
+    /**
+     * 线性值（0-1）量化为4096级后查表转换为sRGB，避免每个像素调用Math.pow
+     */
+    private static final int LINEAR_STEPS = 4096;
+    private static final byte[] LINEAR_TO_SRGB = new byte[LINEAR_STEPS + 1];
+    private static final byte[] BASE83 = new byte[128];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            float value = i / 255f;
+            SRGB_TO_LINEAR[i] = value <= 0.04045f ? value / 12.92f : (float) Math.pow((value + 0.055f) / 1.055f, 2.4f);
+        }
+        for (int i = 0; i <= LINEAR_STEPS; i++) {
+            double value = (double) i / LINEAR_STEPS;
+            double srgb = value <= 0.0031308 ? value * 12.92 : 1.055 * Math.pow(value, 1 / 2.4) - 0.055;
+            LINEAR_TO_SRGB[i] = (byte) Math.round(srgb * 255);
+        }
+        Arrays.fill(BASE83, (byte) -1);
+        for (int i = 0; i < CHARACTERS.length(); i++) {
+            BASE83[CHARACTERS.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final LruCache<String, Bitmap> mPreviews = new LruCache<String, Bitmap>(CACHE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+            return value.getByteCount();
+        }
+    };
+
+    /**
+     * 内存紧张时释放一半预览图
+     */
+    void trimToHalf() {
+        mPreviews.trimToSize(mPreviews.size() / 2);
+    }
+
+    void clearMemory() {
+        mPreviews.evictAll();
+    }
+
+    /**
+     * 当前缓存的预览图大小（字节）
+     */
+    int getCacheSize() {
+        return mPreviews.size();
+    }
+
+    @Override
+    public boolean handles(@NonNull PlaceholderHash source, @NonNull Options options) {
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public Resource<Bitmap> decode(@NonNull PlaceholderHash source, int width, int height, @NonNull Options options) {
+        int previewWidth = PREVIEW_SIZE, previewHeight = PREVIEW_SIZE;
+        if (Util.isValidDimensions(width, height) && width != Target.SIZE_ORIGINAL && height != Target.SIZE_ORIGINAL) {
+            /*保持目标的宽高比，长边为PREVIEW_SIZE*/
+            if (width >= height) {
+                previewHeight = Math.max(1, Math.round((float) PREVIEW_SIZE * height / width));
+            } else {
+                previewWidth = Math.max(1, Math.round((float) PREVIEW_SIZE * width / height));
+            }
+        }
+        String key = source.getHash() + '@' + previewWidth + 'x' + previewHeight;
+        Bitmap preview = mPreviews.get(key);
+        if (preview == null) {
+            int[] pixels = new int[previewWidth * previewHeight];
+            if (!decode(source.getHash(), previewWidth, previewHeight, 1f, pixels)) return null;
+            preview = Bitmap.createBitmap(pixels, previewWidth, previewHeight, Bitmap.Config.ARGB_8888);
+            mPreviews.put(key, preview);
+        }
+        return new PreviewResource(preview);
+    }
+
+    /**
+     * 解码BlurHash，除输出数组外只分配两张余弦表和分量数组（总计几百个float）
+     *
+     * @param punch  对比度，1为原样
+     * @param pixels 输出的ARGB像素，长度不小于width*height
+     * @return 哈希格式错误时返回false
+     */
+    static boolean decode(String hash, int width, int height, float punch, int[] pixels) {
+        if (hash == null || hash.length() < 6) return false;
+        int sizeFlag = decode83(hash, 0, 1);
+        if (sizeFlag < 0) return false;
+        int numY = sizeFlag / 9 + 1, numX = sizeFlag % 9 + 1;
+        int count = numX * numY;
+        if (hash.length() != 4 + 2 * count) return false;
+        int quantisedMax = decode83(hash, 1, 2);
+        if (quantisedMax < 0) return false;
+        float maxValue = (quantisedMax + 1) / 166f * punch;
+        float[] colors = new float[count * 3];
+        int dc = decode83(hash, 2, 6);
+        if (dc < 0) return false;
+        colors[0] = SRGB_TO_LINEAR[(dc >> 16) & 0xFF];
+        colors[1] = SRGB_TO_LINEAR[(dc >> 8) & 0xFF];
+        colors[2] = SRGB_TO_LINEAR[dc & 0xFF];
+        for (int i = 1; i < count; i++) {
+            int ac = decode83(hash, 4 + i * 2, 6 + i * 2);
+            if (ac < 0) return false;
+            colors[i * 3] = signSquare(ac / (19 * 19)) * maxValue;
+            colors[i * 3 + 1] = signSquare((ac / 19) % 19) * maxValue;
+            colors[i * 3 + 2] = signSquare(ac % 19) * maxValue;
+        }
+        float[] cosX = new float[width * numX];
+        for (int x = 0; x < width; x++) {
+            for (int i = 0; i < numX; i++) {
+                cosX[x * numX + i] = (float) Math.cos(Math.PI * x * i / width);
+            }
+        }
+        float[] cosY = new float[height * numY];
+        for (int y = 0; y < height; y++) {
+            for (int j = 0; j < numY; j++) {
+                cosY[y * numY + j] = (float) Math.cos(Math.PI * y * j / height);
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                float r = 0, g = 0, b = 0;
+                for (int j = 0; j < numY; j++) {
+                    float basisY = cosY[y * numY + j];
+                    for (int i = 0; i < numX; i++) {
+                        float basis = cosX[x * numX + i] * basisY;
+                        int index = (j * numX + i) * 3;
+                        r += colors[index] * basis;
+                        g += colors[index + 1] * basis;
+                        b += colors[index + 2] * basis;
+                    }
+                }
+                pixels[y * width + x] = 0xFF000000 | linearToSrgb(r) << 16 | linearToSrgb(g) << 8 | linearToSrgb(b);
+            }
+        }
+        return true;
+    }
+
+    private static int decode83(String hash, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = hash.charAt(i);
+            int digit = c < 128 ? BASE83[c] : -1;
+            if (digit < 0) return -1;
+            value = value * 83 + digit;
+        }
+        return value;
+    }
+
+    private static float signSquare(int quantised) {
+        float value = (quantised - 9) / 9f;
+        return value < 0 ? -value * value : value * value;
+    }
+
+    private static int linearToSrgb(float value) {
+        if (value <= 0) return 0;
+        if (value >= 1) return 255;
+        return LINEAR_TO_SRGB[(int) (value * LINEAR_STEPS + 0.5f)] & 0xFF;
+    }
+
+    /**
+     * 预览图由LRU缓存持有，Glide释放时不能放入BitmapPool被复用或回收
+     */
+    private static final class PreviewResource implements Resource<Bitmap> {
+        private final Bitmap bitmap;
+
+        PreviewResource(Bitmap bitmap) {
+            this.bitmap = bitmap;
+        }
+
+        @NonNull
+        @Override
+        public Class<Bitmap> getResourceClass() {
+            return Bitmap.class;
+        }
+
+        @NonNull
+        @Override
+        public Bitmap get() {
+            return bitmap;
+        }
+
+        @Override
+        public int getSize() {
+            return Util.getBitmapByteSize(bitmap);
+        }
+
+        @Override
+        public void recycle() {
+        }
+    }
+}
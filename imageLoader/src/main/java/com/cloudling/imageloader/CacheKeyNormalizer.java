@@ -0,0 +1,18 @@
+package com.cloudling.imageloader;
+
+/**
+ * 描述: 缓存key规范化（通过ImageLoaderConfig.cacheKeyNormalizer设置）。
+ * 网络图片下载时使用完整地址，内存缓存和磁盘缓存使用规范化后的key，签名、过期时间等经常变化的参数不影响缓存命中。
+ * 可使用默认实现DefaultCacheKeyNormalizer
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public interface CacheKeyNormalizer {
+    /**
+     * 规范化（在发起加载的线程上调用，通常是主线程，实现需要足够轻量）
+     *
+     * @param url 完整的网络图片地址
+     * @return 缓存key，返回null或原地址时不做规范化
+     */
+    String normalize(String url);
+}
@@ -0,0 +1,56 @@
+package com.cloudling.imageloader;
+
+import android.util.LruCache;
+
+/**
+ * 描述: 缓存key规范化的统计（通过ImageLoader.getCacheKeyStats获取），用于衡量规范化对缓存命中率的提升
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public class CacheKeyStats {
+    /**
+     * 记录最近用过的key及对应的完整地址，用于判断不同地址是否规范化为同一个key
+     */
+    private static final int MAX_TRACKED = 512;
+
+    private final LruCache<String, String> mRecent = new LruCache<>(MAX_TRACKED);
+    private long mRequestCount, mNormalizedCount, mSharedCount;
+
+    CacheKeyStats() {
+    }
+
+    synchronized void record(String url, String key) {
+        mRequestCount++;
+        if (!key.equals(url)) mNormalizedCount++;
+        String previous = mRecent.put(key, url);
+        if (previous != null && !previous.equals(url)) mSharedCount++;
+    }
+
+    /**
+     * 经过规范化的网络地址加载次数
+     */
+    public synchronized long getRequestCount() {
+        return mRequestCount;
+    }
+
+    /**
+     * 缓存key与完整地址不同的次数
+     */
+    public synchronized long getNormalizedCount() {
+        return mNormalizedCount;
+    }
+
+    /**
+     * 地址与上一次使用同一个key的地址不同的次数，即不做规范化时会缓存未命中（重新下载、解码）的次数
+     */
+    public synchronized long getSharedKeyCount() {
+        return mSharedCount;
+    }
+
+    /**
+     * 共享key的比例（规范化带来的额外命中机会）
+     */
+    public synchronized float getSharedKeyRate() {
+        return mRequestCount == 0 ? 0 : (float) mSharedCount / mRequestCount;
+    }
+}
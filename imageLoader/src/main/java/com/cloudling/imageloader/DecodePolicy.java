@@ -0,0 +1,110 @@
+package com.cloudling.imageloader;
+
+/**
+ * 描述: 解码策略（像素格式、采样方式、单张图片内存上限），可通过ImageLoaderConfig全局设置，也可通过ImageOptions或loadImageBitmap单次设置
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public class DecodePolicy {
+    /**
+     * 像素格式
+     */
+    public enum Format {
+        /**
+         * 由图片加载框架决定（Glide默认ARGB_8888，Android 8.0及以上在安全时使用HARDWARE）
+         */
+        DEFAULT,
+        /**
+         * 每像素2字节，适合不透明的照片，内存减半；图片带透明通道时仍使用ARGB_8888
+         */
+        RGB_565,
+        /**
+         * 每像素4字节，且不使用HARDWARE（需要读取像素或在软件Canvas上绘制时使用）
+         */
+        ARGB_8888,
+        /**
+         * Android 8.0及以上尽量使用HARDWARE（像素只保存在显存中），形状transform等无法使用时自动退回ARGB_8888
+         */
+        HARDWARE
+    }
+
+    /**
+     * 采样方式，决定解码尺寸与目标尺寸（视图尺寸或maxWidth、maxHeight）的关系
+     */
+    public enum Downsample {
+        /**
+         * 由显示方式决定（视图加载时跟随ImageView的scaleType）
+         */
+        DEFAULT,
+        /**
+         * 短边铺满目标尺寸（适合CENTER_CROP）
+         */
+        CENTER_OUTSIDE,
+        /**
+         * 整张图片放进目标尺寸，不放大
+         */
+        CENTER_INSIDE,
+        /**
+         * 整张图片放进目标尺寸，可放大
+         */
+        FIT_CENTER,
+        /**
+         * 只按2的幂次采样，宽高都不小于目标尺寸
+         */
+        AT_LEAST,
+        /**
+         * 只按2的幂次采样，宽高都不大于目标尺寸
+         */
+        AT_MOST,
+        /**
+         * 不采样，按原图尺寸解码
+         */
+        NONE
+    }
+
+    private Format format = Format.DEFAULT;
+    private Downsample downsample = Downsample.DEFAULT;
+    private long maxBytes;
+
+    public static DecodePolicy newBuilder() {
+        return new DecodePolicy();
+    }
+
+    /**
+     * 像素格式，默认Format.DEFAULT
+     */
+    public DecodePolicy format(Format format) {
+        this.format = format == null ? Format.DEFAULT : format;
+        return this;
+    }
+
+    /**
+     * 采样方式，默认Downsample.DEFAULT
+     */
+    public DecodePolicy downsample(Downsample downsample) {
+        this.downsample = downsample == null ? Downsample.DEFAULT : downsample;
+        return this;
+    }
+
+    /**
+     * 单张图片解码后的内存上限（按每像素4字节估算），超出时在采样方式的基础上进一步缩小
+     *
+     * @param maxBytes 内存上限（字节），小于等于0时不限制
+     */
+    public DecodePolicy maxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        return this;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public Downsample getDownsample() {
+        return downsample;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
@@ -0,0 +1,137 @@
+package com.cloudling.imageloader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 描述: 缓存key规范化的默认实现，依次执行：
+ * 1.地址改写规则（如把多个CDN域名统一为一个）；
+ * 2.去掉#及之后的部分，按保留列表、删除列表过滤查询参数（如签名、过期时间）；
+ * 3.尺寸参数向上取整到最近的档位（如w=317与w=320使用同一个缓存）；
+ * 4.剩余的查询参数按名称排序（参数顺序不同的地址使用同一个缓存）
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public class DefaultCacheKeyNormalizer implements CacheKeyNormalizer {
+    private final List<Pattern> rewritePatterns = new ArrayList<>();
+    private final List<String> rewriteReplacements = new ArrayList<>();
+    private final Set<String> keepParams = new HashSet<>();
+    private final Set<String> dropParams = new HashSet<>();
+    private final Map<String, int[]> sizeBuckets = new HashMap<>();
+
+    public static DefaultCacheKeyNormalizer newBuilder() {
+        return new DefaultCacheKeyNormalizer();
+    }
+
+    /**
+     * 添加地址改写规则，按添加顺序对完整地址执行（等同于String.replaceAll）
+     *
+     * @param regex       正则表达式
+     * @param replacement 替换内容，可使用$1等引用分组
+     */
+    public DefaultCacheKeyNormalizer rewrite(String regex, String replacement) {
+        rewritePatterns.add(Pattern.compile(regex));
+        rewriteReplacements.add(replacement);
+        return this;
+    }
+
+    /**
+     * 只保留这些查询参数（其余全部去掉），不设置时保留除删除列表以外的全部参数
+     */
+    public DefaultCacheKeyNormalizer keepParams(String... names) {
+        keepParams.addAll(Arrays.asList(names));
+        return this;
+    }
+
+    /**
+     * 去掉这些查询参数（如签名、过期时间、时间戳）
+     */
+    public DefaultCacheKeyNormalizer dropParams(String... names) {
+        dropParams.addAll(Arrays.asList(names));
+        return this;
+    }
+
+    /**
+     * 尺寸参数档位：参数值为整数时向上取整到不小于它的最小档位；大于全部档位时保留原值
+     * （向下取到最大档位会让较大的请求命中较小图片的缓存，显示时被放大）
+     *
+     * @param name    参数名，如w、width
+     * @param buckets 档位，如160、320、640、1280
+     */
+    public DefaultCacheKeyNormalizer sizeBuckets(String name, int... buckets) {
+        int[] sorted = buckets.clone();
+        Arrays.sort(sorted);
+        sizeBuckets.put(name, sorted);
+        return this;
+    }
+
+    @Override
+    public String normalize(String url) {
+        for (int i = 0; i < rewritePatterns.size(); i++) {
+            url = rewritePatterns.get(i).matcher(url).replaceAll(rewriteReplacements.get(i));
+        }
+        int fragment = url.indexOf('#');
+        if (fragment >= 0) url = url.substring(0, fragment);
+        int query = url.indexOf('?');
+        if (query < 0) return url;
+        List<String> params = new ArrayList<>();
+        int start = query + 1;
+        while (start <= url.length()) {
+            int end = url.indexOf('&', start);
+            if (end < 0) end = url.length();
+            if (end > start) {
+                String param = param(url.substring(start, end));
+                if (param != null) params.add(param);
+            }
+            start = end + 1;
+        }
+        if (params.isEmpty()) return url.substring(0, query);
+        Collections.sort(params);
+        StringBuilder key = new StringBuilder(url.length()).append(url, 0, query + 1);
+        for (int i = 0; i < params.size(); i++) {
+            if (i > 0) key.append('&');
+            key.append(params.get(i));
+        }
+        return key.toString();
+    }
+
+    /**
+     * 处理单个查询参数
+     *
+     * @return 需要去掉时返回null
+     */
+    private String param(String param) {
+        int equals = param.indexOf('=');
+        String name = equals < 0 ? param : param.substring(0, equals);
+        if (!keepParams.isEmpty() && !keepParams.contains(name)) return null;
+        if (dropParams.contains(name)) return null;
+        int[] buckets = sizeBuckets.get(name);
+        if (buckets != null && buckets.length > 0 && equals >= 0) {
+            try {
+                int size = Integer.parseInt(param.substring(equals + 1));
+                int bucket = bucket(buckets, size);
+                if (bucket >= 0) return name + '=' + bucket;
+            } catch (NumberFormatException ignored) {
+                /*不是整数，原样保留*/
+            }
+        }
+        return param;
+    }
+
+    /**
+     * @return 不小于size的最小档位，大于全部档位时返回-1
+     */
+    private static int bucket(int[] buckets, int size) {
+        for (int bucket : buckets) {
+            if (bucket >= size) return bucket;
+        }
+        return -1;
+    }
+}
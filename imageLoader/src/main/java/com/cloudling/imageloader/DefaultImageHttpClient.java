@@ -0,0 +1,173 @@
+package com.cloudling.imageloader;
+
+import android.text.TextUtils;
+
+import com.bumptech.glide.load.HttpException;
+import com.bumptech.glide.util.ContentLengthInputStream;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * 描述: 基于HttpURLConnection的图片下载客户端。
+ * 与Glide默认的HttpUrlFetcher不同，请求结束后只关闭响应流而不断开连接，完整读取的连接会回到系统的keep-alive连接池，
+ * 同一域名的后续图片请求不需要重新建立TCP和TLS连接（连接池大小由系统属性http.maxConnections决定，默认5）
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public class DefaultImageHttpClient implements ImageHttpClient {
+    private static final int MAXIMUM_REDIRECTS = 5;
+    private int timeout = 2500;
+
+    public static DefaultImageHttpClient newBuilder() {
+        return new DefaultImageHttpClient();
+    }
+
+    /**
+     * 连接和读取超时时间
+     *
+     * @param timeout 超时时间（毫秒），默认2500，与Glide一致
+     */
+    public DefaultImageHttpClient timeout(int timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    @Override
+    public ImageHttpCall newCall(String url, Map<String, String> headers, int priority) {
+        return new Call(url, headers, timeout);
+    }
+
+    private static final class Call implements ImageHttpCall {
+        private final String url;
+        private final Map<String, String> headers;
+        private final int timeout;
+        private volatile boolean cancelled;
+        private HttpURLConnection connection;
+        private InputStream stream;
+        /**
+         * 响应体是否被完整读取，只有完整读取的连接才能被复用，否则关闭时断开连接
+         */
+        private boolean exhausted;
+
+        Call(String url, Map<String, String> headers, int timeout) {
+            this.url = url;
+            this.headers = headers;
+            this.timeout = timeout;
+        }
+
+        @Override
+        public InputStream execute() throws IOException {
+            URL current = new URL(url);
+            for (int redirects = 0; redirects <= MAXIMUM_REDIRECTS; redirects++) {
+                connection = (HttpURLConnection) current.openConnection();
+                for (Map.Entry<String, String> header : headers.entrySet()) {
+                    connection.addRequestProperty(header.getKey(), header.getValue());
+                }
+                connection.setConnectTimeout(timeout);
+                connection.setReadTimeout(timeout);
+                connection.setUseCaches(false);
+                connection.setDoInput(true);
+                connection.setInstanceFollowRedirects(false);
+                connection.connect();
+                if (cancelled) throw new IOException("Canceled");
+                int statusCode = connection.getResponseCode();
+                if (statusCode / 100 == 2) {
+                    InputStream body = connection.getInputStream();
+                    if (TextUtils.isEmpty(connection.getContentEncoding())) {
+                        body = ContentLengthInputStream.obtain(body, connection.getContentLength());
+                    }
+                    stream = new CancellableInputStream(body);
+                    return stream;
+                }
+                if (statusCode / 100 == 3) {
+                    String location = connection.getHeaderField("Location");
+                    if (TextUtils.isEmpty(location)) {
+                        throw new HttpException("Received empty or null redirect url", statusCode);
+                    }
+                    current = new URL(current, location);
+                    discard();
+                    continue;
+                }
+                String message = connection.getResponseMessage();
+                discard();
+                throw new HttpException(message, statusCode);
+            }
+            throw new HttpException("Too many (> " + MAXIMUM_REDIRECTS + ") redirects!");
+        }
+
+        /**
+         * 读完并关闭重定向或错误响应的响应体，让连接可以复用
+         */
+        private void discard() {
+            InputStream error = connection.getErrorStream();
+            if (error == null) {
+                try {
+                    error = connection.getInputStream();
+                } catch (IOException ignored) {
+                }
+            }
+            if (error != null) {
+                try {
+                    byte[] buffer = new byte[1024];
+                    while (error.read(buffer) != -1) {
+                        /*丢弃*/
+                    }
+                    error.close();
+                } catch (IOException e) {
+                    connection.disconnect();
+                }
+            }
+            connection = null;
+        }
+
+        @Override
+        public void cancel() {
+            /*cancel经常在主线程调用，这里只设置标记，正在进行的读取在下一次read时中止*/
+            cancelled = true;
+        }
+
+        @Override
+        public void close() {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException ignored) {
+                }
+                stream = null;
+            }
+            if (connection != null && (!exhausted || cancelled)) {
+                /*没有完整读取的连接无法复用，直接断开*/
+                connection.disconnect();
+            }
+            connection = null;
+        }
+
+        private final class CancellableInputStream extends FilterInputStream {
+
+            CancellableInputStream(InputStream in) {
+                super(in);
+            }
+
+            @Override
+            public int read() throws IOException {
+                if (cancelled) throw new IOException("Canceled");
+                int read = super.read();
+                if (read == -1) exhausted = true;
+                return read;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (cancelled) throw new IOException("Canceled");
+                int read = super.read(b, off, len);
+                if (read == -1) exhausted = true;
+                return read;
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.cloudling.imageloader;
+
+import android.view.Choreographer;
+
+import com.bumptech.glide.util.Util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 描述: 按帧批量交付加载结果（通过ImageLoaderConfig.batchedDelivery开启）。
+ * 异步完成的请求不再各自立即设置到视图上，而是暂存起来，在下一次vsync（Choreographer）时统一设置并回调onSuccess，
+ * 同一帧内的多次setImageDrawable只触发一次布局和绘制；每帧有时间上限，超出的结果顺延到下一帧。
+ * 在into中同步完成的请求（内存缓存命中）不暂存，避免多显示一帧占位图。只在主线程使用
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+final class FrameBatcher {
+    /**
+     * 每帧设置结果的时间上限，至少设置一个
+     */
+    private static final long FRAME_BUDGET_NANOS = 4 * 1000 * 1000;
+
+    private static volatile boolean sEnabled;
+    /*正在同步发起请求（into）时大于0*/
+    private static int sDispatchDepth;
+    private static boolean sScheduled;
+    /*按target暂存，保持完成顺序*/
+    private static final Map<Object, Batch> sPending = new LinkedHashMap<>();
+    private static final Choreographer.FrameCallback FRAME = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            sScheduled = false;
+            deliver();
+        }
+    };
+    /*正在交付的结果，交付回调中target开始新的请求时不再设置旧的结果*/
+    private static Batch sDelivering;
+    static final FrameDeliveryStats STATS = new FrameDeliveryStats();
+
+    private FrameBatcher() {
+    }
+
+    static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    /**
+     * 标记开始同步发起请求，期间完成的结果直接交付
+     */
+    static void beginDispatch() {
+        sDispatchDepth++;
+    }
+
+    static void endDispatch() {
+        sDispatchDepth--;
+    }
+
+    /**
+     * 暂存target的结果设置，到下一帧执行
+     *
+     * @return 是否已暂存，未开启、同步完成或不在主线程时返回false，由调用方立即执行
+     */
+    static boolean deferApply(Object target, Runnable apply) {
+        Batch batch = batch(target);
+        if (batch == null) return false;
+        batch.apply = apply;
+        return true;
+    }
+
+    /**
+     * 暂存target的结果回调（onSuccess），在设置结果之前执行
+     *
+     * @return 是否已暂存
+     */
+    static boolean deferCallback(Object target, Runnable callback) {
+        Batch batch = batch(target);
+        if (batch == null) return false;
+        batch.callbacks.add(callback);
+        return true;
+    }
+
+    private static Batch batch(Object target) {
+        if (!sEnabled || sDispatchDepth > 0 || !Util.isOnMainThread()) return null;
+        Batch batch = sPending.get(target);
+        if (batch == null) {
+            batch = new Batch(target);
+            sPending.put(target, batch);
+        }
+        if (!sScheduled) {
+            sScheduled = true;
+            Choreographer.getInstance().postFrameCallback(FRAME);
+        }
+        return batch;
+    }
+
+    /**
+     * target被清除或开始新的请求：丢弃还未设置的结果（资源可能已被回收），已完成的回调立即执行
+     */
+    static void cancel(Object target) {
+        if (!Util.isOnMainThread()) return;
+        if (sDelivering != null && sDelivering.target == target) sDelivering.apply = null;
+        if (sPending.isEmpty()) return;
+        Batch batch = sPending.remove(target);
+        if (batch != null) batch.runCallbacks();
+    }
+
+    private static void deliver() {
+        long start = System.nanoTime();
+        int delivered = 0;
+        while (!sPending.isEmpty()) {
+            if (delivered > 0 && System.nanoTime() - start > FRAME_BUDGET_NANOS) break;
+            /*每次重新取第一个：执行过程中可能发起新的请求或取消其他target的结果*/
+            Iterator<Batch> iterator = sPending.values().iterator();
+            Batch batch = iterator.next();
+            iterator.remove();
+            sDelivering = batch;
+            try {
+                batch.runCallbacks();
+                if (batch.apply != null) batch.apply.run();
+            } finally {
+                sDelivering = null;
+            }
+            delivered++;
+        }
+        STATS.onFrame(delivered, System.nanoTime() - start, !sPending.isEmpty());
+        if (!sPending.isEmpty()) {
+            if (!sScheduled) {
+                sScheduled = true;
+                Choreographer.getInstance().postFrameCallback(FRAME);
+            }
+        }
+    }
+
+    private static final class Batch {
+        final Object target;
+        final List<Runnable> callbacks = new ArrayList<>(1);
+        Runnable apply;
+
+        Batch(Object target) {
+            this.target = target;
+        }
+
+        void runCallbacks() {
+            for (Runnable callback : callbacks) {
+                callback.run();
+            }
+            callbacks.clear();
+        }
+    }
+}
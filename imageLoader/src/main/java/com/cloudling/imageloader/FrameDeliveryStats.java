@@ -0,0 +1,57 @@
+package com.cloudling.imageloader;
+
+/**
+ * 描述: 按帧批量交付的统计（通过ImageLoader.getFrameDeliveryStats获取），与立即交付对比时配合FrameMetrics、Perfetto等观察帧耗时
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public class FrameDeliveryStats {
+    private long mFrames, mDelivered, mCarriedOver;
+    private long mTotalNanos, mMaxFrameNanos;
+
+    FrameDeliveryStats() {
+    }
+
+    synchronized void onFrame(int delivered, long nanos, boolean carriedOver) {
+        mFrames++;
+        mDelivered += delivered;
+        mTotalNanos += nanos;
+        if (nanos > mMaxFrameNanos) mMaxFrameNanos = nanos;
+        if (carriedOver) mCarriedOver++;
+    }
+
+    /**
+     * 有结果交付的帧数
+     */
+    public synchronized long getFrames() {
+        return mFrames;
+    }
+
+    /**
+     * 批量交付的结果数，除以getFrames为平均每帧交付的结果数
+     */
+    public synchronized long getDelivered() {
+        return mDelivered;
+    }
+
+    /**
+     * 超出每帧时间上限、有结果顺延到下一帧的帧数
+     */
+    public synchronized long getCarriedOver() {
+        return mCarriedOver;
+    }
+
+    /**
+     * 平均每帧交付（设置到视图和回调）的耗时（纳秒）
+     */
+    public synchronized long getAverageFrameNanos() {
+        return mFrames == 0 ? 0 : mTotalNanos / mFrames;
+    }
+
+    /**
+     * 单帧交付耗时的最大值（纳秒）
+     */
+    public synchronized long getMaxFrameNanos() {
+        return mMaxFrameNanos;
+    }
+}
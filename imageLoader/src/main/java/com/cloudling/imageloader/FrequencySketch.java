@@ -0,0 +1,70 @@
+package com.cloudling.imageloader;
+
+/**
+ * 描述: 访问频率估算（Count-Min Sketch，4位计数上限15，累计一定次数后全部减半，使频率随时间衰减）
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+final class FrequencySketch {
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x97cb3127, 0xb492b66f, 0x9ae16a3b, 0xc3a5c85c};
+
+    private final byte[] mTable;
+    private final int mMask;
+    private final int mSampleSize;
+    private int mSamples;
+
+    /**
+     * @param width 计数器个数（向上取2的幂），应为预计缓存项数量的数倍
+     */
+    FrequencySketch(int width) {
+        int size = Integer.highestOneBit(Math.max(width, 64) - 1) << 1;
+        mTable = new byte[size];
+        mMask = size - 1;
+        /*每次递增最多给4个计数器各加1，平均每个计数器累计到4左右就减半；周期过长时计数器先全部达到上限，
+        之后的递增不再计入周期，永远不会减半，频率也就不再衰减*/
+        mSampleSize = size;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int seed : SEEDS) {
+            int index = indexOf(hash, seed);
+            if (mTable[index] < MAX_COUNT) {
+                mTable[index]++;
+                added = true;
+            }
+        }
+        if (added && ++mSamples >= mSampleSize) {
+            reset();
+        }
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int seed : SEEDS) {
+            frequency = Math.min(frequency, mTable[indexOf(hash, seed)]);
+        }
+        return frequency;
+    }
+
+    private void reset() {
+        for (int i = 0; i < mTable.length; i++) {
+            mTable[i] = (byte) (mTable[i] >>> 1);
+        }
+        mSamples /= 2;
+    }
+
+    private int indexOf(int hash, int seed) {
+        int h = hash * seed;
+        h ^= h >>> 16;
+        return h & mMask;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
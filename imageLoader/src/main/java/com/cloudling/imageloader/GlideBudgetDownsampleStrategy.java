@@ -0,0 +1,52 @@
+package com.cloudling.imageloader;
+
+import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy;
+
+/**
+ * 描述: 带内存上限的采样策略，在原采样策略的缩放比例基础上保证解码结果不超过指定字节数（按每像素4字节估算）
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+final class GlideBudgetDownsampleStrategy extends DownsampleStrategy {
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final DownsampleStrategy base;
+    private final long maxBytes;
+
+    GlideBudgetDownsampleStrategy(DownsampleStrategy base, long maxBytes) {
+        this.base = base;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public float getScaleFactor(int sourceWidth, int sourceHeight, int requestedWidth, int requestedHeight) {
+        float scale = base.getScaleFactor(sourceWidth, sourceHeight, requestedWidth, requestedHeight);
+        double bytes = (double) sourceWidth * sourceHeight * scale * scale * BYTES_PER_PIXEL;
+        if (bytes <= maxBytes) return scale;
+        return (float) (scale * Math.sqrt(maxBytes / bytes));
+    }
+
+    @Override
+    public SampleSizeRounding getSampleSizeRounding(int sourceWidth, int sourceHeight, int requestedWidth, int requestedHeight) {
+        /*超出上限时采样率向上取整，保证结果不会因为取整超出上限*/
+        float scale = base.getScaleFactor(sourceWidth, sourceHeight, requestedWidth, requestedHeight);
+        double bytes = (double) sourceWidth * sourceHeight * scale * scale * BYTES_PER_PIXEL;
+        return bytes <= maxBytes ? base.getSampleSizeRounding(sourceWidth, sourceHeight, requestedWidth, requestedHeight)
+                : SampleSizeRounding.MEMORY;
+    }
+
+    /*采样策略作为Options的一部分参与内存缓存key的计算，必须实现equals/hashCode，否则相同参数的请求无法命中内存缓存*/
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof GlideBudgetDownsampleStrategy) {
+            GlideBudgetDownsampleStrategy other = (GlideBudgetDownsampleStrategy) o;
+            return base.equals(other.base) && maxBytes == other.maxBytes;
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * base.hashCode() + (int) (maxBytes ^ (maxBytes >>> 32));
+    }
+}
@@ -0,0 +1,35 @@
+package com.cloudling.imageloader;
+
+import android.graphics.Bitmap;
+import android.os.Trace;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.bitmap.CircleCrop;
+
+/**
+ * 描述: Glide圆形transform，与CircleCrop相同（equals、hashCode和磁盘缓存key都与CircleCrop一致，已有的缓存仍可命中），
+ * 开启统计时记录处理耗时
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+final class GlideCircleTransform extends CircleCrop {
+    /**
+     * systrace/perfetto中的分段名称，用于统计圆形处理耗时
+     */
+    static final String TRACE_TRANSFORM = "ImageLoader#circleTransform";
+
+    @Override
+    protected Bitmap transform(@NonNull BitmapPool pool, @NonNull Bitmap toTransform, int outWidth, int outHeight) {
+        Trace.beginSection(TRACE_TRANSFORM);
+        long start = ImageLoader.getInstance().getMetricsSink() == null ? -1 : System.nanoTime();
+        try {
+            Bitmap result = super.transform(pool, toTransform, outWidth, outHeight);
+            if (start >= 0) GlideRequestListener.onTransformed(result, System.nanoTime() - start);
+            return result;
+        } finally {
+            Trace.endSection();
+        }
+    }
+}
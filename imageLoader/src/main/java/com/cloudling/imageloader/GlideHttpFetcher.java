@@ -0,0 +1,211 @@
+package com.cloudling.imageloader;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.model.GlideUrl;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描述: 通过ImageHttpClient下载网络图片的Glide DataFetcher，按域名限制并发数，优先级来自Glide请求的Priority。
+ * 有空闲名额时直接在Glide的加载线程上下载；否则排队后立即返回，不占用Glide的加载线程，
+ * 名额空出后在下载线程上执行请求并回调onDataReady（Glide会把后续的读取和解码切换回自己的线程）。
+ * 响应流交给Glide后由Glide边读边写入磁盘缓存（DATA缓存），读到末尾或关闭时即释放名额，cleanup中关闭请求，连接回到连接池
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+final class GlideHttpFetcher implements DataFetcher<InputStream> {
+    /**
+     * 排队后获得名额的请求在这里执行，同时执行的请求数已由每个域名的名额限制
+     */
+    private static final ThreadPoolExecutor DOWNLOADERS = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+            30, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "image-http");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final ImageHttpClient client;
+    private final HttpHostLimiter limiter;
+    private final NegativeCache negativeCache;
+    private final GlideUrl url;
+    private volatile boolean cancelled;
+    private volatile HttpHostLimiter.Permit permit;
+    private volatile ImageHttpCall call;
+    /**
+     * 调用loadData的时间，未设置ImageMetricsSink时不计时，为-1
+     */
+    private long requestNanos = -1;
+
+    GlideHttpFetcher(ImageHttpClient client, HttpHostLimiter limiter, NegativeCache negativeCache, GlideUrl url) {
+        this.client = client;
+        this.limiter = limiter;
+        this.negativeCache = negativeCache;
+        this.url = url;
+    }
+
+    @Override
+    public void loadData(@NonNull final Priority priority, @NonNull final DataCallback<? super InputStream> callback) {
+        if (ImageLoader.getInstance().getMetricsSink() != null) requestNanos = System.nanoTime();
+        HttpHostLimiter.Permit permit;
+        try {
+            permit = limiter.permit(host(), priority.ordinal());
+        } catch (MalformedURLException e) {
+            callback.onLoadFailed(e);
+            return;
+        }
+        this.permit = permit;
+        if (cancelled) {
+            /*与Glide的HttpUrlFetcher一致，取消后返回null，请求已取消，结果会被忽略*/
+            callback.onDataReady(null);
+            return;
+        }
+        boolean granted = permit.acquire(new Runnable() {
+            @Override
+            public void run() {
+                DOWNLOADERS.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        fetch(priority, callback);
+                    }
+                });
+            }
+        });
+        if (granted) fetch(priority, callback);
+        /*否则已排队，获得名额后在下载线程上继续；排队中被取消的请求不再回调，Glide已不再等待它的结果*/
+    }
+
+    private void fetch(Priority priority, DataCallback<? super InputStream> callback) {
+        final HttpHostLimiter.Permit permit = this.permit;
+        if (cancelled) {
+            permit.release();
+            callback.onDataReady(null);
+            return;
+        }
+        long start = requestNanos < 0 ? -1 : System.nanoTime();
+        try {
+            ImageHttpCall call = client.newCall(url.toStringUrl(), url.getHeaders(), priority.ordinal());
+            this.call = call;
+            if (cancelled) call.cancel();
+            InputStream stream = new PermitInputStream(call.execute(), permit, start < 0 ? -1 : start - requestNanos, start);
+            negativeCache.onSuccess(NegativeCache.key(url));
+            /*有渐进式加载在等待这个地址时旁路读取数据生成中间结果*/
+            callback.onDataReady(ProgressiveLoad.wrap(url.toStringUrl(), stream));
+        } catch (IOException e) {
+            fail(permit, callback, e);
+        } catch (RuntimeException e) {
+            /*自定义的ImageHttpClient抛出的运行时异常（如OkHttp对无效地址抛出IllegalArgumentException）同样按下载失败处理，
+            否则名额不会释放，Glide的请求也不会结束*/
+            fail(permit, callback, new IOException(e));
+        }
+    }
+
+    private void fail(HttpHostLimiter.Permit permit, DataCallback<? super InputStream> callback, IOException e) {
+        permit.release();
+        /*取消导致的失败不记录到负缓存*/
+        if (!cancelled) negativeCache.onFailure(NegativeCache.key(url), e);
+        callback.onLoadFailed(e);
+    }
+
+    private String host() throws MalformedURLException {
+        return url.toURL().getHost();
+    }
+
+    @Override
+    public void cleanup() {
+        ImageHttpCall call = this.call;
+        if (call != null) {
+            call.close();
+            this.call = null;
+        }
+        /*响应体没有读到末尾也没有关闭时（如解码失败）在这里释放名额*/
+        HttpHostLimiter.Permit permit = this.permit;
+        if (permit != null) permit.release();
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        HttpHostLimiter.Permit permit = this.permit;
+        if (permit != null) permit.cancel();
+        ImageHttpCall call = this.call;
+        if (call != null) call.cancel();
+    }
+
+    @NonNull
+    @Override
+    public Class<InputStream> getDataClass() {
+        return InputStream.class;
+    }
+
+    @NonNull
+    @Override
+    public DataSource getDataSource() {
+        return DataSource.REMOTE;
+    }
+
+    /**
+     * 响应体读到末尾或关闭时释放名额，不必等到Glide解码完成后的cleanup；开启统计时读到末尾上报下载耗时
+     */
+    private static final class PermitInputStream extends FilterInputStream {
+        private final HttpHostLimiter.Permit permit;
+        private final long queueNanos;
+        private long startNanos;
+
+        /**
+         * @param queueNanos 等待名额的耗时
+         * @param startNanos 发起请求的时间，不计时为-1
+         */
+        PermitInputStream(InputStream in, HttpHostLimiter.Permit permit, long queueNanos, long startNanos) {
+            super(in);
+            this.permit = permit;
+            this.queueNanos = queueNanos;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read == -1) finished();
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read == -1) finished();
+            return read;
+        }
+
+        private void finished() {
+            permit.release();
+            if (startNanos < 0) return;
+            ImageMetricsSink sink = ImageLoader.getInstance().getMetricsSink();
+            if (sink != null) sink.onFetch(queueNanos, System.nanoTime() - startNanos);
+            /*只上报一次*/
+            startNanos = -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                permit.release();
+            }
+        }
+    }
+}
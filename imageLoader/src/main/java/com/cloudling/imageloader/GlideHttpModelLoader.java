@@ -0,0 +1,56 @@
+package com.cloudling.imageloader;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+
+import java.io.InputStream;
+
+/**
+ * 描述: 替换Glide默认的网络加载（String、Uri等网络地址最终都会转为GlideUrl），使用ImageHttpClient下载
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+final class GlideHttpModelLoader implements ModelLoader<GlideUrl, InputStream> {
+    private final ImageHttpClient client;
+    private final HttpHostLimiter limiter;
+    private final NegativeCache negativeCache;
+
+    GlideHttpModelLoader(ImageHttpClient client, HttpHostLimiter limiter, NegativeCache negativeCache) {
+        this.client = client;
+        this.limiter = limiter;
+        this.negativeCache = negativeCache;
+    }
+
+    @Override
+    public LoadData<InputStream> buildLoadData(@NonNull GlideUrl model, int width, int height, @NonNull Options options) {
+        return new LoadData<>(model, new GlideHttpFetcher(client, limiter, negativeCache, model));
+    }
+
+    @Override
+    public boolean handles(@NonNull GlideUrl model) {
+        return true;
+    }
+
+    static final class Factory implements ModelLoaderFactory<GlideUrl, InputStream> {
+        private final GlideHttpModelLoader loader;
+
+        Factory(ImageHttpClient client, int maxRequestsPerHost, NegativeCache negativeCache) {
+            loader = new GlideHttpModelLoader(client, new HttpHostLimiter(maxRequestsPerHost), negativeCache);
+        }
+
+        @NonNull
+        @Override
+        public ModelLoader<GlideUrl, InputStream> build(@NonNull MultiModelLoaderFactory multiFactory) {
+            return loader;
+        }
+
+        @Override
+        public void teardown() {
+        }
+    }
+}
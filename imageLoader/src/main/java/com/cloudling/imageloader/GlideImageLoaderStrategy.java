@@ -4,23 +4,45 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Trace;
+import android.util.Log;
+import android.util.Size;
 import android.view.View;
+import android.view.ViewGroup;
 import android.widget.ImageView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.Registry;
 import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
 import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.load.model.UnitModelLoader;
+import com.bumptech.glide.request.FutureTarget;
 import com.bumptech.glide.request.RequestListener;
 import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.request.target.CustomTarget;
+import com.bumptech.glide.request.target.DrawableImageViewTarget;
 import com.bumptech.glide.request.target.Target;
 import com.bumptech.glide.request.transition.Transition;
 
 import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 描述: Glide图片加载策略
@@ -28,76 +50,129 @@ import java.io.File;
  * 日期: 2019/10/29
  */
 public class GlideImageLoaderStrategy implements BaseImageLoaderStrategy<ImageView, ImageResult> {
+    /*RecyclerView快速滑动时每秒会调用几十次，相同参数的RequestOptions和transform复用同一个实例，减少内存抖动。
+    同时这也是合并重复请求的前提：Glide的Engine会把缓存key（地址、尺寸、transform、options）相同的进行中请求合并为同一个EngineJob，
+    只拉取、解码、形状处理一次再分发给所有等待的视图和监听，视图被clear时只移除自己的回调，全部移除后任务才会取消。
+    因此同一地址、同一尺寸和形状的多个视图（如聊天列表中的同一个头像）不需要额外的合并层，只需保证这里生成的key稳定一致*/
+    private final GlideOptionsCache mOptionsCache = new GlideOptionsCache();
+    private final GlidePrefetcher mPrefetcher = new GlidePrefetcher();
+    private TinyLfuMemoryCache mMemoryCache;
+    private ImageMemoryGovernor mMemoryGovernor;
+    private volatile CacheKeyNormalizer mKeyNormalizer;
+    private volatile NegativeCache mNegativeCache;
+    private volatile ImageSizeProbe mSizeProbe;
+    private boolean mBatchedDelivery;
+    /*applyOptions之后为true，Glide使用这里设置的缓存和复用池创建*/
+    private boolean mGlideConfigured;
+    private ImageHttpClient mHttpClient;
+    private int mMaxRequestsPerHost;
+    private BlurHashDecoder mPreviews;
+    private final CacheKeyStats mKeyStats = new CacheKeyStats();
+    /**
+     * systrace/perfetto中的分段名称，用于在宿主应用的Macrobenchmark或trace中统计请求分发耗时
+     */
+    static final String TRACE_DISPATCH = "ImageLoader#dispatch";
+    private static final String TAG = "GlideImageLoader";
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
 
     @Override
     public <LoadAddress> void load(Context context, LoadAddress url, ImageView view, int... placeholder) {
-        if (supportLoad(url)) {
-            if (placeholder != null && placeholder.length > 0 && placeholder.length < 3) {
-                RequestOptions options = new RequestOptions().placeholder(placeholder[0]);
-                if (placeholder.length == 2) options.error(placeholder[1]);
-                Glide.with(context).load(url).apply(options).dontAnimate().into(view);
-            } else {
-                Glide.with(context).load(url).dontAnimate().into(view);
-            }
-
-        }
+        load(context, url, view, null, placeholder);
     }
 
     @Override
-    public <LoadAddress> void load(Context context, LoadAddress url, ImageView view, final ImageLoaderCallback<ImageResult> listener, int... placeholder) {
-        if (supportLoad(url)) {
-            if (placeholder != null && placeholder.length > 0 && placeholder.length < 3) {
-                RequestOptions options = new RequestOptions().placeholder(placeholder[0]);
-                if (placeholder.length == 2) options.error(placeholder[1]);
-                Glide.with(context).load(url).apply(options).addListener(listener == null ? null : new RequestListener<Drawable>() {
-                    @Override
-                    public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Drawable> target, boolean isFirstResource) {
-                        listener.onFailure();
-                        return false;
-                    }
+    public <LoadAddress> void load(Context context, LoadAddress url, ImageView view, ImageLoaderCallback<ImageResult> listener, int... placeholder) {
+        display(context, url, view, null, listener, placeholder);
+    }
 
-                    @Override
-                    public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target, DataSource dataSource, boolean isFirstResource) {
-                        listener.onSuccess();
-                        return false;
-                    }
-                }).dontAnimate().into(view);
-            } else {
-                Glide.with(context).load(url).addListener(listener == null ? null : new RequestListener<Drawable>() {
-                    @Override
-                    public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Drawable> target, boolean isFirstResource) {
-                        listener.onFailure();
-                        return false;
-                    }
+    @Override
+    public <LoadAddress> void load(Context context, LoadAddress url, ImageView view, ImageOptions options, ImageLoaderCallback<ImageResult> listener, int... placeholder) {
+        ImageShape shape = options == null ? ImageShape.none(null) : options.getShape();
+        if (options != null && options.isAnimated()) {
+            /*动图的每一帧都在绘制时处理形状和缩放*/
+            drawTimeShape(context, url, view, options, listener, placeholder);
+            return;
+        }
+        switch (shape.getType()) {
+            case CIRCLE:
+                if (options.isDrawTimeShape()) {
+                    drawTimeShape(context, url, view, options, listener, placeholder);
+                } else {
+                    circle(context, url, view, options, listener, placeholder);
+                }
+                break;
+            case ROUND:
+                if (options.isDrawTimeShape()) {
+                    drawTimeShape(context, url, view, options, listener, placeholder);
+                } else {
+                    round(context, url, view, shape.getLeftTop(), shape.getRightTop(), shape.getLeftBottom(), shape.getRightBottom(), options, listener, placeholder);
+                }
+                break;
+            default:
+                display(context, url, view, options, listener, placeholder);
+                break;
+        }
+    }
 
+    private <LoadAddress> void display(final Context context, final LoadAddress url, final ImageView view, final ImageOptions imageOptions,
+                                       final ImageLoaderCallback<ImageResult> listener, final int... placeholder) {
+        if (supportLoad(url)) {
+            ImageScrollScheduler scheduler = ImageScrollScheduler.deferring(view);
+            if (scheduler != null) {
+                /*所在列表正在快速滑动，暂存请求，等滑动速度降下来后再执行*/
+                defer(scheduler, context, view, new Runnable() {
                     @Override
-                    public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target, DataSource dataSource, boolean isFirstResource) {
-                        listener.onSuccess();
-                        return false;
+                    public void run() {
+                        display(context, url, view, imageOptions, listener, placeholder);
                     }
-                }).dontAnimate().into(view);
+                });
+                return;
             }
-
+            String hash = hash(imageOptions);
+            RequestOptions options = mOptionsCache.get(ImageShapeType.NONE, 0, 0, 0, 0, view.getScaleType(),
+                    hash == null ? placeholder(placeholder) : 0, error(placeholder), false, policy(imageOptions));
+            Object model = model(url);
+            if (suppressed(context, model, view, null, options, ImageShapeType.NONE, listener, placeholder)) return;
+            RequestManager manager = Glide.with(context);
+            RequestBuilder<Drawable> builder = local(manager.load(model).apply(options), url);
+            if (hash != null) builder.thumbnail(preview(manager, hash, options));
+            sized(builder, model, view);
+            into(builder, url, view, null, imageOptions, ImageShapeType.NONE, listener);
         }
     }
 
     @Override
     public <LoadAddress> void loadImageBitmap(Context context, LoadAddress url, int maxWidth, int maxHeight, ImageLoaderCallback<ImageResult> listener) {
-        Glide.with(context)
+        loadImageBitmap(context, url, maxWidth, maxHeight, null, listener);
+    }
+
+    @Override
+    public <LoadAddress> void loadImageBitmap(Context context, LoadAddress url, int maxWidth, int maxHeight, DecodePolicy policy, final ImageLoaderCallback<ImageResult> listener) {
+        /*回调由下面的CustomTarget负责，这里的监听只用于上报统计*/
+        RequestListener<Bitmap> requestListener = GlideRequestListener.obtain(null, ImageShapeType.NONE);
+        final RequestManager manager = Glide.with(context);
+        local(manager
                 .asBitmap()
+                .apply(mOptionsCache.get(ImageShapeType.NONE, 0, 0, 0, 0, null, 0, 0, false, policy))
                 .override(maxWidth, maxHeight)
-                .load(url)
+                .load(model(url)), url)
+                .listener(requestListener)
                 .into(new CustomTarget<Bitmap>() {
+                    private boolean finished;
+                    private BitmapLease lease;
 
                     @Override
                     public void onResourceReady(@NonNull Bitmap resource, @Nullable Transition<? super Bitmap> transition) {
+                        finished = true;
                         if (listener != null) {
-                            listener.onSuccess(new ImageResult(resource));
+                            lease = lease(manager, this, resource);
+                            listener.onSuccess(new ImageResult(resource, lease));
                         }
                     }
 
                     @Override
                     public void onLoadFailed(@Nullable Drawable errorDrawable) {
+                        finished = true;
                         if (listener != null) {
                             listener.onFailure(new ImageResult(null));
                         }
@@ -105,171 +180,524 @@ public class GlideImageLoaderStrategy implements BaseImageLoaderStrategy<ImageVi
 
                     @Override
                     public void onLoadCleared(@Nullable Drawable placeholder) {
-
+                        /*完成前被清除（如页面销毁）视为取消，完成后被清除时Bitmap已交还，租约失效*/
+                        if (!finished && listener != null) {
+                            listener.onCancel(new ImageResult(null));
+                        }
+                        if (lease != null) lease.revoke();
+                        finished = true;
                     }
 
                 });
     }
 
     @Override
-    public <LoadAddress> void circle(Context context, LoadAddress url, ImageView view, int... placeholder) {
-        if (supportLoad(url)) {
-            /*占位图进行圆形处理*/
-            RequestBuilder<Drawable> load = null, error = null;
-            if (placeholder != null && placeholder.length > 0 && placeholder.length < 3) {
-                load = Glide.with(context)
-                        .load(placeholder[0]).dontAnimate()
-                        .apply(RequestOptions.circleCropTransform());
-                if (placeholder.length == 2) error = Glide.with(context)
-                        .load(placeholder[1]).dontAnimate()
-                        .apply(RequestOptions.circleCropTransform());
+    public <LoadAddress> ImageLoadFuture<ImageResult> loadImageBitmapAsync(Context context, LoadAddress url, int maxWidth, int maxHeight, DecodePolicy policy) {
+        final ImageLoadFuture<ImageResult> future = new ImageLoadFuture<>(ImageResult.class);
+        /*使用Application级别的RequestManager：页面销毁时不会被静默清除导致future永远不结束，由调用方负责取消*/
+        final RequestManager manager = Glide.with(context.getApplicationContext());
+        final FutureTarget<Bitmap> target = local(manager
+                .asBitmap()
+                .apply(mOptionsCache.get(ImageShapeType.NONE, 0, 0, 0, 0, null, 0, 0, false, policy))
+                .load(model(url)), url)
+                .addListener(GlideRequestListener.<Bitmap>obtain(null, ImageShapeType.NONE))
+                .addListener(new RequestListener<Bitmap>() {
+                    @Override
+                    public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Bitmap> target, boolean isFirstResource) {
+                        future.fail(e != null ? e : new GlideException("load failed"));
+                        return false;
+                    }
+
+                    @Override
+                    public boolean onResourceReady(Bitmap resource, Object model, Target<Bitmap> target, DataSource dataSource, boolean isFirstResource) {
+                        BitmapLease lease = lease(manager, target, resource);
+                        if (!future.complete(new ImageResult(resource, lease))) {
+                            /*结果返回前已被取消，直接释放，Bitmap回到缓存和复用池*/
+                            lease.release();
+                        }
+                        return false;
+                    }
+                })
+                .submit(maxWidth, maxHeight);
+        future.setCanceller(new Runnable() {
+            @Override
+            public void run() {
+                /*清除请求：未开始的不再执行，进行中的解码任务在没有其他请求等待时被取消，已持有的Bitmap被释放*/
+                manager.clear(target);
             }
-            Glide.with(context).load(url).apply(RequestOptions.circleCropTransform()).thumbnail(load).error(error).dontAnimate().into(view);
-        }
+        });
+        return future;
     }
 
     @Override
-    public <LoadAddress> void circle(Context context, LoadAddress url, ImageView view, final ImageLoaderCallback<ImageResult> listener, int... placeholder) {
-        if (supportLoad(url)) {
-            /*占位图进行圆形处理*/
-            RequestBuilder<Drawable> load = null, error = null;
-            if (placeholder != null && placeholder.length > 0 && placeholder.length < 3) {
-                load = Glide.with(context)
-                        .load(placeholder[0]).dontAnimate()
-                        .apply(RequestOptions.circleCropTransform());
-                if (placeholder.length == 2) error = Glide.with(context)
-                        .load(placeholder[1]).dontAnimate()
-                        .apply(RequestOptions.circleCropTransform());
+    public <LoadAddress> ImageLoadFuture<ImageRegionSource> openRegion(Context context, LoadAddress url) {
+        final ImageLoadFuture<ImageRegionSource> future = new ImageLoadFuture<>(ImageRegionSource.class);
+        if (url instanceof File || url instanceof byte[]) {
+            /*本地文件和内存数据可以直接建立区域解码器*/
+            ImageRegionSource.open(url, future);
+            return future;
+        }
+        final RequestManager manager = Glide.with(context.getApplicationContext());
+        final FutureTarget<File> target = manager
+                .downloadOnly()
+                .load(model(url))
+                .addListener(new RequestListener<File>() {
+                    @Override
+                    public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<File> target, boolean isFirstResource) {
+                        future.fail(e != null ? e : new GlideException("download failed"));
+                        return false;
+                    }
+
+                    @Override
+                    public boolean onResourceReady(File resource, Object model, Target<File> target, DataSource dataSource, boolean isFirstResource) {
+                        /*文件在磁盘缓存中，直接从文件建立区域解码器，不需要把整张图片读入内存*/
+                        ImageRegionSource.open(resource, future);
+                        return false;
+                    }
+                })
+                .submit();
+        future.setCanceller(new Runnable() {
+            @Override
+            public void run() {
+                manager.clear(target);
             }
-            Glide.with(context).load(url).apply(RequestOptions.circleCropTransform()).thumbnail(load).error(error).dontAnimate().addListener(listener == null ? null : new RequestListener<Drawable>() {
-                @Override
-                public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Drawable> target, boolean isFirstResource) {
-                    listener.onFailure();
-                    return false;
-                }
+        });
+        return future;
+    }
 
-                @Override
-                public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target, DataSource dataSource, boolean isFirstResource) {
-                    listener.onSuccess();
-                    return false;
-                }
-            }).into(view);
+    @Override
+    public <LoadAddress> ImageLoadFuture<Size> probeSize(Context context, LoadAddress url) {
+        ImageSizeProbe probe = mSizeProbe;
+        if (probe == null) {
+            /*应用在自己的AppGlideModule中调用applyOptions时，尺寸探测在Glide第一次使用时才创建*/
+            Glide.get(context);
+            probe = mSizeProbe;
+        }
+        if (probe == null || !supportLoad(url)) {
+            ImageLoadFuture<Size> future = new ImageLoadFuture<>(Size.class);
+            future.fail(probe == null ? new IllegalStateException("you should invoke init first")
+                    : new IllegalArgumentException("Unsupported address: " + url));
+            return future;
         }
+        return probe.probe(model(url));
     }
 
     @Override
-    public <LoadAddress> void round(Context context, LoadAddress url, ImageView view, float radius, int... placeholder) {
+    public <LoadAddress> void circle(Context context, LoadAddress url, ImageView view, int... placeholder) {
+        circle(context, url, view, null, placeholder);
+    }
+
+    @Override
+    public <LoadAddress> void circle(Context context, LoadAddress url, ImageView view, ImageLoaderCallback<ImageResult> listener, int... placeholder) {
+        circle(context, url, view, null, listener, placeholder);
+    }
+
+    private <LoadAddress> void circle(final Context context, final LoadAddress url, final ImageView view, final ImageOptions imageOptions,
+                                      final ImageLoaderCallback<ImageResult> listener, final int... placeholder) {
         if (supportLoad(url)) {
-            /*占位图进行圆角处理*/
-            RequestBuilder<Drawable> load = null, error = null;
-            if (placeholder != null && placeholder.length > 0 && placeholder.length < 3) {
-                load = Glide.with(context)
-                        .load(placeholder[0]).dontAnimate()
-                        .apply(new RequestOptions().transform(new GlideRoundTransform(radius, view.getScaleType())));
-                if (placeholder.length == 2) error = Glide.with(context)
-                        .load(placeholder[1]).dontAnimate()
-                        .apply(new RequestOptions().transform(new GlideRoundTransform(radius, view.getScaleType())));
+            ImageScrollScheduler scheduler = ImageScrollScheduler.deferring(view);
+            if (scheduler != null) {
+                /*所在列表正在快速滑动，暂存请求，等滑动速度降下来后再执行*/
+                defer(scheduler, context, view, new Runnable() {
+                    @Override
+                    public void run() {
+                        circle(context, url, view, imageOptions, listener, placeholder);
+                    }
+                });
+                return;
             }
-            RequestOptions options = new RequestOptions().transform(new GlideRoundTransform(radius, view.getScaleType()));
-            Glide.with(context).load(url).apply(options).thumbnail(load).error(error).dontAnimate().into(view);
+            RequestOptions options = mOptionsCache.get(ImageShapeType.CIRCLE, 0, 0, 0, 0, null, 0, 0, false, policy(imageOptions));
+            Object model = model(url);
+            if (suppressed(context, model, view, null, options, ImageShapeType.CIRCLE, listener, placeholder)) return;
+            into(shape(context, model, options, imageOptions, placeholder), url, view, null, imageOptions, ImageShapeType.CIRCLE, listener);
         }
     }
 
     @Override
-    public <LoadAddress> void round(Context context, LoadAddress url, ImageView view, float radius, final ImageLoaderCallback<ImageResult> listener, int... placeholder) {
-        if (supportLoad(url)) {
-            /*占位图进行圆角处理*/
-            RequestBuilder<Drawable> load = null, error = null;
-            if (placeholder != null && placeholder.length > 0 && placeholder.length < 3) {
-                load = Glide.with(context)
-                        .load(placeholder[0]).dontAnimate()
-                        .apply(new RequestOptions().transform(new GlideRoundTransform(radius, view.getScaleType())));
-                if (placeholder.length == 2) error = Glide.with(context)
-                        .load(placeholder[1]).dontAnimate()
-                        .apply(new RequestOptions().transform(new GlideRoundTransform(radius, view.getScaleType())));
-            }
-            RequestOptions options = new RequestOptions().transform(new GlideRoundTransform(radius, view.getScaleType()));
-            Glide.with(context).load(url).apply(options).thumbnail(load).error(error).addListener(listener == null ? null : new RequestListener<Drawable>() {
-                @Override
-                public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Drawable> target, boolean isFirstResource) {
-                    listener.onFailure();
-                    return false;
-                }
+    public <LoadAddress> void round(Context context, LoadAddress url, ImageView view, float radius, int... placeholder) {
+        round(context, url, view, radius, null, placeholder);
+    }
 
-                @Override
-                public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target, DataSource dataSource, boolean isFirstResource) {
-                    listener.onSuccess();
-                    return false;
-                }
-            }).dontAnimate().into(view);
-        }
+    @Override
+    public <LoadAddress> void round(Context context, LoadAddress url, ImageView view, float radius, final ImageLoaderCallback<ImageResult> listener, int... placeholder) {
+        round(context, url, view, radius, radius, radius, radius, null, listener, placeholder);
     }
 
     @Override
     public <LoadAddress> void round(Context context, LoadAddress url, ImageView view, float[] radius, int... placeholder) {
+        round(context, url, view, radius, null, placeholder);
+    }
+
+    @Override
+    public <LoadAddress> void round(Context context, LoadAddress url, ImageView view, float[] radius, final ImageLoaderCallback<ImageResult> listener, int... placeholder) {
+        if (radius != null && radius.length == 4) {
+            round(context, url, view, radius[0], radius[1], radius[2], radius[3], null, listener, placeholder);
+        } else {
+            round(context, url, view, 0, 0, 0, 0, null, listener, placeholder);
+        }
+    }
+
+    private <LoadAddress> void round(final Context context, final LoadAddress url, final ImageView view, final float leftTop, final float rightTop, final float leftBottom, final float rightBottom,
+                                     final ImageOptions imageOptions, final ImageLoaderCallback<ImageResult> listener, final int... placeholder) {
         if (supportLoad(url)) {
-            float leftTop = 0, rightTop = 0, leftBottom = 0, rightBottom = 0;
-            if (radius != null && radius.length == 4) {
-                leftTop = radius[0];
-                rightTop = radius[1];
-                leftBottom = radius[2];
-                rightBottom = radius[3];
-            }
-            /*占位图进行圆角处理*/
-            RequestBuilder<Drawable> load = null, error = null;
-            if (placeholder != null && placeholder.length > 0 && placeholder.length < 3) {
-                load = Glide.with(context)
-                        .load(placeholder[0]).dontAnimate()
-                        .apply(new RequestOptions().transform(new GlideRoundTransform(leftTop, rightTop, leftBottom, rightBottom, view.getScaleType())));
-                if (placeholder.length == 2) error = Glide.with(context)
-                        .load(placeholder[1]).dontAnimate()
-                        .apply(new RequestOptions().transform(new GlideRoundTransform(leftTop, rightTop, leftBottom, rightBottom, view.getScaleType())));
+            ImageScrollScheduler scheduler = ImageScrollScheduler.deferring(view);
+            if (scheduler != null) {
+                /*所在列表正在快速滑动，暂存请求，等滑动速度降下来后再执行*/
+                defer(scheduler, context, view, new Runnable() {
+                    @Override
+                    public void run() {
+                        round(context, url, view, leftTop, rightTop, leftBottom, rightBottom, imageOptions, listener, placeholder);
+                    }
+                });
+                return;
             }
-            RequestOptions options = new RequestOptions().transform(new GlideRoundTransform(leftTop, rightTop, leftBottom, rightBottom, view.getScaleType()));
-            Glide.with(context).load(url).apply(options).thumbnail(load).error(error).dontAnimate().into(view);
+            RequestOptions options = mOptionsCache.get(ImageShapeType.ROUND, leftTop, rightTop, leftBottom, rightBottom, view.getScaleType(), 0, 0, false, policy(imageOptions));
+            Object model = model(url);
+            if (suppressed(context, model, view, null, options, ImageShapeType.ROUND, listener, placeholder)) return;
+            into(shape(context, model, options, imageOptions, placeholder), url, view, null, imageOptions, ImageShapeType.ROUND, listener);
         }
     }
 
-    @Override
-    public <LoadAddress> void round(Context context, LoadAddress url, ImageView view, float[] radius, final ImageLoaderCallback<ImageResult> listener, int... placeholder) {
+    /**
+     * 绘制时处理形状：解码后的Bitmap不做transform，由ShapedImageViewTarget包装为ShapedBitmapDrawable在绘制时裁剪为圆形、圆角
+     */
+    private <LoadAddress> void drawTimeShape(final Context context, final LoadAddress url, final ImageView view, final ImageOptions imageOptions,
+                                             final ImageLoaderCallback<ImageResult> listener, final int... placeholder) {
         if (supportLoad(url)) {
-            float leftTop = 0, rightTop = 0, leftBottom = 0, rightBottom = 0;
-            if (radius != null && radius.length == 4) {
-                leftTop = radius[0];
-                rightTop = radius[1];
-                leftBottom = radius[2];
-                rightBottom = radius[3];
+            ImageScrollScheduler scheduler = ImageScrollScheduler.deferring(view);
+            if (scheduler != null) {
+                /*所在列表正在快速滑动，暂存请求，等滑动速度降下来后再执行*/
+                defer(scheduler, context, view, new Runnable() {
+                    @Override
+                    public void run() {
+                        drawTimeShape(context, url, view, imageOptions, listener, placeholder);
+                    }
+                });
+                return;
             }
-            /*占位图进行圆角处理*/
-            RequestBuilder<Drawable> load = null, error = null;
-            if (placeholder != null && placeholder.length > 0 && placeholder.length < 3) {
-                load = Glide.with(context)
-                        .load(placeholder[0]).dontAnimate()
-                        .apply(new RequestOptions().transform(new GlideRoundTransform(leftTop, rightTop, leftBottom, rightBottom, view.getScaleType())));
-                if (placeholder.length == 2) error = Glide.with(context)
-                        .load(placeholder[1]).dontAnimate()
-                        .apply(new RequestOptions().transform(new GlideRoundTransform(leftTop, rightTop, leftBottom, rightBottom, view.getScaleType())));
+            ImageShape shape = imageOptions.getShape();
+            RequestOptions options = mOptionsCache.get(shape.getType(), 0, 0, 0, 0, view.getScaleType(), 0, 0, true,
+                    imageOptions.getDecodePolicy(), imageOptions.isAnimated());
+            ShapedImageViewTarget target = new ShapedImageViewTarget(view, shape, imageOptions.isAnimated());
+            Object model = model(url);
+            if (suppressed(context, model, view, target, options, shape.getType(), listener, placeholder)) return;
+            into(shape(context, model, options, imageOptions, placeholder), url, view, target, imageOptions, shape.getType(), listener);
+        }
+    }
+
+    @Override
+    public <LoadAddress> void prefetch(Context context, List<LoadAddress> urls, int width, int height, ImageShape shape) {
+        prefetch(context, urls, width, height, ImageOptions.newBuilder().shape(shape));
+    }
+
+    @Override
+    public <LoadAddress> void prefetch(Context context, List<LoadAddress> urls, int width, int height, ImageOptions options) {
+        List<Object> supported = new ArrayList<>(urls.size());
+        for (LoadAddress url : urls) {
+            /*与显示时使用同样的缓存key，规范化后相同的地址只预加载一次*/
+            if (!supportLoad(url)) continue;
+            Object model = model(url);
+            /*最近下载失败、还未到重试时间的地址不预加载*/
+            NegativeCache negativeCache = mNegativeCache;
+            if (negativeCache == null || negativeCache.suppressed(NegativeCache.key(model)) == null) supported.add(model);
+        }
+        mPrefetcher.prefetch(context, supported, width, height, options(options == null ? ImageOptions.newBuilder() : options));
+    }
+
+    /**
+     * 获取与load/circle/round显示时一致的RequestOptions，保证预加载的结果与之后显示时使用同样的缓存key
+     * （显示时按视图的scaleType获取，这里只能使用ImageShape中的scaleType，两者不一致时缓存key不同）
+     */
+    private RequestOptions options(ImageOptions imageOptions) {
+        ImageShape shape = imageOptions.getShape();
+        return mOptionsCache.get(shape.getType(), shape.getLeftTop(), shape.getRightTop(),
+                shape.getLeftBottom(), shape.getRightBottom(), shape.getScaleType(), 0, 0,
+                imageOptions.isAnimated() || (imageOptions.isDrawTimeShape() && shape.getType() != ImageShapeType.NONE),
+                imageOptions.getDecodePolicy(), imageOptions.isAnimated());
+    }
+
+    private void defer(ImageScrollScheduler scheduler, Context context, ImageView view, Runnable load) {
+        /*取消视图上一次的请求，避免复用的视图显示旧图片*/
+        clear(context, view);
+        scheduler.defer(view, load);
+    }
+
+    /**
+     * 创建Bitmap租约，计数归零时清除请求：Glide释放资源，不再被其他请求使用时放回内存缓存，淘汰后进入复用池。
+     * 清除只能在主线程进行，且不能在请求的回调中进行，因此总是切到主线程
+     */
+    private static BitmapLease lease(final RequestManager manager, final Target<Bitmap> target, Bitmap resource) {
+        return new BitmapLease(resource, new Runnable() {
+            @Override
+            public void run() {
+                MAIN.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        manager.clear(target);
+                    }
+                });
             }
-            RequestOptions options = new RequestOptions().transform(new GlideRoundTransform(leftTop, rightTop, leftBottom, rightBottom, view.getScaleType()));
-            Glide.with(context).load(url).apply(options).thumbnail(load).error(error).addListener(listener == null ? null : new RequestListener<Drawable>() {
-                @Override
-                public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Drawable> target, boolean isFirstResource) {
-                    listener.onFailure();
-                    return false;
-                }
+        });
+    }
 
-                @Override
-                public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target, DataSource dataSource, boolean isFirstResource) {
-                    listener.onSuccess();
-                    return false;
-                }
-            }).dontAnimate().into(view);
+    /**
+     * 构建带形状处理的请求，占位图（加载时、哈希或加载错误占位图）也使用同样的形状处理
+     */
+    private RequestBuilder<Drawable> shape(Context context, Object model, RequestOptions options, @Nullable ImageOptions imageOptions, int... placeholder) {
+        RequestManager manager = Glide.with(context);
+        RequestBuilder<Drawable> builder = local(manager.load(model).apply(options), model);
+        String hash = hash(imageOptions);
+        int load = placeholder(placeholder), error = error(placeholder);
+        if (hash != null) {
+            builder.thumbnail(preview(manager, hash, options));
+        } else if (load != 0) {
+            builder.thumbnail(manager.load(load).apply(options));
         }
+        if (error != 0) builder.error(manager.load(error).apply(options));
+        return builder;
+    }
+
+    /**
+     * 地址最近下载失败、还未到重试时间时不发起请求：直接显示加载错误占位图（与正常加载同样的形状处理），
+     * 没有设置加载错误占位图时显示加载时占位图，并回调失败（ImageFailure.isSuppressed为true）
+     *
+     * @return 是否已被抑制
+     */
+    private boolean suppressed(Context context, Object model, ImageView view, @Nullable Target<Drawable> target, RequestOptions options,
+                               ImageShapeType shape, ImageLoaderCallback<ImageResult> listener, int... placeholder) {
+        NegativeCache negativeCache = mNegativeCache;
+        ImageFailure failure = negativeCache == null ? null : negativeCache.suppressed(NegativeCache.key(model));
+        if (failure == null) return false;
+        RequestManager manager = Glide.with(context);
+        int error = error(placeholder), load = placeholder(placeholder);
+        /*同样通过Glide设置到视图上，视图上之前的请求会被取消；加载null时Glide直接显示options中的占位图*/
+        RequestBuilder<Drawable> builder = (error != 0 ? manager.load(error) : load != 0 ? manager.load(load) : manager.load((Object) null)).apply(options);
+        if (target != null) {
+            builder.into(target);
+        } else {
+            builder.into(view);
+        }
+        if (listener != null) listener.onFailure(new ImageResult(shape, failure));
+        return true;
+    }
+
+    /**
+     * 哈希占位图的缩略图请求：在Glide的线程中解码（之后命中Glide的内存缓存时同步显示），不保存到磁盘缓存
+     */
+    private static RequestBuilder<Drawable> preview(RequestManager manager, String hash, RequestOptions options) {
+        return manager.load(new PlaceholderHash(hash)).apply(options).diskCacheStrategy(DiskCacheStrategy.NONE);
+    }
+
+    /**
+     * 哈希占位图，未设置或未调用init（没有注册解码）时返回null
+     */
+    @Nullable
+    private String hash(@Nullable ImageOptions imageOptions) {
+        if (imageOptions == null || mMemoryCache == null) return null;
+        String hash = imageOptions.getPlaceholderHash();
+        return hash == null || hash.isEmpty() ? null : hash;
+    }
+
+    /**
+     * 交给Glide的加载地址：设置了缓存key规范化时，网络地址转为使用规范化key的GlideUrl，其他地址原样返回
+     */
+    private Object model(Object url) {
+        CacheKeyNormalizer normalizer = mKeyNormalizer;
+        if (normalizer == null || !(url instanceof String || url instanceof Uri)) return url;
+        String value = url.toString();
+        if (!(value.startsWith("http://") || value.startsWith("https://"))) return url;
+        String key = normalizer.normalize(value);
+        if (key == null) return url;
+        mKeyStats.record(value, key);
+        return new NormalizedGlideUrl(value, key);
+    }
+
+    /**
+     * 视图一边为wrap_content、另一边为固定尺寸，且尺寸索引中有原图尺寸时，按原图比例直接指定解码尺寸：
+     * 否则Glide会等待布局完成，wrap_content的一边按屏幕尺寸解码，解码出的图片往往比显示的大
+     */
+    private void sized(RequestBuilder<Drawable> builder, Object model, ImageView view) {
+        ImageSizeProbe probe = mSizeProbe;
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        if (probe == null || params == null) return;
+        boolean wrapWidth = params.width == ViewGroup.LayoutParams.WRAP_CONTENT, wrapHeight = params.height == ViewGroup.LayoutParams.WRAP_CONTENT;
+        if (wrapWidth == wrapHeight || (wrapWidth ? params.height : params.width) <= 0) return;
+        int[] size = probe.peek(NegativeCache.key(model));
+        if (size == null || size[0] <= 0 || size[1] <= 0) return;
+        if (wrapWidth) {
+            int height = params.height - view.getPaddingTop() - view.getPaddingBottom();
+            if (height > 0) builder.override(Math.max(1, (int) ((long) size[0] * height / size[1])), height);
+        } else {
+            int width = params.width - view.getPaddingLeft() - view.getPaddingRight();
+            if (width > 0) builder.override(width, Math.max(1, (int) ((long) size[1] * width / size[0])));
+        }
+    }
+
+    /**
+     * 本地文件和byte[]的快速路径：不读写磁盘缓存。
+     * 数据已经在本地，磁盘缓存只会多一次编码写入（byte[]的缓存key按对象比较，写入后也不会再命中）；
+     * 不检查磁盘缓存时请求直接在解码线程池中执行，不经过磁盘缓存线程，文件按内存映射读取，byte[]直接包装，解码后进入形状处理
+     */
+    private static <T> RequestBuilder<T> local(RequestBuilder<T> builder, Object url) {
+        if (url instanceof File || url instanceof byte[]) builder.diskCacheStrategy(DiskCacheStrategy.NONE);
+        return builder;
+    }
+
+    private static DecodePolicy policy(@Nullable ImageOptions imageOptions) {
+        return imageOptions == null ? null : imageOptions.getDecodePolicy();
+    }
+
+    /**
+     * @param target       自定义target，为null时使用Glide默认的ImageView target
+     * @param imageOptions 单次加载参数，可为null
+     */
+    private void into(RequestBuilder<Drawable> builder, Object url, ImageView view, @Nullable Target<Drawable> target,
+                      @Nullable ImageOptions imageOptions, ImageShapeType shape, ImageLoaderCallback<ImageResult> listener) {
+        Trace.beginSection(TRACE_DISPATCH);
+        FrameBatcher.beginDispatch();
+        try {
+            ProgressiveLoad progressive = imageOptions != null && imageOptions.isProgressive()
+                    ? ProgressiveLoad.start(url, view, imageOptions.getShape()) : null;
+            RequestListener<Drawable> requestListener = GlideRequestListener.obtain(listener, shape, progressive);
+            if (requestListener != null) builder.listener(requestListener);
+            /*显示到视图上的请求优先于loadImageBitmap（NORMAL）和预加载（LOW），下载时同一域名排队也按此顺序*/
+            builder.priority(Priority.HIGH);
+            /*开启按帧批量交付时使用可暂存结果的target；into中同步完成（内存缓存命中）的结果不暂存*/
+            if (target == null && mBatchedDelivery) target = new BatchedImageViewTarget(view);
+            if (progressive != null) {
+                /*渐进式加载需要持有target，用于判断中间结果到达时视图上是否还是这个请求*/
+                if (target == null) target = new DrawableImageViewTarget(view);
+                progressive.attach(builder.into(progressive.track(target)));
+            } else if (target != null) {
+                builder.into(target);
+            } else {
+                builder.into(view);
+            }
+        } finally {
+            FrameBatcher.endDispatch();
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * 加载时占位图，placeholder数组长度为1或2时有效，否则返回0
+     */
+    private static int placeholder(int... placeholder) {
+        return placeholder != null && placeholder.length > 0 && placeholder.length < 3 ? placeholder[0] : 0;
+    }
+
+    /**
+     * 加载错误占位图，placeholder数组长度为2时有效，否则返回0
+     */
+    private static int error(int... placeholder) {
+        return placeholder != null && placeholder.length == 2 ? placeholder[1] : 0;
     }
 
     @Override
     public <LoadAddress> boolean supportLoad(LoadAddress url) {
-        return url instanceof Bitmap || url instanceof Drawable || url instanceof String || url instanceof Uri || url instanceof File || url instanceof Integer || url instanceof byte[];
+        /*按实际使用频率排列，绝大多数请求是String地址，第一次判断即可返回*/
+        return url instanceof String || url instanceof Uri || url instanceof Integer || url instanceof File || url instanceof byte[] || url instanceof Bitmap || url instanceof Drawable;
+    }
+
+    /**
+     * 初始化Glide：使用频率感知的内存缓存，按设备内存确定缓存和复用池大小并在内存紧张时释放，
+     * 按配置替换磁盘缓存实现、保存形状处理后的磁盘缓存，替换网络下载，并读入图片尺寸索引。
+     * 需在Application.onCreate中、任何Glide请求之前调用：Glide已创建时（如应用直接使用过Glide）会被销毁重建，
+     * 进行中的请求和缓存内容全部丢失。只有第一次调用创建Glide，之后的调用只更新请求参数相关的配置。
+     * 应用有自己的AppGlideModule时不要调用init，改为在其中调用applyOptions和registerComponents
+     */
+    public void init(Context context, ImageLoaderConfig config) {
+        synchronized (this) {
+            if (mGlideConfigured) {
+                Log.w(TAG, "Glide is already initialized, only request options are updated");
+                applyRequestConfig(config);
+                return;
+            }
+            GlideBuilder builder = new GlideBuilder();
+            applyOptions(context, builder, config);
+            Glide.init(context, builder);
+        }
+        registerComponents(context, Glide.get(context).getRegistry());
+    }
+
+    /**
+     * 在应用的AppGlideModule.applyOptions中调用（代替init）：设置内存缓存、复用池、磁盘缓存等，Glide第一次使用时按正常流程创建
+     */
+    public synchronized void applyOptions(Context context, GlideBuilder builder, ImageLoaderConfig config) {
+        MemorySizeCalculator calculator = new MemorySizeCalculator.Builder(context).build();
+        long poolSize = ImageMemoryGovernor.bitmapPoolSize(context, config, calculator);
+        /*内存紧张时只由ImageMemoryGovernor释放，交给Glide的缓存不响应Glide自身的trimMemory*/
+        BitmapPool bitmapPool = ImageMemoryGovernor.newBitmapPool(poolSize);
+        mPreviews = new BlurHashDecoder();
+        mMemoryCache = ImageMemoryGovernor.newMemoryCache(ImageMemoryGovernor.memoryCacheSize(context, config, calculator));
+        applyRequestConfig(config);
+        /*字节数组池与Glide共享，尺寸探测读取文件头的缓冲区也从这里获取*/
+        ArrayPool arrayPool = new LruArrayPool(calculator.getArrayPoolSizeInBytes());
+        builder.setMemoryCache(mMemoryCache).setBitmapPool(bitmapPool).setArrayPool(arrayPool);
+        if (config.getDiskCache() != null) builder.setDiskCache(config.getDiskCache());
+        /*网络地址使用可替换的下载客户端，按域名限制并发并按请求优先级排队*/
+        mHttpClient = config.getHttpClient() != null ? config.getHttpClient() : new DefaultImageHttpClient();
+        mMaxRequestsPerHost = config.getMaxRequestsPerHost();
+        /*在Glide初始化之前创建，初始化过程中调用probeSize也能使用*/
+        mSizeProbe = new ImageSizeProbe(context, mHttpClient, arrayPool, new File(context.getCacheDir(), "image_size_index"));
+        if (mMemoryGovernor != null) mMemoryGovernor.unregister(context);
+        mMemoryGovernor = new ImageMemoryGovernor(context, mMemoryCache, bitmapPool, mPreviews, mOptionsCache);
+        mMemoryGovernor.register(context);
+        mNegativeCache = new NegativeCache(config.getNegativeCacheSize());
+        mGlideConfigured = true;
+    }
+
+    /**
+     * 在应用的AppGlideModule.registerComponents中调用（代替init，需先调用applyOptions）：替换网络下载，注册哈希占位图的解码
+     */
+    public void registerComponents(Context context, Registry registry) {
+        if (mHttpClient == null) {
+            throw new IllegalStateException("you should invoke applyOptions first");
+        }
+        registry.replace(GlideUrl.class, InputStream.class,
+                new GlideHttpModelLoader.Factory(mHttpClient, mMaxRequestsPerHost, mNegativeCache))
+                /*哈希占位图：地址本身就是数据，由BlurHashDecoder直接解码为预览图*/
+                .append(PlaceholderHash.class, PlaceholderHash.class, UnitModelLoader.Factory.<PlaceholderHash>getInstance())
+                .append(PlaceholderHash.class, Bitmap.class, mPreviews);
+    }
+
+    /**
+     * 只影响请求参数的配置，重复init时也会更新
+     */
+    private void applyRequestConfig(ImageLoaderConfig config) {
+        mOptionsCache.setConfig(config);
+        mKeyNormalizer = config.getCacheKeyNormalizer();
+        BitmapLease.setLeakDetection(config.isDetectBitmapLeaks());
+        mBatchedDelivery = config.isBatchedDelivery();
+        FrameBatcher.setEnabled(mBatchedDelivery);
+    }
+
+    /**
+     * 内存缓存（可获取命中、未命中、淘汰次数），未调用init时为null
+     */
+    public TinyLfuMemoryCache getMemoryCache() {
+        return mMemoryCache;
+    }
+
+    /**
+     * 内存管理（可获取当前缓存大小、释放次数），未调用init时为null
+     */
+    public ImageMemoryGovernor getMemoryGovernor() {
+        return mMemoryGovernor;
+    }
+
+    /**
+     * 负缓存（被抑制的请求数、各类型的下载失败次数），未调用init时为null
+     */
+    public NegativeCache getNegativeCache() {
+        return mNegativeCache;
+    }
+
+    /**
+     * 缓存key规范化的统计
+     */
+    public CacheKeyStats getCacheKeyStats() {
+        return mKeyStats;
     }
 
     public void clear(Context context, @NonNull View view) {
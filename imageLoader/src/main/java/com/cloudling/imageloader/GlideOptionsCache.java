@@ -0,0 +1,291 @@
+package com.cloudling.imageloader;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy;
+import com.bumptech.glide.load.resource.bitmap.Downsampler;
+import com.bumptech.glide.request.RequestOptions;
+
+/**
+ * 描述: Glide请求参数缓存（相同形状、圆角半径、scaleType、占位图的请求复用同一个不可变的RequestOptions及其transform）
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+final class GlideOptionsCache {
+    /**
+     * 列表中实际用到的参数组合很少，64个足够，超出后按LRU淘汰
+     */
+    private static final int MAX_SIZE = 64;
+
+    private final LruCache<Key, RequestOptions> mCache = new LruCache<>(MAX_SIZE);
+    /**
+     * 全局配置（形状处理后的结果是否保存到磁盘缓存、全局解码策略），为null时不保存形状结果，使用默认解码策略
+     */
+    private volatile ImageLoaderConfig mConfig;
+    /**
+     * 查询用的key，避免每次查询都创建新对象（只在持有锁时使用）
+     */
+    private final Key mProbe = new Key();
+
+    /**
+     * 更新配置，已缓存的RequestOptions全部失效
+     */
+    void setConfig(ImageLoaderConfig config) {
+        synchronized (mProbe) {
+            mConfig = config;
+            mCache.evictAll();
+        }
+    }
+
+    /**
+     * 清空缓存的RequestOptions（内存紧张时调用）
+     */
+    void clear() {
+        synchronized (mProbe) {
+            mCache.evictAll();
+        }
+    }
+
+    /**
+     * @param scaleType 显示图片的ImageView的scaleType，不显示到视图上时为null
+     * @param drawTime  是否在绘制时处理形状（为true时不添加形状transform，由ShapedBitmapDrawable绘制）
+     * @param policy    解码策略，为null时使用ImageLoaderConfig中的全局设置
+     */
+    RequestOptions get(ImageShapeType shape, float leftTop, float rightTop, float leftBottom, float rightBottom,
+                       ImageView.ScaleType scaleType, int placeholder, int error, boolean drawTime, DecodePolicy policy) {
+        return get(shape, leftTop, rightTop, leftBottom, rightBottom, scaleType, placeholder, error, drawTime, policy, false);
+    }
+
+    /**
+     * @param animated 是否播放动图（为true时不调用dontAnimate，动图解码为GifDrawable，需同时在绘制时处理形状）
+     */
+    RequestOptions get(ImageShapeType shape, float leftTop, float rightTop, float leftBottom, float rightBottom,
+                       ImageView.ScaleType scaleType, int placeholder, int error, boolean drawTime, DecodePolicy policy, boolean animated) {
+        synchronized (mProbe) {
+            ImageLoaderConfig config = mConfig;
+            if (policy == null && config != null) policy = config.getDecodePolicy();
+            mProbe.set(shape, leftTop, rightTop, leftBottom, rightBottom, scaleType, placeholder, error, drawTime, animated, policy);
+            RequestOptions options = mCache.get(mProbe);
+            if (options == null) {
+                options = create(mProbe);
+                mCache.put(mProbe.copy(), options);
+            }
+            return options;
+        }
+    }
+
+    /**
+     * 创建的RequestOptions调用autoClone()锁定，被修改时Glide会自动复制一份，保证缓存中的实例不可变
+     */
+    private RequestOptions create(Key key) {
+        RequestOptions options = new RequestOptions();
+        if (key.drawTime) {
+            /*不做任何transform（同时阻止into(ImageView)按scaleType追加的缩放transform，避免生成第二张Bitmap），
+            只按显示方式选择采样策略，解码结果直接交给ShapedBitmapDrawable绘制*/
+            options = options.dontTransform().downsample(downsample(key.shape, key.scaleType));
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.P) {
+                /*Android 9.0以下BitmapShader不能可靠地绘制HARDWARE Bitmap*/
+                options = options.disallowHardwareConfig();
+            }
+        } else {
+            switch (key.shape) {
+                case CIRCLE:
+                    /*与circleCrop()相同的采样策略和处理，处理时记录耗时*/
+                    options = options.downsample(DownsampleStrategy.CENTER_INSIDE).transform(new GlideCircleTransform());
+                    break;
+                case ROUND:
+                    options = options.transform(new GlideRoundTransform(key.leftTop, key.rightTop, key.leftBottom, key.rightBottom, key.scaleType));
+                    break;
+                default:
+                    if (key.scaleType != null) options = scale(options, key.scaleType);
+                    break;
+            }
+        }
+        options = decode(options, key);
+        ImageLoaderConfig config = mConfig;
+        if (!key.drawTime && key.shape != ImageShapeType.NONE && config != null && config.isShapeDiskCache()) {
+            /*同时缓存原图和形状处理后的结果。形状结果带透明通道，必须无损保存（有损压缩会在圆角边缘产生杂色，且每次读取都是失真的结果）：
+            Android 11起用WEBP_LOSSLESS，比PNG小得多；之前的WEBP只能通过质量100得到无损结果且该常量已废弃，使用PNG*/
+            options = options.diskCacheStrategy(DiskCacheStrategy.ALL)
+                    .encodeFormat(Build.VERSION.SDK_INT >= Build.VERSION_CODES.R ? Bitmap.CompressFormat.WEBP_LOSSLESS : Bitmap.CompressFormat.PNG)
+                    .encodeQuality(config.getShapeDiskCacheQuality());
+        }
+        if (key.placeholder != 0) options = options.placeholder(key.placeholder);
+        if (key.error != 0) options = options.error(key.error);
+        /*播放动图时每一帧的形状和缩放在绘制时处理，不能对GifDrawable逐帧transform*/
+        return (key.animated ? options : options.dontAnimate()).autoClone();
+    }
+
+    /**
+     * 与RequestBuilder.into(ImageView)一致：没有设置transform时根据ImageView的scaleType追加可选的缩放方式。
+     * 在这里提前设置，into(ImageView)就不会再复制一份RequestOptions，后面设置的解码策略也不会被覆盖
+     */
+    private static RequestOptions scale(RequestOptions options, ImageView.ScaleType scaleType) {
+        switch (scaleType) {
+            case CENTER_CROP:
+                return options.optionalCenterCrop();
+            case CENTER_INSIDE:
+            case FIT_XY:
+                return options.optionalCenterInside();
+            case FIT_CENTER:
+            case FIT_START:
+            case FIT_END:
+                return options.optionalFitCenter();
+            default:
+                return options;
+        }
+    }
+
+    /**
+     * 应用解码策略（像素格式、采样方式、内存上限），需在形状和缩放方式之后设置，采样方式才不会被覆盖
+     */
+    private static RequestOptions decode(RequestOptions options, Key key) {
+        switch (key.format) {
+            case RGB_565:
+                options = options.format(DecodeFormat.PREFER_RGB_565).disallowHardwareConfig();
+                break;
+            case ARGB_8888:
+                options = options.format(DecodeFormat.PREFER_ARGB_8888).disallowHardwareConfig();
+                break;
+            case HARDWARE:
+                options = options.format(DecodeFormat.PREFER_ARGB_8888);
+                /*设置为true后，Glide仍会在有无法用采样代替的transform（如圆形、圆角）时退回ARGB_8888*/
+                if (!key.drawTime || Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+                    options = options.set(Downsampler.ALLOW_HARDWARE_CONFIG, true);
+                }
+                break;
+        }
+        if (key.downsample != DecodePolicy.Downsample.DEFAULT || key.maxBytes > 0) {
+            DownsampleStrategy strategy = key.downsample != DecodePolicy.Downsample.DEFAULT ? downsample(key.downsample)
+                    : options.getOptions().get(DownsampleStrategy.OPTION);
+            if (strategy == null) strategy = DownsampleStrategy.DEFAULT;
+            if (key.maxBytes > 0) strategy = new GlideBudgetDownsampleStrategy(strategy, key.maxBytes);
+            options = options.downsample(strategy);
+        }
+        return options;
+    }
+
+    private static DownsampleStrategy downsample(DecodePolicy.Downsample downsample) {
+        switch (downsample) {
+            case CENTER_INSIDE:
+                return DownsampleStrategy.CENTER_INSIDE;
+            case FIT_CENTER:
+                return DownsampleStrategy.FIT_CENTER;
+            case AT_LEAST:
+                return DownsampleStrategy.AT_LEAST;
+            case AT_MOST:
+                return DownsampleStrategy.AT_MOST;
+            case NONE:
+                return DownsampleStrategy.NONE;
+            default:
+                return DownsampleStrategy.CENTER_OUTSIDE;
+        }
+    }
+
+    /**
+     * 绘制时处理形状的采样策略：需要裁剪显示的保证短边铺满，其余保证整张图片能完整显示
+     */
+    private static DownsampleStrategy downsample(ImageShapeType shape, ImageView.ScaleType scaleType) {
+        if (shape == ImageShapeType.CIRCLE || scaleType == ImageView.ScaleType.CENTER_CROP) {
+            return DownsampleStrategy.CENTER_OUTSIDE;
+        }
+        if (scaleType == ImageView.ScaleType.CENTER_INSIDE) return DownsampleStrategy.CENTER_INSIDE;
+        return DownsampleStrategy.FIT_CENTER;
+    }
+
+    private static final class Key {
+        ImageShapeType shape;
+        float leftTop, rightTop, leftBottom, rightBottom;
+        ImageView.ScaleType scaleType;
+        int placeholder, error;
+        boolean drawTime;
+        boolean animated;
+        /*只保存解码策略的取值，DecodePolicy之后被修改也不会影响已缓存的key*/
+        DecodePolicy.Format format;
+        DecodePolicy.Downsample downsample;
+        long maxBytes;
+
+        void set(ImageShapeType shape, float leftTop, float rightTop, float leftBottom, float rightBottom,
+                 ImageView.ScaleType scaleType, int placeholder, int error, boolean drawTime, boolean animated, DecodePolicy policy) {
+            set(shape, leftTop, rightTop, leftBottom, rightBottom, scaleType, placeholder, error, drawTime, animated,
+                    policy == null ? DecodePolicy.Format.DEFAULT : policy.getFormat(),
+                    policy == null ? DecodePolicy.Downsample.DEFAULT : policy.getDownsample(),
+                    policy == null ? 0 : Math.max(0, policy.getMaxBytes()));
+        }
+
+        void set(ImageShapeType shape, float leftTop, float rightTop, float leftBottom, float rightBottom,
+                 ImageView.ScaleType scaleType, int placeholder, int error, boolean drawTime, boolean animated,
+                 DecodePolicy.Format format, DecodePolicy.Downsample downsample, long maxBytes) {
+            this.shape = shape;
+            this.drawTime = drawTime;
+            this.animated = animated;
+            this.format = format;
+            this.downsample = downsample;
+            this.maxBytes = maxBytes;
+            if (drawTime) {
+                /*绘制时处理形状的请求与圆角半径无关，不同半径共用同一个RequestOptions，也就共用同一份解码结果的内存缓存*/
+                this.leftTop = this.rightTop = this.leftBottom = this.rightBottom = 0f;
+                this.scaleType = shape == ImageShapeType.CIRCLE ? null : scaleType;
+            } else {
+                /*加0f把-0f转为0f，保证相同的圆角得到相同的key*/
+                this.leftTop = leftTop + 0f;
+                this.rightTop = rightTop + 0f;
+                this.leftBottom = leftBottom + 0f;
+                this.rightBottom = rightBottom + 0f;
+                /*圆形transform与scaleType无关，不区分，避免产生无意义的缓存项*/
+                this.scaleType = shape == ImageShapeType.CIRCLE ? null : scaleType;
+            }
+            this.placeholder = placeholder;
+            this.error = error;
+        }
+
+        Key copy() {
+            Key key = new Key();
+            key.set(shape, leftTop, rightTop, leftBottom, rightBottom, scaleType, placeholder, error, drawTime, animated, format, downsample, maxBytes);
+            return key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof Key) {
+                Key other = (Key) o;
+                return shape == other.shape
+                        && leftTop == other.leftTop
+                        && rightTop == other.rightTop
+                        && leftBottom == other.leftBottom
+                        && rightBottom == other.rightBottom
+                        && scaleType == other.scaleType
+                        && placeholder == other.placeholder
+                        && error == other.error
+                        && drawTime == other.drawTime
+                        && animated == other.animated
+                        && format == other.format
+                        && downsample == other.downsample
+                        && maxBytes == other.maxBytes;
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = shape.ordinal();
+            result = 31 * result + Float.floatToIntBits(leftTop);
+            result = 31 * result + Float.floatToIntBits(rightTop);
+            result = 31 * result + Float.floatToIntBits(leftBottom);
+            result = 31 * result + Float.floatToIntBits(rightBottom);
+            result = 31 * result + (scaleType == null ? -1 : scaleType.ordinal());
+            result = 31 * result + placeholder;
+            result = 31 * result + error;
+            result = 31 * result + (drawTime ? 1 : 0);
+            result = 31 * result + (animated ? 1 : 0);
+            result = 31 * result + format.ordinal();
+            result = 31 * result + downsample.ordinal();
+            return 31 * result + (int) (maxBytes ^ (maxBytes >>> 32));
+        }
+    }
+}
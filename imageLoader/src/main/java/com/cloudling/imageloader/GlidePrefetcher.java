@@ -0,0 +1,132 @@
+package com.cloudling.imageloader;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.util.Util;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 描述: Glide预加载（按地址去重，限制并发数，新的预加载窗口会取消已滑出窗口的预加载），只能在主线程调用。
+ * 使用Application级别的RequestManager：页面销毁时Glide会静默清除页面的请求而不回调监听，任务会一直占用并发数；
+ * 因此预加载不跟随页面生命周期，由调用方在页面销毁时传入空列表取消
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+final class GlidePrefetcher {
+    /**
+     * 同时进行的预加载数，避免与屏幕上正在显示的图片抢占网络和解码线程
+     */
+    private static final int MAX_CONCURRENT = 4;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final LinkedHashMap<Object, Task> mPending = new LinkedHashMap<>();
+    private final HashMap<Object, Task> mRunning = new HashMap<>();
+    private final Runnable mSchedule = new Runnable() {
+        @Override
+        public void run() {
+            schedule();
+        }
+    };
+
+    /**
+     * 预加载一个窗口内的图片，不在本次窗口内的预加载（包括正在进行的）会被取消，传入空列表即取消全部预加载
+     */
+    void prefetch(Context context, List<?> urls, int width, int height, RequestOptions options) {
+        Util.assertMainThread();
+        Context appContext = context.getApplicationContext();
+        Set<Object> window = new HashSet<>(urls);
+        Iterator<Map.Entry<Object, Task>> iterator = mRunning.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Object, Task> entry = iterator.next();
+            if (!window.contains(entry.getKey())) {
+                entry.getValue().cancel();
+                iterator.remove();
+            }
+        }
+        mPending.keySet().retainAll(window);
+        for (Object url : urls) {
+            if (url != null && !mRunning.containsKey(url) && !mPending.containsKey(url)) {
+                mPending.put(url, new Task(appContext, url, width, height, options));
+            }
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        Iterator<Map.Entry<Object, Task>> iterator = mPending.entrySet().iterator();
+        while (mRunning.size() < MAX_CONCURRENT && iterator.hasNext()) {
+            Map.Entry<Object, Task> entry = iterator.next();
+            iterator.remove();
+            mRunning.put(entry.getKey(), entry.getValue());
+            entry.getValue().start();
+        }
+    }
+
+    private void finish(Task task) {
+        if (mRunning.get(task.url) == task) {
+            mRunning.remove(task.url);
+            /*不能在Glide的回调中发起新的请求，下一帧再调度*/
+            mHandler.post(mSchedule);
+        }
+    }
+
+    private final class Task implements RequestListener<Drawable> {
+        /*Application Context，不持有页面*/
+        private final Context context;
+        private final Object url;
+        private final int width, height;
+        private final RequestOptions options;
+        private RequestManager manager;
+        private Target<Drawable> target;
+
+        Task(Context context, Object url, int width, int height, RequestOptions options) {
+            this.context = context;
+            this.url = url;
+            this.width = width;
+            this.height = height;
+            this.options = options;
+        }
+
+        void start() {
+            manager = Glide.with(context);
+            /*优先级不属于缓存key，降低优先级让屏幕上的请求先执行*/
+            target = manager.load(url).apply(options).priority(Priority.LOW).listener(this).preload(width, height);
+        }
+
+        void cancel() {
+            if (manager != null && target != null) manager.clear(target);
+        }
+
+        @Override
+        public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Drawable> target, boolean isFirstResource) {
+            finish(this);
+            return false;
+        }
+
+        @Override
+        public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target, DataSource dataSource, boolean isFirstResource) {
+            finish(this);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.cloudling.imageloader;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.load.resource.gif.GifDrawable;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.request.target.ViewTarget;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.WeakHashMap;
+
+/**
+ * 描述: 将Glide的RequestListener转为ImageLoaderCallback回调，并上报加载统计
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+final class GlideRequestListener<R> implements RequestListener<R> {
+    /*列表中通常是同一个回调对象反复绑定，未开启统计时按回调对象和形状复用监听。
+    复用的监听持有回调对象，value只能是弱引用（否则key永远不会被回收）；数组由其中的监听强引用，
+    只要还有请求在使用其中一个监听数组就不会被回收，回调对象和监听都不再使用时一起回收*/
+    private static final WeakHashMap<ImageLoaderCallback<ImageResult>, WeakReference<GlideRequestListener<?>[]>> sPool = new WeakHashMap<>();
+
+    /*开启统计时形状处理输出的Bitmap及处理耗时（纳秒），由主请求的监听在结果返回时取出上报；
+    缩略图、错误占位图和预加载使用同样的形状处理，它们的结果不经过主请求的监听，不上报。弱引用key，未取出的随Bitmap回收*/
+    private static final WeakHashMap<Bitmap, Long> sTransformTimes = new WeakHashMap<>();
+
+    private final ImageLoaderCallback<ImageResult> listener;
+    private final ImageShapeType shape;
+    /**
+     * 发起请求的时间，复用的监听不计时，为-1
+     */
+    private final long startNanos;
+    /**
+     * 渐进式加载的状态，非渐进式加载为null
+     */
+    private final ProgressiveLoad progressive;
+    /**
+     * 复用的监听所在的数组（同一个回调对象各形状的监听），sPool中只有弱引用，由这里保持；不复用时为null
+     */
+    private final GlideRequestListener<?>[] siblings;
+
+    private GlideRequestListener(ImageLoaderCallback<ImageResult> listener, ImageShapeType shape, long startNanos, ProgressiveLoad progressive) {
+        this(listener, shape, startNanos, progressive, null);
+    }
+
+    private GlideRequestListener(ImageLoaderCallback<ImageResult> listener, ImageShapeType shape, long startNanos, ProgressiveLoad progressive,
+                                 GlideRequestListener<?>[] siblings) {
+        this.listener = listener;
+        this.shape = shape;
+        this.startNanos = startNanos;
+        this.progressive = progressive;
+        this.siblings = siblings;
+    }
+
+    /**
+     * 获取请求监听
+     *
+     * @param listener 加载监听，可为null
+     * @param shape    形状类型
+     * @return 不需要回调也不需要统计时返回null
+     */
+    @Nullable
+    static <R> GlideRequestListener<R> obtain(@Nullable ImageLoaderCallback<ImageResult> listener, ImageShapeType shape) {
+        return obtain(listener, shape, null);
+    }
+
+    /**
+     * 获取请求监听
+     *
+     * @param listener    加载监听，可为null
+     * @param shape       形状类型
+     * @param progressive 渐进式加载的状态，可为null
+     * @return 不需要回调也不需要统计时返回null
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    static <R> GlideRequestListener<R> obtain(@Nullable ImageLoaderCallback<ImageResult> listener, ImageShapeType shape, @Nullable ProgressiveLoad progressive) {
+        if (progressive != null || ImageLoader.getInstance().getMetricsSink() != null) {
+            /*开启统计或渐进式加载时每个请求需要单独记录开始时间*/
+            return new GlideRequestListener<>(listener, shape, System.nanoTime(), progressive);
+        }
+        if (listener == null) return null;
+        synchronized (sPool) {
+            WeakReference<GlideRequestListener<?>[]> reference = sPool.get(listener);
+            GlideRequestListener<?>[] listeners = reference == null ? null : reference.get();
+            if (listeners == null) {
+                listeners = new GlideRequestListener<?>[ImageShapeType.values().length];
+                sPool.put(listener, new WeakReference<GlideRequestListener<?>[]>(listeners));
+            }
+            GlideRequestListener<?> requestListener = listeners[shape.ordinal()];
+            if (requestListener == null) {
+                requestListener = new GlideRequestListener<>(listener, shape, -1, null, listeners);
+                listeners[shape.ordinal()] = requestListener;
+            }
+            return (GlideRequestListener<R>) requestListener;
+        }
+    }
+
+    @Override
+    public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<R> target, boolean isFirstResource) {
+        if (progressive != null) progressive.finish();
+        ImageMetricsSink sink = ImageLoader.getInstance().getMetricsSink();
+        if (sink != null) sink.onLoadFailed(shape, elapsed());
+        if (listener != null) listener.onFailure(new ImageResult(shape, failure(e, model)));
+        return false;
+    }
+
+    @Override
+    public boolean onResourceReady(R resource, Object model, Target<R> target, DataSource dataSource, boolean isFirstResource) {
+        if (progressive != null) progressive.finish();
+        ImageMetricsSink sink = ImageLoader.getInstance().getMetricsSink();
+        if (sink != null || listener != null) {
+            int width = 0, height = 0;
+            if (target instanceof ViewTarget) {
+                View view = ((ViewTarget<?, ?>) target).getView();
+                width = view.getWidth();
+                height = view.getHeight();
+            }
+            ImageResult result = new ImageResult(resource instanceof Bitmap ? (Bitmap) resource : null,
+                    shape, source(dataSource), elapsed(), byteCount(resource), width, height);
+            if (progressive != null && progressive.getFirstPixelNanos() >= 0) {
+                result.setTimeToFirstPixelNanos(progressive.getFirstPixelNanos());
+            }
+            if (sink != null) {
+                long transformNanos = takeTransformTime(resource);
+                /*内存缓存命中时没有进行形状处理，记录的是之前（如预加载）的耗时*/
+                if (transformNanos >= 0 && dataSource != DataSource.MEMORY_CACHE) sink.onTransform(shape, transformNanos);
+                sink.onLoadSuccess(result);
+            }
+            if (listener != null) deliver(result, target);
+        }
+        return false;
+    }
+
+    /**
+     * 回调onSuccess：开启按帧批量交付时与设置到视图一起在下一帧执行
+     */
+    private void deliver(final ImageResult result, Target<R> target) {
+        if (target instanceof ViewTarget && FrameBatcher.deferCallback(target, new Runnable() {
+            @Override
+            public void run() {
+                listener.onSuccess(result);
+            }
+        })) {
+            return;
+        }
+        listener.onSuccess(result);
+    }
+
+    /**
+     * 失败原因，网络地址同时带上负缓存中的连续失败次数和距离重试的时间
+     */
+    private static ImageFailure failure(@Nullable GlideException e, Object model) {
+        List<Throwable> causes = e == null ? null : e.getRootCauses();
+        ImageFailure.Kind kind = ImageFailure.classify(causes);
+        int statusCode = ImageFailure.statusCode(causes);
+        NegativeCache negativeCache = ImageLoader.getInstance().getNegativeCache();
+        if (negativeCache == null) return new ImageFailure(kind, statusCode, e, false, 0, 0);
+        return negativeCache.failure(NegativeCache.key(model), kind, statusCode, e);
+    }
+
+    private long elapsed() {
+        return startNanos < 0 ? -1 : System.nanoTime() - startNanos;
+    }
+
+    private static ImageResult.Source source(DataSource dataSource) {
+        if (dataSource == null) return null;
+        switch (dataSource) {
+            case MEMORY_CACHE:
+                return ImageResult.Source.MEMORY;
+            case DATA_DISK_CACHE:
+            case RESOURCE_DISK_CACHE:
+                return ImageResult.Source.DISK;
+            case REMOTE:
+                return ImageResult.Source.REMOTE;
+            default:
+                return ImageResult.Source.LOCAL;
+        }
+    }
+
+    /**
+     * 记录形状处理的耗时（在Glide的解码线程中调用）
+     */
+    static void onTransformed(Bitmap result, long nanos) {
+        synchronized (sTransformTimes) {
+            sTransformTimes.put(result, nanos);
+        }
+    }
+
+    /**
+     * 取出结果的形状处理耗时，没有记录时返回-1
+     */
+    private static long takeTransformTime(Object resource) {
+        Bitmap bitmap = resource instanceof BitmapDrawable ? ((BitmapDrawable) resource).getBitmap()
+                : resource instanceof Bitmap ? (Bitmap) resource : null;
+        if (bitmap == null) return -1;
+        Long nanos;
+        synchronized (sTransformTimes) {
+            nanos = sTransformTimes.remove(bitmap);
+        }
+        return nanos == null ? -1 : nanos;
+    }
+
+    private static long byteCount(Object resource) {
+        if (resource instanceof Bitmap) return ((Bitmap) resource).getAllocationByteCount();
+        if (resource instanceof BitmapDrawable) {
+            Bitmap bitmap = ((BitmapDrawable) resource).getBitmap();
+            return bitmap == null ? -1 : bitmap.getAllocationByteCount();
+        }
+        if (resource instanceof GifDrawable) return ((GifDrawable) resource).getSize();
+        return -1;
+    }
+}
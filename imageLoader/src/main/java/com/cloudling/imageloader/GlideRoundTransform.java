@@ -1,6 +1,7 @@
 package com.cloudling.imageloader;
 
 import android.graphics.Bitmap;
+import android.os.Trace;
 import android.widget.ImageView;
 
 import androidx.annotation.NonNull;
@@ -8,7 +9,9 @@ import androidx.annotation.NonNull;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
 import com.bumptech.glide.load.resource.bitmap.BitmapTransformation;
 import com.bumptech.glide.load.resource.bitmap.TransformationUtils;
+import com.bumptech.glide.util.Util;
 
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 
 /**
@@ -17,6 +20,12 @@ import java.security.MessageDigest;
  * 日期: 2019/10/29
  */
 public class GlideRoundTransform extends BitmapTransformation {
+    private static final String ID = "com.cloudling.imageloader.GlideRoundTransform";
+    private static final byte[] ID_BYTES = ID.getBytes(CHARSET);
+    /**
+     * systrace/perfetto中的分段名称，用于统计圆角处理耗时
+     */
+    static final String TRACE_TRANSFORM = "ImageLoader#roundTransform";
     private ImageView.ScaleType scaleType;
     /**
      * 左上角，右上角，左下角，右下角四个方向圆角半径
@@ -100,25 +109,68 @@ public class GlideRoundTransform extends BitmapTransformation {
     @Override
     protected Bitmap transform(@NonNull BitmapPool pool, @NonNull Bitmap toTransform,
                                int outWidth, int outHeight) {
-        if (scaleType != null) {
-            switch (scaleType) {
-                case CENTER_CROP:
-                    toTransform = TransformationUtils.centerCrop(pool, toTransform, outWidth, outHeight);
-                    break;
-                case FIT_CENTER:
-                    toTransform = TransformationUtils.fitCenter(pool, toTransform, outWidth, outHeight);
-                    break;
-                case CENTER_INSIDE:
-                    toTransform = TransformationUtils.centerInside(pool, toTransform, outWidth, outHeight);
-                    break;
+        Trace.beginSection(TRACE_TRANSFORM);
+        long start = ImageLoader.getInstance().getMetricsSink() == null ? -1 : System.nanoTime();
+        try {
+            if (scaleType != null) {
+                switch (scaleType) {
+                    case CENTER_CROP:
+                        toTransform = TransformationUtils.centerCrop(pool, toTransform, outWidth, outHeight);
+                        break;
+                    case FIT_CENTER:
+                        toTransform = TransformationUtils.fitCenter(pool, toTransform, outWidth, outHeight);
+                        break;
+                    case CENTER_INSIDE:
+                        toTransform = TransformationUtils.centerInside(pool, toTransform, outWidth, outHeight);
+                        break;
+                }
             }
+            Bitmap result = TransformationUtils.roundedCorners(pool, toTransform, leftTop, rightTop, rightBottom, leftBottom);
+            /*同一实例也用于缩略图、错误占位图和预加载，耗时按输出的Bitmap记录，只由主请求的监听上报*/
+            if (start >= 0) GlideRequestListener.onTransformed(result, System.nanoTime() - start);
+            return result;
+        } finally {
+            Trace.endSection();
         }
-        return TransformationUtils.roundedCorners(pool, toTransform, leftTop, rightTop, rightBottom, leftBottom);
     }
 
+    /*Glide以equals/hashCode作为内存缓存key的一部分，以updateDiskCacheKey作为磁盘缓存key的一部分，
+    两者都必须由四个圆角半径和scaleType决定，否则相同参数的请求无法命中内存缓存，不同参数的结果又可能在磁盘缓存中互相覆盖。
+    注意：链式设置方法会修改这些参数，已经交给Glide的实例不要再修改*/
     @Override
-    public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+    public boolean equals(Object o) {
+        if (o instanceof GlideRoundTransform) {
+            GlideRoundTransform other = (GlideRoundTransform) o;
+            return leftTop == other.leftTop
+                    && rightTop == other.rightTop
+                    && leftBottom == other.leftBottom
+                    && rightBottom == other.rightBottom
+                    && scaleType == other.scaleType;
+        }
+        return false;
+    }
 
+    @Override
+    public int hashCode() {
+        /*加0f把-0f转为0f，equals中-0f==0f，hashCode也必须相同*/
+        int hashCode = Util.hashCode(ID.hashCode(), Util.hashCode(leftTop + 0f));
+        hashCode = Util.hashCode(rightTop + 0f, hashCode);
+        hashCode = Util.hashCode(leftBottom + 0f, hashCode);
+        hashCode = Util.hashCode(rightBottom + 0f, hashCode);
+        return Util.hashCode(scaleType == null ? -1 : scaleType.ordinal(), hashCode);
+    }
+
+    @Override
+    public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+        messageDigest.update(ID_BYTES);
+        byte[] data = ByteBuffer.allocate(20)
+                .putFloat(leftTop + 0f)
+                .putFloat(rightTop + 0f)
+                .putFloat(leftBottom + 0f)
+                .putFloat(rightBottom + 0f)
+                .putInt(scaleType == null ? -1 : scaleType.ordinal())
+                .array();
+        messageDigest.update(data);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.cloudling.imageloader;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 描述: 默认的统计接收器，按形状类型分别记录加载耗时和形状处理耗时的直方图，按数据来源计数并记录加载耗时，
+ * 记录网络图片的下载耗时和等待域名并发名额的耗时
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public class HistogramMetricsSink implements ImageMetricsSink {
+    private final LatencyHistogram[] mLoadTimes = newHistograms(ImageShapeType.values().length);
+    private final LatencyHistogram[] mTransformTimes = newHistograms(ImageShapeType.values().length);
+    private final AtomicLongArray mSourceCounts = new AtomicLongArray(ImageResult.Source.values().length);
+    private final LatencyHistogram[] mSourceLoadTimes = newHistograms(ImageResult.Source.values().length);
+    private final AtomicLongArray mFailureCounts = new AtomicLongArray(ImageShapeType.values().length);
+    private final LatencyHistogram mFetchTimes = new LatencyHistogram();
+    private final LatencyHistogram mFetchQueueTimes = new LatencyHistogram();
+
+    @Override
+    public void onLoadSuccess(ImageResult result) {
+        if (result.getLoadTimeNanos() >= 0) {
+            mLoadTimes[result.getShape().ordinal()].record(result.getLoadTimeNanos());
+        }
+        if (result.getSource() != null) {
+            mSourceCounts.incrementAndGet(result.getSource().ordinal());
+            if (result.getLoadTimeNanos() >= 0) {
+                mSourceLoadTimes[result.getSource().ordinal()].record(result.getLoadTimeNanos());
+            }
+        }
+    }
+
+    @Override
+    public void onLoadFailed(ImageShapeType shape, long loadNanos) {
+        mFailureCounts.incrementAndGet(shape.ordinal());
+    }
+
+    @Override
+    public void onTransform(ImageShapeType shape, long transformNanos) {
+        mTransformTimes[shape.ordinal()].record(transformNanos);
+    }
+
+    @Override
+    public void onFetch(long queueNanos, long fetchNanos) {
+        mFetchQueueTimes.record(queueNanos);
+        mFetchTimes.record(fetchNanos);
+    }
+
+    /**
+     * 加载耗时直方图（从发起请求到图片可显示）
+     */
+    public LatencyHistogram getLoadTimes(ImageShapeType shape) {
+        return mLoadTimes[shape.ordinal()];
+    }
+
+    /**
+     * 形状处理耗时直方图
+     */
+    public LatencyHistogram getTransformTimes(ImageShapeType shape) {
+        return mTransformTimes[shape.ordinal()];
+    }
+
+    /**
+     * 网络图片下载耗时直方图（从发起请求到响应体读完）
+     */
+    public LatencyHistogram getFetchTimes() {
+        return mFetchTimes;
+    }
+
+    /**
+     * 网络图片等待域名并发名额的耗时直方图
+     */
+    public LatencyHistogram getFetchQueueTimes() {
+        return mFetchQueueTimes;
+    }
+
+    /**
+     * 来自指定数据来源的成功请求数
+     */
+    public long getSourceCount(ImageResult.Source source) {
+        return mSourceCounts.get(source.ordinal());
+    }
+
+    /**
+     * 来自指定数据来源的成功请求的加载耗时直方图，如LOCAL可用于比较本地文件的加载耗时
+     */
+    public LatencyHistogram getLoadTimes(ImageResult.Source source) {
+        return mSourceLoadTimes[source.ordinal()];
+    }
+
+    public long getFailureCount(ImageShapeType shape) {
+        return mFailureCounts.get(shape.ordinal());
+    }
+
+    public void reset() {
+        for (ImageShapeType shape : ImageShapeType.values()) {
+            mLoadTimes[shape.ordinal()].reset();
+            mTransformTimes[shape.ordinal()].reset();
+            mFailureCounts.set(shape.ordinal(), 0);
+        }
+        for (ImageResult.Source source : ImageResult.Source.values()) {
+            mSourceCounts.set(source.ordinal(), 0);
+            mSourceLoadTimes[source.ordinal()].reset();
+        }
+        mFetchTimes.reset();
+        mFetchQueueTimes.reset();
+    }
+
+    private static LatencyHistogram[] newHistograms(int count) {
+        LatencyHistogram[] histograms = new LatencyHistogram[count];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+}
@@ -0,0 +1,121 @@
+package com.cloudling.imageloader;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 描述: 按域名限制同时进行的下载数，超出时按优先级（相同优先级按先后顺序）排队。
+ * 获取许可不阻塞：排队的请求在名额空出时通过回调继续，等待期间不占用任何线程
+ * （阻塞等待会占满Glide的加载线程，而持有名额的请求需要这些线程才能读完数据、释放名额，互相等待）
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+final class HttpHostLimiter {
+    private final int mMaxPerHost;
+    private final Map<String, Host> mHosts = new HashMap<>();
+    private long mSequence;
+
+    HttpHostLimiter(int maxPerHost) {
+        mMaxPerHost = Math.max(1, maxPerHost);
+    }
+
+    Permit permit(String host, int priority) {
+        return new Permit(host, priority);
+    }
+
+    private static final class Host {
+        int running;
+        final PriorityQueue<Permit> waiting = new PriorityQueue<>();
+    }
+
+    /**
+     * 一次下载的许可，acquire调用一次，获得许可后release至少调用一次（重复调用忽略），cancel可在任意线程调用
+     */
+    final class Permit implements Comparable<Permit> {
+        private final String host;
+        private final int priority;
+        private long sequence;
+        private boolean granted;
+        private boolean released;
+        private boolean cancelled;
+        private Runnable onGranted;
+
+        Permit(String host, int priority) {
+            this.host = host;
+            this.priority = priority;
+        }
+
+        /**
+         * 获取许可（不阻塞）
+         *
+         * @param onGranted 排队后获得许可时在释放名额的线程上执行，不要在其中执行耗时操作
+         * @return 立即获得许可时返回true；排队或已被取消时返回false
+         */
+        boolean acquire(Runnable onGranted) {
+            synchronized (HttpHostLimiter.this) {
+                if (cancelled) return false;
+                Host state = mHosts.get(host);
+                if (state == null) {
+                    state = new Host();
+                    mHosts.put(host, state);
+                }
+                if (state.running < mMaxPerHost && state.waiting.isEmpty()) {
+                    state.running++;
+                    granted = true;
+                    return true;
+                }
+                this.onGranted = onGranted;
+                sequence = mSequence++;
+                state.waiting.add(this);
+                return false;
+            }
+        }
+
+        /**
+         * 取消：排队中的不再获得许可；已获得的许可仍需release
+         */
+        void cancel() {
+            synchronized (HttpHostLimiter.this) {
+                if (cancelled) return;
+                cancelled = true;
+                if (!granted) {
+                    Host state = mHosts.get(host);
+                    if (state != null) state.waiting.remove(this);
+                    onGranted = null;
+                }
+            }
+        }
+
+        /**
+         * 释放许可，名额转给排队中优先级最高的请求；未获得许可或重复调用时忽略
+         */
+        void release() {
+            Permit next;
+            synchronized (HttpHostLimiter.this) {
+                if (!granted || released) return;
+                released = true;
+                Host state = mHosts.get(host);
+                next = state.waiting.poll();
+                if (next != null) {
+                    /*名额直接转交，running不变*/
+                    next.granted = true;
+                } else if (--state.running == 0) {
+                    mHosts.remove(host);
+                }
+            }
+            if (next != null) {
+                Runnable onGranted = next.onGranted;
+                next.onGranted = null;
+                /*在锁外回调*/
+                onGranted.run();
+            }
+        }
+
+        @Override
+        public int compareTo(Permit other) {
+            if (priority != other.priority) return priority < other.priority ? -1 : 1;
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.cloudling.imageloader;
+
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.HttpException;
+import com.bumptech.glide.load.engine.GlideException;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 描述: 加载失败的原因（通过ImageLoaderCallback.onFailure回调的ImageResult.getFailure获取）
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public final class ImageFailure {
+    /**
+     * 失败类型
+     */
+    public enum Kind {
+        /*HTTP 404、410，地址不存在*/
+        NOT_FOUND,
+        /*其他HTTP 4xx*/
+        CLIENT_ERROR,
+        /*HTTP 5xx、429*/
+        SERVER_ERROR,
+        /*连接或读取超时、HTTP 408*/
+        TIMEOUT,
+        /*其他网络错误（无网络、域名解析失败、连接被重置等）*/
+        NETWORK,
+        /*数据已获取但无法解码*/
+        DECODE,
+        /*未知原因*/
+        UNKNOWN;
+
+        /**
+         * 是否为暂时性错误（重试可能成功），暂时性错误的抑制时间按连续失败次数指数增长
+         */
+        public boolean isTransient() {
+            return this == SERVER_ERROR || this == TIMEOUT || this == NETWORK || this == UNKNOWN;
+        }
+    }
+
+    private final Kind kind;
+    private final int statusCode;
+    private final Throwable cause;
+    private final boolean suppressed;
+    private final int failureCount;
+    private final long retryAfterMillis;
+
+    ImageFailure(Kind kind, int statusCode, @Nullable Throwable cause, boolean suppressed, int failureCount, long retryAfterMillis) {
+        this.kind = kind;
+        this.statusCode = statusCode;
+        this.cause = cause;
+        this.suppressed = suppressed;
+        this.failureCount = failureCount;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * 按异常的根原因分类
+     */
+    static Kind classify(@Nullable List<Throwable> causes) {
+        if (causes == null || causes.isEmpty()) return Kind.UNKNOWN;
+        Kind kind = Kind.DECODE;
+        for (Throwable cause : causes) {
+            if (cause instanceof IOException) {
+                /*网络错误优先于解码错误：解码失败通常是因为下载不完整*/
+                kind = classify((IOException) cause);
+                break;
+            }
+        }
+        return kind;
+    }
+
+    static Kind classify(IOException e) {
+        if (e instanceof HttpException) {
+            int code = ((HttpException) e).getStatusCode();
+            if (code == 404 || code == 410) return Kind.NOT_FOUND;
+            if (code == 408) return Kind.TIMEOUT;
+            if (code == 429 || code / 100 == 5) return Kind.SERVER_ERROR;
+            if (code / 100 == 4) return Kind.CLIENT_ERROR;
+            return Kind.NETWORK;
+        }
+        return e instanceof SocketTimeoutException ? Kind.TIMEOUT : Kind.NETWORK;
+    }
+
+    /**
+     * 异步加载（ImageLoadFuture）失败的原因，Glide的异常按根原因分类
+     */
+    static ImageFailure of(@Nullable Throwable error) {
+        List<Throwable> causes;
+        if (error instanceof GlideException) {
+            causes = ((GlideException) error).getRootCauses();
+        } else {
+            causes = error == null ? null : Collections.singletonList(error);
+        }
+        Kind kind = error instanceof GlideException || error instanceof IOException ? classify(causes) : Kind.UNKNOWN;
+        return new ImageFailure(kind, statusCode(causes), error, false, 0, 0);
+    }
+
+    static int statusCode(@Nullable List<Throwable> causes) {
+        if (causes == null) return -1;
+        for (Throwable cause : causes) {
+            if (cause instanceof HttpException) return ((HttpException) cause).getStatusCode();
+        }
+        return -1;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * HTTP状态码，不是HTTP错误时为-1
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * 失败的异常，被负缓存抑制（没有发起请求）时为null
+     */
+    @Nullable
+    public Throwable getCause() {
+        return cause;
+    }
+
+    /**
+     * 是否因为地址最近加载失败、还未到重试时间而没有发起请求（直接显示加载错误占位图）
+     */
+    public boolean isSuppressed() {
+        return suppressed;
+    }
+
+    /**
+     * 该地址连续失败的次数，不是网络地址时为0
+     */
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * 距离该地址可以重新请求的时间（毫秒），0表示下次会重新请求
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
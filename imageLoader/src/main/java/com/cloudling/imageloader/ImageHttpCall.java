@@ -0,0 +1,28 @@
+package com.cloudling.imageloader;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 描述: 一次图片下载请求
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public interface ImageHttpCall {
+    /**
+     * 执行请求（阻塞），返回响应体
+     *
+     * @throws IOException 网络错误；HTTP状态码错误时建议抛出Glide的HttpException并带上状态码
+     */
+    InputStream execute() throws IOException;
+
+    /**
+     * 取消请求，可能在任意线程（包括主线程）调用，不要在这里执行阻塞的网络操作
+     */
+    void cancel();
+
+    /**
+     * 响应体使用完毕，释放资源（完整读取的连接应归还连接池以便复用）
+     */
+    void close();
+}
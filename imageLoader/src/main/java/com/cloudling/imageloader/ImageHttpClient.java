@@ -0,0 +1,20 @@
+package com.cloudling.imageloader;
+
+import java.util.Map;
+
+/**
+ * 描述: 网络图片下载客户端（通过ImageLoaderConfig.httpClient替换，默认为基于HttpURLConnection的DefaultImageHttpClient）。
+ * 需要HTTP/2多路复用时可基于OkHttp等支持HTTP/2的网络库实现此接口，连接池、协议协商由网络库负责
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public interface ImageHttpClient {
+    /**
+     * 创建下载请求（在图片加载框架的加载线程上调用）
+     *
+     * @param url      图片地址
+     * @param headers  请求头
+     * @param priority 优先级，0最高，数值越大越低（屏幕上的视图高于普通加载，预加载最低）
+     */
+    ImageHttpCall newCall(String url, Map<String, String> headers, int priority);
+}
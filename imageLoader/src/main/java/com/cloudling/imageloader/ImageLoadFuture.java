@@ -0,0 +1,354 @@
+package com.cloudling.imageloader;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 描述: 可取消的异步加载结果。get会阻塞当前线程，不要在主线程调用；cancel会中止底层的加载请求，
+ * 释放已占用的解码线程和Bitmap，并回调ImageLoaderCallback.onCancel。
+ * 自定义的加载策略通过构造方法创建，加载结束时调用complete或fail，并通过setCanceller设置取消时中止加载的操作
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public class ImageLoadFuture<T> implements Future<T> {
+    /**
+     * 结果类型，用于创建ImageLoaderCallback可变参数的数组（泛型擦除后无法直接创建T[]）
+     */
+    private final Class<T> mType;
+    private T mResult;
+    private Throwable mError;
+    private boolean mDone;
+    private boolean mCancelled;
+    /**
+     * 取消时中止底层加载请求的操作，由具体的加载策略设置
+     */
+    private Runnable mCanceller;
+    /**
+     * 完成（成功、失败或取消）时执行的回调，完成后置为null
+     */
+    private List<Runnable> mListeners = new ArrayList<>(2);
+
+    /**
+     * @param type 结果类型
+     */
+    public ImageLoadFuture(Class<T> type) {
+        mType = type;
+    }
+
+    /**
+     * 已失败的加载结果（如加载策略不支持该操作）
+     */
+    public static <T> ImageLoadFuture<T> failed(Class<T> type, Throwable error) {
+        ImageLoadFuture<T> future = new ImageLoadFuture<>(type);
+        future.fail(error);
+        return future;
+    }
+
+    /**
+     * 设置取消时中止底层加载请求的操作（可在任意线程调用），设置之前已被取消时立即执行
+     */
+    public void setCanceller(Runnable canceller) {
+        boolean cancelled;
+        synchronized (this) {
+            mCanceller = canceller;
+            cancelled = mCancelled;
+        }
+        /*设置之前已被取消，立即中止*/
+        if (cancelled) canceller.run();
+    }
+
+    /**
+     * 加载成功
+     *
+     * @return 已经完成（如已被取消）时返回false，调用方需自行释放result
+     */
+    public boolean complete(T result) {
+        List<Runnable> listeners;
+        synchronized (this) {
+            if (mDone) return false;
+            mResult = result;
+            mDone = true;
+            listeners = finish();
+        }
+        run(listeners);
+        return true;
+    }
+
+    /**
+     * 加载失败
+     *
+     * @return 已经完成（如已被取消）时返回false
+     */
+    public boolean fail(Throwable error) {
+        List<Runnable> listeners;
+        synchronized (this) {
+            if (mDone) return false;
+            mError = error;
+            mDone = true;
+            listeners = finish();
+        }
+        run(listeners);
+        return true;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        List<Runnable> listeners;
+        Runnable canceller;
+        synchronized (this) {
+            if (mDone) return false;
+            mCancelled = true;
+            mDone = true;
+            canceller = mCanceller;
+            listeners = finish();
+        }
+        /*在锁外中止请求和回调，避免与加载线程上的回调互相等待*/
+        if (canceller != null) canceller.run();
+        run(listeners);
+        return true;
+    }
+
+    private List<Runnable> finish() {
+        List<Runnable> listeners = mListeners;
+        mListeners = null;
+        notifyAll();
+        return listeners;
+    }
+
+    private static void run(List<Runnable> listeners) {
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return mCancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return mDone;
+    }
+
+    @Override
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        while (!mDone) {
+            wait();
+        }
+        return result();
+    }
+
+    @Override
+    public synchronized T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        long remaining = unit.toNanos(timeout);
+        long deadline = System.nanoTime() + remaining;
+        while (!mDone) {
+            if (remaining <= 0) throw new TimeoutException();
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            remaining = deadline - System.nanoTime();
+        }
+        return result();
+    }
+
+    private T result() throws ExecutionException {
+        if (mCancelled) throw new CancellationException();
+        if (mError != null) throw new ExecutionException(mError);
+        return mResult;
+    }
+
+    /**
+     * 添加完成回调（在完成加载的线程上回调，已完成时在当前线程立即回调）。
+     * 结果类型为ImageResult时，onFailure回调的ImageResult.getFailure带有失败原因，其他类型回调空数组
+     */
+    public ImageLoadFuture<T> addCallback(final ImageLoaderCallback<T> callback) {
+        addListener(new Runnable() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public void run() {
+                T result;
+                Throwable error;
+                boolean cancelled;
+                synchronized (ImageLoadFuture.this) {
+                    result = mResult;
+                    cancelled = mCancelled;
+                    error = mError;
+                }
+                T[] empty = (T[]) Array.newInstance(mType, 0);
+                if (cancelled) {
+                    callback.onCancel(empty);
+                } else if (error != null) {
+                    if (mType == ImageResult.class) {
+                        /*与加载到视图时一致，通过ImageResult传递失败原因*/
+                        T[] results = (T[]) Array.newInstance(mType, 1);
+                        results[0] = (T) new ImageResult(ImageShapeType.NONE, ImageFailure.of(error));
+                        callback.onFailure(results);
+                    } else {
+                        callback.onFailure(empty);
+                    }
+                } else {
+                    T[] results = (T[]) Array.newInstance(mType, 1);
+                    results[0] = result;
+                    callback.onSuccess(results);
+                }
+            }
+        });
+        return this;
+    }
+
+    /**
+     * 以source的结果结束（用于先返回、之后才发起的加载，如异步初始化期间暂存的请求），取消时同时取消source；
+     * 已被取消后source才返回的结果在这里释放
+     */
+    void follow(final ImageLoadFuture<T> source) {
+        setCanceller(new Runnable() {
+            @Override
+            public void run() {
+                source.cancel(true);
+            }
+        });
+        source.addListener(new Runnable() {
+            @Override
+            public void run() {
+                T result;
+                Throwable error;
+                boolean cancelled;
+                synchronized (source) {
+                    result = source.mResult;
+                    error = source.mError;
+                    cancelled = source.mCancelled;
+                }
+                if (cancelled) {
+                    cancel(true);
+                } else if (error != null) {
+                    fail(error);
+                } else if (!complete(result)) {
+                    dispose(result);
+                }
+            }
+        });
+    }
+
+    /**
+     * 释放不会交给调用方的加载结果：Bitmap租约、区域解码器
+     */
+    private static void dispose(Object result) {
+        if (result instanceof ImageResult) {
+            BitmapLease lease = ((ImageResult) result).getLease();
+            if (lease != null && !lease.isReleased()) lease.release();
+        } else if (result instanceof ImageRegionSource) {
+            ((ImageRegionSource) result).discard();
+        }
+    }
+
+    private void addListener(Runnable listener) {
+        synchronized (this) {
+            if (!mDone) {
+                mListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    /**
+     * 合并多个加载：全部成功时按传入顺序得到所有结果；任意一个失败或被取消时立即以同样的结果结束，并取消其余未完成的加载；
+     * 取消合并后的结果会取消全部加载。合并后的结果失败或被取消时，已成功的加载结果不会交给调用方，
+     * 其中的Bitmap租约（ImageResult.getLease）由这里释放，之后才完成的加载结果同样释放
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ImageLoadFuture<List<T>> allOf(final List<? extends ImageLoadFuture<T>> futures) {
+        final ImageLoadFuture<List<T>> all = new ImageLoadFuture<>((Class<List<T>>) (Class<?>) List.class);
+        if (futures.isEmpty()) {
+            all.complete(Collections.<T>emptyList());
+            return all;
+        }
+        all.setCanceller(new Runnable() {
+            @Override
+            public void run() {
+                cancelAll(futures);
+            }
+        });
+        /*每个加载结果最多释放一次：合并结果结束时和之后完成的加载各自检查*/
+        final boolean[] discarded = new boolean[futures.size()];
+        all.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (!all.succeeded()) discardAll(futures, discarded);
+            }
+        });
+        final AtomicInteger remaining = new AtomicInteger(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            final ImageLoadFuture<T> future = futures.get(i);
+            final int index = i;
+            future.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    Throwable error;
+                    boolean cancelled;
+                    synchronized (future) {
+                        error = future.mError;
+                        cancelled = future.mCancelled;
+                    }
+                    if (cancelled) {
+                        all.cancel(true);
+                    } else if (error != null) {
+                        if (all.fail(error)) cancelAll(futures);
+                    } else if (remaining.decrementAndGet() == 0) {
+                        List<T> results = new ArrayList<>(futures.size());
+                        for (ImageLoadFuture<T> done : futures) {
+                            synchronized (done) {
+                                results.add(done.mResult);
+                            }
+                        }
+                        if (!all.complete(results)) discard(future, index, discarded);
+                    } else if (all.isDone()) {
+                        /*合并结果已失败或被取消，结果不会再交给调用方*/
+                        discard(future, index, discarded);
+                    }
+                }
+            });
+        }
+        return all;
+    }
+
+    private synchronized boolean succeeded() {
+        return mDone && !mCancelled && mError == null;
+    }
+
+    private static void discardAll(List<? extends ImageLoadFuture<?>> futures, boolean[] discarded) {
+        for (int i = 0; i < futures.size(); i++) {
+            discard(futures.get(i), i, discarded);
+        }
+    }
+
+    /**
+     * 释放已成功的加载结果中的Bitmap租约（未完成、失败或已释放过的跳过）
+     */
+    private static void discard(ImageLoadFuture<?> future, int index, boolean[] discarded) {
+        if (!future.succeeded()) return;
+        synchronized (discarded) {
+            if (discarded[index]) return;
+            discarded[index] = true;
+        }
+        Object result;
+        synchronized (future) {
+            result = future.mResult;
+        }
+        if (result instanceof ImageResult) dispose(result);
+    }
+
+    private static void cancelAll(List<? extends ImageLoadFuture<?>> futures) {
+        for (ImageLoadFuture<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package com.cloudling.imageloader;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Trace;
+import android.util.Size;
 import android.view.View;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 描述: 图片加载工具类（单例）
@@ -18,10 +26,17 @@ public final class ImageLoader {
     但是在 JVM 的即时编译器中存在指令重排序的优化。也就是说上面的第二步和第三步的顺序是不能保证的，最终的执行顺序可能是 1-2-3 也可能是 1-3-2。如果是后者，则在 3 执行完毕、2 未执行之前，被线程二抢占了，这时 instance 已经是非 null 了（但却没有初始化），所以线程二会直接返回 instance，然后使用，然后顺理成章地报错。
     我们只需要将 instance 变量声明成 volatile 就可以了。*/
     private static volatile ImageLoader mInstance;
-    private BaseImageLoaderStrategy mStrategy;
+    private static final String TRACE_WARM_UP = "ImageLoader#warmUp";
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+    private volatile BaseImageLoaderStrategy mStrategy;
+    private volatile ImageMetricsSink mMetricsSink;
+    /*warmUp进行中时为true，期间的请求暂存在mPending中*/
+    private volatile boolean mWarmingUp;
+    private final List<Runnable> mPending = new ArrayList<>();
+    private volatile long mWarmUpNanos = -1;
 
     private ImageLoader() {
-        /*初始化时设置图片加载策略为Glide*/
+        /*默认的图片加载策略为Glide（创建策略对象不会初始化Glide，Glide在init、warmUp或第一次加载时初始化），可通过setImageLoaderStrategy替换*/
         setImageLoaderStrategy(new GlideImageLoaderStrategy());
     }
 
@@ -37,12 +52,216 @@ public final class ImageLoader {
     }
 
     /**
-     * 设置图片加载策略（根据使用的图片加载框架实现对应的BaseImageLoaderStrategy并在这里设置）
+     * 设置图片加载策略（根据使用的图片加载框架实现对应的BaseImageLoaderStrategy并在这里设置），需在init或warmUp之前调用
      */
-    private void setImageLoaderStrategy(BaseImageLoaderStrategy strategy) {
+    public void setImageLoaderStrategy(BaseImageLoaderStrategy strategy) {
         mStrategy = strategy;
     }
 
+    /**
+     * 初始化（在Application中、第一次加载图片之前调用；Glide策略下已创建的Glide会被重建，只有第一次调用生效，
+     * 应用有自己的AppGlideModule时改用GlideImageLoaderStrategy.applyOptions和registerComponents）
+     *
+     * @param context 上下文
+     * @param config  图片加载配置
+     */
+    public void init(Context context, ImageLoaderConfig config) {
+        if (mStrategy == null) {
+            throw new NullPointerException("you should invoke setImageLoaderStrategy first");
+        } else {
+            initStrategy(mStrategy, context, config);
+        }
+    }
+
+    /**
+     * 异步初始化（代替init，在Application.onCreate中调用）：在后台线程初始化图片加载框架（扫描注解模块、创建缓存和复用池、构建解码注册表），
+     * 不占用启动时主线程的第一帧。初始化完成前发起的显示、预加载等请求先暂存，完成后在主线程按调用顺序执行；
+     * loadImageBitmapAsync、openRegion和probeSize同样暂存，立即返回未完成的ImageLoadFuture，初始化完成后才发起加载，期间可以取消
+     *
+     * @param context 上下文
+     * @param config  图片加载配置
+     * @param onReady 初始化完成后在主线程回调，可为null
+     */
+    public void warmUp(Context context, final ImageLoaderConfig config, @Nullable final Runnable onReady) {
+        final BaseImageLoaderStrategy strategy = mStrategy;
+        if (strategy == null) {
+            throw new NullPointerException("you should invoke setImageLoaderStrategy first");
+        }
+        final Context appContext = context.getApplicationContext();
+        synchronized (mPending) {
+            if (mWarmingUp) return;
+            mWarmingUp = true;
+        }
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                Trace.beginSection(TRACE_WARM_UP);
+                try {
+                    initStrategy(strategy, appContext, config);
+                    mWarmUpNanos = System.nanoTime() - start;
+                } finally {
+                    Trace.endSection();
+                    /*初始化失败时也要执行暂存的请求，异常仍在后台线程抛出*/
+                    MAIN.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            finishWarmUp();
+                            if (onReady != null) onReady.run();
+                        }
+                    });
+                }
+            }
+        }, "image-warm-up").start();
+    }
+
+    private static void initStrategy(BaseImageLoaderStrategy strategy, Context context, ImageLoaderConfig config) {
+        if (strategy instanceof GlideImageLoaderStrategy) {
+            ((GlideImageLoaderStrategy) strategy).init(context, config);
+        }
+    }
+
+    /**
+     * 异步初始化进行中时暂存请求
+     *
+     * @return 是否已暂存，初始化已完成时返回false，由调用方直接执行
+     */
+    private boolean enqueue(Runnable request) {
+        synchronized (mPending) {
+            if (!mWarmingUp) return false;
+            mPending.add(request);
+            return true;
+        }
+    }
+
+    /**
+     * 异步初始化进行中时暂存异步加载，立即返回未完成的结果，初始化完成后再发起加载并转发其结果和取消
+     * （不能在此期间使用图片加载框架：Glide策略下提前调用Glide.get会先创建默认配置的Glide，随后被初始化销毁重建）
+     *
+     * @return 已暂存时返回未完成的结果，初始化已完成时返回null，由调用方直接发起
+     */
+    @Nullable
+    private <T> ImageLoadFuture<T> enqueue(Class<T> type, final AsyncLoad<T> load) {
+        if (!mWarmingUp) return null;
+        final ImageLoadFuture<T> pending = new ImageLoadFuture<>(type);
+        if (!enqueue(new Runnable() {
+            @Override
+            public void run() {
+                /*初始化期间已被取消的不再发起*/
+                if (pending.isDone()) return;
+                ImageLoadFuture<T> future;
+                try {
+                    future = load.start();
+                } catch (RuntimeException e) {
+                    pending.fail(e);
+                    return;
+                }
+                pending.follow(future);
+            }
+        })) {
+            return null;
+        }
+        return pending;
+    }
+
+    /**
+     * 暂存的异步加载，初始化完成后在主线程发起
+     */
+    private interface AsyncLoad<T> {
+        ImageLoadFuture<T> start();
+    }
+
+    private void finishWarmUp() {
+        List<Runnable> pending;
+        synchronized (mPending) {
+            mWarmingUp = false;
+            pending = new ArrayList<>(mPending);
+            mPending.clear();
+        }
+        for (Runnable request : pending) {
+            try {
+                request.run();
+            } catch (IllegalArgumentException e) {
+                /*发起请求的页面在初始化期间已销毁*/
+            }
+        }
+    }
+
+    /**
+     * 异步初始化耗时（纳秒，后台线程中），未调用warmUp或还未完成时为-1；
+     * 同时以ImageLoader#warmUp记录在systrace/Perfetto中，可与主线程第一帧对比启动耗时
+     */
+    public long getWarmUpNanos() {
+        return mWarmUpNanos;
+    }
+
+    /**
+     * 获取内存缓存（可获取命中、未命中、淘汰次数），未调用init时为null
+     */
+    public TinyLfuMemoryCache getMemoryCache() {
+        if (mStrategy instanceof GlideImageLoaderStrategy) {
+            return ((GlideImageLoaderStrategy) mStrategy).getMemoryCache();
+        }
+        return null;
+    }
+
+    /**
+     * 获取内存管理（当前内存缓存、复用池大小，内存紧张时的释放次数），未调用init时为null
+     */
+    public ImageMemoryGovernor getMemoryGovernor() {
+        if (mStrategy instanceof GlideImageLoaderStrategy) {
+            return ((GlideImageLoaderStrategy) mStrategy).getMemoryGovernor();
+        }
+        return null;
+    }
+
+    /**
+     * 获取缓存key规范化的统计（规范化后共享缓存key的次数），未设置规范化时计数均为0
+     */
+    public CacheKeyStats getCacheKeyStats() {
+        if (mStrategy instanceof GlideImageLoaderStrategy) {
+            return ((GlideImageLoaderStrategy) mStrategy).getCacheKeyStats();
+        }
+        return null;
+    }
+
+    /**
+     * 获取负缓存（被抑制的请求数、各类型的下载失败次数），未调用init时为null
+     */
+    public NegativeCache getNegativeCache() {
+        if (mStrategy instanceof GlideImageLoaderStrategy) {
+            return ((GlideImageLoaderStrategy) mStrategy).getNegativeCache();
+        }
+        return null;
+    }
+
+    /**
+     * 获取按帧批量交付的统计（ImageLoaderConfig.batchedDelivery开启时），包括每帧交付的结果数、耗时和顺延的帧数
+     */
+    public FrameDeliveryStats getFrameDeliveryStats() {
+        return FrameBatcher.STATS;
+    }
+
+    /**
+     * 获取动图播放统计（ImageOptions.animated开启时），包括每显示一帧的解码CPU时间、跳帧数和帧缓冲内存峰值
+     */
+    public AnimatedImageStats getAnimatedImageStats() {
+        return AnimatedFrameDrawable.STATS;
+    }
+
+    /**
+     * 设置图片加载统计接收器（全局），每个请求完成后会回调形状、数据来源、耗时、解码字节数等信息
+     *
+     * @param sink 统计接收器，传null关闭统计；可使用默认实现HistogramMetricsSink
+     */
+    public void setMetricsSink(ImageMetricsSink sink) {
+        mMetricsSink = sink;
+    }
+
+    public ImageMetricsSink getMetricsSink() {
+        return mMetricsSink;
+    }
+
     /**
      * 加载图片
      *
@@ -51,10 +270,15 @@ public final class ImageLoader {
      * @param view        图片宿主
      * @param placeholder 占位图（加载时或加载错误占位图），可选参数，第一个元素代表加载时占位图，第二个元素代表加载错误占位图
      */
-    public <LoadAddress, V extends View> void load(Context context, LoadAddress url, V view, int... placeholder) {
+    public <LoadAddress, V extends View> void load(final Context context, final LoadAddress url, final V view, final int... placeholder) {
         if (mStrategy == null) {
             throw new NullPointerException("you should invoke setImageLoaderStrategy first");
-        } else {
+        } else if (!mWarmingUp || !enqueue(new Runnable() {
+            @Override
+            public void run() {
+                load(context, url, view, placeholder);
+            }
+        })) {
             mStrategy.load(context, url, view, placeholder);
         }
     }
@@ -68,14 +292,154 @@ public final class ImageLoader {
      * @param listener    加载监听
      * @param placeholder 占位图（加载时或加载错误占位图），可选参数，第一个元素代表加载时占位图，第二个元素代表加载错误占位图
      */
-    public <LoadAddress, V extends View, L> void load(Context context, LoadAddress url, V view, ImageLoaderCallback<L> listener, int... placeholder) {
+    public <LoadAddress, V extends View, L> void load(final Context context, final LoadAddress url, final V view, final ImageLoaderCallback<L> listener, final int... placeholder) {
         if (mStrategy == null) {
             throw new NullPointerException("you should invoke setImageLoaderStrategy first");
-        } else {
+        } else if (!mWarmingUp || !enqueue(new Runnable() {
+            @Override
+            public void run() {
+                load(context, url, view, listener, placeholder);
+            }
+        })) {
             mStrategy.load(context, url, view, listener, placeholder);
         }
     }
 
+    /**
+     * 加载图片（按options指定形状等参数，如ImageOptions.newBuilder().shape(ImageShape.circle()).drawTimeShape(true)在绘制时处理圆形）
+     *
+     * @param context     上下文
+     * @param url         图片地址
+     * @param view        图片宿主
+     * @param options     加载参数，为null时与普通加载一致
+     * @param listener    加载监听，可为null
+     * @param placeholder 占位图（加载时或加载错误占位图），可选参数，第一个元素代表加载时占位图，第二个元素代表加载错误占位图
+     */
+    public <LoadAddress, V extends View, L> void load(final Context context, final LoadAddress url, final V view, final ImageOptions options, final ImageLoaderCallback<L> listener, final int... placeholder) {
+        if (mStrategy == null) {
+            throw new NullPointerException("you should invoke setImageLoaderStrategy first");
+        } else if (!mWarmingUp || !enqueue(new Runnable() {
+            @Override
+            public void run() {
+                load(context, url, view, options, listener, placeholder);
+            }
+        })) {
+            mStrategy.load(context, url, view, options, listener, placeholder);
+        }
+    }
+
+    /**
+     * 加载图片为Bitmap
+     *
+     * @param context   上下文
+     * @param url       图片地址
+     * @param maxWidth  最大宽度
+     * @param maxHeight 最大高度
+     * @param listener  加载监听
+     */
+    public <LoadAddress, L> void loadImageBitmap(final Context context, final LoadAddress url, final int maxWidth, final int maxHeight, final ImageLoaderCallback<L> listener) {
+        if (mStrategy == null) {
+            throw new NullPointerException("you should invoke setImageLoaderStrategy first");
+        } else if (!mWarmingUp || !enqueue(new Runnable() {
+            @Override
+            public void run() {
+                loadImageBitmap(context, url, maxWidth, maxHeight, listener);
+            }
+        })) {
+            mStrategy.loadImageBitmap(context, url, maxWidth, maxHeight, listener);
+        }
+    }
+
+    /**
+     * 加载图片为Bitmap
+     *
+     * @param context   上下文
+     * @param url       图片地址
+     * @param maxWidth  最大宽度
+     * @param maxHeight 最大高度
+     * @param policy    解码策略（像素格式、采样方式、内存上限），为null时使用ImageLoaderConfig中的全局设置
+     * @param listener  加载监听
+     */
+    public <LoadAddress, L> void loadImageBitmap(final Context context, final LoadAddress url, final int maxWidth, final int maxHeight, final DecodePolicy policy, final ImageLoaderCallback<L> listener) {
+        if (mStrategy == null) {
+            throw new NullPointerException("you should invoke setImageLoaderStrategy first");
+        } else if (!mWarmingUp || !enqueue(new Runnable() {
+            @Override
+            public void run() {
+                loadImageBitmap(context, url, maxWidth, maxHeight, policy, listener);
+            }
+        })) {
+            mStrategy.loadImageBitmap(context, url, maxWidth, maxHeight, policy, listener);
+        }
+    }
+
+    /**
+     * 异步加载图片为Bitmap（可在任意线程调用，不跟随页面生命周期，不再需要时调用cancel）
+     *
+     * @param context   上下文
+     * @param url       图片地址
+     * @param maxWidth  最大宽度
+     * @param maxHeight 最大高度
+     * @param policy    解码策略，为null时使用ImageLoaderConfig中的全局设置
+     * @return 可取消、可超时等待、可通过ImageLoadFuture.allOf合并的加载结果
+     */
+    public <LoadAddress> ImageLoadFuture<ImageResult> loadImageBitmapAsync(final Context context, final LoadAddress url, final int maxWidth, final int maxHeight, final DecodePolicy policy) {
+        final BaseImageLoaderStrategy<?, ?> strategy = mStrategy;
+        if (strategy == null) {
+            throw new NullPointerException("you should invoke setImageLoaderStrategy first");
+        }
+        ImageLoadFuture<ImageResult> pending = enqueue(ImageResult.class, new AsyncLoad<ImageResult>() {
+            @Override
+            public ImageLoadFuture<ImageResult> start() {
+                return strategy.loadImageBitmapAsync(context, url, maxWidth, maxHeight, policy);
+            }
+        });
+        return pending != null ? pending : strategy.loadImageBitmapAsync(context, url, maxWidth, maxHeight, policy);
+    }
+
+    /**
+     * 打开大图用于区域解码（可在任意线程调用），只解码可见区域，内存占用与原图尺寸无关
+     *
+     * @param context 上下文
+     * @param url     图片地址
+     * @return 打开结果，通过ImageRegionSource.loadRegion按可见区域加载瓦片，不再使用时调用ImageRegionSource.close
+     */
+    public <LoadAddress> ImageLoadFuture<ImageRegionSource> openRegion(final Context context, final LoadAddress url) {
+        final BaseImageLoaderStrategy<?, ?> strategy = mStrategy;
+        if (strategy == null) {
+            throw new NullPointerException("you should invoke setImageLoaderStrategy first");
+        }
+        ImageLoadFuture<ImageRegionSource> pending = enqueue(ImageRegionSource.class, new AsyncLoad<ImageRegionSource>() {
+            @Override
+            public ImageLoadFuture<ImageRegionSource> start() {
+                return strategy.openRegion(context, url);
+            }
+        });
+        return pending != null ? pending : strategy.openRegion(context, url);
+    }
+
+    /**
+     * 获取图片原始尺寸（可在任意线程调用），只读取文件头，不解码像素；网络图片只请求文件头部分，
+     * 结果按缓存key持久化记录，之后查询（包括应用重启后）直接返回，可用于列表中按图片比例预先确定视图高度
+     *
+     * @param context 上下文
+     * @param url     图片地址
+     * @return 按EXIF方向旋转后的宽高（与显示时一致）
+     */
+    public <LoadAddress> ImageLoadFuture<Size> probeSize(final Context context, final LoadAddress url) {
+        final BaseImageLoaderStrategy<?, ?> strategy = mStrategy;
+        if (strategy == null) {
+            throw new NullPointerException("you should invoke setImageLoaderStrategy first");
+        }
+        ImageLoadFuture<Size> pending = enqueue(Size.class, new AsyncLoad<Size>() {
+            @Override
+            public ImageLoadFuture<Size> start() {
+                return strategy.probeSize(context, url);
+            }
+        });
+        return pending != null ? pending : strategy.probeSize(context, url);
+    }
+
     /**
      * 加载图片
      *
@@ -84,10 +448,15 @@ public final class ImageLoader {
      * @param view        图片宿主
      * @param placeholder 占位图（加载时或加载错误占位图），可选参数，第一个元素代表加载时占位图，第二个元素代表加载错误占位图
      */
-    public <V extends View, LoadAddress> void circle(Context context, LoadAddress url, V view, int... placeholder) {
+    public <V extends View, LoadAddress> void circle(final Context context, final LoadAddress url, final V view, final int... placeholder) {
         if (mStrategy == null) {
             throw new NullPointerException("you should invoke setImageLoaderStrategy first");
-        } else {
+        } else if (!mWarmingUp || !enqueue(new Runnable() {
+            @Override
+            public void run() {
+                circle(context, url, view, placeholder);
+            }
+        })) {
             mStrategy.circle(context, url, view, placeholder);
         }
     }
@@ -101,10 +470,15 @@ public final class ImageLoader {
      * @param listener    加载监听
      * @param placeholder 占位图（加载时或加载错误占位图），可选参数，第一个元素代表加载时占位图，第二个元素代表加载错误占位图
      */
-    public <LoadAddress, V extends View, L> void circle(Context context, LoadAddress url, V view, ImageLoaderCallback<L> listener, int... placeholder) {
+    public <LoadAddress, V extends View, L> void circle(final Context context, final LoadAddress url, final V view, final ImageLoaderCallback<L> listener, final int... placeholder) {
         if (mStrategy == null) {
             throw new NullPointerException("you should invoke setImageLoaderStrategy first");
-        } else {
+        } else if (!mWarmingUp || !enqueue(new Runnable() {
+            @Override
+            public void run() {
+                circle(context, url, view, listener, placeholder);
+            }
+        })) {
             mStrategy.circle(context, url, view, listener, placeholder);
         }
     }
@@ -119,10 +493,15 @@ public final class ImageLoader {
      * @param radius      圆角半径
      * @param placeholder 占位图（加载时或加载错误占位图），可选参数，第一个元素代表加载时占位图，第二个元素代表加载错误占位图
      */
-    public <LoadAddress, V extends View> void round(Context context, LoadAddress url, V view, float radius, int... placeholder) {
+    public <LoadAddress, V extends View> void round(final Context context, final LoadAddress url, final V view, final float radius, final int... placeholder) {
         if (mStrategy == null) {
             throw new NullPointerException("you should invoke setImageLoaderStrategy first");
-        } else {
+        } else if (!mWarmingUp || !enqueue(new Runnable() {
+            @Override
+            public void run() {
+                round(context, url, view, radius, placeholder);
+            }
+        })) {
             mStrategy.round(context, url, view, radius, placeholder);
         }
     }
@@ -137,10 +516,15 @@ public final class ImageLoader {
      * @param listener    加载监听
      * @param placeholder 占位图（加载时或加载错误占位图），可选参数，第一个元素代表加载时占位图，第二个元素代表加载错误占位图
      */
-    public <LoadAddress, V extends View, L> void round(Context context, LoadAddress url, V view, float radius, ImageLoaderCallback<L> listener, int... placeholder) {
+    public <LoadAddress, V extends View, L> void round(final Context context, final LoadAddress url, final V view, final float radius, final ImageLoaderCallback<L> listener, final int... placeholder) {
         if (mStrategy == null) {
             throw new NullPointerException("you should invoke setImageLoaderStrategy first");
-        } else {
+        } else if (!mWarmingUp || !enqueue(new Runnable() {
+            @Override
+            public void run() {
+                round(context, url, view, radius, listener, placeholder);
+            }
+        })) {
             mStrategy.round(context, url, view, radius, listener, placeholder);
         }
     }
@@ -154,10 +538,15 @@ public final class ImageLoader {
      * @param radius      左上角圆角半径，右上角圆角半径，左下角圆角半径，右下角圆角半径
      * @param placeholder 占位图（加载时或加载错误占位图），可选参数，第一个元素代表加载时占位图，第二个元素代表加载错误占位图
      */
-    public <LoadAddress, V extends View> void round(Context context, LoadAddress url, V view, float[] radius, int... placeholder) {
+    public <LoadAddress, V extends View> void round(final Context context, final LoadAddress url, final V view, final float[] radius, final int... placeholder) {
         if (mStrategy == null) {
             throw new NullPointerException("you should invoke setImageLoaderStrategy first");
-        } else {
+        } else if (!mWarmingUp || !enqueue(new Runnable() {
+            @Override
+            public void run() {
+                round(context, url, view, radius, placeholder);
+            }
+        })) {
             mStrategy.round(context, url, view, radius, placeholder);
         }
     }
@@ -172,48 +561,116 @@ public final class ImageLoader {
      * @param listener    加载监听
      * @param placeholder 占位图（加载时或加载错误占位图），可选参数，第一个元素代表加载时占位图，第二个元素代表加载错误占位图
      */
-    public <LoadAddress, V extends View, L> void round(Context context, LoadAddress url, V view, float[] radius, ImageLoaderCallback<L> listener, int... placeholder) {
+    public <LoadAddress, V extends View, L> void round(final Context context, final LoadAddress url, final V view, final float[] radius, final ImageLoaderCallback<L> listener, final int... placeholder) {
         if (mStrategy == null) {
             throw new NullPointerException("you should invoke setImageLoaderStrategy first");
-        } else {
+        } else if (!mWarmingUp || !enqueue(new Runnable() {
+            @Override
+            public void run() {
+                round(context, url, view, radius, listener, placeholder);
+            }
+        })) {
             mStrategy.round(context, url, view, radius, listener, placeholder);
         }
     }
 
-    public void clear(Context context, @NonNull View view) {
+    /**
+     * 预加载图片（预热磁盘缓存和内存缓存），需在主线程调用；再次调用时不在本次列表中的预加载会被取消，传入空列表即取消全部。
+     * 预加载不跟随页面生命周期，页面销毁时应传入空列表取消
+     *
+     * @param context 上下文
+     * @param urls    图片地址（如列表中即将显示的若干项）
+     * @param width   显示时视图的宽度（不含padding），需与之后显示时一致才能命中内存缓存
+     * @param height  显示时视图的高度（不含padding）
+     * @param shape   显示时的形状，需与之后调用的load/circle/round参数一致；普通形状和圆角的scaleType需与显示的ImageView的scaleType一致
+     */
+    public <LoadAddress> void prefetch(final Context context, final List<LoadAddress> urls, final int width, final int height, final ImageShape shape) {
         if (mStrategy == null) {
             throw new NullPointerException("you should invoke setImageLoaderStrategy first");
-        } else {
+        } else if (!mWarmingUp || !enqueue(new Runnable() {
+            @Override
+            public void run() {
+                prefetch(context, urls, width, height, shape);
+            }
+        })) {
+            mStrategy.prefetch(context, urls, width, height, shape);
+        }
+    }
+
+    /**
+     * 预加载图片，同prefetch(Context, List, int, int, ImageShape)
+     *
+     * @param options 显示时的加载参数，需与之后调用load时传入的参数一致
+     */
+    public <LoadAddress> void prefetch(final Context context, final List<LoadAddress> urls, final int width, final int height, final ImageOptions options) {
+        if (mStrategy == null) {
+            throw new NullPointerException("you should invoke setImageLoaderStrategy first");
+        } else if (!mWarmingUp || !enqueue(new Runnable() {
+            @Override
+            public void run() {
+                prefetch(context, urls, width, height, options);
+            }
+        })) {
+            mStrategy.prefetch(context, urls, width, height, options);
+        }
+    }
+
+    public void clear(final Context context, @NonNull final View view) {
+        if (mStrategy == null) {
+            throw new NullPointerException("you should invoke setImageLoaderStrategy first");
+        } else if (!mWarmingUp || !enqueue(new Runnable() {
+            @Override
+            public void run() {
+                clear(context, view);
+            }
+        })) {
+            /*快速滑动时暂存的请求不再执行*/
+            ImageScrollScheduler.cancel(view);
             if (mStrategy instanceof GlideImageLoaderStrategy) {
                 ((GlideImageLoaderStrategy) mStrategy).clear(context, view);
             }
         }
     }
 
-    public void pauseRequests(Context context) {
+    public void pauseRequests(final Context context) {
         if (mStrategy == null) {
             throw new NullPointerException("you should invoke setImageLoaderStrategy first");
-        } else {
+        } else if (!mWarmingUp || !enqueue(new Runnable() {
+            @Override
+            public void run() {
+                pauseRequests(context);
+            }
+        })) {
             if (mStrategy instanceof GlideImageLoaderStrategy) {
                 ((GlideImageLoaderStrategy) mStrategy).pauseRequests(context);
             }
         }
     }
 
-    public void pauseAllRequests(Context context) {
+    public void pauseAllRequests(final Context context) {
         if (mStrategy == null) {
             throw new NullPointerException("you should invoke setImageLoaderStrategy first");
-        } else {
+        } else if (!mWarmingUp || !enqueue(new Runnable() {
+            @Override
+            public void run() {
+                pauseAllRequests(context);
+            }
+        })) {
             if (mStrategy instanceof GlideImageLoaderStrategy) {
                 ((GlideImageLoaderStrategy) mStrategy).pauseAllRequests(context);
             }
         }
     }
 
-    public void resumeRequests(Context context) {
+    public void resumeRequests(final Context context) {
         if (mStrategy == null) {
             throw new NullPointerException("you should invoke setImageLoaderStrategy first");
-        } else {
+        } else if (!mWarmingUp || !enqueue(new Runnable() {
+            @Override
+            public void run() {
+                resumeRequests(context);
+            }
+        })) {
             if (mStrategy instanceof GlideImageLoaderStrategy) {
                 ((GlideImageLoaderStrategy) mStrategy).resumeRequests(context);
             }
@@ -0,0 +1,188 @@
+package com.cloudling.imageloader;
+
+import com.bumptech.glide.load.engine.cache.DiskCache;
+
+/**
+ * 描述: 图片加载配置（通过ImageLoader.init在Application中、第一次加载图片之前设置）
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public class ImageLoaderConfig {
+    private long memoryCacheSize;
+    private long bitmapPoolSize = -1;
+    private boolean shapeDiskCache;
+    private int shapeDiskCacheQuality = 90;
+    private DecodePolicy decodePolicy;
+    private ImageHttpClient httpClient;
+    private int maxRequestsPerHost = 4;
+    private CacheKeyNormalizer cacheKeyNormalizer;
+    private DiskCache.Factory diskCache;
+    private boolean detectBitmapLeaks;
+    private int negativeCacheSize = 256;
+    private boolean batchedDelivery;
+
+    public static ImageLoaderConfig newBuilder() {
+        return new ImageLoaderConfig();
+    }
+
+    /**
+     * 内存缓存容量
+     *
+     * @param size 容量（字节），小于等于0时按屏幕尺寸和设备内存等级自动计算
+     */
+    public ImageLoaderConfig memoryCacheSize(long size) {
+        this.memoryCacheSize = size;
+        return this;
+    }
+
+    /**
+     * Bitmap复用池容量（解码时复用不再显示的Bitmap，减少内存分配和GC）
+     *
+     * @param size 容量（字节），0为关闭复用，小于0时按设备内存自动计算
+     */
+    public ImageLoaderConfig bitmapPoolSize(long size) {
+        this.bitmapPoolSize = size;
+        return this;
+    }
+
+    /**
+     * 是否在磁盘缓存中保存形状处理后（圆形、圆角）的结果，下次直接读取无需再次解码原图和形状处理，默认关闭。
+     * 开启后每个形状结果额外占用一份磁盘缓存空间（无损保存：Android 11起为WEBP_LOSSLESS，之前为PNG）
+     */
+    public ImageLoaderConfig shapeDiskCache(boolean enable) {
+        this.shapeDiskCache = enable;
+        return this;
+    }
+
+    /**
+     * 形状处理后的结果保存到磁盘缓存时的压缩力度（WEBP_LOSSLESS越大文件越小、编码越慢，PNG忽略）
+     *
+     * @param quality 压缩力度（0-100），默认90
+     */
+    public ImageLoaderConfig shapeDiskCacheQuality(int quality) {
+        this.shapeDiskCacheQuality = quality;
+        return this;
+    }
+
+    /**
+     * 全局解码策略，单次加载可通过ImageOptions.decodePolicy覆盖
+     *
+     * @param policy 解码策略，为null时使用图片加载框架的默认设置
+     */
+    public ImageLoaderConfig decodePolicy(DecodePolicy policy) {
+        this.decodePolicy = policy;
+        return this;
+    }
+
+    /**
+     * 网络图片下载客户端，为null时使用DefaultImageHttpClient（复用keep-alive连接）；需要HTTP/2时传入基于OkHttp等网络库的实现
+     */
+    public ImageLoaderConfig httpClient(ImageHttpClient client) {
+        this.httpClient = client;
+        return this;
+    }
+
+    /**
+     * 同一域名同时进行的下载数上限，超出时按优先级排队（屏幕上的视图优先于预加载）
+     *
+     * @param max 上限，默认4
+     */
+    public ImageLoaderConfig maxRequestsPerHost(int max) {
+        this.maxRequestsPerHost = max;
+        return this;
+    }
+
+    /**
+     * 缓存key规范化（如去掉CDN地址中经常变化的签名、过期时间参数），下载仍使用完整地址
+     *
+     * @param normalizer 为null时直接使用完整地址作为缓存key；可使用默认实现DefaultCacheKeyNormalizer
+     */
+    public ImageLoaderConfig cacheKeyNormalizer(CacheKeyNormalizer normalizer) {
+        this.cacheKeyNormalizer = normalizer;
+        return this;
+    }
+
+    /**
+     * 磁盘缓存实现，为null时使用图片加载框架默认的磁盘缓存（启动时回放日志，读写共用一把锁）；
+     * 图片较多、并发加载较多时可使用ShardedDiskCache.Factory（分片加锁，启动时内存映射读取索引快照）
+     */
+    public ImageLoaderConfig diskCache(DiskCache.Factory factory) {
+        this.diskCache = factory;
+        return this;
+    }
+
+    /**
+     * 是否检测Bitmap租约泄漏（ImageResult.getLease没有release就不再被引用时输出日志），会记录每次加载的调用栈，只在调试时开启
+     */
+    public ImageLoaderConfig detectBitmapLeaks(boolean enable) {
+        this.detectBitmapLeaks = enable;
+        return this;
+    }
+
+    /**
+     * 负缓存容量：最近下载失败的网络地址在一段时间内不再请求，直接显示加载错误占位图
+     *
+     * @param size 最多记录的地址数，默认256，0为关闭
+     */
+    public ImageLoaderConfig negativeCacheSize(int size) {
+        this.negativeCacheSize = size;
+        return this;
+    }
+
+    /**
+     * 是否按帧批量交付加载结果：异步完成的图片在下一次vsync时统一设置到视图并回调onSuccess，每帧有时间上限，超出的顺延到下一帧；
+     * 适合一屏同时完成大量小图的网格列表，默认关闭（每个结果完成后立即设置）
+     */
+    public ImageLoaderConfig batchedDelivery(boolean enable) {
+        this.batchedDelivery = enable;
+        return this;
+    }
+
+    public long getMemoryCacheSize() {
+        return memoryCacheSize;
+    }
+
+    public long getBitmapPoolSize() {
+        return bitmapPoolSize;
+    }
+
+    public boolean isShapeDiskCache() {
+        return shapeDiskCache;
+    }
+
+    public int getShapeDiskCacheQuality() {
+        return shapeDiskCacheQuality;
+    }
+
+    public DecodePolicy getDecodePolicy() {
+        return decodePolicy;
+    }
+
+    public ImageHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    public int getMaxRequestsPerHost() {
+        return maxRequestsPerHost;
+    }
+
+    public CacheKeyNormalizer getCacheKeyNormalizer() {
+        return cacheKeyNormalizer;
+    }
+
+    public DiskCache.Factory getDiskCache() {
+        return diskCache;
+    }
+
+    public boolean isDetectBitmapLeaks() {
+        return detectBitmapLeaks;
+    }
+
+    public int getNegativeCacheSize() {
+        return negativeCacheSize;
+    }
+
+    public boolean isBatchedDelivery() {
+        return batchedDelivery;
+    }
+}
@@ -0,0 +1,312 @@
+package com.cloudling.imageloader;
+
+import android.app.Activity;
+import android.app.ActivityManager;
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+
+/**
+ * 描述: 内存管理。按设备的内存等级确定内存缓存和Bitmap复用池的大小，收到系统的内存紧张通知（onTrimMemory、onLowMemory）时
+ * 按紧张程度分级缩小或清空内存缓存、Bitmap复用池和哈希占位图缓存。前台运行时一段时间没有再收到通知后恢复原来的大小，
+ * 进入后台后缩小的容量保持到应用回到前台（有Activity启动）时恢复。
+ * 交给Glide的内存缓存和复用池由newMemoryCache、newBitmapPool创建，不响应Glide自身收到通知时的trimMemory，释放只在这里进行，避免两次叠加。
+ * 由ImageLoader.init注册到Application，可通过ImageLoader.getMemoryGovernor获取当前大小和释放次数
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public class ImageMemoryGovernor implements ComponentCallbacks2 {
+    /**
+     * 内存等级（单个应用的堆大小）不超过该值（MB）时视为小内存设备，缓存和复用池减半
+     */
+    private static final int SMALL_MEMORY_CLASS = 96;
+    /**
+     * 最后一次内存紧张通知之后多久恢复缓存大小
+     */
+    private static final long RESTORE_DELAY_MS = 30 * 1000;
+
+    private final TinyLfuMemoryCache mMemoryCache;
+    private final BitmapPool mBitmapPool;
+    private final BlurHashDecoder mPreviews;
+    private final GlideOptionsCache mOptionsCache;
+    private final int mMemoryClass;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mRestore = new Runnable() {
+        @Override
+        public void run() {
+            if (!mInBackground) setMultiplier(1f);
+        }
+    };
+    private final Application.ActivityLifecycleCallbacks mForegroundWatcher = new Application.ActivityLifecycleCallbacks() {
+        @Override
+        public void onActivityStarted(@NonNull Activity activity) {
+            if (!mInBackground) return;
+            /*回到前台，恢复进入后台时缩小的容量*/
+            mInBackground = false;
+            mHandler.removeCallbacks(mRestore);
+            setMultiplier(1f);
+        }
+
+        @Override
+        public void onActivityCreated(@NonNull Activity activity, Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityResumed(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+        }
+
+        @Override
+        public void onActivityDestroyed(@NonNull Activity activity) {
+        }
+    };
+    private float mMultiplier = 1f;
+    /**
+     * 收到界面不可见（TRIM_MEMORY_UI_HIDDEN及以上）的通知后到下一次有Activity启动之前
+     */
+    private boolean mInBackground;
+    private int mLastTrimLevel = -1;
+    private long mTrimCount, mClearCount, mReleasedBytes;
+
+    ImageMemoryGovernor(Context context, TinyLfuMemoryCache memoryCache, BitmapPool bitmapPool,
+                        BlurHashDecoder previews, GlideOptionsCache optionsCache) {
+        mMemoryCache = memoryCache;
+        mBitmapPool = bitmapPool;
+        mPreviews = previews;
+        mOptionsCache = optionsCache;
+        mMemoryClass = memoryClass(context);
+    }
+
+    /**
+     * 注册到Application：接收内存紧张通知，并通过Activity的启动判断应用回到前台
+     */
+    void register(Context context) {
+        Context application = context.getApplicationContext();
+        application.registerComponentCallbacks(this);
+        if (application instanceof Application) {
+            ((Application) application).registerActivityLifecycleCallbacks(mForegroundWatcher);
+        }
+    }
+
+    void unregister(Context context) {
+        Context application = context.getApplicationContext();
+        application.unregisterComponentCallbacks(this);
+        if (application instanceof Application) {
+            ((Application) application).unregisterActivityLifecycleCallbacks(mForegroundWatcher);
+        }
+        mHandler.removeCallbacks(mRestore);
+    }
+
+    /**
+     * 交给Glide的内存缓存，忽略Glide转发的trimMemory（由onTrimMemory处理）
+     */
+    static TinyLfuMemoryCache newMemoryCache(long size) {
+        return new TinyLfuMemoryCache(size) {
+            @Override
+            public void trimMemory(int level) {
+            }
+        };
+    }
+
+    /**
+     * 交给Glide的Bitmap复用池，忽略Glide转发的trimMemory（由onTrimMemory处理），大小为0时不复用
+     */
+    static BitmapPool newBitmapPool(long size) {
+        if (size <= 0) return new BitmapPoolAdapter();
+        return new LruBitmapPool(size) {
+            @Override
+            public void trimMemory(int level) {
+            }
+        };
+    }
+
+    /**
+     * 内存缓存大小：配置中指定时使用配置，否则按屏幕尺寸和内存等级计算
+     */
+    static long memoryCacheSize(Context context, ImageLoaderConfig config, MemorySizeCalculator calculator) {
+        if (config.getMemoryCacheSize() > 0) return config.getMemoryCacheSize();
+        return Math.round(calculator.getMemoryCacheSize() * deviceRatio(context));
+    }
+
+    /**
+     * Bitmap复用池大小：配置中指定时使用配置（可为0，关闭复用），否则按屏幕尺寸和内存等级计算
+     */
+    static long bitmapPoolSize(Context context, ImageLoaderConfig config, MemorySizeCalculator calculator) {
+        if (config.getBitmapPoolSize() >= 0) return config.getBitmapPoolSize();
+        return Math.round(calculator.getBitmapPoolSize() * deviceRatio(context));
+    }
+
+    private static float deviceRatio(Context context) {
+        /*MemorySizeCalculator已按低内存设备限制了总量，这里对堆较小的设备再减半，给应用其他部分留出空间*/
+        return memoryClass(context) <= SMALL_MEMORY_CLASS ? 0.5f : 1f;
+    }
+
+    private static int memoryClass(Context context) {
+        ActivityManager manager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (manager == null) return SMALL_MEMORY_CLASS;
+        return manager.isLowRamDevice() ? Math.min(manager.getMemoryClass(), SMALL_MEMORY_CLASS) : manager.getMemoryClass();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        long before = mMemoryCache.getCurrentSize();
+        if (level >= TRIM_MEMORY_UI_HIDDEN) mInBackground = true;
+        if (level >= TRIM_MEMORY_BACKGROUND) {
+            /*进入后台（越往后越可能被杀），全部清空，恢复前台后重新加载*/
+            clear();
+            setMultiplier(0.5f);
+        } else if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            /*界面不可见，保留一半内存缓存用于返回时快速显示，复用池只在解码时有用，直接清空*/
+            mMemoryCache.trimToSize(mMemoryCache.getMaxSize() / 2);
+            mBitmapPool.clearMemory();
+            mPreviews.clearMemory();
+        } else if (level >= TRIM_MEMORY_RUNNING_CRITICAL) {
+            /*前台运行但系统即将开始杀前台以外的进程*/
+            mMemoryCache.trimToSize(mMemoryCache.getMaxSize() / 4);
+            mBitmapPool.clearMemory();
+            mPreviews.clearMemory();
+            setMultiplier(0.5f);
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            setMultiplier(Math.min(mMultiplier, 0.75f));
+            mMemoryCache.trimToSize(mMemoryCache.getMaxSize() / 2);
+            mPreviews.trimToHalf();
+        } else if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+            mPreviews.trimToHalf();
+        } else {
+            return;
+        }
+        mTrimCount++;
+        mLastTrimLevel = level;
+        mReleasedBytes += Math.max(0, before - mMemoryCache.getCurrentSize());
+        scheduleRestore();
+    }
+
+    @Override
+    public void onLowMemory() {
+        long before = mMemoryCache.getCurrentSize();
+        clear();
+        setMultiplier(0.5f);
+        mReleasedBytes += Math.max(0, before - mMemoryCache.getCurrentSize());
+        scheduleRestore();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+
+    /**
+     * 清空全部缓存（内存缓存需要先于复用池清空，内存缓存释放的Bitmap会放回复用池）
+     */
+    private void clear() {
+        mMemoryCache.clearMemory();
+        mBitmapPool.clearMemory();
+        mPreviews.clearMemory();
+        mOptionsCache.clear();
+        mClearCount++;
+    }
+
+    /**
+     * 调整内存缓存和复用池的容量（相对于初始大小），缩小时立即淘汰超出的部分
+     */
+    private void setMultiplier(float multiplier) {
+        if (multiplier == mMultiplier) return;
+        mMultiplier = multiplier;
+        mMemoryCache.setSizeMultiplier(multiplier);
+        mBitmapPool.setSizeMultiplier(multiplier);
+    }
+
+    /**
+     * 前台运行时延迟恢复；在后台时等待回到前台再恢复
+     */
+    private void scheduleRestore() {
+        mHandler.removeCallbacks(mRestore);
+        if (mMultiplier < 1f && !mInBackground) mHandler.postDelayed(mRestore, RESTORE_DELAY_MS);
+    }
+
+    /**
+     * 设备内存等级（MB），低内存设备不超过SMALL_MEMORY_CLASS
+     */
+    public int getMemoryClass() {
+        return mMemoryClass;
+    }
+
+    /**
+     * 当前容量相对于初始大小的比例，内存紧张时小于1
+     */
+    public float getSizeMultiplier() {
+        return mMultiplier;
+    }
+
+    public long getMemoryCacheCurrentSize() {
+        return mMemoryCache.getCurrentSize();
+    }
+
+    public long getMemoryCacheMaxSize() {
+        return mMemoryCache.getMaxSize();
+    }
+
+    /**
+     * 内存缓存淘汰次数（包括容量不足和内存紧张时的淘汰）
+     */
+    public long getMemoryCacheEvictionCount() {
+        return mMemoryCache.getEvictionCount();
+    }
+
+    public long getBitmapPoolMaxSize() {
+        return mBitmapPool.getMaxSize();
+    }
+
+    public int getPreviewCacheSize() {
+        return mPreviews.getCacheSize();
+    }
+
+    /**
+     * 处理过的内存紧张通知次数（onTrimMemory）
+     */
+    public long getTrimCount() {
+        return mTrimCount;
+    }
+
+    /**
+     * 全部清空的次数（进入后台或onLowMemory）
+     */
+    public long getClearCount() {
+        return mClearCount;
+    }
+
+    /**
+     * 最近一次处理的onTrimMemory级别，没有收到过时为-1
+     */
+    public int getLastTrimLevel() {
+        return mLastTrimLevel;
+    }
+
+    /**
+     * 内存紧张时从内存缓存中释放的总字节数
+     */
+    public long getReleasedBytes() {
+        return mReleasedBytes;
+    }
+}
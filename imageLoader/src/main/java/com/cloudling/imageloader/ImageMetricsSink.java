@@ -0,0 +1,40 @@
+package com.cloudling.imageloader;
+
+/**
+ * 描述: 图片加载统计接收器（通过ImageLoader.setMetricsSink设置，回调可能发生在任意线程，实现需要线程安全且足够轻量）
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public interface ImageMetricsSink {
+    /**
+     * 加载成功
+     *
+     * @param result 包含形状、数据来源、耗时、解码后字节数及目标尺寸
+     */
+    void onLoadSuccess(ImageResult result);
+
+    /**
+     * 加载失败
+     *
+     * @param shape     形状类型
+     * @param loadNanos 从发起请求到失败的耗时（纳秒）
+     */
+    void onLoadFailed(ImageShapeType shape, long loadNanos);
+
+    /**
+     * 形状处理（结果返回时回调，只统计显示到视图等主请求的处理，不包括缩略图、错误占位图和预加载；内存缓存命中时没有处理，不回调）
+     *
+     * @param shape          形状类型
+     * @param transformNanos 形状处理耗时（纳秒）
+     */
+    void onTransform(ImageShapeType shape, long transformNanos);
+
+    /**
+     * 网络图片下载完成（响应体读到末尾时在下载线程中回调，只统计通过ImageHttpClient下载的请求，失败或取消的不回调）
+     *
+     * @param queueNanos 等待域名并发名额的耗时（纳秒）
+     * @param fetchNanos 从发起请求到响应体读完的耗时（纳秒），Glide边读边写入磁盘缓存，包括写入磁盘缓存的时间
+     */
+    default void onFetch(long queueNanos, long fetchNanos) {
+    }
+}
@@ -0,0 +1,97 @@
+package com.cloudling.imageloader;
+
+/**
+ * 描述: 单次加载的可选参数
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public class ImageOptions {
+    private ImageShape shape = ImageShape.none(null);
+    private boolean drawTimeShape;
+    private DecodePolicy decodePolicy;
+    private boolean progressive;
+    private String placeholderHash;
+    private boolean animated;
+
+    public static ImageOptions newBuilder() {
+        return new ImageOptions();
+    }
+
+    /**
+     * 图片形状，默认普通形状（加载到ImageView时scaleType以ImageView为准，ImageShape中的scaleType只用于预加载）
+     */
+    public ImageOptions shape(ImageShape shape) {
+        this.shape = shape == null ? ImageShape.none(null) : shape;
+        return this;
+    }
+
+    /**
+     * 是否在绘制时处理形状，默认关闭。
+     * 关闭时圆形、圆角在Glide的解码线程中生成一张新的Bitmap（可保存到磁盘缓存）；
+     * 开启时解码后的Bitmap原样使用，在绘制时通过BitmapShader裁剪为圆形、圆角，峰值内存和解码线程耗时更少，适合大图。
+     * 开启后ImageView需要有确定的尺寸（不能是wrap_content）
+     */
+    public ImageOptions drawTimeShape(boolean enable) {
+        this.drawTimeShape = enable;
+        return this;
+    }
+
+    /**
+     * 本次加载的解码策略（如缩略图网格使用RGB_565），为null时使用ImageLoaderConfig中的全局设置
+     */
+    public ImageOptions decodePolicy(DecodePolicy policy) {
+        this.decodePolicy = policy;
+        return this;
+    }
+
+    /**
+     * 是否渐进式显示，默认关闭。开启后网络上的渐进式JPEG在下载过程中每完成一次扫描就显示一张逐渐清晰的中间结果，下载完成后替换为最终图片；
+     * 需要先调用ImageLoader.init（中间结果来自其中替换的网络下载），非渐进式的图片与普通加载一致
+     */
+    public ImageOptions progressive(boolean enable) {
+        this.progressive = enable;
+        return this;
+    }
+
+    /**
+     * 哈希占位图（服务端随图片地址返回的BlurHash字符串），加载时先显示由它解码的模糊预览图，形状处理与正式图片一致；
+     * 设置后代替加载时占位图（加载错误占位图仍然有效），需要先调用ImageLoader.init
+     */
+    public ImageOptions placeholderHash(String hash) {
+        this.placeholderHash = hash;
+        return this;
+    }
+
+    /**
+     * 是否播放动图（GIF），默认关闭（只显示第一帧）。开启后在后台线程提前解码少量帧，主线程来不及时跳帧而不是等待，
+     * 视图不可见或页面onStop时暂停；圆形、圆角在绘制时处理（与drawTimeShape相同，ImageView需要有确定的尺寸）
+     */
+    public ImageOptions animated(boolean enable) {
+        this.animated = enable;
+        return this;
+    }
+
+    public ImageShape getShape() {
+        return shape;
+    }
+
+    public boolean isDrawTimeShape() {
+        return drawTimeShape;
+    }
+
+    public DecodePolicy getDecodePolicy() {
+        return decodePolicy;
+    }
+
+    public boolean isProgressive() {
+        return progressive;
+    }
+
+    public String getPlaceholderHash() {
+        return placeholderHash;
+    }
+
+    public boolean isAnimated() {
+        return animated;
+    }
+}
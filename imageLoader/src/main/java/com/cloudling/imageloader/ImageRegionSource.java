@@ -0,0 +1,306 @@
+package com.cloudling.imageloader;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import com.bumptech.glide.util.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描述: 大图区域解码（地图、扫描文档、超长全景图等）。
+ * 原图按固定大小切分为瓦片，只解码可见区域内的瓦片，并按显示比例选择采样率，内存占用只与可见区域和瓦片缓存大小有关，与原图尺寸无关。
+ * 瓦片在固定数量的后台线程中解码，解码结果保存在有容量上限的LRU缓存中（所有大图共享）。
+ * 通过ImageLoader.openRegion获取，除getWidth、getHeight外只能在主线程调用，不再使用时调用close
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public class ImageRegionSource {
+    /**
+     * 瓦片采样后的边长（像素），原图中的边长为TILE_SIZE * sampleSize
+     */
+    private static final int TILE_SIZE = 256;
+    /**
+     * 解码线程数，BitmapRegionDecoder同一时刻只能解码一个区域，多张大图同时显示时才能并行
+     */
+    private static final int WORKER_COUNT = 2;
+    /**
+     * 瓦片缓存容量：可用堆内存的1/8，最多32MB
+     */
+    private static final int CACHE_BYTES = (int) Math.min(Runtime.getRuntime().maxMemory() / 8, 32 * 1024 * 1024);
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+    private static final ThreadPoolExecutor WORKERS = new ThreadPoolExecutor(WORKER_COUNT, WORKER_COUNT,
+            30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "image-region-decode");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private static final LruCache<TileKey, ImageTile> TILES = new LruCache<TileKey, ImageTile>(CACHE_BYTES) {
+        @Override
+        protected int sizeOf(TileKey key, ImageTile value) {
+            return value.getBitmap().getByteCount();
+        }
+    };
+
+    static {
+        WORKERS.allowCoreThreadTimeOut(true);
+    }
+
+    private final BitmapRegionDecoder mDecoder;
+    private final int mWidth, mHeight;
+    /**
+     * 正在等待或正在解码的瓦片
+     */
+    private final Map<TileKey, Future<?>> mPending = new HashMap<>();
+    private volatile boolean mClosed;
+
+    private ImageRegionSource(BitmapRegionDecoder decoder) {
+        mDecoder = decoder;
+        mWidth = decoder.getWidth();
+        mHeight = decoder.getHeight();
+    }
+
+    /**
+     * 在解码线程中打开原图（只读取文件头和建立索引，不解码像素）
+     *
+     * @param source File或byte[]
+     */
+    static void open(final Object source, final ImageLoadFuture<ImageRegionSource> future) {
+        WORKERS.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (future.isDone()) return;
+                BitmapRegionDecoder decoder;
+                try {
+                    decoder = source instanceof byte[]
+                            ? BitmapRegionDecoder.newInstance((byte[]) source, 0, ((byte[]) source).length, false)
+                            : BitmapRegionDecoder.newInstance(((File) source).getAbsolutePath(), false);
+                } catch (IOException e) {
+                    future.fail(e);
+                    return;
+                }
+                if (decoder == null) {
+                    future.fail(new IOException("Unsupported image format for region decoding"));
+                } else if (!future.complete(new ImageRegionSource(decoder))) {
+                    decoder.recycle();
+                }
+            }
+        });
+    }
+
+    /**
+     * 原图宽度（像素）
+     */
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * 原图高度（像素）
+     */
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * 按显示比例计算采样率：不超过1/scale的最大的2的幂
+     *
+     * @param scale 显示尺寸与原图尺寸之比，如原图8000像素显示为1000像素时为0.125
+     */
+    public static int sampleSizeFor(float scale) {
+        int sampleSize = 1;
+        while (scale > 0 && sampleSize * 2 * scale <= 1) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * 加载可见区域：已缓存的瓦片立即回调（同一次onSuccess），其余瓦片解码完成后逐个回调；
+     * 上一次调用中不在本次可见区域内、尚未开始解码的瓦片会被取消
+     *
+     * @param visible    可见区域（原图像素坐标）
+     * @param sampleSize 采样率，可通过sampleSizeFor计算，不是2的幂时向下取整
+     * @param callback   每个瓦片的回调，在主线程回调；解码失败时回调onFailure
+     */
+    public void loadRegion(Rect visible, int sampleSize, final ImageLoaderCallback<ImageTile> callback) {
+        Util.assertMainThread();
+        if (mClosed) return;
+        sampleSize = Math.max(1, Integer.highestOneBit(sampleSize));
+        int tileSize = TILE_SIZE * sampleSize;
+        Rect region = new Rect(visible);
+        if (!region.intersect(0, 0, mWidth, mHeight)) {
+            cancelPending(null);
+            return;
+        }
+        int firstColumn = region.left / tileSize, lastColumn = (region.right - 1) / tileSize;
+        int firstRow = region.top / tileSize, lastRow = (region.bottom - 1) / tileSize;
+        List<TileKey> wanted = new ArrayList<>((lastColumn - firstColumn + 1) * (lastRow - firstRow + 1));
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                wanted.add(new TileKey(this, sampleSize, column, row));
+            }
+        }
+        cancelPending(wanted);
+        List<ImageTile> cached = new ArrayList<>();
+        for (TileKey key : wanted) {
+            ImageTile tile = TILES.get(key);
+            if (tile != null) {
+                cached.add(tile);
+            } else if (!mPending.containsKey(key)) {
+                DecodeTask task = new DecodeTask(key, callback);
+                task.future = WORKERS.submit(task);
+                mPending.put(key, task.future);
+            }
+        }
+        if (!cached.isEmpty()) callback.onSuccess(cached.toArray(new ImageTile[0]));
+    }
+
+    /**
+     * 取消不在wanted中的等待解码的瓦片，wanted为null时全部取消
+     */
+    private void cancelPending(List<TileKey> wanted) {
+        Iterator<Map.Entry<TileKey, Future<?>>> iterator = mPending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<TileKey, Future<?>> entry = iterator.next();
+            if (wanted == null || !wanted.contains(entry.getKey())) {
+                /*正在解码的瓦片不中断，解码完成后仍放入缓存*/
+                entry.getValue().cancel(false);
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 解码线程中解码一个瓦片
+     */
+    private ImageTile decode(TileKey key) {
+        if (mClosed) return null;
+        /*同一个瓦片移出可见区域时正在解码，之后又重新提交时，前一次解码的结果可能已在缓存中*/
+        ImageTile cached = TILES.get(key);
+        if (cached != null) return cached;
+        int tileSize = TILE_SIZE * key.sampleSize;
+        Rect rect = new Rect(key.column * tileSize, key.row * tileSize,
+                Math.min(mWidth, (key.column + 1) * tileSize), Math.min(mHeight, (key.row + 1) * tileSize));
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = key.sampleSize;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        Bitmap bitmap;
+        try {
+            bitmap = mDecoder.decodeRegion(rect, options);
+        } catch (IllegalStateException e) {
+            /*解码过程中已被close*/
+            return null;
+        }
+        if (bitmap == null) return null;
+        ImageTile tile = new ImageTile(bitmap, rect, key.sampleSize, key.column, key.row);
+        if (!mClosed) TILES.put(key, tile);
+        return tile;
+    }
+
+    private void deliver(final DecodeTask task, final ImageTile tile) {
+        MAIN.post(new Runnable() {
+            @Override
+            public void run() {
+                /*瓦片正在解码时移出可见区域、又重新进入时会提交新的任务，只移除自己的任务，否则新的任务会被重复提交*/
+                if (mPending.get(task.key) == task.future) mPending.remove(task.key);
+                if (mClosed) return;
+                if (tile != null) {
+                    task.callback.onSuccess(tile);
+                } else {
+                    task.callback.onFailure();
+                }
+            }
+        });
+    }
+
+    /**
+     * 关闭：取消等待中的瓦片，释放解码器和这张大图缓存的瓦片
+     */
+    public void close() {
+        Util.assertMainThread();
+        if (mClosed) return;
+        mClosed = true;
+        cancelPending(null);
+        for (TileKey key : TILES.snapshot().keySet()) {
+            if (key.source == this) TILES.remove(key);
+        }
+        mDecoder.recycle();
+    }
+
+    /**
+     * 释放没有交给调用方的区域解码器（打开后请求已被取消，还没有加载过瓦片），可在任意线程调用
+     */
+    void discard() {
+        mClosed = true;
+        mDecoder.recycle();
+    }
+
+    /**
+     * 解码一个瓦片并在主线程交付
+     */
+    private final class DecodeTask implements Runnable {
+        final TileKey key;
+        final ImageLoaderCallback<ImageTile> callback;
+        /**
+         * 提交后在主线程赋值，交付时也在主线程读取
+         */
+        Future<?> future;
+
+        DecodeTask(TileKey key, ImageLoaderCallback<ImageTile> callback) {
+            this.key = key;
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            deliver(this, decode(key));
+        }
+    }
+
+    private static final class TileKey {
+        final ImageRegionSource source;
+        final int sampleSize, column, row;
+
+        TileKey(ImageRegionSource source, int sampleSize, int column, int row) {
+            this.source = source;
+            this.sampleSize = sampleSize;
+            this.column = column;
+            this.row = row;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TileKey)) return false;
+            TileKey other = (TileKey) o;
+            return source == other.source && sampleSize == other.sampleSize && column == other.column && row == other.row;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(source);
+            result = 31 * result + sampleSize;
+            result = 31 * result + column;
+            return 31 * result + row;
+        }
+    }
+}
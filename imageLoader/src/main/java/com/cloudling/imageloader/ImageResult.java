@@ -8,13 +8,113 @@ import android.graphics.Bitmap;
  * 日期: 2019/10/29
  */
 public class ImageResult {
+    /**
+     * 图片数据来源
+     */
+    public enum Source {
+        /*内存缓存*/
+        MEMORY,
+        /*磁盘缓存*/
+        DISK,
+        /*网络*/
+        REMOTE,
+        /*本地（文件、资源、byte[]等）*/
+        LOCAL
+    }
+
     private Bitmap bitmap;
+    private ImageShapeType shape = ImageShapeType.NONE;
+    private Source source;
+    private long loadTimeNanos = -1;
+    private long byteCount = -1;
+    private int targetWidth, targetHeight;
+    private long timeToFirstPixelNanos = -1;
+    private BitmapLease lease;
+    private ImageFailure failure;
 
     public ImageResult(Bitmap bitmap) {
         this.bitmap = bitmap;
     }
 
+    ImageResult(ImageShapeType shape, ImageFailure failure) {
+        this.shape = shape;
+        this.failure = failure;
+    }
+
+    ImageResult(Bitmap bitmap, BitmapLease lease) {
+        this.bitmap = bitmap;
+        this.lease = lease;
+    }
+
+    ImageResult(Bitmap bitmap, ImageShapeType shape, Source source, long loadTimeNanos, long byteCount, int targetWidth, int targetHeight) {
+        this.bitmap = bitmap;
+        this.shape = shape;
+        this.source = source;
+        this.loadTimeNanos = loadTimeNanos;
+        this.byteCount = byteCount;
+        this.targetWidth = targetWidth;
+        this.targetHeight = targetHeight;
+    }
+
+    void setTimeToFirstPixelNanos(long timeToFirstPixelNanos) {
+        this.timeToFirstPixelNanos = timeToFirstPixelNanos;
+    }
+
     public Bitmap getBitmap() {
         return bitmap;
     }
+
+    /**
+     * 加载失败的原因（onFailure回调时），其他情况为null
+     */
+    public ImageFailure getFailure() {
+        return failure;
+    }
+
+    /**
+     * loadImageBitmap、loadImageBitmapAsync成功时的Bitmap租约，用完后调用release交还Bitmap；其他加载结果为null
+     */
+    public BitmapLease getLease() {
+        return lease;
+    }
+
+    public ImageShapeType getShape() {
+        return shape;
+    }
+
+    /**
+     * 数据来源，未知时为null
+     */
+    public Source getSource() {
+        return source;
+    }
+
+    /**
+     * 从发起请求到图片可显示的耗时（纳秒），未设置ImageMetricsSink时不计时，为-1
+     */
+    public long getLoadTimeNanos() {
+        return loadTimeNanos;
+    }
+
+    /**
+     * 解码后图片占用的内存字节数，未知时为-1
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    public int getTargetWidth() {
+        return targetWidth;
+    }
+
+    public int getTargetHeight() {
+        return targetHeight;
+    }
+
+    /**
+     * 从发起请求到视图上第一次显示图片内容的耗时（纳秒），渐进式加载时为第一张中间结果的显示时间，否则与getLoadTimeNanos一致
+     */
+    public long getTimeToFirstPixelNanos() {
+        return timeToFirstPixelNanos >= 0 ? timeToFirstPixelNanos : loadTimeNanos;
+    }
 }
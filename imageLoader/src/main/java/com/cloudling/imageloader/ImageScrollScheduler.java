@@ -0,0 +1,347 @@
+package com.cloudling.imageloader;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.widget.AbsListView;
+import android.widget.ImageView;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 描述: 列表滑动感知的请求调度（代替手动调用pauseRequests/resumeRequests）
+ * 快速滑动（速度超过阈值）时新发起的请求先暂存，已经在进行的请求不受影响；速度降下来或停止滑动后优先加载屏幕上可见的视图；
+ * 列表项被回收或视图被ImageLoader.clear时取消其中图片暂存和未完成的请求。只暂存该列表中（包括正在绑定、还未添加到列表中的列表项，
+ * 需按列表的LayoutParams创建，如inflate时传入列表作为parent）不在屏幕上显示的视图的请求，同一界面中的其他视图不受影响。只能在主线程使用；列表从窗口移除时自动停止调度（不再被静态引用），重新添加后恢复，
+ * 不再使用时调用detach()解除对列表监听的占用
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public class ImageScrollScheduler {
+    /*只保存已添加到窗口中的列表的调度器，列表从窗口移除时移出，不会因静态引用泄漏界面*/
+    private static final List<ImageScrollScheduler> sAttached = new ArrayList<>();
+
+    private final View mList;
+    private final LinkedHashMap<ImageView, Runnable> mPending = new LinkedHashMap<>();
+    private final Rect mRect = new Rect();
+    private Runnable mDetach;
+    private final View.OnAttachStateChangeListener mAttachListener = new View.OnAttachStateChangeListener() {
+        @Override
+        public void onViewAttachedToWindow(View v) {
+            if (!sAttached.contains(ImageScrollScheduler.this)) sAttached.add(ImageScrollScheduler.this);
+            /*重新添加到窗口（如返回栈中的页面）时执行移除前暂存的请求*/
+            flush();
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            sAttached.remove(ImageScrollScheduler.this);
+            /*界面可能正在销毁，暂存的请求留到重新添加时执行，不在这里发起*/
+            mVelocity = 0;
+            mLastScrollTime = 0;
+            mDeferring = false;
+        }
+    };
+    /**
+     * 速度阈值（像素/秒），超过即视为快速滑动
+     */
+    private float mVelocityThreshold;
+    private float mVelocity;
+    private long mLastScrollTime;
+    private boolean mDeferring;
+
+    private ImageScrollScheduler(View list) {
+        mList = list;
+        /*默认取系统最大fling速度的1/4*/
+        mVelocityThreshold = ViewConfiguration.get(list.getContext()).getScaledMaximumFlingVelocity() / 4f;
+    }
+
+    /**
+     * 绑定ListView/GridView（会占用列表的OnScrollListener和RecyclerListener，已设置的监听需通过另一个attach方法传入）
+     */
+    public static ImageScrollScheduler attach(AbsListView list) {
+        return attach(list, null, null);
+    }
+
+    /**
+     * 绑定ListView/GridView（会占用列表的OnScrollListener和RecyclerListener）
+     *
+     * @param delegate 原有的滑动监听，滑动事件会继续转发给它
+     */
+    public static ImageScrollScheduler attach(AbsListView list, AbsListView.OnScrollListener delegate) {
+        return attach(list, delegate, null);
+    }
+
+    /**
+     * 绑定ListView/GridView（会占用列表的OnScrollListener和RecyclerListener，AbsListView不能读取已设置的监听）
+     *
+     * @param delegate         原有的滑动监听，滑动事件会继续转发给它，detach时恢复
+     * @param recyclerDelegate 原有的回收监听，回收事件会继续转发给它，detach时恢复
+     */
+    public static ImageScrollScheduler attach(final AbsListView list, final AbsListView.OnScrollListener delegate,
+                                              final AbsListView.RecyclerListener recyclerDelegate) {
+        final ImageScrollScheduler scheduler = new ImageScrollScheduler(list);
+        AbsListScrollListener listener = new AbsListScrollListener(scheduler, delegate, recyclerDelegate);
+        list.setOnScrollListener(listener);
+        list.setRecyclerListener(listener);
+        scheduler.mDetach = new Runnable() {
+            @Override
+            public void run() {
+                list.setOnScrollListener(delegate);
+                list.setRecyclerListener(recyclerDelegate);
+            }
+        };
+        scheduler.track();
+        return scheduler;
+    }
+
+    /**
+     * 绑定RecyclerView（会占用RecyclerView的RecyclerListener，已设置的监听需通过另一个attach方法传入；宿主需依赖androidx.recyclerview）
+     */
+    public static ImageScrollScheduler attach(RecyclerView list) {
+        return attach(list, null);
+    }
+
+    /**
+     * 绑定RecyclerView（会占用RecyclerView的RecyclerListener，宿主需依赖androidx.recyclerview）
+     *
+     * @param recyclerDelegate 原有的回收监听（RecyclerView 1.1不能读取已设置的监听），回收事件会继续转发给它，detach时恢复
+     */
+    public static ImageScrollScheduler attach(final RecyclerView list, final RecyclerView.RecyclerListener recyclerDelegate) {
+        final ImageScrollScheduler scheduler = new ImageScrollScheduler(list);
+        final RecyclerView.OnScrollListener scrollListener = new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) scheduler.onScrollIdle();
+            }
+
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                scheduler.onScrolled(Math.max(Math.abs(dx), Math.abs(dy)));
+            }
+        };
+        list.addOnScrollListener(scrollListener);
+        list.setRecyclerListener(new RecyclerView.RecyclerListener() {
+            @Override
+            public void onViewRecycled(RecyclerView.ViewHolder holder) {
+                scheduler.onRecycled(holder.itemView);
+                if (recyclerDelegate != null) recyclerDelegate.onViewRecycled(holder);
+            }
+        });
+        scheduler.mDetach = new Runnable() {
+            @Override
+            public void run() {
+                list.removeOnScrollListener(scrollListener);
+                list.setRecyclerListener(recyclerDelegate);
+            }
+        };
+        scheduler.track();
+        return scheduler;
+    }
+
+    /**
+     * 跟随列表是否在窗口中加入或移出sAttached
+     */
+    private void track() {
+        mList.addOnAttachStateChangeListener(mAttachListener);
+        if (mList.isAttachedToWindow()) sAttached.add(this);
+    }
+
+    /**
+     * 解除绑定，恢复attach时传入的原有监听，暂存的请求会立即执行（列表已从窗口移除时丢弃）
+     */
+    public void detach() {
+        if (mDetach == null) return;
+        mDetach.run();
+        mDetach = null;
+        mList.removeOnAttachStateChangeListener(mAttachListener);
+        sAttached.remove(this);
+        if (mList.isAttachedToWindow()) {
+            onScrollIdle();
+        } else {
+            /*界面可能已经销毁，不能再发起请求*/
+            mPending.clear();
+            mDeferring = false;
+        }
+    }
+
+    /**
+     * 设置快速滑动的速度阈值
+     *
+     * @param pixelsPerSecond 速度阈值（像素/秒）
+     */
+    public ImageScrollScheduler velocityThreshold(float pixelsPerSecond) {
+        mVelocityThreshold = pixelsPerSecond;
+        return this;
+    }
+
+    /**
+     * 获取需要暂存请求的调度器：视图属于正在快速滑动的列表且不在屏幕上显示时返回该列表的调度器，否则返回null
+     */
+    static ImageScrollScheduler deferring(View view) {
+        for (int i = 0; i < sAttached.size(); i++) {
+            ImageScrollScheduler scheduler = sAttached.get(i);
+            if (scheduler.mDeferring && scheduler.owns(view)) {
+                return scheduler.isVisible(view) ? null : scheduler;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 视图是否属于该列表：在列表中，或所在的视图树是还没有添加到列表中的列表项
+     * （列表项在onBind时可能还没有添加到列表中，此时按Context和列表项的LayoutParams判断，正在构建的对话框、列表头等其他视图树不暂存）
+     */
+    private boolean owns(View view) {
+        View root = view;
+        ViewParent parent = view.getParent();
+        while (parent instanceof View) {
+            if (parent == mList) return true;
+            root = (View) parent;
+            parent = parent.getParent();
+        }
+        return parent == null && !root.isAttachedToWindow() && view.getContext() == mList.getContext()
+                && isItemLayoutParams(root.getLayoutParams());
+    }
+
+    /**
+     * 是否为该列表的列表项的LayoutParams（只在绑定RecyclerView时引用RecyclerView的类，宿主可不依赖androidx.recyclerview）
+     */
+    private boolean isItemLayoutParams(ViewGroup.LayoutParams params) {
+        if (mList instanceof AbsListView) return params instanceof AbsListView.LayoutParams;
+        return params instanceof RecyclerView.LayoutParams;
+    }
+
+    private boolean isVisible(View view) {
+        return view.isShown() && view.getGlobalVisibleRect(mRect);
+    }
+
+    /**
+     * 暂存请求，同一个视图只保留最后一次请求
+     */
+    void defer(ImageView view, Runnable load) {
+        mPending.remove(view);
+        mPending.put(view, load);
+    }
+
+    void onScrolled(int distance) {
+        long now = SystemClock.uptimeMillis();
+        long elapsed = now - mLastScrollTime;
+        mLastScrollTime = now;
+        if (elapsed <= 0 || elapsed > 100) {
+            /*第一次滑动或间隔太久，无法估算速度*/
+            return;
+        }
+        /*平滑处理，避免单帧抖动导致频繁切换*/
+        mVelocity = mVelocity * 0.5f + distance * 1000f / elapsed * 0.5f;
+        boolean deferring = mVelocity > mVelocityThreshold;
+        if (mDeferring != deferring) {
+            mDeferring = deferring;
+            if (!deferring) flush();
+        }
+    }
+
+    void onScrollIdle() {
+        mVelocity = 0;
+        mLastScrollTime = 0;
+        mDeferring = false;
+        flush();
+    }
+
+    /**
+     * 视图被清除（ImageLoader.clear），移除各列表中该视图的暂存请求，避免之后被执行
+     */
+    static void cancel(View view) {
+        if (!(view instanceof ImageView)) return;
+        for (int i = 0; i < sAttached.size(); i++) {
+            sAttached.get(i).mPending.remove(view);
+        }
+    }
+
+    /**
+     * 列表项被回收，取消其中图片的暂存请求和未完成的请求
+     */
+    void onRecycled(View itemView) {
+        if (itemView instanceof ImageView) {
+            mPending.remove(itemView);
+            ImageLoader.getInstance().clear(itemView.getContext(), itemView);
+        } else if (itemView instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) itemView;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                onRecycled(group.getChildAt(i));
+            }
+        }
+    }
+
+    /**
+     * 执行暂存的请求，屏幕上可见的视图优先
+     */
+    private void flush() {
+        if (mPending.isEmpty()) return;
+        List<Runnable> visible = new ArrayList<>(mPending.size());
+        List<Runnable> others = new ArrayList<>(mPending.size());
+        for (Iterator<Map.Entry<ImageView, Runnable>> iterator = mPending.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<ImageView, Runnable> entry = iterator.next();
+            ImageView view = entry.getKey();
+            if (isVisible(view)) {
+                visible.add(entry.getValue());
+            } else {
+                others.add(entry.getValue());
+            }
+            iterator.remove();
+        }
+        for (Runnable load : visible) load.run();
+        for (Runnable load : others) load.run();
+    }
+
+    private static final class AbsListScrollListener implements AbsListView.OnScrollListener, AbsListView.RecyclerListener {
+        private final ImageScrollScheduler scheduler;
+        private final AbsListView.OnScrollListener delegate;
+        private final AbsListView.RecyclerListener recyclerDelegate;
+        private int lastOffset = -1;
+
+        AbsListScrollListener(ImageScrollScheduler scheduler, AbsListView.OnScrollListener delegate,
+                              AbsListView.RecyclerListener recyclerDelegate) {
+            this.scheduler = scheduler;
+            this.delegate = delegate;
+            this.recyclerDelegate = recyclerDelegate;
+        }
+
+        @Override
+        public void onScrollStateChanged(AbsListView view, int scrollState) {
+            if (scrollState == SCROLL_STATE_IDLE) {
+                lastOffset = -1;
+                scheduler.onScrollIdle();
+            }
+            if (delegate != null) delegate.onScrollStateChanged(view, scrollState);
+        }
+
+        @Override
+        public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+            View first = view.getChildAt(0);
+            if (first != null) {
+                /*AbsListView不提供滑动距离，用第一个可见项的位置和高度估算*/
+                int offset = firstVisibleItem * first.getHeight() - first.getTop();
+                if (lastOffset >= 0) scheduler.onScrolled(Math.abs(offset - lastOffset));
+                lastOffset = offset;
+            }
+            if (delegate != null) delegate.onScroll(view, firstVisibleItem, visibleItemCount, totalItemCount);
+        }
+
+        @Override
+        public void onMovedToScrapHeap(View view) {
+            scheduler.onRecycled(view);
+            if (recyclerDelegate != null) recyclerDelegate.onMovedToScrapHeap(view);
+        }
+    }
+}
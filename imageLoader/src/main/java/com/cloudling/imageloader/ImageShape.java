@@ -0,0 +1,103 @@
+package com.cloudling.imageloader;
+
+import android.widget.ImageView;
+
+import java.util.Arrays;
+
+/**
+ * 描述: 图片形状（普通，圆形，圆角），用于预加载等需要在加载前确定形状的场景，需与之后显示时调用的load/circle/round参数一致
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public final class ImageShape {
+    private static final ImageShape CIRCLE = new ImageShape(ImageShapeType.CIRCLE, new float[4], null);
+
+    private final ImageShapeType type;
+    /**
+     * 左上角，右上角，左下角，右下角四个方向圆角半径
+     */
+    private final float[] radius;
+    private final ImageView.ScaleType scaleType;
+
+    private ImageShape(ImageShapeType type, float[] radius, ImageView.ScaleType scaleType) {
+        this.type = type;
+        this.radius = radius;
+        this.scaleType = scaleType;
+    }
+
+    /**
+     * 普通形状
+     *
+     * @param scaleType 显示图片的ImageView的scaleType，需与视图实际的scaleType一致（参与缓存key），否则预加载的结果不会被命中
+     */
+    public static ImageShape none(ImageView.ScaleType scaleType) {
+        return new ImageShape(ImageShapeType.NONE, new float[4], scaleType);
+    }
+
+    /**
+     * 圆形
+     */
+    public static ImageShape circle() {
+        return CIRCLE;
+    }
+
+    /**
+     * 圆角
+     *
+     * @param radius    圆角半径
+     * @param scaleType 显示图片的ImageView的scaleType，需与视图实际的scaleType一致（参与缓存key），否则预加载的结果不会被命中
+     */
+    public static ImageShape round(float radius, ImageView.ScaleType scaleType) {
+        return new ImageShape(ImageShapeType.ROUND, new float[]{radius, radius, radius, radius}, scaleType);
+    }
+
+    /**
+     * 圆角
+     *
+     * @param radius    左上角圆角半径，右上角圆角半径，左下角圆角半径，右下角圆角半径（长度不为4时视为无圆角，与round(...)保持一致）
+     * @param scaleType 显示图片的ImageView的scaleType，需与视图实际的scaleType一致（参与缓存key），否则预加载的结果不会被命中
+     */
+    public static ImageShape round(float[] radius, ImageView.ScaleType scaleType) {
+        return new ImageShape(ImageShapeType.ROUND, radius != null && radius.length == 4 ? radius.clone() : new float[4], scaleType);
+    }
+
+    public ImageShapeType getType() {
+        return type;
+    }
+
+    public float getLeftTop() {
+        return radius[0];
+    }
+
+    public float getRightTop() {
+        return radius[1];
+    }
+
+    public float getLeftBottom() {
+        return radius[2];
+    }
+
+    public float getRightBottom() {
+        return radius[3];
+    }
+
+    public ImageView.ScaleType getScaleType() {
+        return scaleType;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof ImageShape) {
+            ImageShape other = (ImageShape) o;
+            return type == other.type && Arrays.equals(radius, other.radius) && scaleType == other.scaleType;
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = type.hashCode();
+        result = 31 * result + Arrays.hashCode(radius);
+        return 31 * result + (scaleType == null ? 0 : scaleType.hashCode());
+    }
+}
@@ -0,0 +1,12 @@
+package com.cloudling.imageloader;
+
+/**
+ * 描述: 图片形状类型（普通，圆形，圆角）
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public enum ImageShapeType {
+    NONE,
+    CIRCLE,
+    ROUND
+}
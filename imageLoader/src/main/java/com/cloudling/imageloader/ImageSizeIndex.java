@@ -0,0 +1,177 @@
+package com.cloudling.imageloader;
+
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 描述: 图片原始尺寸索引（按缓存key），保存在内存中并持久化到文件，查询不读取磁盘缓存。
+ * 文件为追加写入的定长记录（key的64位哈希、宽、高，16字节），启动时在后台线程读入；
+ * 内存中最多保存MAX_ENTRIES条，文件中的记录数超过两倍时重写为只包含当前条目
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+final class ImageSizeIndex {
+    private static final int MAX_ENTRIES = 20000;
+    private static final int RECORD_SIZE = 16;
+
+    private final File mFile;
+    /*访问顺序，超出容量时淘汰最久未使用的；值为宽（高32位）和高（低32位）*/
+    private final LinkedHashMap<Long, Long> mSizes = new LinkedHashMap<Long, Long>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private DataOutputStream mOut;
+    private int mRecords;
+    /*读入文件之前查询直接返回null，不在主线程等待读取*/
+    private volatile boolean mLoaded;
+
+    ImageSizeIndex(File file) {
+        mFile = file;
+    }
+
+    /**
+     * 读入索引文件（在后台线程调用一次）
+     */
+    synchronized void load() {
+        if (!mFile.isFile()) {
+            mLoaded = true;
+            return;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile), 16 * 1024));
+            while (true) {
+                long key = in.readLong();
+                long size = in.readLong();
+                /*同一key可能有多条记录，按顺序读入保留最后一条*/
+                mSizes.put(key, size);
+                mRecords++;
+            }
+        } catch (EOFException ignored) {
+            /*读到文件末尾（最后一条记录不完整时丢弃）*/
+        } catch (IOException ignored) {
+        } finally {
+            close(in);
+            mLoaded = true;
+        }
+        long length = mFile.length();
+        if (length % RECORD_SIZE != 0) truncate(length - length % RECORD_SIZE);
+    }
+
+    /**
+     * 截掉末尾不完整的记录（写入过程中进程退出），否则之后追加的记录与记录边界错开，下次读入时全部错误
+     */
+    private void truncate(long length) {
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(mFile, "rw");
+            file.setLength(length);
+        } catch (IOException e) {
+            /*无法截断时删除文件重新记录，内存中已读入的记录仍然有效*/
+            mFile.delete();
+            mRecords = 0;
+        } finally {
+            close(file);
+        }
+    }
+
+    /**
+     * 查询原始尺寸
+     *
+     * @return {宽, 高}，没有记录或还未读入文件时返回null
+     */
+    @Nullable
+    int[] get(String cacheKey) {
+        if (!mLoaded) return null;
+        Long size;
+        synchronized (this) {
+            size = mSizes.get(hash(cacheKey));
+        }
+        return size == null ? null : new int[]{(int) (size >>> 32), (int) (long) size};
+    }
+
+    /**
+     * 记录原始尺寸并追加到文件（在后台线程调用）
+     */
+    synchronized void put(String cacheKey, int width, int height) {
+        long key = hash(cacheKey);
+        long size = (long) width << 32 | (height & 0xffffffffL);
+        Long previous = mSizes.put(key, size);
+        if (previous != null && previous == size) return;
+        try {
+            if (mRecords > MAX_ENTRIES && mRecords > mSizes.size() * 2) {
+                rewrite();
+            } else {
+                if (mOut == null) {
+                    mOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(mFile, true), 4 * 1024));
+                }
+                mOut.writeLong(key);
+                mOut.writeLong(size);
+                mOut.flush();
+                mRecords++;
+            }
+        } catch (IOException e) {
+            /*写入失败只影响下次启动，内存中的记录仍然有效*/
+            close(mOut);
+            mOut = null;
+        }
+    }
+
+    /**
+     * 重写文件，只保留当前条目（先写临时文件再重命名）
+     */
+    private void rewrite() throws IOException {
+        close(mOut);
+        mOut = null;
+        File temp = new File(mFile.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 16 * 1024));
+        try {
+            for (Map.Entry<Long, Long> entry : mSizes.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(mFile)) {
+            temp.delete();
+            throw new IOException("rename failed");
+        }
+        mRecords = mSizes.size();
+    }
+
+    /**
+     * 64位FNV-1a哈希
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static void close(@Nullable Closeable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.cloudling.imageloader;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.util.Size;
+
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.load.resource.bitmap.DefaultImageHeaderParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描述: 只读取文件头获取图片原始尺寸（不解码像素，不经过磁盘缓存）。
+ * 网络图片通过Range请求只下载前HEADER_BYTES字节，文件头不在其中时（如EXIF中带有较大的缩略图）才完整请求并读到尺寸为止；
+ * 本地文件、Uri、资源只读取开头部分。尺寸按EXIF方向旋转后返回（与显示时一致），网络图片的结果记录到ImageSizeIndex，
+ * 之后查询直接返回，也用于显示时确定wrap_content视图的解码尺寸
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+final class ImageSizeProbe {
+    /**
+     * 读取的文件头大小，JPEG的尺寸在SOF段中，通常位于EXIF之后的前几KB；PNG、GIF、WebP在前30字节内
+     */
+    private static final int HEADER_BYTES = 64 * 1024;
+    private static final String RANGE = "bytes=0-" + (HEADER_BYTES - 1);
+    /**
+     * 探测线程数，探测以网络等待为主，与解码线程分开，不占用图片加载的线程
+     */
+    private static final int WORKER_COUNT = 2;
+    private static final ThreadPoolExecutor WORKERS = new ThreadPoolExecutor(WORKER_COUNT, WORKER_COUNT,
+            30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "image-size-probe");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    static {
+        WORKERS.allowCoreThreadTimeOut(true);
+    }
+
+    private final Context mContext;
+    private final ImageHttpClient mClient;
+    private final ArrayPool mArrayPool;
+    private final ImageSizeIndex mIndex;
+    private final DefaultImageHeaderParser mHeaderParser = new DefaultImageHeaderParser();
+
+    ImageSizeProbe(Context context, ImageHttpClient client, ArrayPool arrayPool, File indexFile) {
+        mContext = context.getApplicationContext();
+        mClient = client;
+        mArrayPool = arrayPool;
+        mIndex = new ImageSizeIndex(indexFile);
+        WORKERS.execute(new Runnable() {
+            @Override
+            public void run() {
+                mIndex.load();
+            }
+        });
+    }
+
+    /**
+     * 索引中记录的原始尺寸（只查内存，可在主线程调用）
+     *
+     * @param key 网络地址的缓存key（NegativeCache.key）
+     * @return {宽, 高}，没有记录或索引还未读入时返回null
+     */
+    @Nullable
+    int[] peek(@Nullable String key) {
+        return key == null ? null : mIndex.get(key);
+    }
+
+    /**
+     * 获取原始尺寸
+     *
+     * @param model 交给Glide的加载地址（网络地址可能已转为GlideUrl）
+     */
+    ImageLoadFuture<Size> probe(final Object model) {
+        final ImageLoadFuture<Size> future = new ImageLoadFuture<>(Size.class);
+        if (model instanceof Bitmap) {
+            future.complete(new Size(((Bitmap) model).getWidth(), ((Bitmap) model).getHeight()));
+            return future;
+        }
+        if (model instanceof Drawable) {
+            future.complete(new Size(((Drawable) model).getIntrinsicWidth(), ((Drawable) model).getIntrinsicHeight()));
+            return future;
+        }
+        final String key = NegativeCache.key(model);
+        int[] size = peek(key);
+        if (size != null) {
+            /*索引命中，不读取文件也不访问网络*/
+            future.complete(new Size(size[0], size[1]));
+            return future;
+        }
+        final Call call = new Call();
+        final Future<?> task = WORKERS.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (future.isDone()) return;
+                try {
+                    Size size = key != null ? remote(model, key, call) : local(model);
+                    if (size == null) {
+                        future.fail(new IOException("Unsupported image format or address: " + model));
+                    } else {
+                        future.complete(size);
+                    }
+                } catch (IOException e) {
+                    future.fail(e);
+                } catch (RuntimeException e) {
+                    /*资源不存在等*/
+                    future.fail(e);
+                }
+            }
+        });
+        future.setCanceller(new Runnable() {
+            @Override
+            public void run() {
+                task.cancel(false);
+                call.cancel();
+            }
+        });
+        return future;
+    }
+
+    @Nullable
+    private Size remote(Object model, String key, Call call) throws IOException {
+        GlideUrl url = model instanceof GlideUrl ? (GlideUrl) model : new GlideUrl(model.toString());
+        Map<String, String> headers = new HashMap<>(url.getHeaders());
+        headers.put("Range", RANGE);
+        Size size = read(call.execute(mClient.newCall(url.toStringUrl(), headers, 0)), call, true);
+        if (size == null) {
+            /*文件头超出了Range的范围（服务器忽略Range时已经读到了完整的文件头），完整请求并读到尺寸为止*/
+            headers.remove("Range");
+            size = read(call.execute(mClient.newCall(url.toStringUrl(), headers, 0)), call, false);
+        }
+        if (size != null) mIndex.put(key, size.getWidth(), size.getHeight());
+        return size;
+    }
+
+    @Nullable
+    private Size local(Object model) throws IOException {
+        if (model instanceof byte[]) {
+            byte[] data = (byte[]) model;
+            return size(data, data.length, null);
+        }
+        InputStream stream;
+        if (model instanceof File) {
+            stream = new FileInputStream((File) model);
+        } else if (model instanceof Integer) {
+            stream = mContext.getResources().openRawResource((Integer) model);
+        } else if (model instanceof Uri) {
+            stream = mContext.getContentResolver().openInputStream((Uri) model);
+        } else if (model instanceof String) {
+            String value = (String) model;
+            stream = value.contains("://") ? mContext.getContentResolver().openInputStream(Uri.parse(value)) : new FileInputStream(value);
+        } else {
+            return null;
+        }
+        if (stream == null) return null;
+        try {
+            return read(stream, null, false);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * 读取文件头并解析尺寸
+     *
+     * @param call  网络请求，读取后关闭
+     * @param range 是否为Range请求，是时读不到尺寸返回null，否则继续读取剩余部分直到读到尺寸
+     */
+    @Nullable
+    private Size read(InputStream stream, @Nullable Call call, boolean range) throws IOException {
+        byte[] buffer = mArrayPool.get(HEADER_BYTES, byte[].class);
+        try {
+            int length = 0, read;
+            while (length < HEADER_BYTES && (read = stream.read(buffer, length, HEADER_BYTES - length)) != -1) {
+                length += read;
+            }
+            Size size = size(buffer, length, null);
+            if (size == null && !range && length == HEADER_BYTES) {
+                size = size(buffer, length, new SequenceInputStream(new ByteArrayInputStream(buffer, 0, length), stream));
+            }
+            return size;
+        } finally {
+            mArrayPool.put(buffer);
+            if (call != null) call.close();
+        }
+    }
+
+    /**
+     * 解析尺寸：只解码边界，按EXIF方向交换宽高
+     *
+     * @param rest 文件头不完整时从头读取的完整数据，为null时只解析header
+     */
+    @Nullable
+    private Size size(byte[] header, int length, @Nullable InputStream rest) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        if (rest == null) {
+            BitmapFactory.decodeByteArray(header, 0, length, options);
+        } else {
+            BitmapFactory.decodeStream(rest, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) return null;
+        int orientation;
+        try {
+            orientation = mHeaderParser.getOrientation(ByteBuffer.wrap(header, 0, length), mArrayPool);
+        } catch (IOException e) {
+            orientation = -1;
+        }
+        /*5-8为转置、旋转90度、横向转置、旋转270度，显示时宽高互换*/
+        return orientation >= 5 && orientation <= 8
+                ? new Size(options.outHeight, options.outWidth)
+                : new Size(options.outWidth, options.outHeight);
+    }
+
+    /**
+     * 正在进行的网络请求，取消时中止
+     */
+    private static final class Call {
+        private ImageHttpCall mCall;
+        private boolean mCancelled;
+
+        InputStream execute(ImageHttpCall call) throws IOException {
+            synchronized (this) {
+                if (mCancelled) throw new IOException("Canceled");
+                mCall = call;
+            }
+            try {
+                return call.execute();
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        void cancel() {
+            ImageHttpCall call;
+            synchronized (this) {
+                mCancelled = true;
+                call = mCall;
+            }
+            if (call != null) call.cancel();
+        }
+
+        void close() {
+            ImageHttpCall call;
+            synchronized (this) {
+                call = mCall;
+                mCall = null;
+            }
+            if (call != null) call.close();
+        }
+    }
+}
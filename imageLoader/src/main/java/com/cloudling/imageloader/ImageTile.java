@@ -0,0 +1,50 @@
+package com.cloudling.imageloader;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+/**
+ * 描述: 大图区域解码得到的一个瓦片
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public final class ImageTile {
+    private final Bitmap bitmap;
+    private final Rect rect;
+    private final int sampleSize;
+    private final int column, row;
+
+    ImageTile(Bitmap bitmap, Rect rect, int sampleSize, int column, int row) {
+        this.bitmap = bitmap;
+        this.rect = rect;
+        this.sampleSize = sampleSize;
+        this.column = column;
+        this.row = row;
+    }
+
+    /**
+     * 瓦片内容（尺寸为rect按sampleSize缩小后的大小），只能用于显示，不能修改或recycle
+     */
+    public Bitmap getBitmap() {
+        return bitmap;
+    }
+
+    /**
+     * 瓦片在原图中的位置（原图像素坐标）
+     */
+    public Rect getRect() {
+        return new Rect(rect);
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public int getRow() {
+        return row;
+    }
+}
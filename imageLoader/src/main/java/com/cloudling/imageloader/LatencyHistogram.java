@@ -0,0 +1,75 @@
+package com.cloudling.imageloader;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 描述: 低开销耗时直方图（对数分桶，记录时只有一次原子自增，不分配对象，适合线上常开）
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public final class LatencyHistogram {
+    /**
+     * 每个2的幂区间再细分为4个桶，相对误差不超过25%；最小桶为1微秒，超过约268秒的耗时计入最后一个桶
+     */
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAGNITUDES = 27;
+    private static final int BUCKETS = MAGNITUDES * SUB_BUCKETS;
+
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 耗时（纳秒）
+     */
+    public void record(long nanos) {
+        mCounts.incrementAndGet(bucket(nanos / 1000));
+    }
+
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += mCounts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * 获取百分位耗时（所在桶的上界）
+     *
+     * @param percentile 百分位，取值范围(0,1]，如0.95
+     * @return 耗时（微秒），没有数据时返回0
+     */
+    public long percentileMicros(double percentile) {
+        long total = count();
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += mCounts.get(i);
+            if (seen >= rank) return upperBound(i);
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            mCounts.set(i, 0);
+        }
+    }
+
+    private static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) return (int) Math.max(micros, 0);
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS + 1;
+        int sub = (int) (micros >>> (magnitude - 1)) & (SUB_BUCKETS - 1);
+        return Math.min(magnitude * SUB_BUCKETS + sub, BUCKETS - 1);
+    }
+
+    private static long upperBound(int bucket) {
+        int magnitude = bucket / SUB_BUCKETS;
+        int sub = bucket % SUB_BUCKETS;
+        if (magnitude == 0) return sub + 1;
+        return (long) (SUB_BUCKETS + sub + 1) << (magnitude - 1);
+    }
+}
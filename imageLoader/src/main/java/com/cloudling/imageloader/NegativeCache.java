@@ -0,0 +1,156 @@
+package com.cloudling.imageloader;
+
+import android.net.Uri;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.HttpException;
+import com.bumptech.glide.load.model.GlideUrl;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 描述: 网络地址的负缓存。下载失败的地址（按规范化后的缓存key）在一段时间内不再发起请求，显示时直接使用加载错误占位图，
+ * 避免列表中的失效图片每次绑定都占用下载线程。抑制时间按失败类型区分：地址不存在等确定性错误固定抑制较长时间，
+ * 超时、服务端错误等暂时性错误按连续失败次数指数退避；下载成功后移除。
+ * 容量有上限，超出时淘汰最久未使用的地址。通过ImageLoader.getNegativeCache获取统计
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public class NegativeCache {
+    private static final long NOT_FOUND_TTL_MS = 10 * 60 * 1000;
+    private static final long CLIENT_ERROR_TTL_MS = 5 * 60 * 1000;
+    /**
+     * 暂时性错误第一次失败的抑制时间，之后每次连续失败翻倍，最多MAX_BACKOFF_MS
+     */
+    private static final long BASE_BACKOFF_MS = 2 * 1000;
+    private static final long MAX_BACKOFF_MS = 2 * 60 * 1000;
+
+    private final int mMaxSize;
+    private final Map<String, Entry> mEntries;
+    private final long[] mFailureCounts = new long[ImageFailure.Kind.values().length];
+    private long mSuppressedCount;
+
+    /**
+     * @param maxSize 最多记录的地址数
+     */
+    NegativeCache(int maxSize) {
+        mMaxSize = maxSize;
+        mEntries = new LinkedHashMap<String, NegativeCache.Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, NegativeCache.Entry> eldest) {
+                return size() > mMaxSize;
+            }
+        };
+    }
+
+    /**
+     * 负缓存使用的key：网络地址的缓存key（设置了规范化时为规范化后的key），其他地址返回null
+     *
+     * @param model 交给Glide的加载地址
+     */
+    @Nullable
+    static String key(@Nullable Object model) {
+        if (model instanceof GlideUrl) return ((GlideUrl) model).getCacheKey();
+        if (!(model instanceof String || model instanceof Uri)) return null;
+        String value = model.toString();
+        return value.startsWith("http://") || value.startsWith("https://") ? value : null;
+    }
+
+    /**
+     * 地址是否处于抑制期，是时返回失败原因（isSuppressed为true）并计数，否则返回null
+     */
+    @Nullable
+    synchronized ImageFailure suppressed(@Nullable String key) {
+        if (key == null || mMaxSize <= 0) return null;
+        Entry entry = mEntries.get(key);
+        if (entry == null) return null;
+        long remaining = entry.until - SystemClock.elapsedRealtime();
+        if (remaining <= 0) return null;
+        mSuppressedCount++;
+        return new ImageFailure(entry.kind, entry.statusCode, null, true, entry.failures, remaining);
+    }
+
+    /**
+     * 下载失败（在下载线程中调用）
+     */
+    synchronized void onFailure(@Nullable String key, IOException e) {
+        if (key == null || mMaxSize <= 0) return;
+        ImageFailure.Kind kind = ImageFailure.classify(e);
+        mFailureCounts[kind.ordinal()]++;
+        Entry entry = mEntries.get(key);
+        if (entry == null) {
+            entry = new Entry();
+            mEntries.put(key, entry);
+        }
+        entry.kind = kind;
+        entry.statusCode = e instanceof HttpException ? ((HttpException) e).getStatusCode() : -1;
+        entry.failures++;
+        entry.until = SystemClock.elapsedRealtime() + ttl(kind, entry.failures);
+    }
+
+    /**
+     * 下载成功（在下载线程中调用）
+     */
+    synchronized void onSuccess(@Nullable String key) {
+        if (key != null && !mEntries.isEmpty()) mEntries.remove(key);
+    }
+
+    /**
+     * 请求失败后的失败原因，补充该地址的连续失败次数和距离重试的时间
+     */
+    synchronized ImageFailure failure(@Nullable String key, ImageFailure.Kind kind, int statusCode, @Nullable Throwable cause) {
+        Entry entry = key == null ? null : mEntries.get(key);
+        if (entry == null) return new ImageFailure(kind, statusCode, cause, false, 0, 0);
+        return new ImageFailure(kind, statusCode, cause, false, entry.failures,
+                Math.max(0, entry.until - SystemClock.elapsedRealtime()));
+    }
+
+    static long ttl(ImageFailure.Kind kind, int failures) {
+        switch (kind) {
+            case NOT_FOUND:
+                return NOT_FOUND_TTL_MS;
+            case CLIENT_ERROR:
+                return CLIENT_ERROR_TTL_MS;
+            default:
+                /*暂时性错误：2s、4s、8s……最多2分钟*/
+                int shift = Math.min(failures - 1, 16);
+                return Math.min(BASE_BACKOFF_MS << shift, MAX_BACKOFF_MS);
+        }
+    }
+
+    public synchronized void clear() {
+        mEntries.clear();
+    }
+
+    /**
+     * 当前记录的地址数
+     */
+    public synchronized int getSize() {
+        return mEntries.size();
+    }
+
+    /**
+     * 因处于抑制期而没有发起的请求数
+     */
+    public synchronized long getSuppressedCount() {
+        return mSuppressedCount;
+    }
+
+    /**
+     * 指定类型的下载失败次数
+     */
+    public synchronized long getFailureCount(ImageFailure.Kind kind) {
+        return mFailureCounts[kind.ordinal()];
+    }
+
+    private static final class Entry {
+        ImageFailure.Kind kind;
+        int statusCode;
+        int failures;
+        long until;
+    }
+}
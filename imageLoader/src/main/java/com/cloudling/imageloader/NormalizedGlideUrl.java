@@ -0,0 +1,23 @@
+package com.cloudling.imageloader;
+
+import com.bumptech.glide.load.model.GlideUrl;
+
+/**
+ * 描述: 使用规范化后缓存key的网络地址，下载仍使用完整地址（toStringUrl、toURL），
+ * 内存缓存（按equals、hashCode）和磁盘缓存（按getCacheKey）使用规范化后的key
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+final class NormalizedGlideUrl extends GlideUrl {
+    private final String cacheKey;
+
+    NormalizedGlideUrl(String url, String cacheKey) {
+        super(url);
+        this.cacheKey = cacheKey;
+    }
+
+    @Override
+    public String getCacheKey() {
+        return cacheKey;
+    }
+}
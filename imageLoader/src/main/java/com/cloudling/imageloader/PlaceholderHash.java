@@ -0,0 +1,34 @@
+package com.cloudling.imageloader;
+
+/**
+ * 描述: 哈希占位图的加载地址（由服务端返回的BlurHash字符串），作为缩略图请求交给Glide，
+ * 由BlurHashDecoder在Glide的线程中解码为很小的预览图，并与正式图片使用同样的形状处理
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+final class PlaceholderHash {
+    private final String hash;
+
+    PlaceholderHash(String hash) {
+        this.hash = hash;
+    }
+
+    String getHash() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PlaceholderHash && hash.equals(((PlaceholderHash) o).hash);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "PlaceholderHash{" + hash + "}";
+    }
+}
@@ -0,0 +1,119 @@
+package com.cloudling.imageloader;
+
+/**
+ * 描述: 渐进式JPEG扫描边界检测（增量解析，边下载边调用）。
+ * 渐进式JPEG由多个扫描（SOS段）组成，每个扫描都会让整张图片更清晰；当下一个扫描开始时，之前的数据加上结束标记EOI即可解码出一张完整的低清晰度图片
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+final class ProgressiveJpegScanner {
+    private static final int SOI = 0xD8, EOI = 0xD9, SOS = 0xDA, SOF0 = 0xC0, SOF1 = 0xC1, SOF2 = 0xC2, TEM = 0x01;
+
+    /**
+     * 已确定不是渐进式JPEG（或数据格式错误），不再解析
+     */
+    private boolean mRejected;
+    private boolean mProgressive;
+    /**
+     * 是否处于扫描的熵编码数据中（此时只需要寻找下一个标记）
+     */
+    private boolean mInScan;
+    private int mPosition;
+    private int mScanCount;
+    private int mWidth, mHeight;
+    /**
+     * 最近一个完整扫描的结束位置（下一个扫描SOS标记的起始位置），0表示还没有
+     */
+    private int mScanEnd;
+
+    /**
+     * 继续解析新到达的数据
+     *
+     * @param data   从文件开头开始的全部数据
+     * @param length 有效长度
+     * @return 出现新的完整扫描时返回true，可通过getScanEnd获取可解码的数据长度
+     */
+    boolean scan(byte[] data, int length) {
+        boolean found = false;
+        while (!mRejected && mPosition < length) {
+            if (mInScan) {
+                /*熵编码数据中0xFF后跟0x00是转义，0xD0-0xD7是RST标记，0xFF是填充，其他才是真正的段标记*/
+                if ((data[mPosition] & 0xFF) != 0xFF) {
+                    mPosition++;
+                    continue;
+                }
+                if (mPosition + 1 >= length) break;
+                int next = data[mPosition + 1] & 0xFF;
+                if (next == 0x00 || (next >= 0xD0 && next <= 0xD7) || next == 0xFF) {
+                    mPosition += next == 0xFF ? 1 : 2;
+                    continue;
+                }
+                mInScan = false;
+            }
+            if (mPosition + 1 >= length) break;
+            if ((data[mPosition] & 0xFF) != 0xFF) {
+                mRejected = true;
+                break;
+            }
+            int marker = data[mPosition + 1] & 0xFF;
+            if (marker == 0xFF) {
+                mPosition++;
+                continue;
+            }
+            if (marker == SOI || marker == TEM || (marker >= 0xD0 && marker <= 0xD7)) {
+                mPosition += 2;
+                continue;
+            }
+            if (marker == EOI) {
+                /*图片已完整，剩下的交给正常解码*/
+                mRejected = true;
+                break;
+            }
+            if (mPosition + 3 >= length) break;
+            int segmentLength = ((data[mPosition + 2] & 0xFF) << 8) | (data[mPosition + 3] & 0xFF);
+            if (marker == SOF0 || marker == SOF1) {
+                /*基线JPEG只有一个扫描，没有中间结果可显示*/
+                mRejected = true;
+                break;
+            }
+            if (marker == SOF2) {
+                if (mPosition + 8 >= length) break;
+                mHeight = ((data[mPosition + 5] & 0xFF) << 8) | (data[mPosition + 6] & 0xFF);
+                mWidth = ((data[mPosition + 7] & 0xFF) << 8) | (data[mPosition + 8] & 0xFF);
+                mProgressive = true;
+            }
+            if (marker == SOS) {
+                if (!mProgressive) {
+                    mRejected = true;
+                    break;
+                }
+                if (++mScanCount > 1) {
+                    mScanEnd = mPosition;
+                    found = true;
+                }
+                mInScan = true;
+            }
+            mPosition += 2 + segmentLength;
+        }
+        return found;
+    }
+
+    int getScanEnd() {
+        return mScanEnd;
+    }
+
+    /**
+     * 是否已停止解析（不是渐进式JPEG，或已到达结束标记）
+     */
+    boolean isRejected() {
+        return mRejected;
+    }
+
+    int getWidth() {
+        return mWidth;
+    }
+
+    int getHeight() {
+        return mHeight;
+    }
+}
@@ -0,0 +1,395 @@
+package com.cloudling.imageloader;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.BitmapDrawable;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.View;
+import android.graphics.drawable.Drawable;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.request.Request;
+import com.bumptech.glide.request.target.SizeReadyCallback;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.request.transition.Transition;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 描述: 一次渐进式加载的状态。
+ * 加载开始时按地址登记，GlideHttpFetcher下载时通过wrap旁路读取响应数据，每完成一次扫描在后台解码一张中间结果，
+ * 回到主线程后如果视图上还是同一个请求且请求尚未完成，则先显示中间结果；最终图片由Glide正常解码后覆盖。
+ * 登记只弱引用视图和target，请求完成、失败或被清除（视图开始新的加载、页面销毁）时移除
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+final class ProgressiveLoad {
+    /**
+     * 两次中间结果解码的最小间隔，避免网络很快时频繁解码
+     */
+    private static final long MIN_INTERVAL_MS = 150;
+    /**
+     * 旁路缓存的最大字节数，超出后不再生成中间结果
+     */
+    private static final int MAX_BUFFER_BYTES = 16 * 1024 * 1024;
+    /**
+     * 视图尺寸未知时中间结果的最大边长
+     */
+    private static final int FALLBACK_SIZE = 1024;
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+    private static final ExecutorService DECODER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "image-progressive-decode");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+    /**
+     * 按地址登记的进行中的渐进式加载（同一地址可能同时显示在多个视图上，下载只有一次）
+     */
+    private static final Map<String, List<ProgressiveLoad>> LOADS = new HashMap<>();
+    /**
+     * 每个视图上进行中的渐进式加载，视图开始新的加载时结束旧的
+     */
+    private static final Map<View, ProgressiveLoad> VIEWS = new WeakHashMap<>();
+
+    private final String key;
+    private final WeakReference<ImageView> view;
+    private final ImageShape shape;
+    private final long startNanos = System.nanoTime();
+    private WeakReference<Target<?>> target;
+    private Request request;
+    private boolean finished;
+    private volatile long firstPixelNanos = -1;
+
+    private ProgressiveLoad(String key, ImageView view, ImageShape shape) {
+        this.key = key;
+        this.view = new WeakReference<>(view);
+        this.shape = shape;
+    }
+
+    /**
+     * 开始一次渐进式加载（主线程调用）
+     *
+     * @return 不是网络地址时返回null
+     */
+    @Nullable
+    static ProgressiveLoad start(Object url, ImageView view, ImageShape shape) {
+        String key = key(url);
+        ProgressiveLoad previous = VIEWS.get(view);
+        if (previous != null) previous.finish();
+        if (key == null) return null;
+        ProgressiveLoad load = new ProgressiveLoad(key, view, shape);
+        VIEWS.put(view, load);
+        synchronized (LOADS) {
+            List<ProgressiveLoad> loads = LOADS.get(key);
+            if (loads == null) {
+                loads = new ArrayList<>(1);
+                LOADS.put(key, loads);
+            }
+            loads.add(load);
+        }
+        return load;
+    }
+
+    @Nullable
+    private static String key(Object url) {
+        String value = url instanceof String || url instanceof Uri ? url.toString() : null;
+        if (value == null || !(value.startsWith("http://") || value.startsWith("https://"))) return null;
+        /*与GlideHttpFetcher中GlideUrl.toStringUrl的结果一致*/
+        return new GlideUrl(value).toStringUrl();
+    }
+
+    /**
+     * 包装显示结果的target，请求被清除或页面销毁时结束渐进式加载（这两种情况不会回调RequestListener）
+     */
+    <R> Target<R> track(Target<R> target) {
+        return new TrackingTarget<>(target, this);
+    }
+
+    /**
+     * 关联Glide的请求，之后只有视图上还是这个请求时才显示中间结果
+     */
+    void attach(Target<?> target) {
+        if (target instanceof TrackingTarget && !((TrackingTarget<?>) target).used) {
+            /*视图上已有相同的请求在进行，Glide继续使用原来的请求和target，这次登记不会再被回调结束*/
+            finish();
+            return;
+        }
+        this.target = new WeakReference<Target<?>>(target);
+        this.request = target.getRequest();
+    }
+
+    /**
+     * 结束渐进式加载（最终结果已显示、加载失败或视图开始了新的加载），之后到达的中间结果被丢弃
+     */
+    void finish() {
+        if (finished) return;
+        finished = true;
+        ImageView view = this.view.get();
+        if (view != null && VIEWS.get(view) == this) VIEWS.remove(view);
+        synchronized (LOADS) {
+            List<ProgressiveLoad> loads = LOADS.get(key);
+            if (loads != null && loads.remove(this) && loads.isEmpty()) LOADS.remove(key);
+        }
+    }
+
+    /**
+     * 第一张中间结果显示时距开始加载的耗时（纳秒），没有显示过中间结果时为-1
+     */
+    long getFirstPixelNanos() {
+        return firstPixelNanos;
+    }
+
+    private void show(Bitmap frame) {
+        ImageView view = this.view.get();
+        Target<?> target = this.target != null ? this.target.get() : null;
+        if (finished || view == null || target == null || target.getRequest() != request || request == null || request.isComplete()) {
+            return;
+        }
+        if (shape != null && shape.getType() != ImageShapeType.NONE) {
+            view.setImageDrawable(new ShapedBitmapDrawable(frame, shape, view.getScaleType()));
+        } else {
+            view.setImageDrawable(new BitmapDrawable(view.getResources(), frame));
+        }
+        if (firstPixelNanos < 0) firstPixelNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * 中间结果的采样率：视图尺寸已知时按视图尺寸，否则限制到FALLBACK_SIZE
+     */
+    private static int sampleSize(String key, int width, int height) {
+        int targetWidth = 0, targetHeight = 0;
+        synchronized (LOADS) {
+            List<ProgressiveLoad> loads = LOADS.get(key);
+            if (loads != null) {
+                for (ProgressiveLoad load : loads) {
+                    ImageView view = load.view.get();
+                    if (view == null) continue;
+                    targetWidth = Math.max(targetWidth, view.getWidth());
+                    targetHeight = Math.max(targetHeight, view.getHeight());
+                }
+            }
+        }
+        if (targetWidth <= 0 || targetHeight <= 0) targetWidth = targetHeight = FALLBACK_SIZE;
+        int sampleSize = 1;
+        while (width / (sampleSize * 2) >= targetWidth && height / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * 下载线程调用，地址上有进行中的渐进式加载时返回旁路读取的输入流，否则原样返回
+     */
+    static InputStream wrap(String url, InputStream in) {
+        if (in == null) return null;
+        synchronized (LOADS) {
+            if (!LOADS.containsKey(url)) return in;
+        }
+        return new TeeInputStream(url, in);
+    }
+
+    private static final class TeeInputStream extends FilterInputStream {
+        private final String url;
+        private final ProgressiveJpegScanner scanner = new ProgressiveJpegScanner();
+        private final byte[] single = new byte[1];
+        private byte[] buffer = new byte[64 * 1024];
+        private int length;
+        private long lastDecode;
+        /**
+         * 是否有中间结果正在解码（同一时刻最多一个）
+         */
+        private volatile boolean decoding;
+
+        TeeInputStream(String url, InputStream in) {
+            super(in);
+            this.url = url;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read != -1) {
+                single[0] = (byte) read;
+                append(single, 0, 1);
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) append(b, off, read);
+            return read;
+        }
+
+        private void append(byte[] b, int off, int len) {
+            if (buffer == null) return;
+            if (length + len > buffer.length) {
+                if (length + len > MAX_BUFFER_BYTES) {
+                    release();
+                    return;
+                }
+                byte[] grown = new byte[Math.min(MAX_BUFFER_BYTES, Math.max(buffer.length * 2, length + len))];
+                System.arraycopy(buffer, 0, grown, 0, length);
+                buffer = grown;
+            }
+            System.arraycopy(b, off, buffer, length, len);
+            length += len;
+            boolean found = scanner.scan(buffer, length);
+            if (scanner.isRejected()) {
+                /*不是渐进式JPEG或已下载完整，之后不再缓存*/
+                release();
+                return;
+            }
+            long now = SystemClock.uptimeMillis();
+            if (found && !decoding && now - lastDecode >= MIN_INTERVAL_MS) {
+                lastDecode = now;
+                decode(scanner.getScanEnd());
+            }
+        }
+
+        private void decode(int end) {
+            synchronized (LOADS) {
+                if (!LOADS.containsKey(url)) {
+                    release();
+                    return;
+                }
+            }
+            final byte[] frame = new byte[end + 2];
+            System.arraycopy(buffer, 0, frame, 0, end);
+            /*补上结束标记EOI*/
+            frame[end] = (byte) 0xFF;
+            frame[end + 1] = (byte) 0xD9;
+            final int width = scanner.getWidth(), height = scanner.getHeight();
+            decoding = true;
+            DECODER.execute(new Runnable() {
+                @Override
+                public void run() {
+                    BitmapFactory.Options options = new BitmapFactory.Options();
+                    options.inPreferredConfig = Bitmap.Config.RGB_565;
+                    options.inSampleSize = sampleSize(url, width, height);
+                    final Bitmap bitmap = BitmapFactory.decodeByteArray(frame, 0, frame.length, options);
+                    decoding = false;
+                    if (bitmap == null) return;
+                    MAIN.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            List<ProgressiveLoad> loads;
+                            synchronized (LOADS) {
+                                List<ProgressiveLoad> registered = LOADS.get(url);
+                                if (registered == null) return;
+                                loads = new ArrayList<>(registered);
+                            }
+                            for (ProgressiveLoad load : loads) {
+                                load.show(bitmap);
+                            }
+                        }
+                    });
+                }
+            });
+        }
+
+        private void release() {
+            buffer = null;
+            length = 0;
+        }
+    }
+
+    /**
+     * 转发给实际显示结果的target，被清除或销毁时结束渐进式加载
+     */
+    private static final class TrackingTarget<R> implements Target<R> {
+        private final Target<R> target;
+        private final ProgressiveLoad load;
+        /**
+         * Glide是否为这个target发起了请求
+         */
+        boolean used;
+
+        TrackingTarget(Target<R> target, ProgressiveLoad load) {
+            this.target = target;
+            this.load = load;
+        }
+
+        @Override
+        public void onLoadStarted(@Nullable Drawable placeholder) {
+            target.onLoadStarted(placeholder);
+        }
+
+        @Override
+        public void onLoadFailed(@Nullable Drawable errorDrawable) {
+            target.onLoadFailed(errorDrawable);
+        }
+
+        @Override
+        public void onResourceReady(@NonNull R resource, @Nullable Transition<? super R> transition) {
+            target.onResourceReady(resource, transition);
+        }
+
+        @Override
+        public void onLoadCleared(@Nullable Drawable placeholder) {
+            load.finish();
+            target.onLoadCleared(placeholder);
+        }
+
+        @Override
+        public void getSize(@NonNull SizeReadyCallback cb) {
+            target.getSize(cb);
+        }
+
+        @Override
+        public void removeCallback(@NonNull SizeReadyCallback cb) {
+            target.removeCallback(cb);
+        }
+
+        @Override
+        public void setRequest(@Nullable Request request) {
+            if (request != null) used = true;
+            target.setRequest(request);
+        }
+
+        @Nullable
+        @Override
+        public Request getRequest() {
+            return target.getRequest();
+        }
+
+        @Override
+        public void onStart() {
+            target.onStart();
+        }
+
+        @Override
+        public void onStop() {
+            target.onStop();
+        }
+
+        @Override
+        public void onDestroy() {
+            load.finish();
+            target.onDestroy();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.cloudling.imageloader;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.drawable.Drawable;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 描述: 绘制时处理形状（圆形、圆角）的Drawable，通过BitmapShader直接把解码后的原图画进圆形或圆角路径，
+ * 不再额外生成一张形状处理后的Bitmap，缩放方式按ImageView的scaleType在绘制矩阵中完成
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+final class ShapedBitmapDrawable extends Drawable {
+    /**
+     * 保留的BitmapShader数：动图的帧在复用池中循环使用，通常只有帧缓冲中的几帧加上正在显示的一帧
+     */
+    private static final int MAX_SHADERS = 8;
+
+    private Bitmap mBitmap;
+    private final boolean mCircle;
+    /**
+     * Path.addRoundRect使用的圆角半径，顺序为左上，右上，右下，左下，每个角x、y各一个
+     */
+    private final float[] mRadii = new float[8];
+    private final ImageView.ScaleType mScaleType;
+    private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+    private BitmapShader mShader;
+    /**
+     * 每个Bitmap对应的BitmapShader，动图切换到复用的帧时沿用，不为每一帧新建；按最近使用淘汰
+     */
+    private final LinkedHashMap<Bitmap, BitmapShader> mShaders = new LinkedHashMap<Bitmap, BitmapShader>(MAX_SHADERS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Bitmap, BitmapShader> eldest) {
+            return size() > MAX_SHADERS;
+        }
+    };
+    private final Matrix mMatrix = new Matrix();
+    private final RectF mImageRect = new RectF();
+    private final Path mPath = new Path();
+
+    ShapedBitmapDrawable(@NonNull Bitmap bitmap, @NonNull ImageShape shape, @Nullable ImageView.ScaleType scaleType) {
+        mBitmap = bitmap;
+        mCircle = shape.getType() == ImageShapeType.CIRCLE;
+        mRadii[0] = mRadii[1] = shape.getLeftTop();
+        mRadii[2] = mRadii[3] = shape.getRightTop();
+        mRadii[4] = mRadii[5] = shape.getRightBottom();
+        mRadii[6] = mRadii[7] = shape.getLeftBottom();
+        mScaleType = scaleType;
+        mShader = shader(bitmap);
+        mPaint.setShader(mShader);
+    }
+
+    private BitmapShader shader(Bitmap bitmap) {
+        BitmapShader shader = mShaders.get(bitmap);
+        if (shader == null) {
+            shader = new BitmapShader(bitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+            mShaders.put(bitmap, shader);
+        }
+        return shader;
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        super.onBoundsChange(bounds);
+        float width = bounds.width(), height = bounds.height();
+        float bitmapWidth = mBitmap.getWidth(), bitmapHeight = mBitmap.getHeight();
+        if (width <= 0 || height <= 0 || bitmapWidth <= 0 || bitmapHeight <= 0) {
+            mPath.reset();
+            return;
+        }
+        float scaleX, scaleY;
+        if (mCircle) {
+            /*与circleCrop一致：居中裁剪为以短边为直径的正方形*/
+            float size = Math.min(width, height);
+            scaleX = scaleY = Math.max(size / bitmapWidth, size / bitmapHeight);
+        } else if (mScaleType == ImageView.ScaleType.CENTER_CROP) {
+            scaleX = scaleY = Math.max(width / bitmapWidth, height / bitmapHeight);
+        } else if (mScaleType == ImageView.ScaleType.FIT_XY) {
+            scaleX = width / bitmapWidth;
+            scaleY = height / bitmapHeight;
+        } else if (mScaleType == ImageView.ScaleType.CENTER_INSIDE) {
+            scaleX = scaleY = Math.min(1f, Math.min(width / bitmapWidth, height / bitmapHeight));
+        } else {
+            /*FIT_CENTER及其他scaleType都按等比缩放居中显示*/
+            scaleX = scaleY = Math.min(width / bitmapWidth, height / bitmapHeight);
+        }
+        float drawWidth = bitmapWidth * scaleX, drawHeight = bitmapHeight * scaleY;
+        float dx = bounds.left + (width - drawWidth) / 2f, dy = bounds.top + (height - drawHeight) / 2f;
+        mMatrix.setScale(scaleX, scaleY);
+        mMatrix.postTranslate(dx, dy);
+        mShader.setLocalMatrix(mMatrix);
+        /*圆角只作用在图片实际显示的区域上（CENTER_CROP时为裁剪后的视图区域），与GlideRoundTransform的效果一致*/
+        mImageRect.set(Math.max(dx, bounds.left), Math.max(dy, bounds.top),
+                Math.min(dx + drawWidth, bounds.right), Math.min(dy + drawHeight, bounds.bottom));
+        mPath.reset();
+        if (mCircle) {
+            mPath.addCircle(mImageRect.centerX(), mImageRect.centerY(), Math.min(mImageRect.width(), mImageRect.height()) / 2f, Path.Direction.CW);
+        } else {
+            mPath.addRoundRect(mImageRect, mRadii, Path.Direction.CW);
+        }
+    }
+
+    /**
+     * 更换图片（动图切换帧），尺寸与原图片相同时沿用已计算的绘制矩阵和形状路径；
+     * 同一个Bitmap（像素已更新）沿用当前的BitmapShader，之前用过的Bitmap沿用它的BitmapShader
+     */
+    void setBitmap(@NonNull Bitmap bitmap) {
+        if (bitmap == mBitmap) {
+            invalidateSelf();
+            return;
+        }
+        boolean sameSize = bitmap.getWidth() == mBitmap.getWidth() && bitmap.getHeight() == mBitmap.getHeight();
+        mBitmap = bitmap;
+        mShader = shader(bitmap);
+        mPaint.setShader(mShader);
+        if (sameSize) {
+            mShader.setLocalMatrix(mMatrix);
+        } else {
+            onBoundsChange(getBounds());
+        }
+        invalidateSelf();
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        canvas.drawPath(mPath, mPaint);
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        if (mPaint.getAlpha() != alpha) {
+            mPaint.setAlpha(alpha);
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public int getAlpha() {
+        return mPaint.getAlpha();
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        mPaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    /*固有宽高返回-1，ImageView会把Drawable铺满内容区域且不再额外做scaleType矩阵变换，
+    缩放和形状都由onBoundsChange计算，因此使用此模式的ImageView需要有确定的尺寸（不能是wrap_content）*/
+    @Override
+    public int getIntrinsicWidth() {
+        return -1;
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return -1;
+    }
+}
@@ -0,0 +1,97 @@
+package com.cloudling.imageloader;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.resource.gif.GifDrawable;
+import com.bumptech.glide.request.target.ImageViewTarget;
+import com.bumptech.glide.request.transition.Transition;
+
+/**
+ * 描述: 绘制时处理形状的ImageView target，把Glide解码得到的Bitmap包装为ShapedBitmapDrawable显示；
+ * 开启动图时把GifDrawable包装为AnimatedFrameDrawable播放（未开启时动图等非Bitmap资源原样显示）
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+final class ShapedImageViewTarget extends ImageViewTarget<Drawable> {
+    private final ImageShape shape;
+    private final boolean animated;
+    /**
+     * 当前显示的动图，被替换时回收其帧缓冲和解码器
+     */
+    private AnimatedFrameDrawable current;
+
+    ShapedImageViewTarget(ImageView view, ImageShape shape) {
+        this(view, shape, false);
+    }
+
+    ShapedImageViewTarget(ImageView view, ImageShape shape, boolean animated) {
+        super(view);
+        this.shape = shape;
+        this.animated = animated;
+    }
+
+    @Override
+    public void onResourceReady(@NonNull final Drawable resource, @Nullable final Transition<? super Drawable> transition) {
+        /*开启按帧批量交付时在下一帧统一设置*/
+        if (!FrameBatcher.deferApply(this, new Runnable() {
+            @Override
+            public void run() {
+                apply(resource, transition);
+            }
+        })) {
+            apply(resource, transition);
+        }
+    }
+
+    private void apply(@NonNull Drawable resource, @Nullable Transition<? super Drawable> transition) {
+        if (animated && resource instanceof GifDrawable && ((GifDrawable) resource).getFrameCount() > 1) {
+            /*交给ImageViewTarget的是包装后的Drawable，页面onStart、onStop时调用的是它的start、stop，GifDrawable自身不会开始播放*/
+            resource = new AnimatedFrameDrawable(view.getContext(), (GifDrawable) resource, shape, view.getScaleType());
+        }
+        super.onResourceReady(resource, transition);
+    }
+
+    @Override
+    public void onLoadStarted(@Nullable Drawable placeholder) {
+        FrameBatcher.cancel(this);
+        super.onLoadStarted(placeholder);
+    }
+
+    @Override
+    public void onLoadFailed(@Nullable Drawable errorDrawable) {
+        FrameBatcher.cancel(this);
+        super.onLoadFailed(errorDrawable);
+    }
+
+    @Override
+    public void onLoadCleared(@Nullable Drawable placeholder) {
+        FrameBatcher.cancel(this);
+        super.onLoadCleared(placeholder);
+    }
+
+    @Override
+    protected void setResource(@Nullable Drawable resource) {
+        AnimatedFrameDrawable previous = current;
+        current = resource instanceof AnimatedFrameDrawable ? (AnimatedFrameDrawable) resource : null;
+        if (resource instanceof BitmapDrawable && shape.getType() != ImageShapeType.NONE) {
+            Bitmap bitmap = ((BitmapDrawable) resource).getBitmap();
+            if (bitmap != null) {
+                view.setImageDrawable(new ShapedBitmapDrawable(bitmap, shape, view.getScaleType()));
+                release(previous);
+                return;
+            }
+        }
+        view.setImageDrawable(resource);
+        release(previous);
+    }
+
+    private void release(@Nullable AnimatedFrameDrawable previous) {
+        if (previous != null && previous != current) previous.recycle();
+    }
+}
@@ -0,0 +1,564 @@
+package com.cloudling.imageloader;
+
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 描述: 分片磁盘缓存（通过ImageLoaderConfig.diskCache替换图片加载框架默认的磁盘缓存）。
+ * 缓存文件按key的哈希分布到16个子目录，每个子目录单独加锁、单独按LRU淘汰，多个线程同时读写时只在同一分片上竞争；
+ * 缓存索引（key、文件大小、访问顺序）保存为紧凑的二进制快照，启动时内存映射读取，不需要回放日志或遍历目录。
+ * 索引的修改合并后在后台线程写入快照，超出容量时在后台线程淘汰，读写缓存的线程不等待磁盘上的索引和淘汰。
+ * 进程异常退出时快照可能缺少最后几秒的修改，启动后在后台核对目录中的文件修正
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public class ShardedDiskCache implements DiskCache {
+    /**
+     * 默认容量250MB，与图片加载框架默认的磁盘缓存一致
+     */
+    public static final long DEFAULT_SIZE = 250 * 1024 * 1024;
+    private static final String DEFAULT_DIRECTORY = "image_sharded_cache";
+    /**
+     * 分片数，取key哈希的最高4位，子目录名为0-f
+     */
+    private static final int SHARD_COUNT = 16;
+    private static final String INDEX_NAME = "index";
+    private static final int INDEX_MAGIC = 0x49534443;
+    private static final int INDEX_VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    /**
+     * 每条索引：key哈希的前128位和文件大小
+     */
+    private static final int ENTRY_SIZE = 20;
+    /**
+     * 索引修改后等待多久写入快照，期间的修改合并为一次写入
+     */
+    private static final long FLUSH_DELAY_MS = 5000;
+    /**
+     * 核对目录时只删除打开缓存之前这么久就已不再修改的临时文件（留出文件系统时间戳精度的余量），
+     * 之后修改的临时文件可能正在被put写入
+     */
+    private static final long STALE_TEMP_MS = 2000;
+    private static final ScheduledThreadPoolExecutor BACKGROUND = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "image-disk-cache");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+    private static final ThreadLocal<MessageDigest> DIGEST = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    private final File mDirectory;
+    private final long mShardMaxSize;
+    private final Shard[] mShards = new Shard[SHARD_COUNT];
+    private final AtomicBoolean mFlushScheduled = new AtomicBoolean();
+    private final Runnable mFlush = new Runnable() {
+        @Override
+        public void run() {
+            mFlushScheduled.set(false);
+            flush();
+        }
+    };
+    private final AtomicLong mEvictionCount = new AtomicLong();
+    private final AtomicLong mEvictionNanos = new AtomicLong();
+    private long mIndexLoadNanos;
+    private final long mOpenedAt;
+
+    /**
+     * 打开缓存目录并读取索引快照（在图片加载框架的磁盘缓存线程中第一次使用时调用）
+     *
+     * @param directory 缓存目录
+     * @param maxSize   容量（字节），按分片平均分配
+     */
+    public ShardedDiskCache(File directory, long maxSize) {
+        mDirectory = directory;
+        mOpenedAt = System.currentTimeMillis();
+        mShardMaxSize = Math.max(1, maxSize / SHARD_COUNT);
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            mShards[i] = new Shard(new File(directory, Integer.toHexString(i)));
+        }
+        long start = System.nanoTime();
+        if (!readIndex(new File(directory, INDEX_NAME))) {
+            for (Shard shard : mShards) {
+                shard.entries.clear();
+                shard.size = 0;
+            }
+        }
+        mIndexLoadNanos = System.nanoTime() - start;
+        BACKGROUND.execute(new Runnable() {
+            @Override
+            public void run() {
+                reconcile();
+            }
+        });
+    }
+
+    @Nullable
+    @Override
+    public File get(Key key) {
+        Entry probe = entry(key, 0);
+        Shard shard = shard(probe);
+        synchronized (shard) {
+            if (shard.entries.get(probe) == null) return null;
+        }
+        File file = shard.file(probe);
+        if (file.exists()) return file;
+        /*快照中有但文件已不存在（异常退出前刚被删除），从索引中移除，之后可以重新写入*/
+        remove(shard, probe, false);
+        return null;
+    }
+
+    @Override
+    public void put(Key key, Writer writer) {
+        Entry probe = entry(key, 0);
+        Shard shard = shard(probe);
+        synchronized (shard) {
+            if (shard.entries.containsKey(probe)) return;
+        }
+        if (!shard.directory.exists() && !shard.directory.mkdirs() && !shard.directory.exists()) return;
+        File file = shard.file(probe);
+        /*先写入临时文件再重命名，同一个key同时写入时各自写自己的临时文件，读取的线程不会读到写了一半的文件*/
+        File temp = new File(shard.directory, file.getName() + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            if (!writer.write(temp) || !temp.renameTo(file)) return;
+            Entry entry = new Entry(probe.high, probe.low, file.length());
+            boolean trim;
+            synchronized (shard) {
+                Entry previous = shard.entries.put(entry, entry);
+                if (previous != null) shard.size -= previous.size;
+                shard.size += entry.size;
+                trim = shard.size > mShardMaxSize && !shard.trimming;
+                if (trim) shard.trimming = true;
+            }
+            if (trim) scheduleTrim(shard);
+            scheduleFlush();
+        } finally {
+            if (temp.exists()) temp.delete();
+        }
+    }
+
+    @Override
+    public void delete(Key key) {
+        Entry probe = entry(key, 0);
+        remove(shard(probe), probe, true);
+    }
+
+    @Override
+    public void clear() {
+        for (Shard shard : mShards) {
+            synchronized (shard) {
+                shard.entries.clear();
+                shard.size = 0;
+            }
+            File[] files = shard.directory.listFiles();
+            if (files == null) continue;
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        new File(mDirectory, INDEX_NAME).delete();
+    }
+
+    private void remove(Shard shard, Entry probe, boolean deleteFile) {
+        Entry removed;
+        synchronized (shard) {
+            removed = shard.entries.remove(probe);
+            if (removed != null) shard.size -= removed.size;
+        }
+        if (deleteFile) shard.file(probe).delete();
+        if (removed != null) scheduleFlush();
+    }
+
+    private void scheduleTrim(final Shard shard) {
+        BACKGROUND.execute(new Runnable() {
+            @Override
+            public void run() {
+                trim(shard);
+            }
+        });
+    }
+
+    /**
+     * 后台线程中淘汰分片中最久未使用的文件，直到不超过分片容量
+     */
+    private void trim(Shard shard) {
+        long start = System.nanoTime();
+        int count = 0;
+        while (true) {
+            Entry eldest;
+            synchronized (shard) {
+                if (shard.size <= mShardMaxSize || shard.entries.isEmpty()) {
+                    shard.trimming = false;
+                    break;
+                }
+                Iterator<Entry> iterator = shard.entries.values().iterator();
+                eldest = iterator.next();
+                iterator.remove();
+                shard.size -= eldest.size;
+            }
+            /*删除文件不占用分片的锁；如果此时同一个key被重新写入，文件会被误删，读取时发现文件不存在再从索引中移除*/
+            shard.file(eldest).delete();
+            count++;
+        }
+        if (count > 0) {
+            mEvictionCount.addAndGet(count);
+            mEvictionNanos.addAndGet(System.nanoTime() - start);
+            scheduleFlush();
+        }
+    }
+
+    private void scheduleFlush() {
+        if (mFlushScheduled.compareAndSet(false, true)) {
+            BACKGROUND.schedule(mFlush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 内存映射读取索引快照，格式：魔数、版本、条数，之后每个分片按最久未使用到最近使用的顺序排列。
+     * 快照不存在或不完整时返回false，由后台核对目录重建
+     */
+    private boolean readIndex(File index) {
+        if (!index.isFile()) return false;
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(index, "r");
+            FileChannel channel = file.getChannel();
+            long length = channel.size();
+            if (length < HEADER_SIZE) return false;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (buffer.getInt() != INDEX_MAGIC || buffer.getInt() != INDEX_VERSION) return false;
+            int count = buffer.getInt();
+            if (count < 0 || length != HEADER_SIZE + (long) count * ENTRY_SIZE) return false;
+            for (int i = 0; i < count; i++) {
+                Entry entry = new Entry(buffer.getLong(), buffer.getLong(), buffer.getInt() & 0xffffffffL);
+                Shard shard = shard(entry);
+                shard.entries.put(entry, entry);
+                shard.size += entry.size;
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * 后台线程中写入索引快照（先写临时文件再重命名，写入过程中退出不会损坏原快照）
+     */
+    private void flush() {
+        Entry[][] snapshots = new Entry[SHARD_COUNT][];
+        int count = 0;
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            Shard shard = mShards[i];
+            synchronized (shard) {
+                snapshots[i] = shard.entries.values().toArray(new Entry[0]);
+            }
+            count += snapshots[i].length;
+        }
+        File temp = new File(mDirectory, INDEX_NAME + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 64 * 1024));
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeInt(count);
+            for (Entry[] snapshot : snapshots) {
+                for (Entry entry : snapshot) {
+                    out.writeLong(entry.high);
+                    out.writeLong(entry.low);
+                    out.writeInt((int) Math.min(entry.size, 0xffffffffL));
+                }
+            }
+            out.close();
+            out = null;
+            if (!temp.renameTo(new File(mDirectory, INDEX_NAME))) temp.delete();
+        } catch (IOException e) {
+            temp.delete();
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * 后台线程中核对目录与索引：加入快照之后写入的文件，移除文件已不存在的索引，删除上次运行残留的临时文件
+     */
+    private void reconcile() {
+        boolean changed = false;
+        for (Shard shard : mShards) {
+            File[] files = shard.directory.listFiles();
+            Set<Entry> present = new HashSet<>(files == null ? 0 : files.length * 2);
+            List<Entry> adopted = new ArrayList<>();
+            if (files != null) {
+                for (File file : files) {
+                    Entry entry = parse(file.getName(), file.length());
+                    if (entry == null) {
+                        /*打开缓存之后还在修改的临时文件可能正在写入，重命名前删除会使这次写入失败*/
+                        if (file.getName().endsWith(".tmp") && file.lastModified() < mOpenedAt - STALE_TEMP_MS) {
+                            file.delete();
+                        }
+                        continue;
+                    }
+                    present.add(entry);
+                    adopted.add(entry);
+                }
+            }
+            List<Entry> missing = new ArrayList<>();
+            synchronized (shard) {
+                for (Entry entry : adopted) {
+                    if (!shard.entries.containsKey(entry)) {
+                        shard.entries.put(entry, entry);
+                        shard.size += entry.size;
+                        changed = true;
+                    }
+                }
+                for (Entry entry : shard.entries.keySet()) {
+                    if (!present.contains(entry)) missing.add(entry);
+                }
+            }
+            for (Entry entry : missing) {
+                /*列出目录之后才写入的文件也不在present中，确认文件不存在再移除*/
+                if (!shard.file(entry).exists()) {
+                    remove(shard, entry, false);
+                    changed = true;
+                }
+            }
+            boolean trim;
+            synchronized (shard) {
+                trim = shard.size > mShardMaxSize && !shard.trimming;
+                if (trim) shard.trimming = true;
+            }
+            if (trim) trim(shard);
+        }
+        if (changed) scheduleFlush();
+    }
+
+    private Shard shard(Entry entry) {
+        return mShards[(int) (entry.high >>> 60)];
+    }
+
+    private static Entry entry(Key key, long size) {
+        MessageDigest digest = DIGEST.get();
+        digest.reset();
+        key.updateDiskCacheKey(digest);
+        byte[] hash = digest.digest();
+        long high = 0, low = 0;
+        for (int i = 0; i < 8; i++) {
+            high = high << 8 | (hash[i] & 0xff);
+            low = low << 8 | (hash[i + 8] & 0xff);
+        }
+        return new Entry(high, low, size);
+    }
+
+    /**
+     * 文件名为key哈希前128位的十六进制（32个字符），其他文件返回null
+     */
+    @Nullable
+    private static Entry parse(String name, long size) {
+        if (name.length() != 32) return null;
+        long high = 0, low = 0;
+        for (int i = 0; i < 32; i++) {
+            int digit = Character.digit(name.charAt(i), 16);
+            if (digit < 0) return null;
+            if (i < 16) {
+                high = high << 4 | digit;
+            } else {
+                low = low << 4 | digit;
+            }
+        }
+        return new Entry(high, low, size);
+    }
+
+    /**
+     * 读取索引快照的耗时（纳秒），即冷启动时第一次使用磁盘缓存前的等待时间
+     */
+    public long getIndexLoadNanos() {
+        return mIndexLoadNanos;
+    }
+
+    public int getEntryCount() {
+        int count = 0;
+        for (Shard shard : mShards) {
+            synchronized (shard) {
+                count += shard.entries.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 当前缓存文件的总大小（字节）
+     */
+    public long getSize() {
+        long size = 0;
+        for (Shard shard : mShards) {
+            synchronized (shard) {
+                size += shard.size;
+            }
+        }
+        return size;
+    }
+
+    public long getMaxSize() {
+        return mShardMaxSize * SHARD_COUNT;
+    }
+
+    /**
+     * 淘汰的文件数
+     */
+    public long getEvictionCount() {
+        return mEvictionCount.get();
+    }
+
+    /**
+     * 后台淘汰累计耗时（纳秒），除以getEvictionCount为淘汰一个文件的平均耗时
+     */
+    public long getEvictionNanos() {
+        return mEvictionNanos.get();
+    }
+
+    private static final class Shard {
+        final File directory;
+        /*访问顺序的LinkedHashMap，迭代顺序即最久未使用到最近使用*/
+        final LinkedHashMap<Entry, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        long size;
+        boolean trimming;
+
+        Shard(File directory) {
+            this.directory = directory;
+        }
+
+        File file(Entry entry) {
+            return new File(directory, hex(entry.high) + hex(entry.low));
+        }
+
+        private static String hex(long value) {
+            String hex = Long.toHexString(value);
+            return hex.length() == 16 ? hex : "0000000000000000".substring(hex.length()) + hex;
+        }
+    }
+
+    /**
+     * 索引条目，key哈希的前128位相同即视为同一个key
+     */
+    private static final class Entry {
+        final long high, low;
+        final long size;
+
+        Entry(long high, long low, long size) {
+            this.high = high;
+            this.low = low;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) return false;
+            Entry other = (Entry) o;
+            return high == other.high && low == other.low;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (low ^ (low >>> 32));
+        }
+    }
+
+    /**
+     * 创建分片磁盘缓存，由图片加载框架在第一次使用磁盘缓存时在后台线程中调用build，之后可通过getCache获取统计
+     */
+    public static class Factory implements DiskCache.Factory {
+        private final Context mContext;
+        private final File mDirectory;
+        private final long mMaxSize;
+        private volatile ShardedDiskCache mCache;
+
+        /**
+         * 使用应用缓存目录下的image_sharded_cache目录
+         *
+         * @param maxSize 容量（字节）
+         */
+        public Factory(Context context, long maxSize) {
+            mContext = context.getApplicationContext();
+            mDirectory = null;
+            mMaxSize = maxSize;
+        }
+
+        public Factory(File directory, long maxSize) {
+            mContext = null;
+            mDirectory = directory;
+            mMaxSize = maxSize;
+        }
+
+        @Nullable
+        @Override
+        public DiskCache build() {
+            File directory = mDirectory != null ? mDirectory : cacheDirectory();
+            if (directory == null || (!directory.mkdirs() && !directory.isDirectory())) return null;
+            mCache = new ShardedDiskCache(directory, mMaxSize);
+            return mCache;
+        }
+
+        @Nullable
+        private File cacheDirectory() {
+            File cacheDir = mContext.getCacheDir();
+            return cacheDir == null ? null : new File(cacheDir, DEFAULT_DIRECTORY);
+        }
+
+        /**
+         * 已创建的缓存，还没有使用过磁盘缓存时为null
+         */
+        @Nullable
+        public ShardedDiskCache getCache() {
+            return mCache;
+        }
+    }
+}
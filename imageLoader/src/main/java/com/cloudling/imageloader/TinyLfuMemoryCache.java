@@ -0,0 +1,213 @@
+package com.cloudling.imageloader;
+
+import android.content.ComponentCallbacks2;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.cache.MemoryCache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 描述: 频率感知的内存缓存（W-TinyLFU），代替Glide默认的LRU内存缓存
+ * 新图片先进入窗口区，窗口区满后淘汰出的图片只有访问频率高于主区最久未使用的图片时才能进入主区，
+ * 因此列表中反复出现的圆形、圆角缩略图不会被偶尔加载一次的大图挤出缓存。
+ * 缓存key为Glide的EngineKey，已包含图片地址、尺寸及形状参数（transform）
+ * 联系: 1966353889@qq.com
+ * 日期: 2019/10/29
+ */
+public class TinyLfuMemoryCache implements MemoryCache {
+    /**
+     * 窗口区占总容量的比例（图片缓存项数量少，比常见的1%取得大一些，避免刚加载的图片立即被淘汰）
+     */
+    private static final float WINDOW_RATIO = 0.2f;
+    /**
+     * 按平均每张缩略图约64KB估算缓存项数量，用于确定频率计数器的大小
+     */
+    private static final int AVERAGE_ENTRY_SIZE = 64 * 1024;
+
+    private final long mInitialMaxSize;
+    private final FrequencySketch mSketch;
+    /*Glide命中内存缓存时会remove，释放后再put回窗口区，插入顺序即最近使用顺序*/
+    private final LinkedHashMap<Key, Resource<?>> mWindow = new LinkedHashMap<>();
+    private final LinkedHashMap<Key, Resource<?>> mMain = new LinkedHashMap<>();
+    private ResourceRemovedListener mListener;
+    private long mMaxSize;
+    private long mWindowSize, mMainSize;
+    private long mHitCount, mMissCount, mEvictionCount;
+
+    /**
+     * @param size 缓存容量（字节）
+     */
+    public TinyLfuMemoryCache(long size) {
+        mInitialMaxSize = size;
+        mMaxSize = size;
+        mSketch = new FrequencySketch((int) Math.min(size / AVERAGE_ENTRY_SIZE * 4, 1 << 20));
+    }
+
+    @Override
+    public synchronized long getCurrentSize() {
+        return mWindowSize + mMainSize;
+    }
+
+    @Override
+    public synchronized long getMaxSize() {
+        return mMaxSize;
+    }
+
+    @Override
+    public synchronized void setSizeMultiplier(float multiplier) {
+        if (multiplier < 0) {
+            throw new IllegalArgumentException("Multiplier must be >= 0");
+        }
+        mMaxSize = Math.round(mInitialMaxSize * multiplier);
+        evict();
+    }
+
+    @Nullable
+    @Override
+    public synchronized Resource<?> remove(@NonNull Key key) {
+        Resource<?> resource = mWindow.remove(key);
+        if (resource != null) {
+            mWindowSize -= resource.getSize();
+        } else {
+            resource = mMain.remove(key);
+            if (resource != null) mMainSize -= resource.getSize();
+        }
+        if (resource != null) {
+            mHitCount++;
+            mSketch.increment(key);
+        } else {
+            mMissCount++;
+        }
+        return resource;
+    }
+
+    @Nullable
+    @Override
+    public synchronized Resource<?> put(@NonNull Key key, @Nullable Resource<?> resource) {
+        Resource<?> old = mWindow.remove(key);
+        if (old != null) {
+            mWindowSize -= old.getSize();
+        } else {
+            old = mMain.remove(key);
+            if (old != null) mMainSize -= old.getSize();
+        }
+        if (old != null && old != resource) {
+            notifyRemoved(old);
+        }
+        if (resource == null) {
+            return old;
+        }
+        if (resource.getSize() >= mMaxSize) {
+            notifyRemoved(resource);
+            return old;
+        }
+        mSketch.increment(key);
+        mWindow.put(key, resource);
+        mWindowSize += resource.getSize();
+        evict();
+        return old;
+    }
+
+    @Override
+    public synchronized void setResourceRemovedListener(@NonNull ResourceRemovedListener listener) {
+        mListener = listener;
+    }
+
+    @Override
+    public void clearMemory() {
+        trimToSize(0);
+    }
+
+    @Override
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            clearMemory();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            trimToSize(getMaxSize() / 2);
+        }
+    }
+
+    /**
+     * 命中次数
+     */
+    public synchronized long getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * 未命中次数
+     */
+    public synchronized long getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * 因容量不足被淘汰的次数
+     */
+    public synchronized long getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    /**
+     * 淘汰到指定大小，先淘汰窗口区（访问频率未知的新图片）再淘汰主区
+     */
+    public synchronized void trimToSize(long size) {
+        while (mWindowSize + mMainSize > size && !mWindow.isEmpty()) {
+            mWindowSize -= evictEldest(mWindow);
+        }
+        while (mMainSize > size && !mMain.isEmpty()) {
+            mMainSize -= evictEldest(mMain);
+        }
+    }
+
+    private void evict() {
+        long windowMax = (long) (mMaxSize * WINDOW_RATIO);
+        while (mWindowSize + mMainSize > mMaxSize || mWindowSize > windowMax) {
+            if (mWindow.isEmpty()) {
+                if (mMain.isEmpty()) break;
+                mMainSize -= evictEldest(mMain);
+                continue;
+            }
+            Map.Entry<Key, Resource<?>> candidate = mWindow.entrySet().iterator().next();
+            if (mWindowSize + mMainSize <= mMaxSize) {
+                /*只是窗口区超出，还有空间，直接移入主区*/
+                mWindow.remove(candidate.getKey());
+                mWindowSize -= candidate.getValue().getSize();
+                mMain.put(candidate.getKey(), candidate.getValue());
+                mMainSize += candidate.getValue().getSize();
+            } else if (!mMain.isEmpty() && mSketch.frequency(candidate.getKey()) > mSketch.frequency(mMain.keySet().iterator().next())) {
+                /*超出容量，窗口区淘汰候选者的访问频率更高，淘汰主区最久未使用者*/
+                mMainSize -= evictEldest(mMain);
+            } else {
+                mWindowSize -= evictEldest(mWindow);
+            }
+        }
+    }
+
+    private long evictEldest(LinkedHashMap<Key, Resource<?>> segment) {
+        Iterator<Map.Entry<Key, Resource<?>>> iterator = segment.entrySet().iterator();
+        Resource<?> resource = iterator.next().getValue();
+        iterator.remove();
+        /*先取大小：通知移除后Bitmap可能已被回收（复用池已满时），不能再读取*/
+        long size = resource.getSize();
+        evicted(resource);
+        return size;
+    }
+
+    private void evicted(Resource<?> resource) {
+        mEvictionCount++;
+        notifyRemoved(resource);
+    }
+
+    private void notifyRemoved(Resource<?> resource) {
+        if (mListener != null) mListener.onResourceRemoved(resource);
+    }
+}
@@ -0,0 +1,115 @@
+package com.cloudling.imageloader;
+
+import android.graphics.Bitmap;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Bitmap租约：引用计数归零时交还一次、多释放一次抛出异常、失效后不能再获取Bitmap、开启检测时没有释放就被回收的租约计为泄漏
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BitmapLeaseTest {
+    private static final long TIMEOUT_MS = 10_000;
+
+    private final AtomicInteger mReleased = new AtomicInteger();
+    private final Bitmap mBitmap = Bitmap.createBitmap(20, 10, Bitmap.Config.ARGB_8888);
+
+    @After
+    public void tearDown() {
+        BitmapLease.setLeakDetection(false);
+    }
+
+    private BitmapLease lease() {
+        return new BitmapLease(mBitmap, new Runnable() {
+            @Override
+            public void run() {
+                mReleased.incrementAndGet();
+            }
+        });
+    }
+
+    @Test
+    public void lastRelease_returnsBitmapOnce() {
+        BitmapLease lease = lease();
+        assertSame(lease, lease.acquire());
+        lease.acquire();
+        lease.release();
+        lease.release();
+        assertSame(mBitmap, lease.getBitmap());
+        assertFalse(lease.isReleased());
+        assertEquals(0, mReleased.get());
+        lease.release();
+        assertEquals(1, mReleased.get());
+        assertNull(lease.getBitmap());
+        assertTrue(lease.isReleased());
+    }
+
+    @Test
+    public void extraRelease_throws() {
+        BitmapLease lease = lease();
+        lease.release();
+        try {
+            lease.release();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            lease.acquire();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(1, mReleased.get());
+    }
+
+    @Test
+    public void revoke_clearsBitmapAndSkipsReleaser() {
+        BitmapLease lease = lease();
+        lease.acquire();
+        lease.revoke();
+        assertNull(lease.getBitmap());
+        assertTrue(lease.isReleased());
+        /*Bitmap已被收回，持有者照常释放，不再交还*/
+        lease.release();
+        lease.release();
+        assertEquals(0, mReleased.get());
+    }
+
+    @Test
+    public void unreleasedLease_isCountedAsLeakWhenCollected() throws InterruptedException {
+        BitmapLease.setLeakDetection(true);
+        long before = BitmapLease.getLeakCount();
+        createAndDrop();
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (BitmapLease.getLeakCount() == before && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        /*已释放和已失效的租约被回收时不计为泄漏*/
+        assertEquals(before + 1, BitmapLease.getLeakCount());
+    }
+
+    /**
+     * 创建一个没有释放的租约、一个已释放的租约和一个已失效的租约，都不再引用
+     */
+    private void createAndDrop() {
+        lease();
+        lease().release();
+        lease().revoke();
+    }
+}
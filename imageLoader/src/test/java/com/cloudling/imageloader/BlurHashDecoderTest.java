@@ -0,0 +1,155 @@
+package com.cloudling.imageloader;
+
+import android.graphics.Bitmap;
+
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.request.target.Target;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * BlurHash解码：与按规范逐像素计算的参考实现一致（查表误差不超过1），格式错误的哈希被拒绝，
+ * 预览图按目标宽高比生成并缓存，释放时不被回收
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BlurHashDecoderTest {
+    /*https://blurha.sh 的示例哈希，4x3个分量*/
+    private static final String HASH = "LEHV6nWB2yk8pyo0adR*.7kCMdnj";
+    private static final String CHARACTERS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    @Test
+    public void decode_matchesReference() {
+        int width = 32, height = 20;
+        int[] pixels = new int[width * height];
+        assertTrue(BlurHashDecoder.decode(HASH, width, height, 1f, pixels));
+        int[] expected = reference(HASH, width, height);
+        for (int i = 0; i < pixels.length; i++) {
+            for (int shift = 0; shift <= 16; shift += 8) {
+                int actual = (pixels[i] >> shift) & 0xFF, reference = (expected[i] >> shift) & 0xFF;
+                assertTrue("pixel " + i + ": " + actual + " vs " + reference, Math.abs(actual - reference) <= 1);
+            }
+            assertEquals(0xFF, pixels[i] >>> 24);
+        }
+    }
+
+    @Test
+    public void dcOnlyHash_isSolidColor() {
+        int color = 0x3C8DBC;
+        /*1x1个分量：尺寸标记、最大值、4位DC*/
+        String hash = "00" + encode83(color, 4);
+        int[] pixels = new int[16 * 16];
+        assertTrue(BlurHashDecoder.decode(hash, 16, 16, 1f, pixels));
+        for (int pixel : pixels) {
+            assertEquals(0xFF000000 | color, pixel);
+        }
+    }
+
+    @Test
+    public void malformedHash_isRejected() {
+        int[] pixels = new int[4];
+        assertFalse(BlurHashDecoder.decode(null, 2, 2, 1f, pixels));
+        assertFalse(BlurHashDecoder.decode("LEHV6", 2, 2, 1f, pixels));
+        /*长度与分量数不符*/
+        assertFalse(BlurHashDecoder.decode(HASH.substring(0, HASH.length() - 2), 2, 2, 1f, pixels));
+        /*不是base83字符*/
+        assertFalse(BlurHashDecoder.decode(HASH.replace('W', '"'), 2, 2, 1f, pixels));
+        assertFalse(BlurHashDecoder.decode(HASH.replace('W', '中'), 2, 2, 1f, pixels));
+        assertNull(new BlurHashDecoder().decode(new PlaceholderHash("invalid"), 100, 100, new Options()));
+    }
+
+    @Test
+    public void preview_keepsAspectRatioAndIsCached() {
+        BlurHashDecoder decoder = new BlurHashDecoder();
+        Resource<Bitmap> wide = decoder.decode(new PlaceholderHash(HASH), 400, 200, new Options());
+        assertEquals(32, wide.get().getWidth());
+        assertEquals(16, wide.get().getHeight());
+        Resource<Bitmap> tall = decoder.decode(new PlaceholderHash(HASH), 90, 300, new Options());
+        assertEquals(10, tall.get().getWidth());
+        assertEquals(32, tall.get().getHeight());
+        Resource<Bitmap> original = decoder.decode(new PlaceholderHash(HASH), Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL, new Options());
+        assertEquals(32, original.get().getWidth());
+        assertEquals(32, original.get().getHeight());
+        /*同一比例的目标共用一张预览图，Glide释放时不回收*/
+        Resource<Bitmap> again = decoder.decode(new PlaceholderHash(HASH), 800, 400, new Options());
+        again.recycle();
+        assertSame(wide.get(), again.get());
+        assertFalse(again.get().isRecycled());
+        assertEquals((32 * 16 + 10 * 32 + 32 * 32) * 4, decoder.getCacheSize());
+        decoder.trimToHalf();
+        assertTrue(decoder.getCacheSize() <= (32 * 16 + 10 * 32 + 32 * 32) * 2);
+        decoder.clearMemory();
+        assertEquals(0, decoder.getCacheSize());
+    }
+
+    private static String encode83(int value, int length) {
+        char[] chars = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            chars[i] = CHARACTERS.charAt(value % 83);
+            value /= 83;
+        }
+        return new String(chars);
+    }
+
+    private static int decode83(String hash, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) value = value * 83 + CHARACTERS.indexOf(hash.charAt(i));
+        return value;
+    }
+
+    private static double toLinear(int value) {
+        double v = value / 255.0;
+        return v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4);
+    }
+
+    private static int toSrgb(double value) {
+        double v = Math.max(0, Math.min(1, value));
+        return v <= 0.0031308 ? (int) (v * 12.92 * 255 + 0.5) : (int) ((1.055 * Math.pow(v, 1 / 2.4) - 0.055) * 255 + 0.5);
+    }
+
+    private static double signPow(double value) {
+        return Math.copySign(value * value, value);
+    }
+
+    /**
+     * 按BlurHash规范逐像素计算的参考实现
+     */
+    private static int[] reference(String hash, int width, int height) {
+        int sizeFlag = decode83(hash, 0, 1);
+        int numY = sizeFlag / 9 + 1, numX = sizeFlag % 9 + 1;
+        double maxValue = (decode83(hash, 1, 2) + 1) / 166.0;
+        double[][] colors = new double[numX * numY][];
+        int dc = decode83(hash, 2, 6);
+        colors[0] = new double[]{toLinear(dc >> 16), toLinear((dc >> 8) & 0xFF), toLinear(dc & 0xFF)};
+        for (int i = 1; i < colors.length; i++) {
+            int ac = decode83(hash, 4 + i * 2, 6 + i * 2);
+            colors[i] = new double[]{signPow((ac / (19 * 19) - 9) / 9.0) * maxValue,
+                    signPow(((ac / 19) % 19 - 9) / 9.0) * maxValue, signPow((ac % 19 - 9) / 9.0) * maxValue};
+        }
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double r = 0, g = 0, b = 0;
+                for (int j = 0; j < numY; j++) {
+                    for (int i = 0; i < numX; i++) {
+                        double basis = Math.cos(Math.PI * x * i / width) * Math.cos(Math.PI * y * j / height);
+                        double[] color = colors[j * numX + i];
+                        r += color[0] * basis;
+                        g += color[1] * basis;
+                        b += color[2] * basis;
+                    }
+                }
+                pixels[y * width + x] = 0xFF000000 | toSrgb(r) << 16 | toSrgb(g) << 8 | toSrgb(b);
+            }
+        }
+        return pixels;
+    }
+}
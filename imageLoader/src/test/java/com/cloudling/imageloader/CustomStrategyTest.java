@@ -0,0 +1,134 @@
+package com.cloudling.imageloader;
+
+import android.content.Context;
+import android.widget.ImageView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 只实现最初版本方法的加载策略仍可使用：新增的方法退回到已有方法或返回失败的结果；
+ * 自定义策略可通过ImageLoadFuture的公开方法返回异步结果
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CustomStrategyTest {
+    private final Context mContext = RuntimeEnvironment.application;
+
+    @Test
+    public void asyncMethods_defaultToFailedFutures() throws Exception {
+        MinimalStrategy strategy = new MinimalStrategy();
+        assertUnsupported(strategy.loadImageBitmapAsync(mContext, "https://example.com/a.jpg", 100, 100, null));
+        assertUnsupported(strategy.openRegion(mContext, "https://example.com/a.jpg"));
+        assertUnsupported(strategy.probeSize(mContext, "https://example.com/a.jpg"));
+    }
+
+    @Test
+    public void loadWithOptions_fallsBackByShape() {
+        MinimalStrategy strategy = new MinimalStrategy();
+        ImageView view = new ImageView(mContext);
+        strategy.load(mContext, "a", view, ImageOptions.newBuilder().shape(ImageShape.circle()), null);
+        strategy.load(mContext, "b", view, ImageOptions.newBuilder().shape(ImageShape.round(8, ImageView.ScaleType.CENTER_CROP)), null);
+        strategy.load(mContext, "c", view, null, null);
+        strategy.loadImageBitmap(mContext, "d", 100, 100, DecodePolicy.newBuilder(), null);
+        assertEquals("[circle a, round b 8.0, load c, bitmap d]", strategy.calls.toString());
+    }
+
+    @Test
+    public void customFuture_completesAndCancels() throws Exception {
+        ImageLoadFuture<ImageResult> future = new ImageLoadFuture<>(ImageResult.class);
+        ImageResult result = new ImageResult(null);
+        assertTrue(future.complete(result));
+        assertFalse(future.fail(new Exception()));
+        assertEquals(result, future.get());
+
+        final boolean[] cancelled = new boolean[1];
+        ImageLoadFuture<ImageResult> cancelling = new ImageLoadFuture<>(ImageResult.class);
+        cancelling.setCanceller(new Runnable() {
+            @Override
+            public void run() {
+                cancelled[0] = true;
+            }
+        });
+        assertTrue(cancelling.cancel(true));
+        assertTrue(cancelled[0]);
+        assertFalse(cancelling.complete(result));
+    }
+
+    private static void assertUnsupported(ImageLoadFuture<?> future) throws InterruptedException {
+        assertTrue(future.isDone());
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof UnsupportedOperationException);
+        }
+    }
+
+    /**
+     * 只实现最初版本接口方法的第三方策略
+     */
+    private static final class MinimalStrategy implements BaseImageLoaderStrategy<ImageView, ImageResult> {
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public <LoadAddress> void load(Context context, LoadAddress url, ImageView view, int... placeholder) {
+            calls.add("load " + url);
+        }
+
+        @Override
+        public <LoadAddress> void load(Context context, LoadAddress url, ImageView view, ImageLoaderCallback<ImageResult> listener, int... placeholder) {
+            calls.add("load " + url);
+        }
+
+        @Override
+        public <LoadAddress> void loadImageBitmap(Context context, LoadAddress url, int maxWidth, int maxHeight, ImageLoaderCallback<ImageResult> listener) {
+            calls.add("bitmap " + url);
+        }
+
+        @Override
+        public <LoadAddress> void circle(Context context, LoadAddress url, ImageView view, int... placeholder) {
+            calls.add("circle " + url);
+        }
+
+        @Override
+        public <LoadAddress> void circle(Context context, LoadAddress url, ImageView view, ImageLoaderCallback<ImageResult> listener, int... placeholder) {
+            calls.add("circle " + url);
+        }
+
+        @Override
+        public <LoadAddress> void round(Context context, LoadAddress url, ImageView view, float radius, int... placeholder) {
+            calls.add("round " + url + " " + radius);
+        }
+
+        @Override
+        public <LoadAddress> void round(Context context, LoadAddress url, ImageView view, float radius, ImageLoaderCallback<ImageResult> listener, int... placeholder) {
+            calls.add("round " + url + " " + radius);
+        }
+
+        @Override
+        public <LoadAddress> void round(Context context, LoadAddress url, ImageView view, float[] radius, int... placeholder) {
+            calls.add("round " + url + " " + radius[0]);
+        }
+
+        @Override
+        public <LoadAddress> void round(Context context, LoadAddress url, ImageView view, float[] radius, ImageLoaderCallback<ImageResult> listener, int... placeholder) {
+            calls.add("round " + url + " " + radius[0]);
+        }
+
+        @Override
+        public <LoadAddress> boolean supportLoad(LoadAddress url) {
+            return true;
+        }
+    }
+}
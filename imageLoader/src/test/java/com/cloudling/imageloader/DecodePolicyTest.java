@@ -0,0 +1,89 @@
+package com.cloudling.imageloader;
+
+import android.os.Looper;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 解码策略对解码结果字节数的影响：按目标尺寸采样、RGB_565减半、内存上限
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DecodePolicyTest {
+    private static final int SOURCE = 1600;
+    private static final int TARGET = 200;
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+    private File mImage;
+
+    @Before
+    public void setUp() throws IOException {
+        ImageLoader.getInstance().init(RuntimeEnvironment.application, ImageLoaderConfig.newBuilder());
+        mImage = mFolder.newFile("photo.jpg");
+        ImageIO.write(new BufferedImage(SOURCE, SOURCE, BufferedImage.TYPE_INT_RGB), "jpg", mImage);
+    }
+
+    /**
+     * 在后台线程加载（Glide不允许在主线程同步等待），返回解码结果占用的字节数
+     */
+    private long decodedBytes(final DecodePolicy policy) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ImageResult result = executor.submit(new Callable<ImageResult>() {
+                @Override
+                public ImageResult call() throws Exception {
+                    ImageLoadFuture<ImageResult> future = ImageLoader.getInstance()
+                            .loadImageBitmapAsync(RuntimeEnvironment.application, mImage, TARGET, TARGET, policy);
+                    return future.get();
+                }
+            }).get();
+            long bytes = result.getBitmap().getAllocationByteCount();
+            result.getLease().release();
+            /*释放时清除请求被投递到主线程*/
+            shadowOf(Looper.getMainLooper()).idle();
+            return bytes;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void default_decodesAtViewSize() throws Exception {
+        assertEquals(TARGET * TARGET * 4, decodedBytes(null));
+        assertEquals(SOURCE * SOURCE * 4, decodedBytes(DecodePolicy.newBuilder().downsample(DecodePolicy.Downsample.NONE)));
+    }
+
+    @Test
+    public void rgb565_halvesBytes() throws Exception {
+        long argb = decodedBytes(DecodePolicy.newBuilder().format(DecodePolicy.Format.ARGB_8888));
+        long rgb565 = decodedBytes(DecodePolicy.newBuilder().format(DecodePolicy.Format.RGB_565));
+        assertEquals(TARGET * TARGET * 4, argb);
+        assertEquals(argb / 2, rgb565);
+    }
+
+    @Test
+    public void maxBytes_capsDecodedBytes() throws Exception {
+        long bytes = decodedBytes(DecodePolicy.newBuilder().downsample(DecodePolicy.Downsample.NONE).maxBytes(100_000));
+        assertTrue(bytes + " bytes", bytes <= 100_000);
+        assertTrue(bytes + " bytes", bytes > 0);
+    }
+}
@@ -0,0 +1,55 @@
+package com.cloudling.imageloader;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 缓存key规范化：地址改写、去掉片段、过滤和排序查询参数、尺寸参数按档位向上取整（超出最大档位时保留原值）
+ */
+public class DefaultCacheKeyNormalizerTest {
+    private final DefaultCacheKeyNormalizer mNormalizer = DefaultCacheKeyNormalizer.newBuilder()
+            .rewrite("^https://cdn[0-9]+\\.example\\.com/", "https://cdn.example.com/")
+            .dropParams("sign", "expires")
+            .sizeBuckets("w", 640, 160, 320);
+
+    @Test
+    public void rewrite_unifiesHosts() {
+        assertEquals("https://cdn.example.com/a.jpg", mNormalizer.normalize("https://cdn3.example.com/a.jpg"));
+    }
+
+    @Test
+    public void params_areFilteredAndSorted() {
+        assertEquals("https://cdn.example.com/a.jpg?q=80&t=1",
+                mNormalizer.normalize("https://cdn1.example.com/a.jpg?t=1&sign=abc&q=80&expires=99#top"));
+        assertEquals("https://cdn.example.com/a.jpg", mNormalizer.normalize("https://cdn1.example.com/a.jpg?sign=abc&&expires=1"));
+        assertEquals("https://img.example.com/a.jpg", mNormalizer.normalize("https://img.example.com/a.jpg#top"));
+    }
+
+    @Test
+    public void keepParams_dropsEverythingElse() {
+        DefaultCacheKeyNormalizer normalizer = DefaultCacheKeyNormalizer.newBuilder().keepParams("id");
+        assertEquals("https://img.example.com/p?id=7", normalizer.normalize("https://img.example.com/p?token=x&id=7&v=2"));
+    }
+
+    @Test
+    public void size_roundsUpWithinBuckets() {
+        assertEquals("https://img.example.com/a.jpg?w=160", mNormalizer.normalize("https://img.example.com/a.jpg?w=1"));
+        assertEquals("https://img.example.com/a.jpg?w=320", mNormalizer.normalize("https://img.example.com/a.jpg?w=317"));
+        assertEquals("https://img.example.com/a.jpg?w=320", mNormalizer.normalize("https://img.example.com/a.jpg?w=320"));
+        assertEquals("https://img.example.com/a.jpg?w=640", mNormalizer.normalize("https://img.example.com/a.jpg?w=321"));
+    }
+
+    @Test
+    public void size_aboveTopBucket_keepsOriginal() {
+        /*不能向下取到640，否则1080宽的请求会命中640宽图片的缓存*/
+        assertEquals("https://img.example.com/a.jpg?w=1080", mNormalizer.normalize("https://img.example.com/a.jpg?w=1080"));
+        assertEquals("https://img.example.com/a.jpg?w=0641", mNormalizer.normalize("https://img.example.com/a.jpg?w=0641"));
+    }
+
+    @Test
+    public void nonNumericSize_isKept() {
+        assertEquals("https://img.example.com/a.jpg?w=auto", mNormalizer.normalize("https://img.example.com/a.jpg?w=auto"));
+        assertEquals("https://img.example.com/a.jpg?w", mNormalizer.normalize("https://img.example.com/a.jpg?w"));
+    }
+}
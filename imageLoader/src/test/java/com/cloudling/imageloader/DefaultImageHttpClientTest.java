@@ -0,0 +1,132 @@
+package com.cloudling.imageloader;
+
+import com.bumptech.glide.load.HttpException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * 基于本地HTTP服务器：读取响应体、发送请求头、跟随重定向、错误状态码、完整读取后复用连接、取消正在进行的读取
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DefaultImageHttpClientTest {
+    private static final Map<String, String> NO_HEADERS = Collections.emptyMap();
+
+    private LocalHttpServer mServer;
+    private final DefaultImageHttpClient mClient = DefaultImageHttpClient.newBuilder();
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new LocalHttpServer();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.close();
+    }
+
+    static byte[] image(int length) {
+        byte[] body = new byte[length];
+        new Random(length).nextBytes(body);
+        return body;
+    }
+
+    static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) out.write(buffer, 0, read);
+        return out.toByteArray();
+    }
+
+    private byte[] get(String path, Map<String, String> headers) throws IOException {
+        ImageHttpCall call = mClient.newCall(mServer.url(path), headers, 0);
+        try {
+            return readFully(call.execute());
+        } finally {
+            call.close();
+        }
+    }
+
+    @Test
+    public void execute_returnsBodyAndSendsHeaders() throws IOException {
+        byte[] body = image(32 * 1024);
+        mServer.respond("/a.jpg", LocalHttpServer.Response.body(body));
+        assertArrayEquals(body, get("/a.jpg", Collections.singletonMap("X-Image-Token", "secret")));
+        assertEquals("secret", mServer.requests().get(0).get("x-image-token"));
+    }
+
+    @Test
+    public void redirect_isFollowed() throws IOException {
+        byte[] body = image(1024);
+        mServer.respond("/old.jpg", LocalHttpServer.Response.redirect("/new.jpg"));
+        mServer.respond("/new.jpg", LocalHttpServer.Response.body(body));
+        assertArrayEquals(body, get("/old.jpg", NO_HEADERS));
+        assertEquals("/new.jpg", mServer.requests().get(1).get(":path"));
+    }
+
+    @Test
+    public void errorStatus_throwsHttpException() throws IOException {
+        try {
+            get("/missing.jpg", NO_HEADERS);
+            fail();
+        } catch (HttpException e) {
+            assertEquals(404, e.getStatusCode());
+        }
+    }
+
+    @Test
+    public void exhaustedResponses_reuseConnection() throws IOException {
+        mServer.respond("/a.jpg", LocalHttpServer.Response.body(image(16 * 1024)));
+        mServer.respond("/b.jpg", LocalHttpServer.Response.body(image(8 * 1024)));
+        /*错误响应的响应体被丢弃后连接同样可以复用*/
+        mServer.respond("/gone.jpg", LocalHttpServer.Response.status(410));
+        get("/a.jpg", NO_HEADERS);
+        try {
+            get("/gone.jpg", NO_HEADERS);
+            fail();
+        } catch (HttpException expected) {
+        }
+        get("/b.jpg", NO_HEADERS);
+        assertEquals(3, mServer.requests().size());
+        assertEquals(1, mServer.connectionCount());
+    }
+
+    @Test
+    public void cancel_abortsReadAndDropsConnection() throws IOException {
+        CountDownLatch stall = new CountDownLatch(1);
+        mServer.respond("/slow.jpg", LocalHttpServer.Response.stalled(image(64 * 1024), stall));
+        mServer.respond("/a.jpg", LocalHttpServer.Response.body(image(1024)));
+        ImageHttpCall call = mClient.newCall(mServer.url("/slow.jpg"), NO_HEADERS, 0);
+        InputStream stream = call.execute();
+        assertEquals(1024, stream.read(new byte[1024]));
+        call.cancel();
+        try {
+            stream.read(new byte[1024]);
+            fail();
+        } catch (IOException e) {
+            assertEquals("Canceled", e.getMessage());
+        }
+        call.close();
+        /*没有读完的连接不能复用。主机JVM的HttpURLConnection关闭时会在后台读完剩余的响应体再放回连接池，
+        响应体发送完之前发起下一个请求，结果不取决于后台读取的快慢*/
+        get("/a.jpg", NO_HEADERS);
+        assertEquals(2, mServer.connectionCount());
+        stall.countDown();
+    }
+}
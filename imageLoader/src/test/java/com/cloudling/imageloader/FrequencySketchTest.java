@@ -0,0 +1,45 @@
+package com.cloudling.imageloader;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 频率估算：计数递增、上限15、累计一定次数后减半
+ */
+public class FrequencySketchTest {
+
+    @Test
+    public void increment_raisesFrequencyUpToMax() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        assertEquals(0, sketch.frequency("a"));
+        for (int i = 1; i <= 20; i++) {
+            sketch.increment("a");
+            assertEquals(Math.min(i, 15), sketch.frequency("a"));
+        }
+    }
+
+    @Test
+    public void frequency_isPerKey() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        for (int i = 0; i < 5; i++) sketch.increment("hot");
+        sketch.increment("cold");
+        assertEquals(5, sketch.frequency("hot"));
+        assertEquals(1, sketch.frequency("cold"));
+    }
+
+    @Test
+    public void frequency_decaysAfterSamplePeriod() {
+        FrequencySketch sketch = new FrequencySketch(64);
+        for (int i = 0; i < 15; i++) sketch.increment("hot");
+        assertEquals(15, sketch.frequency("hot"));
+        /*64个计数器，64次有效递增后全部减半*/
+        boolean decayed = false;
+        for (int i = 0; i < 64 * 10 && !decayed; i++) {
+            sketch.increment("key" + i);
+            decayed = sketch.frequency("hot") < 15;
+        }
+        assertTrue(decayed);
+    }
+}
@@ -0,0 +1,211 @@
+package com.cloudling.imageloader;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.model.GlideUrl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 域名名额已满时loadData排队后立即返回，不阻塞Glide的加载线程；
+ * 名额在响应体读完、关闭、cleanup或请求失败时释放，排队中取消的请求不再回调
+ */
+@RunWith(RobolectricTestRunner.class)
+public class GlideHttpFetcherTest {
+    private static final long TIMEOUT = 5000;
+
+    private LocalHttpServer mServer;
+    private final HttpHostLimiter mLimiter = new HttpHostLimiter(1);
+    private final NegativeCache mNegativeCache = new NegativeCache(16);
+    private final byte[] mBody = DefaultImageHttpClientTest.image(16 * 1024);
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new LocalHttpServer();
+        mServer.respond("/a.jpg", LocalHttpServer.Response.body(mBody));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.close();
+    }
+
+    private GlideHttpFetcher fetcher(String path) {
+        return new GlideHttpFetcher(DefaultImageHttpClient.newBuilder(), mLimiter, mNegativeCache, new GlideUrl(mServer.url(path)));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void fullHost_queuesWithoutBlocking() throws Exception {
+        GlideHttpFetcher running = fetcher("/a.jpg");
+        Callback first = new Callback();
+        running.loadData(Priority.NORMAL, first);
+        assertTrue(first.done());
+        GlideHttpFetcher queued = fetcher("/a.jpg");
+        Callback second = new Callback();
+        /*在名额满时返回，说明没有阻塞调用线程*/
+        queued.loadData(Priority.LOW, second);
+        assertFalse(second.done());
+        /*读完响应体即释放名额，不必等待cleanup*/
+        assertArrayEquals(mBody, DefaultImageHttpClientTest.readFully(first.data));
+        second.await();
+        assertEquals("image-http", second.thread);
+        assertArrayEquals(mBody, DefaultImageHttpClientTest.readFully(second.data));
+        running.cleanup();
+        queued.cleanup();
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void cleanup_releasesUnreadResponse() throws Exception {
+        GlideHttpFetcher running = fetcher("/a.jpg");
+        running.loadData(Priority.NORMAL, new Callback());
+        Callback queued = new Callback();
+        fetcher("/a.jpg").loadData(Priority.NORMAL, queued);
+        running.cleanup();
+        queued.await();
+        assertNotNull(queued.data);
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void cancelWhileQueued_skipsCallbackAndSlot() throws Exception {
+        GlideHttpFetcher running = fetcher("/a.jpg");
+        Callback first = new Callback();
+        running.loadData(Priority.NORMAL, first);
+        GlideHttpFetcher cancelled = fetcher("/a.jpg");
+        Callback cancelledCallback = new Callback();
+        cancelled.loadData(Priority.HIGH, cancelledCallback);
+        Callback next = new Callback();
+        fetcher("/a.jpg").loadData(Priority.LOW, next);
+        cancelled.cancel();
+        first.data.close();
+        next.await();
+        assertNotNull(next.data);
+        assertFalse(cancelledCallback.done());
+        running.cleanup();
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void failure_releasesSlot() throws Exception {
+        Callback failed = new Callback();
+        fetcher("/missing.jpg").loadData(Priority.NORMAL, failed);
+        assertNotNull(failed.error);
+        Callback next = new Callback();
+        fetcher("/a.jpg").loadData(Priority.NORMAL, next);
+        assertTrue(next.done());
+        assertNotNull(next.data);
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void metricsSink_recordsFetchTimeWhenBodyIsRead() throws Exception {
+        HistogramMetricsSink sink = new HistogramMetricsSink();
+        ImageLoader.getInstance().setMetricsSink(sink);
+        try {
+            GlideHttpFetcher fetcher = fetcher("/a.jpg");
+            Callback callback = new Callback();
+            fetcher.loadData(Priority.NORMAL, callback);
+            assertEquals(0, sink.getFetchTimes().count());
+            DefaultImageHttpClientTest.readFully(callback.data);
+            callback.data.close();
+            fetcher.cleanup();
+            assertEquals(1, sink.getFetchTimes().count());
+            assertEquals(1, sink.getFetchQueueTimes().count());
+            /*失败的下载不记录*/
+            fetcher("/missing.jpg").loadData(Priority.NORMAL, new Callback());
+            assertEquals(1, sink.getFetchTimes().count());
+        } finally {
+            ImageLoader.getInstance().setMetricsSink(null);
+        }
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void clientRuntimeException_failsAndReleasesSlot() throws Exception {
+        final IllegalArgumentException invalid = new IllegalArgumentException("unexpected url");
+        ImageHttpClient throwingNewCall = new ImageHttpClient() {
+            @Override
+            public ImageHttpCall newCall(String url, Map<String, String> headers, int priority) {
+                throw invalid;
+            }
+        };
+        ImageHttpClient throwingExecute = new ImageHttpClient() {
+            @Override
+            public ImageHttpCall newCall(String url, Map<String, String> headers, int priority) {
+                return new ImageHttpCall() {
+                    @Override
+                    public InputStream execute() {
+                        throw invalid;
+                    }
+
+                    @Override
+                    public void cancel() {
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+        };
+        for (ImageHttpClient client : new ImageHttpClient[]{throwingNewCall, throwingExecute}) {
+            Callback failed = new Callback();
+            new GlideHttpFetcher(client, mLimiter, mNegativeCache, new GlideUrl(mServer.url("/a.jpg"))).loadData(Priority.NORMAL, failed);
+            assertTrue(failed.error instanceof IOException);
+            assertSame(invalid, failed.error.getCause());
+            /*名额已释放，同一域名（每个域名1个名额）的下一个请求直接执行*/
+            Callback next = new Callback();
+            GlideHttpFetcher fetcher = fetcher("/a.jpg");
+            fetcher.loadData(Priority.NORMAL, next);
+            assertTrue(next.done());
+            assertNotNull(next.data);
+            fetcher.cleanup();
+        }
+        assertEquals(2, mNegativeCache.getFailureCount(ImageFailure.Kind.NETWORK));
+    }
+
+    private static final class Callback implements DataFetcher.DataCallback<InputStream> {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        volatile InputStream data;
+        volatile Exception error;
+        volatile String thread;
+
+        @Override
+        public void onDataReady(@Nullable InputStream data) {
+            this.data = data;
+            thread = Thread.currentThread().getName();
+            latch.countDown();
+        }
+
+        @Override
+        public void onLoadFailed(@NonNull Exception e) {
+            error = e;
+            thread = Thread.currentThread().getName();
+            latch.countDown();
+        }
+
+        boolean done() {
+            return latch.getCount() == 0;
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(latch.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.cloudling.imageloader;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.widget.ImageView;
+
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.resource.bitmap.BitmapEncoder;
+import com.bumptech.glide.request.RequestOptions;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 相同参数的请求复用同一个RequestOptions、transform和请求监听，不在每次加载时重新创建
+ */
+@RunWith(RobolectricTestRunner.class)
+public class GlideOptionsCacheTest {
+    private final GlideOptionsCache mCache = new GlideOptionsCache();
+
+    private RequestOptions round(float radius, ImageView.ScaleType scaleType) {
+        return mCache.get(ImageShapeType.ROUND, radius, radius, radius, radius, scaleType, 0, 0, false, null);
+    }
+
+    @Test
+    public void sameArguments_returnSameOptions() {
+        RequestOptions options = round(12, ImageView.ScaleType.CENTER_CROP);
+        assertSame(options, round(12, ImageView.ScaleType.CENTER_CROP));
+        assertSame(transform(options), transform(round(12, ImageView.ScaleType.CENTER_CROP)));
+        assertSame(mCache.get(ImageShapeType.CIRCLE, 0, 0, 0, 0, null, 0, 0, false, null),
+                mCache.get(ImageShapeType.CIRCLE, 0, 0, 0, 0, null, 0, 0, false, null));
+    }
+
+    @Test
+    public void negativeZero_sharesOptionsWithZero() {
+        assertSame(round(0f, ImageView.ScaleType.CENTER_CROP), round(-0f, ImageView.ScaleType.CENTER_CROP));
+    }
+
+    @Test
+    public void circle_ignoresScaleType() {
+        assertSame(mCache.get(ImageShapeType.CIRCLE, 0, 0, 0, 0, ImageView.ScaleType.CENTER_CROP, 0, 0, false, null),
+                mCache.get(ImageShapeType.CIRCLE, 0, 0, 0, 0, ImageView.ScaleType.FIT_CENTER, 0, 0, false, null));
+    }
+
+    @Test
+    public void differentArguments_returnDifferentOptions() {
+        RequestOptions options = round(12, ImageView.ScaleType.CENTER_CROP);
+        assertNotSame(options, round(8, ImageView.ScaleType.CENTER_CROP));
+        assertNotSame(options, round(12, ImageView.ScaleType.FIT_CENTER));
+        assertNotSame(options, mCache.get(ImageShapeType.ROUND, 12, 12, 12, 12, ImageView.ScaleType.CENTER_CROP, 1, 0, false, null));
+        assertNotSame(options, mCache.get(ImageShapeType.ROUND, 12, 12, 12, 12, ImageView.ScaleType.CENTER_CROP, 0, 0, false,
+                DecodePolicy.newBuilder().format(DecodePolicy.Format.RGB_565)));
+    }
+
+    @Test
+    public void drawTime_sharesOptionsAcrossRadii() {
+        assertSame(mCache.get(ImageShapeType.ROUND, 4, 4, 4, 4, ImageView.ScaleType.CENTER_CROP, 0, 0, true, null),
+                mCache.get(ImageShapeType.ROUND, 16, 16, 16, 16, ImageView.ScaleType.CENTER_CROP, 0, 0, true, null));
+    }
+
+    @Test
+    public void setConfig_evictsCachedOptions() {
+        RequestOptions options = round(12, ImageView.ScaleType.CENTER_CROP);
+        mCache.setConfig(ImageLoaderConfig.newBuilder());
+        RequestOptions recreated = round(12, ImageView.ScaleType.CENTER_CROP);
+        assertNotSame(options, recreated);
+        assertSame(recreated, round(12, ImageView.ScaleType.CENTER_CROP));
+    }
+
+    @Test
+    public void shapeDiskCache_isOptInAndLossless() {
+        mCache.setConfig(ImageLoaderConfig.newBuilder());
+        assertSame(DiskCacheStrategy.AUTOMATIC, round(12, ImageView.ScaleType.CENTER_CROP).getDiskCacheStrategy());
+        mCache.setConfig(ImageLoaderConfig.newBuilder().shapeDiskCache(true));
+        RequestOptions options = round(12, ImageView.ScaleType.CENTER_CROP);
+        assertSame(DiskCacheStrategy.ALL, options.getDiskCacheStrategy());
+        assertSame(Build.VERSION.SDK_INT >= Build.VERSION_CODES.R ? Bitmap.CompressFormat.WEBP_LOSSLESS : Bitmap.CompressFormat.PNG,
+                options.getOptions().get(BitmapEncoder.COMPRESSION_FORMAT));
+    }
+
+    @Test
+    public void requestListener_isPooledPerCallbackAndShape() {
+        ImageLoaderCallback<ImageResult> callback = new ImageLoaderCallback<ImageResult>() {
+            @Override
+            public void onSuccess(ImageResult... result) {
+            }
+
+            @Override
+            public void onFailure(ImageResult... result) {
+            }
+
+            @Override
+            public void onCancel(ImageResult... result) {
+            }
+        };
+        GlideRequestListener<Bitmap> listener = GlideRequestListener.obtain(callback, ImageShapeType.ROUND);
+        assertSame(listener, GlideRequestListener.<Bitmap>obtain(callback, ImageShapeType.ROUND));
+        assertNotSame(listener, GlideRequestListener.<Bitmap>obtain(callback, ImageShapeType.CIRCLE));
+        assertNull(GlideRequestListener.<Bitmap>obtain(null, ImageShapeType.ROUND));
+    }
+
+    private static Transformation<?> transform(RequestOptions options) {
+        return options.getTransformations().get(Bitmap.class);
+    }
+}
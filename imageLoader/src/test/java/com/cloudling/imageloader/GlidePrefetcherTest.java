@@ -0,0 +1,239 @@
+package com.cloudling.imageloader;
+
+import android.app.Activity;
+import android.os.Looper;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
+
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.target.Target;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 预加载：之后同尺寸、同形状的显示请求命中内存缓存；按地址去重、限制并发数、取消滑出窗口的预加载；
+ * 预加载不跟随页面生命周期，页面销毁后仍可调度和取消
+ */
+@RunWith(RobolectricTestRunner.class)
+public class GlidePrefetcherTest {
+    private static final int SIZE = 100;
+    private static final long TIMEOUT_MS = 10_000;
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+    private final RequestOptions mOptions = new RequestOptions();
+    private Activity mActivity;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+    }
+
+    private File image(String name) throws IOException {
+        File file = mFolder.newFile(name);
+        ImageIO.write(new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB), "jpg", file);
+        return file;
+    }
+
+    /**
+     * 不存在的文件，加载很快失败，不访问网络
+     */
+    private List<File> missing(int count) {
+        List<File> files = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) files.add(new File(mFolder.getRoot(), "missing-" + i + ".jpg"));
+        return files;
+    }
+
+    private static Map<Object, Object> running(GlidePrefetcher prefetcher) {
+        return ReflectionHelpers.getField(prefetcher, "mRunning");
+    }
+
+    private static Map<Object, Object> pending(GlidePrefetcher prefetcher) {
+        return ReflectionHelpers.getField(prefetcher, "mPending");
+    }
+
+    private static int maxConcurrent() {
+        return ReflectionHelpers.getStaticField(GlidePrefetcher.class, "MAX_CONCURRENT");
+    }
+
+    /**
+     * 运行主线程消息直到全部预加载完成（结果在主线程回调，完成后下一帧调度排队的预加载），返回期间同时进行的最大预加载数
+     */
+    private static int drain(GlidePrefetcher prefetcher) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        int max = running(prefetcher).size();
+        while (!running(prefetcher).isEmpty() || !pending(prefetcher).isEmpty()) {
+            assertTrue("prefetch timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+            shadowOf(Looper.getMainLooper()).idle();
+            max = Math.max(max, running(prefetcher).size());
+        }
+        /*PreloadTarget在下一条主线程消息中清除请求，结果进入内存缓存*/
+        shadowOf(Looper.getMainLooper()).idle();
+        return max;
+    }
+
+    private ImageView view(ImageView.ScaleType scaleType) {
+        ImageView view = new ImageView(mActivity);
+        view.setScaleType(scaleType);
+        FrameLayout root = new FrameLayout(mActivity);
+        root.addView(view, new FrameLayout.LayoutParams(SIZE, SIZE));
+        mActivity.setContentView(root);
+        shadowOf(Looper.getMainLooper()).idle();
+        return view;
+    }
+
+    /**
+     * 通过ImageLoader预加载后在同尺寸的视图上显示，返回显示请求的结果
+     */
+    private ImageResult prefetchThenShow(File file, ImageShape shape, ImageView view, final float[] radius) throws InterruptedException {
+        ImageLoader.getInstance().init(RuntimeEnvironment.application, ImageLoaderConfig.newBuilder());
+        ImageLoader.getInstance().prefetch(mActivity, Collections.singletonList(file), SIZE, SIZE, shape);
+        Object strategy = ReflectionHelpers.getField(ImageLoader.getInstance(), "mStrategy");
+        drain(ReflectionHelpers.<GlidePrefetcher>getField(strategy, "mPrefetcher"));
+        final ImageResult[] result = new ImageResult[1];
+        ImageLoaderCallback<ImageResult> callback = new ImageLoaderCallback<ImageResult>() {
+            @Override
+            public void onSuccess(ImageResult... results) {
+                result[0] = results[0];
+            }
+
+            @Override
+            public void onFailure(ImageResult... results) {
+                throw new AssertionError("onFailure");
+            }
+
+            @Override
+            public void onCancel(ImageResult... results) {
+                throw new AssertionError("onCancel");
+            }
+        };
+        if (radius == null) {
+            ImageLoader.getInstance().circle(mActivity, file, view, callback);
+        } else {
+            ImageLoader.getInstance().round(mActivity, file, view, radius, callback);
+        }
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (result[0] == null) {
+            assertTrue("load timed out", System.currentTimeMillis() < deadline);
+            shadowOf(Looper.getMainLooper()).idle();
+            if (result[0] == null) Thread.sleep(5);
+        }
+        return result[0];
+    }
+
+    @Test
+    public void round_afterPrefetch_hitsMemoryCache() throws Exception {
+        ImageView view = view(ImageView.ScaleType.CENTER_CROP);
+        ImageResult result = prefetchThenShow(image("round.jpg"), ImageShape.round(8, ImageView.ScaleType.CENTER_CROP), view, new float[]{8, 8, 8, 8});
+        assertEquals(ImageResult.Source.MEMORY, result.getSource());
+        assertEquals(ImageShapeType.ROUND, result.getShape());
+    }
+
+    @Test
+    public void circle_afterPrefetch_hitsMemoryCache() throws Exception {
+        ImageView view = view(ImageView.ScaleType.FIT_CENTER);
+        ImageResult result = prefetchThenShow(image("circle.jpg"), ImageShape.circle(), view, null);
+        assertEquals(ImageResult.Source.MEMORY, result.getSource());
+        assertEquals(ImageShapeType.CIRCLE, result.getShape());
+    }
+
+    @Test
+    public void round_scaleTypeMismatch_missesMemoryCache() throws Exception {
+        /*圆角的缓存key包含scaleType：预加载的形状需使用与显示的ImageView一致的scaleType*/
+        ImageView view = view(ImageView.ScaleType.FIT_CENTER);
+        ImageResult result = prefetchThenShow(image("mismatch.jpg"), ImageShape.round(8, ImageView.ScaleType.CENTER_CROP), view, new float[]{8, 8, 8, 8});
+        assertNotEquals(ImageResult.Source.MEMORY, result.getSource());
+    }
+
+    @Test
+    public void duplicates_arePrefetchedOnce() {
+        GlidePrefetcher prefetcher = new GlidePrefetcher();
+        List<File> files = missing(3);
+        prefetcher.prefetch(mActivity, Arrays.asList(files.get(0), files.get(0), files.get(1)), SIZE, SIZE, mOptions);
+        assertEquals(2, running(prefetcher).size());
+        Object first = running(prefetcher).get(files.get(0));
+        /*正在进行的预加载再次出现在窗口中时不重新发起*/
+        prefetcher.prefetch(mActivity, files, SIZE, SIZE, mOptions);
+        assertEquals(3, running(prefetcher).size());
+        assertSame(first, running(prefetcher).get(files.get(0)));
+        prefetcher.prefetch(mActivity, Collections.emptyList(), SIZE, SIZE, mOptions);
+    }
+
+    @Test
+    public void concurrency_isCapped() throws Exception {
+        GlidePrefetcher prefetcher = new GlidePrefetcher();
+        int count = maxConcurrent() + 3;
+        prefetcher.prefetch(mActivity, missing(count), SIZE, SIZE, mOptions);
+        assertEquals(maxConcurrent(), running(prefetcher).size());
+        assertEquals(3, pending(prefetcher).size());
+        /*完成后调度排队的预加载，同时进行的数量不超过上限*/
+        assertEquals(maxConcurrent(), drain(prefetcher));
+    }
+
+    @Test
+    public void newWindow_cancelsPrefetchesOutsideIt() {
+        GlidePrefetcher prefetcher = new GlidePrefetcher();
+        List<File> files = missing(maxConcurrent() + 2);
+        prefetcher.prefetch(mActivity, files, SIZE, SIZE, mOptions);
+        Target<?> scrolledOut = ReflectionHelpers.getField(running(prefetcher).get(files.get(0)), "target");
+        Target<?> kept = ReflectionHelpers.getField(running(prefetcher).get(files.get(1)), "target");
+        assertNotNull(scrolledOut.getRequest());
+        /*第一项和排队中的最后一项滑出窗口*/
+        List<File> window = new ArrayList<>(files.subList(1, files.size() - 1));
+        prefetcher.prefetch(mActivity, window, SIZE, SIZE, mOptions);
+        assertNull(scrolledOut.getRequest());
+        assertNotNull(kept.getRequest());
+        assertFalse(running(prefetcher).containsKey(files.get(0)));
+        assertFalse(pending(prefetcher).containsKey(files.get(files.size() - 1)));
+        /*空出的名额给窗口内排队的预加载*/
+        assertEquals(maxConcurrent(), running(prefetcher).size());
+        assertTrue(running(prefetcher).keySet().containsAll(window));
+        prefetcher.prefetch(mActivity, Collections.emptyList(), SIZE, SIZE, mOptions);
+        assertNull(kept.getRequest());
+        assertTrue(running(prefetcher).isEmpty());
+    }
+
+    @Test
+    public void destroyedActivity_doesNotBreakScheduling() {
+        ActivityController<Activity> controller = Robolectric.buildActivity(Activity.class).setup();
+        Activity activity = controller.get();
+        GlidePrefetcher prefetcher = new GlidePrefetcher();
+        RequestOptions options = new RequestOptions();
+        prefetcher.prefetch(activity, Arrays.asList("https://example.com/1.jpg", "https://example.com/2.jpg"), 100, 100, options);
+        controller.pause().stop().destroy();
+        /*之前使用页面的RequestManager，页面销毁后Glide.with(activity)抛出IllegalArgumentException*/
+        prefetcher.prefetch(activity, Arrays.asList("https://example.com/3.jpg", "https://example.com/4.jpg",
+                "https://example.com/5.jpg", "https://example.com/6.jpg", "https://example.com/7.jpg"), 100, 100, options);
+        prefetcher.prefetch(activity, Collections.emptyList(), 100, 100, options);
+    }
+}
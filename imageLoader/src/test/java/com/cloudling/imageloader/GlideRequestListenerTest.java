@@ -0,0 +1,154 @@
+package com.cloudling.imageloader;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.widget.ImageView;
+
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter;
+import com.bumptech.glide.load.resource.bitmap.CircleCrop;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 形状处理耗时只由主请求的监听上报：缩略图、错误占位图和预加载使用同样的形状处理但不上报，内存缓存命中时不上报；
+ * 未开启统计时按回调对象复用监听，还有监听在使用时复用的数组不被回收，回调对象不再使用后一起回收
+ */
+@RunWith(RobolectricTestRunner.class)
+public class GlideRequestListenerTest {
+    private final HistogramMetricsSink mSink = new HistogramMetricsSink();
+    private final BitmapPool mPool = new BitmapPoolAdapter();
+    private final Resources mResources = RuntimeEnvironment.application.getResources();
+    private final Bitmap mSource = Bitmap.createBitmap(120, 80, Bitmap.Config.ARGB_8888);
+
+    @Before
+    public void setUp() {
+        ImageLoader.getInstance().setMetricsSink(mSink);
+    }
+
+    @After
+    public void tearDown() {
+        ImageLoader.getInstance().setMetricsSink(null);
+    }
+
+    private void deliver(ImageShapeType shape, Bitmap result, DataSource dataSource) {
+        GlideRequestListener<Drawable> listener = GlideRequestListener.obtain(null, shape);
+        listener.onResourceReady(new BitmapDrawable(mResources, result), "https://example.com/a.jpg", null, dataSource, true);
+    }
+
+    @Test
+    public void round_reportsPrimaryRequestOnly() {
+        GlideRoundTransform transform = new GlideRoundTransform(8, ImageView.ScaleType.CENTER_CROP);
+        Bitmap primary = transform.transform(mPool, mSource, 60, 60);
+        /*缩略图使用同一个形状处理，结果不经过主请求的监听*/
+        transform.transform(mPool, mSource, 12, 12);
+        assertEquals(0, mSink.getTransformTimes(ImageShapeType.ROUND).count());
+        deliver(ImageShapeType.ROUND, primary, DataSource.REMOTE);
+        assertEquals(1, mSink.getTransformTimes(ImageShapeType.ROUND).count());
+        /*同一个结果之后从内存缓存命中，没有再次处理*/
+        deliver(ImageShapeType.ROUND, primary, DataSource.MEMORY_CACHE);
+        assertEquals(1, mSink.getTransformTimes(ImageShapeType.ROUND).count());
+        assertEquals(2, mSink.getLoadTimes(ImageShapeType.ROUND).count());
+    }
+
+    @Test
+    public void memoryHitAfterPrefetch_doesNotReportPrefetchTransform() {
+        /*预加载完成处理后结果进入内存缓存，之后的显示请求命中内存缓存*/
+        Bitmap prefetched = new GlideRoundTransform(8, ImageView.ScaleType.CENTER_CROP).transform(mPool, mSource, 60, 60);
+        deliver(ImageShapeType.ROUND, prefetched, DataSource.MEMORY_CACHE);
+        assertEquals(0, mSink.getTransformTimes(ImageShapeType.ROUND).count());
+    }
+
+    @Test
+    public void circle_reportsTransformTime() {
+        GlideCircleTransform transform = new GlideCircleTransform();
+        /*与Glide的CircleCrop共用缓存key*/
+        assertEquals(new CircleCrop(), transform);
+        assertEquals(new CircleCrop().hashCode(), transform.hashCode());
+        Bitmap primary = transform.transform(mPool, mSource, 60, 60);
+        deliver(ImageShapeType.CIRCLE, primary, DataSource.DATA_DISK_CACHE);
+        assertEquals(1, mSink.getTransformTimes(ImageShapeType.CIRCLE).count());
+        assertEquals(0, mSink.getTransformTimes(ImageShapeType.ROUND).count());
+    }
+
+    @Test
+    public void withoutSink_transformIsNotRecorded() {
+        ImageLoader.getInstance().setMetricsSink(null);
+        Bitmap primary = new GlideCircleTransform().transform(mPool, mSource, 60, 60);
+        ImageLoader.getInstance().setMetricsSink(mSink);
+        deliver(ImageShapeType.CIRCLE, primary, DataSource.REMOTE);
+        assertEquals(0, mSink.getTransformTimes(ImageShapeType.CIRCLE).count());
+    }
+
+    @Test
+    public void pooledListeners_surviveGcWhileInUse() {
+        ImageLoader.getInstance().setMetricsSink(null);
+        ImageLoaderCallback<ImageResult> callback = new NoopCallback();
+        /*视图上的请求持有其中一个监听*/
+        GlideRequestListener<Drawable> round = GlideRequestListener.obtain(callback, ImageShapeType.ROUND);
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            System.runFinalization();
+        }
+        assertSame(round, GlideRequestListener.obtain(callback, ImageShapeType.ROUND));
+        GlideRequestListener<Drawable> circle = GlideRequestListener.obtain(callback, ImageShapeType.CIRCLE);
+        assertNotNull(circle);
+        assertSame(circle, GlideRequestListener.obtain(callback, ImageShapeType.CIRCLE));
+    }
+
+    @Test
+    public void pooledListeners_areReleasedWithCallback() throws InterruptedException {
+        ImageLoader.getInstance().setMetricsSink(null);
+        WeakReference<ImageLoaderCallback<ImageResult>> callback = pooledCallback();
+        Map<?, ?> pool = ReflectionHelpers.getStaticField(GlideRequestListener.class, "sPool");
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (callback.get() != null && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(callback.get());
+        synchronized (pool) {
+            assertEquals(0, pool.size());
+        }
+    }
+
+    /**
+     * 复用监听后丢弃回调对象和监听，返回回调对象的弱引用
+     */
+    private static WeakReference<ImageLoaderCallback<ImageResult>> pooledCallback() {
+        ImageLoaderCallback<ImageResult> callback = new NoopCallback();
+        for (ImageShapeType shape : ImageShapeType.values()) assertNotNull(GlideRequestListener.obtain(callback, shape));
+        return new WeakReference<>(callback);
+    }
+
+    private static final class NoopCallback implements ImageLoaderCallback<ImageResult> {
+        @Override
+        public void onSuccess(ImageResult... result) {
+        }
+
+        @Override
+        public void onFailure(ImageResult... result) {
+        }
+
+        @Override
+        public void onCancel(ImageResult... result) {
+        }
+    }
+}
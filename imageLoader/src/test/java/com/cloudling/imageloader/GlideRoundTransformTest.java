@@ -0,0 +1,170 @@
+package com.cloudling.imageloader;
+
+import android.graphics.Bitmap;
+import android.widget.ImageView;
+
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.target.Target;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * GlideRoundTransform的缓存标识：内存缓存key（equals/hashCode）和磁盘缓存key（updateDiskCacheKey），
+ * 以及通过Glide加载时相同的圆角命中内存缓存、不同的圆角不命中
+ */
+@RunWith(RobolectricTestRunner.class)
+public class GlideRoundTransformTest {
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void sameRadiiAndScaleType_areEqual() {
+        GlideRoundTransform a = new GlideRoundTransform(1, 2, 3, 4, ImageView.ScaleType.CENTER_CROP);
+        GlideRoundTransform b = new GlideRoundTransform(1, 2, 3, 4, ImageView.ScaleType.CENTER_CROP);
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertArrayEquals(diskKey(a), diskKey(b));
+    }
+
+    @Test
+    public void uniformRadius_equalsSameFourRadii() {
+        GlideRoundTransform a = new GlideRoundTransform(8, ImageView.ScaleType.FIT_CENTER);
+        GlideRoundTransform b = new GlideRoundTransform(8, 8, 8, 8, ImageView.ScaleType.FIT_CENTER);
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertArrayEquals(diskKey(a), diskKey(b));
+    }
+
+    @Test
+    public void differentRadius_isNotEqual() {
+        GlideRoundTransform base = new GlideRoundTransform(1, 2, 3, 4, ImageView.ScaleType.CENTER_CROP);
+        GlideRoundTransform[] others = {
+                new GlideRoundTransform(9, 2, 3, 4, ImageView.ScaleType.CENTER_CROP),
+                new GlideRoundTransform(1, 9, 3, 4, ImageView.ScaleType.CENTER_CROP),
+                new GlideRoundTransform(1, 2, 9, 4, ImageView.ScaleType.CENTER_CROP),
+                new GlideRoundTransform(1, 2, 3, 9, ImageView.ScaleType.CENTER_CROP),
+                /*同样的四个值换了位置*/
+                new GlideRoundTransform(4, 3, 2, 1, ImageView.ScaleType.CENTER_CROP),
+        };
+        for (GlideRoundTransform other : others) {
+            assertNotEquals(base, other);
+            assertFalse(Arrays.equals(diskKey(base), diskKey(other)));
+        }
+    }
+
+    @Test
+    public void negativeZero_equalsZero() {
+        GlideRoundTransform zero = new GlideRoundTransform(0f, 0f, 0f, 0f, ImageView.ScaleType.CENTER_CROP);
+        GlideRoundTransform negativeZero = new GlideRoundTransform(-0f, -0f, -0f, -0f, ImageView.ScaleType.CENTER_CROP);
+        assertEquals(zero, negativeZero);
+        assertEquals(zero.hashCode(), negativeZero.hashCode());
+        assertArrayEquals(diskKey(zero), diskKey(negativeZero));
+    }
+
+    @Test
+    public void differentScaleType_isNotEqual() {
+        ImageView.ScaleType[] types = {null, ImageView.ScaleType.CENTER_CROP, ImageView.ScaleType.FIT_CENTER, ImageView.ScaleType.CENTER_INSIDE};
+        for (ImageView.ScaleType first : types) {
+            for (ImageView.ScaleType second : types) {
+                if (first == second) continue;
+                GlideRoundTransform a = new GlideRoundTransform(5, 5, 5, 5, first);
+                GlideRoundTransform b = new GlideRoundTransform(5, 5, 5, 5, second);
+                assertNotEquals(a, b);
+                assertFalse(Arrays.equals(diskKey(a), diskKey(b)));
+            }
+        }
+    }
+
+    @Test
+    public void equalTransforms_produceEqualRequestOptions() {
+        /*RequestOptions参与Glide内存缓存key（EngineKey）的计算，相同时第二次请求可以命中内存缓存*/
+        RequestOptions first = new RequestOptions().transform(new GlideRoundTransform(6, ImageView.ScaleType.CENTER_CROP));
+        RequestOptions second = new RequestOptions().transform(new GlideRoundTransform(6, ImageView.ScaleType.CENTER_CROP));
+        RequestOptions other = new RequestOptions().transform(new GlideRoundTransform(7, ImageView.ScaleType.CENTER_CROP));
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertNotEquals(first, other);
+    }
+
+    @Test
+    public void equalTransforms_hitMemoryCache() throws Exception {
+        File image = mFolder.newFile("photo.jpg");
+        ImageIO.write(new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB), "jpg", image);
+        assertEquals(DataSource.LOCAL, load(image, new GlideRoundTransform(6, ImageView.ScaleType.CENTER_CROP)));
+        /*新建的相等的transform与第一次加载的结果使用同一个内存缓存key*/
+        assertEquals(DataSource.MEMORY_CACHE, load(image, new GlideRoundTransform(6, ImageView.ScaleType.CENTER_CROP)));
+        assertEquals(DataSource.MEMORY_CACHE, load(image, new GlideRoundTransform(6, 6, 6, 6, ImageView.ScaleType.CENTER_CROP)));
+        assertEquals(DataSource.LOCAL, load(image, new GlideRoundTransform(7, ImageView.ScaleType.CENTER_CROP)));
+    }
+
+    /**
+     * 在后台线程通过Glide加载（Glide不允许在主线程同步等待），返回结果的来源；不使用磁盘缓存，未命中内存缓存时从文件解码
+     */
+    private static DataSource load(final File image, final GlideRoundTransform transform) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(new Callable<DataSource>() {
+                @Override
+                public DataSource call() throws Exception {
+                    final DataSource[] source = new DataSource[1];
+                    Glide.with(RuntimeEnvironment.application).asBitmap().load(image)
+                            .apply(new RequestOptions().diskCacheStrategy(DiskCacheStrategy.NONE).transform(transform))
+                            .listener(new RequestListener<Bitmap>() {
+                                @Override
+                                public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Bitmap> target, boolean isFirstResource) {
+                                    return false;
+                                }
+
+                                @Override
+                                public boolean onResourceReady(Bitmap resource, Object model, Target<Bitmap> target, DataSource dataSource, boolean isFirstResource) {
+                                    source[0] = dataSource;
+                                    return false;
+                                }
+                            })
+                            .submit(60, 60).get();
+                    return source[0];
+                }
+            }).get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static byte[] diskKey(GlideRoundTransform transform) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            transform.updateDiskCacheKey(digest);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
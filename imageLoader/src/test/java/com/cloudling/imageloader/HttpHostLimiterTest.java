@@ -0,0 +1,104 @@
+package com.cloudling.imageloader;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 按域名限制并发：获取许可不阻塞，名额按优先级和先后顺序转交，取消的请求不再获得名额，重复释放不影响计数
+ */
+public class HttpHostLimiterTest {
+    private static final String HOST = "img.example.com";
+
+    private final List<String> mGranted = new ArrayList<>();
+
+    private HttpHostLimiter.Permit queue(HttpHostLimiter limiter, final String name, int priority) {
+        HttpHostLimiter.Permit permit = limiter.permit(HOST, priority);
+        assertFalse(permit.acquire(new Runnable() {
+            @Override
+            public void run() {
+                mGranted.add(name);
+            }
+        }));
+        return permit;
+    }
+
+    private static HttpHostLimiter.Permit hold(HttpHostLimiter limiter, String host) {
+        HttpHostLimiter.Permit permit = limiter.permit(host, 0);
+        assertTrue(permit.acquire(null));
+        return permit;
+    }
+
+    @Test
+    public void acquire_grantsUpToLimitThenQueues() {
+        HttpHostLimiter limiter = new HttpHostLimiter(2);
+        hold(limiter, HOST);
+        hold(limiter, HOST);
+        queue(limiter, "third", 0);
+        assertTrue(mGranted.isEmpty());
+    }
+
+    @Test
+    public void release_handsSlotToHighestPriorityThenOldest() {
+        HttpHostLimiter limiter = new HttpHostLimiter(1);
+        HttpHostLimiter.Permit running = hold(limiter, HOST);
+        HttpHostLimiter.Permit low = queue(limiter, "low", 3);
+        HttpHostLimiter.Permit first = queue(limiter, "first", 1);
+        HttpHostLimiter.Permit second = queue(limiter, "second", 1);
+        running.release();
+        assertEquals("[first]", mGranted.toString());
+        first.release();
+        second.release();
+        low.release();
+        assertEquals("[first, second, low]", mGranted.toString());
+        hold(limiter, HOST);
+    }
+
+    @Test
+    public void cancelledWaiter_isSkipped() {
+        HttpHostLimiter limiter = new HttpHostLimiter(1);
+        HttpHostLimiter.Permit running = hold(limiter, HOST);
+        HttpHostLimiter.Permit cancelled = queue(limiter, "cancelled", 0);
+        HttpHostLimiter.Permit next = queue(limiter, "next", 1);
+        cancelled.cancel();
+        running.release();
+        assertEquals("[next]", mGranted.toString());
+        /*未获得许可的release被忽略*/
+        cancelled.release();
+        queue(limiter, "after", 0);
+        next.release();
+        assertEquals("[next, after]", mGranted.toString());
+    }
+
+    @Test
+    public void cancelledBeforeAcquire_isNeverGranted() {
+        HttpHostLimiter limiter = new HttpHostLimiter(1);
+        HttpHostLimiter.Permit permit = limiter.permit(HOST, 0);
+        permit.cancel();
+        assertFalse(permit.acquire(null));
+        hold(limiter, HOST);
+    }
+
+    @Test
+    public void repeatedRelease_releasesOnce() {
+        HttpHostLimiter limiter = new HttpHostLimiter(1);
+        HttpHostLimiter.Permit running = hold(limiter, HOST);
+        running.release();
+        running.release();
+        hold(limiter, HOST);
+        queue(limiter, "queued", 0);
+    }
+
+    @Test
+    public void hosts_areLimitedIndependently() {
+        HttpHostLimiter limiter = new HttpHostLimiter(1);
+        hold(limiter, HOST);
+        hold(limiter, "cdn.example.com");
+        queue(limiter, "queued", 0);
+    }
+}
@@ -0,0 +1,150 @@
+package com.cloudling.imageloader;
+
+import com.bumptech.glide.load.HttpException;
+import com.bumptech.glide.load.engine.GlideException;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * allOf失败或被取消时释放已完成的加载结果中的Bitmap租约，成功时交给调用方；addCallback的onFailure带失败原因
+ */
+public class ImageLoadFutureTest {
+    private final AtomicInteger mReleased = new AtomicInteger();
+
+    private ImageResult leased() {
+        return new ImageResult(null, new BitmapLease(null, new Runnable() {
+            @Override
+            public void run() {
+                mReleased.incrementAndGet();
+            }
+        }));
+    }
+
+    private static List<ImageLoadFuture<ImageResult>> futures(int count) {
+        ImageLoadFuture<ImageResult>[] futures = new ImageLoadFuture[count];
+        for (int i = 0; i < count; i++) futures[i] = new ImageLoadFuture<>(ImageResult.class);
+        return Arrays.asList(futures);
+    }
+
+    @Test
+    public void allOf_success_handsLeasesToCaller() throws Exception {
+        List<ImageLoadFuture<ImageResult>> futures = futures(2);
+        ImageLoadFuture<List<ImageResult>> all = ImageLoadFuture.allOf(futures);
+        ImageResult first = leased(), second = leased();
+        futures.get(1).complete(second);
+        futures.get(0).complete(first);
+        assertEquals(Arrays.asList(first, second), all.get());
+        assertEquals(0, mReleased.get());
+        assertFalse(first.getLease().isReleased());
+    }
+
+    @Test
+    public void allOf_failure_releasesCompletedResults() {
+        List<ImageLoadFuture<ImageResult>> futures = futures(3);
+        ImageLoadFuture<List<ImageResult>> all = ImageLoadFuture.allOf(futures);
+        ImageResult completed = leased();
+        futures.get(0).complete(completed);
+        futures.get(1).fail(new GlideException("load failed"));
+        assertTrue(all.isDone());
+        assertTrue(completed.getLease().isReleased());
+        assertEquals(1, mReleased.get());
+        /*其余的加载已被取消，取消之后才返回的结果由加载策略释放（complete返回false）*/
+        assertTrue(futures.get(2).isCancelled());
+        assertFalse(futures.get(2).complete(leased()));
+    }
+
+    @Test
+    public void allOf_cancel_releasesCompletedResults() {
+        List<ImageLoadFuture<ImageResult>> futures = futures(3);
+        ImageLoadFuture<List<ImageResult>> all = ImageLoadFuture.allOf(futures);
+        ImageResult first = leased(), second = leased();
+        futures.get(0).complete(first);
+        futures.get(2).complete(second);
+        assertTrue(all.cancel(true));
+        assertTrue(first.getLease().isReleased());
+        assertTrue(second.getLease().isReleased());
+        assertTrue(futures.get(1).isCancelled());
+        assertEquals(2, mReleased.get());
+    }
+
+    @Test
+    public void allOf_siblingCancelled_releasesCompletedResults() {
+        List<ImageLoadFuture<ImageResult>> futures = futures(2);
+        ImageLoadFuture<List<ImageResult>> all = ImageLoadFuture.allOf(futures);
+        ImageResult completed = leased();
+        futures.get(0).complete(completed);
+        futures.get(1).cancel(true);
+        assertTrue(all.isCancelled());
+        assertTrue(completed.getLease().isReleased());
+        assertEquals(1, mReleased.get());
+    }
+
+    @Test
+    public void allOf_alreadyReleasedLease_isNotReleasedTwice() {
+        List<ImageLoadFuture<ImageResult>> futures = futures(2);
+        ImageLoadFuture<List<ImageResult>> all = ImageLoadFuture.allOf(futures);
+        ImageResult completed = leased();
+        futures.get(0).complete(completed);
+        /*调用方通过单个加载结果已自行释放的租约不再重复释放*/
+        completed.getLease().release();
+        all.cancel(true);
+        assertEquals(1, mReleased.get());
+    }
+
+    @Test
+    public void addCallback_failure_carriesCause() {
+        ImageLoadFuture<ImageResult> future = new ImageLoadFuture<>(ImageResult.class);
+        final ImageResult[][] failed = new ImageResult[1][];
+        future.addCallback(new Callback() {
+            @Override
+            public void onFailure(ImageResult... result) {
+                failed[0] = result;
+            }
+        });
+        GlideException error = new GlideException("load failed", new HttpException("Not Found", 404));
+        future.fail(error);
+        assertEquals(1, failed[0].length);
+        ImageFailure failure = failed[0][0].getFailure();
+        assertSame(error, failure.getCause());
+        assertEquals(ImageFailure.Kind.NOT_FOUND, failure.getKind());
+        assertEquals(404, failure.getStatusCode());
+        assertNull(failed[0][0].getBitmap());
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(error, e.getCause());
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static class Callback implements ImageLoaderCallback<ImageResult> {
+        @Override
+        public void onSuccess(ImageResult... result) {
+            throw new AssertionError("onSuccess");
+        }
+
+        @Override
+        public void onFailure(ImageResult... result) {
+            throw new AssertionError("onFailure");
+        }
+
+        @Override
+        public void onCancel(ImageResult... result) {
+            throw new AssertionError("onCancel");
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.cloudling.imageloader;
+
+import android.content.Context;
+import android.os.Looper;
+import android.util.Size;
+
+import com.bumptech.glide.Glide;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 异步初始化期间调用loadImageBitmapAsync、openRegion和probeSize立即返回未完成的结果，不阻塞调用线程；
+ * 初始化结束后才交给加载策略，结果和取消在两者之间转发，期间已取消的不再发起
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ImageLoaderWarmUpTest {
+    private final Context mContext = RuntimeEnvironment.application;
+
+    @After
+    public void tearDown() {
+        ImageLoader.getInstance().setImageLoaderStrategy(new GlideImageLoaderStrategy());
+        Glide.tearDown();
+    }
+
+    @Test
+    public void asyncMethods_queueUntilWarmUpWithoutBlocking() throws Exception {
+        final GatedStrategy strategy = new GatedStrategy();
+        ImageLoader.getInstance().setImageLoaderStrategy(strategy);
+        final AtomicBoolean ready = new AtomicBoolean();
+        ImageLoader loader = ImageLoader.getInstance();
+        loader.warmUp(mContext, ImageLoaderConfig.newBuilder(), new Runnable() {
+            @Override
+            public void run() {
+                ready.set(true);
+            }
+        });
+        assertTrue(strategy.initStarted.await(5, TimeUnit.SECONDS));
+
+        /*在主线程调用，初始化未完成时立即返回*/
+        ImageLoadFuture<ImageResult> bitmap = loader.loadImageBitmapAsync(mContext, "https://example.com/a.jpg", 100, 100, null);
+        ImageLoadFuture<ImageRegionSource> region = loader.openRegion(mContext, "https://example.com/b.jpg");
+        ImageLoadFuture<Size> size = loader.probeSize(mContext, "https://example.com/c.jpg");
+        ImageLoadFuture<ImageResult> cancelled = loader.loadImageBitmapAsync(mContext, "https://example.com/d.jpg", 100, 100, null);
+        assertFalse(bitmap.isDone());
+        assertFalse(region.isDone());
+        assertFalse(size.isDone());
+        assertTrue(cancelled.cancel(true));
+        synchronized (strategy.calls) {
+            assertTrue(strategy.calls.isEmpty());
+        }
+
+        strategy.gate.countDown();
+        /*后台初始化结束后才投递到主线程，等待暂存的请求执行完，之后的测试不再暂存*/
+        while (!ready.get()) {
+            Thread.yield();
+            shadowOf(Looper.getMainLooper()).idle();
+        }
+        /*初始化结束后才调用加载策略，期间已取消的没有发起*/
+        synchronized (strategy.calls) {
+            assertEquals(Arrays.asList("bitmap https://example.com/a.jpg", "region https://example.com/b.jpg",
+                    "size https://example.com/c.jpg"), strategy.calls);
+        }
+        assertTrue(strategy.initializedBeforeCalls);
+
+        /*加载策略的结果转发给返回的结果，取消转发给加载策略*/
+        ImageResult result = new ImageResult(null);
+        assertTrue(strategy.bitmap.complete(result));
+        assertSame(result, bitmap.get(1, TimeUnit.SECONDS));
+        IOException error = new IOException("reset");
+        assertTrue(strategy.size.fail(error));
+        try {
+            size.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(error, e.getCause());
+        }
+        assertTrue(region.cancel(true));
+        assertTrue(strategy.region.isCancelled());
+    }
+
+    @Test
+    public void asyncMethods_afterWarmUp_callStrategyDirectly() {
+        GatedStrategy strategy = new GatedStrategy();
+        strategy.gate.countDown();
+        ImageLoader.getInstance().setImageLoaderStrategy(strategy);
+        ImageLoadFuture<Size> size = ImageLoader.getInstance().probeSize(mContext, "https://example.com/c.jpg");
+        assertSame(strategy.size, size);
+    }
+
+    /**
+     * 初始化等待gate打开；异步方法返回可由测试控制的结果，并记录调用顺序和调用时初始化是否已完成
+     */
+    private static final class GatedStrategy extends GlideImageLoaderStrategy {
+        final CountDownLatch initStarted = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+        final List<String> calls = new ArrayList<>();
+        volatile boolean initializedBeforeCalls = true;
+        final ImageLoadFuture<ImageResult> bitmap = new ImageLoadFuture<>(ImageResult.class);
+        final ImageLoadFuture<ImageRegionSource> region = new ImageLoadFuture<>(ImageRegionSource.class);
+        final ImageLoadFuture<Size> size = new ImageLoadFuture<>(Size.class);
+        private volatile boolean mInitialized;
+
+        @Override
+        public void init(Context context, ImageLoaderConfig config) {
+            initStarted.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            super.init(context, config);
+            mInitialized = true;
+        }
+
+        private void record(String call) {
+            if (!mInitialized) initializedBeforeCalls = false;
+            synchronized (calls) {
+                calls.add(call);
+            }
+        }
+
+        @Override
+        public <LoadAddress> ImageLoadFuture<ImageResult> loadImageBitmapAsync(Context context, LoadAddress url, int maxWidth, int maxHeight, DecodePolicy policy) {
+            record("bitmap " + url);
+            return bitmap;
+        }
+
+        @Override
+        public <LoadAddress> ImageLoadFuture<ImageRegionSource> openRegion(Context context, LoadAddress url) {
+            record("region " + url);
+            return region;
+        }
+
+        @Override
+        public <LoadAddress> ImageLoadFuture<Size> probeSize(Context context, LoadAddress url) {
+            record("size " + url);
+            return size;
+        }
+    }
+}
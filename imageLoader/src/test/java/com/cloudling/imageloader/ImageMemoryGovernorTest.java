@@ -0,0 +1,117 @@
+package com.cloudling.imageloader;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Looper;
+
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.bitmap.BitmapResource;
+import com.bumptech.glide.signature.ObjectKey;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 内存紧张时只由ImageMemoryGovernor释放（交给Glide的缓存忽略Glide转发的trimMemory）；
+ * 前台时延迟恢复容量，进入后台后保持缩小直到回到前台
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ImageMemoryGovernorTest {
+    private static final int BITMAP_BYTES = 10 * 10 * 4;
+
+    private final Context mContext = RuntimeEnvironment.application;
+    private TinyLfuMemoryCache mMemoryCache;
+    private BitmapPool mBitmapPool;
+    private ImageMemoryGovernor mGovernor;
+
+    @Before
+    public void setUp() {
+        mMemoryCache = ImageMemoryGovernor.newMemoryCache(BITMAP_BYTES * 10);
+        mBitmapPool = ImageMemoryGovernor.newBitmapPool(BITMAP_BYTES * 10);
+        mGovernor = new ImageMemoryGovernor(mContext, mMemoryCache, mBitmapPool, new BlurHashDecoder(), new GlideOptionsCache());
+        mGovernor.register(mContext);
+        for (int i = 0; i < 4; i++) {
+            mMemoryCache.put(new ObjectKey(i), BitmapResource.obtain(bitmap(), mBitmapPool));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mGovernor.unregister(mContext);
+    }
+
+    private static Bitmap bitmap() {
+        return Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+    }
+
+    private static void idleFor(long seconds) {
+        shadowOf(Looper.getMainLooper()).idleFor(seconds, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void glideTrim_isIgnored() {
+        Bitmap pooled = bitmap();
+        mBitmapPool.put(pooled);
+        /*Glide收到onTrimMemory时转发给内存缓存和复用池*/
+        mMemoryCache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        mBitmapPool.trimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        assertEquals(BITMAP_BYTES * 4, mMemoryCache.getCurrentSize());
+        assertSame(pooled, mBitmapPool.getDirty(10, 10, Bitmap.Config.ARGB_8888));
+        mGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        assertEquals(0, mMemoryCache.getCurrentSize());
+        assertEquals(1, mGovernor.getClearCount());
+    }
+
+    @Test
+    public void uiHidden_trimsOnceToHalf() {
+        mGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        mMemoryCache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals(BITMAP_BYTES * 4, mMemoryCache.getCurrentSize());
+        mGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+        assertEquals(BITMAP_BYTES * 2, mMemoryCache.getCurrentSize());
+    }
+
+    @Test
+    public void runningTrim_restoresAfterDelay() {
+        mGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+        assertEquals(0.5f, mGovernor.getSizeMultiplier(), 0);
+        idleFor(29);
+        assertEquals(0.5f, mGovernor.getSizeMultiplier(), 0);
+        idleFor(2);
+        assertEquals(1f, mGovernor.getSizeMultiplier(), 0);
+    }
+
+    @Test
+    public void backgroundTrim_restoresOnForeground() {
+        mGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals(0.5f, mGovernor.getSizeMultiplier(), 0);
+        idleFor(120);
+        assertEquals(0.5f, mGovernor.getSizeMultiplier(), 0);
+        Robolectric.buildActivity(Activity.class).setup();
+        assertEquals(1f, mGovernor.getSizeMultiplier(), 0);
+        assertEquals(BITMAP_BYTES * 10, mMemoryCache.getMaxSize());
+    }
+
+    @Test
+    public void lowMemoryInBackground_waitsForForeground() {
+        mGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        mGovernor.onLowMemory();
+        idleFor(120);
+        assertEquals(0.5f, mGovernor.getSizeMultiplier(), 0);
+        Robolectric.buildActivity(Activity.class).setup();
+        assertEquals(1f, mGovernor.getSizeMultiplier(), 0);
+    }
+}
@@ -0,0 +1,251 @@
+package com.cloudling.imageloader;
+
+import android.graphics.Rect;
+import android.os.Looper;
+import android.util.LruCache;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 大图区域解码：按可见区域和采样率选择瓦片、已缓存的瓦片同步回调、取消移出可见区域的瓦片、
+ * 重新提交的瓦片不被之前的任务移出等待列表、瓦片缓存按LRU淘汰
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ImageRegionSourceTest {
+    private static final int TILE = 256;
+    private static final long TIMEOUT_MS = 10_000;
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+    private final List<ImageTile> mDelivered = new ArrayList<>();
+    private final ImageLoaderCallback<ImageTile> mCallback = new ImageLoaderCallback<ImageTile>() {
+        @Override
+        public void onSuccess(ImageTile... result) {
+            for (ImageTile tile : result) mDelivered.add(tile);
+        }
+
+        @Override
+        public void onFailure(ImageTile... result) {
+            throw new AssertionError("onFailure");
+        }
+
+        @Override
+        public void onCancel(ImageTile... result) {
+            throw new AssertionError("onCancel");
+        }
+    };
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+    private final int mCacheBytes = tiles().maxSize();
+    private ImageRegionSource mSource;
+
+    @After
+    public void tearDown() {
+        mRelease.countDown();
+        if (mSource != null) mSource.close();
+        tiles().resize(mCacheBytes);
+    }
+
+    private static LruCache<Object, ImageTile> tiles() {
+        return ReflectionHelpers.getStaticField(ImageRegionSource.class, "TILES");
+    }
+
+    private Map<Object, Future<?>> pending() {
+        return ReflectionHelpers.getField(mSource, "mPending");
+    }
+
+    private ImageRegionSource open(int width, int height) throws Exception {
+        File file = mFolder.newFile("region.jpg");
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "jpg", file);
+        ImageLoadFuture<ImageRegionSource> future = new ImageLoadFuture<>(ImageRegionSource.class);
+        ImageRegionSource.open(file, future);
+        mSource = future.get();
+        return mSource;
+    }
+
+    /**
+     * 占满解码线程，之后提交的瓦片停留在等待状态，直到mRelease
+     */
+    private void blockWorkers() throws InterruptedException {
+        ThreadPoolExecutor workers = ReflectionHelpers.getStaticField(ImageRegionSource.class, "WORKERS");
+        int count = ReflectionHelpers.<Integer>getStaticField(ImageRegionSource.class, "WORKER_COUNT");
+        final CountDownLatch started = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        mRelease.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+        started.await();
+    }
+
+    /**
+     * 运行主线程消息直到交付了count个瓦片
+     */
+    private void awaitDelivered(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (mDelivered.size() < count) {
+            assertTrue("decode timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+            shadowOf(Looper.getMainLooper()).idle();
+        }
+    }
+
+    private static Rect tile(int column, int row) {
+        return new Rect(column * TILE, row * TILE, (column + 1) * TILE, (row + 1) * TILE);
+    }
+
+    private Set<String> delivered() {
+        Set<String> tiles = new HashSet<>();
+        for (ImageTile tile : mDelivered) tiles.add(tile.getColumn() + "," + tile.getRow() + "@" + tile.getSampleSize());
+        return tiles;
+    }
+
+    @Test
+    public void sampleSizeFor_isLargestPowerOfTwoNotAboveInverseScale() {
+        assertEquals(1, ImageRegionSource.sampleSizeFor(1f));
+        assertEquals(1, ImageRegionSource.sampleSizeFor(0.6f));
+        assertEquals(2, ImageRegionSource.sampleSizeFor(0.5f));
+        assertEquals(2, ImageRegionSource.sampleSizeFor(0.3f));
+        assertEquals(8, ImageRegionSource.sampleSizeFor(0.125f));
+    }
+
+    @Test
+    public void visibleRegion_loadsIntersectingTiles() throws Exception {
+        open(1000, 600);
+        mSource.loadRegion(new Rect(100, 100, 600, 300), 1, mCallback);
+        assertTrue(mDelivered.isEmpty());
+        awaitDelivered(6);
+        Set<String> expected = new HashSet<>();
+        for (int row = 0; row <= 1; row++) {
+            for (int column = 0; column <= 2; column++) expected.add(column + "," + row + "@1");
+        }
+        assertEquals(expected, delivered());
+        /*已缓存的瓦片在同一次onSuccess中同步回调*/
+        mDelivered.clear();
+        mSource.loadRegion(new Rect(100, 100, 600, 300), 1, mCallback);
+        assertEquals(expected, delivered());
+        assertTrue(pending().isEmpty());
+    }
+
+    @Test
+    public void sampleSize_scalesTilesAndClipsToImage() throws Exception {
+        open(1000, 600);
+        /*不是2的幂时向下取整为2，原图中的瓦片边长为512*/
+        mSource.loadRegion(new Rect(-50, -50, 2000, 2000), 3, mCallback);
+        awaitDelivered(4);
+        for (ImageTile tile : mDelivered) {
+            assertEquals(2, tile.getSampleSize());
+            if (tile.getColumn() == 1 && tile.getRow() == 1) assertEquals(new Rect(512, 512, 1000, 600), tile.getRect());
+            if (tile.getColumn() == 0 && tile.getRow() == 0) assertEquals(new Rect(0, 0, 512, 512), tile.getRect());
+        }
+        assertEquals(4, delivered().size());
+    }
+
+    @Test
+    public void offscreenTiles_areCancelled() throws Exception {
+        open(1024, 256);
+        blockWorkers();
+        mSource.loadRegion(tile(0, 0), 1, mCallback);
+        Future<?> scrolledOut = pending().values().iterator().next();
+        mSource.loadRegion(tile(2, 0), 1, mCallback);
+        assertTrue(scrolledOut.isCancelled());
+        assertEquals(1, pending().size());
+        mRelease.countDown();
+        awaitDelivered(1);
+        Thread.sleep(50);
+        shadowOf(Looper.getMainLooper()).idle();
+        assertEquals(1, mDelivered.size());
+        assertEquals(2, mDelivered.get(0).getColumn());
+        assertTrue(pending().isEmpty());
+        /*移出可见区域（包括完全在原图之外）时取消全部*/
+        tiles().evictAll();
+        mSource.loadRegion(tile(3, 0), 1, mCallback);
+        mSource.loadRegion(new Rect(5000, 0, 6000, 100), 1, mCallback);
+        assertTrue(pending().isEmpty());
+    }
+
+    @Test
+    public void finishedTask_doesNotRemoveResubmittedTile() throws Exception {
+        open(1024, 256);
+        mSource.loadRegion(tile(0, 0), 1, mCallback);
+        Future<?> first = pending().values().iterator().next();
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!first.isDone()) {
+            assertTrue("decode timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+        /*第一次解码完成、交付消息还在主线程排队时瓦片移出可见区域，被淘汰后又重新进入*/
+        tiles().evictAll();
+        blockWorkers();
+        mSource.loadRegion(tile(2, 0), 1, mCallback);
+        mSource.loadRegion(tile(0, 0), 1, mCallback);
+        Future<?> second = pending().values().iterator().next();
+        shadowOf(Looper.getMainLooper()).idle();
+        assertEquals(1, mDelivered.size());
+        assertEquals(1, pending().size());
+        assertSame(second, pending().values().iterator().next());
+        /*仍在等待中，不会重复提交*/
+        mSource.loadRegion(tile(0, 0), 1, mCallback);
+        assertSame(second, pending().values().iterator().next());
+        mRelease.countDown();
+        awaitDelivered(2);
+        assertTrue(pending().isEmpty());
+    }
+
+    @Test
+    public void tileCache_evictsLeastRecentlyUsed() throws Exception {
+        open(1024, 256);
+        tiles().resize(3 * TILE * TILE * 4);
+        for (int column = 0; column < 3; column++) {
+            mSource.loadRegion(tile(column, 0), 1, mCallback);
+            awaitDelivered(column + 1);
+        }
+        /*命中缓存，第0个瓦片成为最近使用的*/
+        mSource.loadRegion(tile(0, 0), 1, mCallback);
+        assertEquals(4, mDelivered.size());
+        mSource.loadRegion(tile(3, 0), 1, mCallback);
+        awaitDelivered(5);
+        mDelivered.clear();
+        mSource.loadRegion(tile(0, 0), 1, mCallback);
+        assertEquals(1, mDelivered.size());
+        mSource.loadRegion(tile(3, 0), 1, mCallback);
+        assertEquals(2, mDelivered.size());
+        /*第1个瓦片最久未使用，已被淘汰，需要重新解码*/
+        mSource.loadRegion(tile(1, 0), 1, mCallback);
+        assertEquals(2, mDelivered.size());
+        assertFalse(pending().isEmpty());
+        awaitDelivered(3);
+    }
+}
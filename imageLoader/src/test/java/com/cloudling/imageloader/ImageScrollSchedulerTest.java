@@ -0,0 +1,148 @@
+package com.cloudling.imageloader;
+
+import android.app.Activity;
+import android.view.View;
+import android.widget.AbsListView;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
+import android.widget.ListView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowSystemClock;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 快速滑动时只暂存所属列表中不在屏幕上的请求；列表从窗口移除后不再被引用；detach恢复原有的回收监听
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ImageScrollSchedulerTest {
+    private Activity mActivity;
+    private FrameLayout mContent;
+    private ListView mList;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+        mContent = new FrameLayout(mActivity);
+        mList = new ListView(mActivity);
+        mContent.addView(mList);
+        mActivity.setContentView(mContent);
+    }
+
+    /**
+     * 连续两次间隔16ms、每次1000像素的滑动，速度远超阈值
+     */
+    private static void fling(ImageScrollScheduler scheduler) {
+        for (int i = 0; i < 3; i++) {
+            ShadowSystemClock.advanceBy(16, TimeUnit.MILLISECONDS);
+            scheduler.onScrolled(1000);
+        }
+    }
+
+    @Test
+    public void itemBeingBound_isDeferredWhileFlinging() {
+        ImageScrollScheduler scheduler = ImageScrollScheduler.attach(mList);
+        /*onBind时列表项还没有添加到列表中*/
+        FrameLayout item = new FrameLayout(mActivity);
+        item.setLayoutParams(new AbsListView.LayoutParams(100, 100));
+        ImageView image = new ImageView(mActivity);
+        item.addView(image);
+        assertNull(ImageScrollScheduler.deferring(image));
+        fling(scheduler);
+        assertSame(scheduler, ImageScrollScheduler.deferring(image));
+        scheduler.onScrollIdle();
+        assertNull(ImageScrollScheduler.deferring(image));
+        scheduler.detach();
+    }
+
+    @Test
+    public void otherViewOnScreen_isNotDeferred() {
+        ImageScrollScheduler scheduler = ImageScrollScheduler.attach(mList);
+        ImageView header = new ImageView(mActivity);
+        mContent.addView(header);
+        fling(scheduler);
+        assertNull(ImageScrollScheduler.deferring(header));
+        scheduler.detach();
+    }
+
+    @Test
+    public void detachedTreeOutsideList_isNotDeferred() {
+        ImageScrollScheduler scheduler = ImageScrollScheduler.attach(mList);
+        /*同一界面中正在构建、还没有添加到窗口中的对话框或列表头*/
+        FrameLayout dialog = new FrameLayout(mActivity);
+        ImageView image = new ImageView(mActivity);
+        dialog.addView(image);
+        ImageView orphan = new ImageView(mActivity);
+        fling(scheduler);
+        assertNull(ImageScrollScheduler.deferring(image));
+        assertNull(ImageScrollScheduler.deferring(orphan));
+        scheduler.detach();
+    }
+
+    @Test
+    public void clear_dropsDeferredLoad() {
+        ImageScrollScheduler scheduler = ImageScrollScheduler.attach(mList);
+        ImageView cleared = new ImageView(mActivity);
+        ImageView kept = new ImageView(mActivity);
+        final List<ImageView> loaded = new ArrayList<>();
+        fling(scheduler);
+        scheduler.defer(cleared, load(loaded, cleared));
+        scheduler.defer(kept, load(loaded, kept));
+        /*暂存期间应用清除了视图，之后不能再把旧地址加载到视图中*/
+        ImageLoader.getInstance().clear(mActivity, cleared);
+        scheduler.onScrollIdle();
+        assertEquals(Collections.singletonList(kept), loaded);
+        scheduler.detach();
+    }
+
+    private static Runnable load(final List<ImageView> loaded, final ImageView view) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                loaded.add(view);
+            }
+        };
+    }
+
+    @Test
+    public void detachedList_isNotTracked() {
+        ImageScrollScheduler scheduler = ImageScrollScheduler.attach(mList);
+        ImageView image = new ImageView(mActivity);
+        image.setLayoutParams(new AbsListView.LayoutParams(100, 100));
+        fling(scheduler);
+        assertSame(scheduler, ImageScrollScheduler.deferring(image));
+        mContent.removeView(mList);
+        assertNull(ImageScrollScheduler.deferring(image));
+        mContent.addView(mList);
+        fling(scheduler);
+        assertSame(scheduler, ImageScrollScheduler.deferring(image));
+        scheduler.detach();
+        assertNull(ImageScrollScheduler.deferring(image));
+    }
+
+    @Test
+    public void detach_restoresRecyclerListener() {
+        AbsListView.RecyclerListener host = new AbsListView.RecyclerListener() {
+            @Override
+            public void onMovedToScrapHeap(View view) {
+            }
+        };
+        ImageScrollScheduler scheduler = ImageScrollScheduler.attach(mList, null, host);
+        scheduler.detach();
+        Object recycler = ReflectionHelpers.getField(mList, "mRecycler");
+        assertSame(host, ReflectionHelpers.getField(recycler, "mRecyclerListener"));
+    }
+}
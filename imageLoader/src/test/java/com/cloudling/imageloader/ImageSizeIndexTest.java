@@ -0,0 +1,119 @@
+package com.cloudling.imageloader;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 图片尺寸索引：读入文件之前不返回结果、重新打开后记录仍在、末尾不完整的记录被丢弃且不影响之后追加、重复记录过多时重写文件
+ */
+public class ImageSizeIndexTest {
+    private static final int RECORD_SIZE = 16;
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    private static int maxEntries() {
+        return ReflectionHelpers.getStaticField(ImageSizeIndex.class, "MAX_ENTRIES");
+    }
+
+    private static ImageSizeIndex open(File file) {
+        ImageSizeIndex index = new ImageSizeIndex(file);
+        index.load();
+        return index;
+    }
+
+    @Test
+    public void get_returnsNullUntilLoaded() throws IOException {
+        File file = mFolder.newFile();
+        open(file).put("https://example.com/a.jpg", 640, 480);
+        ImageSizeIndex index = new ImageSizeIndex(file);
+        assertNull(index.get("https://example.com/a.jpg"));
+        index.load();
+        assertArrayEquals(new int[]{640, 480}, index.get("https://example.com/a.jpg"));
+        assertNull(index.get("https://example.com/b.jpg"));
+    }
+
+    @Test
+    public void missingFile_loadsEmpty() {
+        ImageSizeIndex index = open(new File(mFolder.getRoot(), "missing"));
+        assertNull(index.get("https://example.com/a.jpg"));
+        index.put("https://example.com/a.jpg", 1, 2);
+        assertArrayEquals(new int[]{1, 2}, index.get("https://example.com/a.jpg"));
+    }
+
+    @Test
+    public void records_roundTripAndLatestWins() throws IOException {
+        File file = mFolder.newFile();
+        ImageSizeIndex index = open(file);
+        index.put("https://example.com/a.jpg", 640, 480);
+        index.put("https://example.com/b.jpg", 4000, 3000);
+        index.put("https://example.com/a.jpg", 1080, 1920);
+        /*相同的尺寸不重复写入*/
+        index.put("https://example.com/a.jpg", 1080, 1920);
+        assertEquals(3 * RECORD_SIZE, file.length());
+        ImageSizeIndex reopened = open(file);
+        assertArrayEquals(new int[]{1080, 1920}, reopened.get("https://example.com/a.jpg"));
+        assertArrayEquals(new int[]{4000, 3000}, reopened.get("https://example.com/b.jpg"));
+    }
+
+    @Test
+    public void tornRecord_isDroppedAndLaterRecordsStayAligned() throws IOException {
+        File file = mFolder.newFile();
+        open(file).put("https://example.com/a.jpg", 640, 480);
+        /*写入过程中进程退出，最后一条记录只写了一部分*/
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[]{1, 2, 3, 4, 5, 6, 7});
+        }
+        ImageSizeIndex index = open(file);
+        assertArrayEquals(new int[]{640, 480}, index.get("https://example.com/a.jpg"));
+        assertEquals(RECORD_SIZE, file.length());
+        index.put("https://example.com/b.jpg", 320, 240);
+        ImageSizeIndex reopened = open(file);
+        assertArrayEquals(new int[]{640, 480}, reopened.get("https://example.com/a.jpg"));
+        assertArrayEquals(new int[]{320, 240}, reopened.get("https://example.com/b.jpg"));
+    }
+
+    @Test
+    public void redundantRecords_areCompacted() throws IOException {
+        File file = mFolder.newFile();
+        ImageSizeIndex index = open(file);
+        int keys = 10;
+        long maxLength = 0;
+        for (int i = 0; i <= maxEntries() + keys; i++) {
+            index.put("https://example.com/" + (i % keys) + ".jpg", i, i + 1);
+            maxLength = Math.max(maxLength, file.length());
+        }
+        /*超过MAX_ENTRIES条且多于当前条目的两倍时重写为只包含当前条目*/
+        assertTrue(maxLength > (long) maxEntries() * RECORD_SIZE);
+        assertTrue(file.length() + " bytes", file.length() <= 2L * keys * RECORD_SIZE);
+        ImageSizeIndex reopened = open(file);
+        int last = maxEntries() + keys;
+        for (int i = last - keys + 1; i <= last; i++) {
+            assertArrayEquals(new int[]{i, i + 1}, reopened.get("https://example.com/" + (i % keys) + ".jpg"));
+        }
+    }
+
+    @Test
+    public void overCapacity_evictsLeastRecentlyUsed() throws IOException {
+        ImageSizeIndex index = open(mFolder.newFile());
+        index.put("https://example.com/0.jpg", 1, 1);
+        for (int i = 1; i <= maxEntries(); i++) {
+            /*保持第1条最近使用*/
+            if (i == maxEntries()) index.get("https://example.com/1.jpg");
+            index.put("https://example.com/" + i + ".jpg", 1, 1);
+        }
+        assertNull(index.get("https://example.com/0.jpg"));
+        assertArrayEquals(new int[]{1, 1}, index.get("https://example.com/1.jpg"));
+    }
+}
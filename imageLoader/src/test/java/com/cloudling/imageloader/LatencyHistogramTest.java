@@ -0,0 +1,90 @@
+package com.cloudling.imageloader;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 对数分桶直方图：百分位返回所在桶的上界，相对误差不超过25%；超出范围的耗时计入两端的桶；并发记录不丢失
+ */
+public class LatencyHistogramTest {
+    private static final long MICROS = 1000;
+
+    @Test
+    public void empty_returnsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentileMicros(0.5));
+    }
+
+    @Test
+    public void singleValue_upperBoundWithin25Percent() {
+        Random random = new Random(0);
+        for (int i = 0; i < 10000; i++) {
+            long micros = (long) Math.exp(random.nextDouble() * Math.log(100_000_000L));
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(micros * MICROS);
+            long upper = histogram.percentileMicros(1);
+            assertTrue(micros + " -> " + upper, upper > micros);
+            assertTrue(micros + " -> " + upper, upper <= Math.max(micros + 1, micros * 5 / 4));
+        }
+    }
+
+    @Test
+    public void percentiles_followDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        /*1ms到1000ms各一次*/
+        for (int millis = 1; millis <= 1000; millis++) histogram.record(millis * 1000 * MICROS);
+        assertEquals(1000, histogram.count());
+        assertWithin(500_000, histogram.percentileMicros(0.5));
+        assertWithin(900_000, histogram.percentileMicros(0.9));
+        assertWithin(990_000, histogram.percentileMicros(0.99));
+        assertTrue(histogram.percentileMicros(1) > 1000_000);
+        assertTrue(histogram.percentileMicros(0.5) <= histogram.percentileMicros(0.9));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(expected + " vs " + actual, actual >= expected && actual <= expected * 5 / 4);
+    }
+
+    @Test
+    public void outOfRange_isClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(1, histogram.percentileMicros(1));
+        histogram.reset();
+        histogram.record(1000L * 1000 * 1000 * 1000);
+        /*最后一个桶的上界约268秒*/
+        assertEquals(1L << 28, histogram.percentileMicros(1));
+    }
+
+    @Test
+    public void reset_clearsCounts() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10 * MICROS);
+        histogram.reset();
+        assertEquals(0, histogram.count());
+    }
+
+    @Test
+    public void concurrentRecords_areAllCounted() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int seed = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 100_000; i++) histogram.record(random.nextInt(50_000) * MICROS);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+        assertEquals(400_000, histogram.count());
+    }
+}
@@ -0,0 +1,168 @@
+package com.cloudling.imageloader;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 测试用的本地HTTP/1.1服务器：支持keep-alive，按路径返回预设的响应，记录收到的请求和建立的连接数
+ */
+final class LocalHttpServer implements Closeable {
+    private static final Charset ASCII = Charset.forName("ISO-8859-1");
+
+    private final ServerSocket mServer;
+    private final Map<String, Response> mResponses = new ConcurrentHashMap<>();
+    private final List<Map<String, String>> mRequests = new CopyOnWriteArrayList<>();
+    private final List<Socket> mSockets = new CopyOnWriteArrayList<>();
+    private final AtomicInteger mConnections = new AtomicInteger();
+
+    LocalHttpServer() throws IOException {
+        mServer = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        }, "local-http-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    String url(String path) {
+        return "http://127.0.0.1:" + mServer.getLocalPort() + path;
+    }
+
+    void respond(String path, Response response) {
+        mResponses.put(path, response);
+    }
+
+    int connectionCount() {
+        return mConnections.get();
+    }
+
+    /**
+     * 收到的请求头，键为小写，请求行在":path"中
+     */
+    List<Map<String, String>> requests() {
+        return mRequests;
+    }
+
+    private void accept() {
+        while (!mServer.isClosed()) {
+            final Socket socket;
+            try {
+                socket = mServer.accept();
+            } catch (IOException e) {
+                return;
+            }
+            mConnections.incrementAndGet();
+            mSockets.add(socket);
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        serve(socket);
+                    } catch (IOException | InterruptedException ignored) {
+                    } finally {
+                        try {
+                            socket.close();
+                        } catch (IOException ignored) {
+                        }
+                    }
+                }
+            }, "local-http-connection");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    private void serve(Socket socket) throws IOException, InterruptedException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), ASCII));
+        OutputStream out = socket.getOutputStream();
+        String requestLine;
+        while ((requestLine = reader.readLine()) != null) {
+            if (requestLine.isEmpty()) continue;
+            Map<String, String> headers = new HashMap<>();
+            String path = requestLine.split(" ")[1];
+            headers.put(":path", path);
+            String line;
+            while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                int colon = line.indexOf(':');
+                headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+            }
+            mRequests.add(headers);
+            Response response = mResponses.get(path);
+            if (response == null) response = Response.status(404);
+            StringBuilder head = new StringBuilder("HTTP/1.1 ").append(response.status).append(" Status\r\n")
+                    .append("Content-Length: ").append(response.body.length).append("\r\n");
+            if (response.location != null) head.append("Location: ").append(response.location).append("\r\n");
+            out.write(head.append("\r\n").toString().getBytes(ASCII));
+            if (response.stall != null) {
+                /*先发送一半响应体，等待测试放行后再发送剩余部分*/
+                int half = response.body.length / 2;
+                out.write(response.body, 0, half);
+                out.flush();
+                response.stall.await(10, TimeUnit.SECONDS);
+                out.write(response.body, half, response.body.length - half);
+            } else {
+                out.write(response.body);
+            }
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        mServer.close();
+        for (Socket socket : mSockets) socket.close();
+    }
+
+    static final class Response {
+        final int status;
+        final byte[] body;
+        String location;
+        CountDownLatch stall;
+
+        private Response(int status, byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Response body(byte[] body) {
+            return new Response(200, body);
+        }
+
+        static Response status(int status) {
+            return new Response(status, "error".getBytes(ASCII));
+        }
+
+        static Response redirect(String location) {
+            Response response = new Response(302, new byte[0]);
+            response.location = location;
+            return response;
+        }
+
+        /**
+         * 发送一半响应体后等待latch
+         */
+        static Response stalled(byte[] body, CountDownLatch stall) {
+            Response response = new Response(200, body);
+            response.stall = stall;
+            return response;
+        }
+    }
+}
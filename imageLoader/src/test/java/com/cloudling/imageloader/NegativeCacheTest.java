@@ -0,0 +1,136 @@
+package com.cloudling.imageloader;
+
+import android.net.Uri;
+
+import com.bumptech.glide.load.HttpException;
+import com.bumptech.glide.load.model.GlideUrl;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 负缓存：确定性错误固定抑制、暂时性错误按连续失败次数指数退避、下载成功后移除、容量上限
+ */
+@RunWith(RobolectricTestRunner.class)
+public class NegativeCacheTest {
+    private static final String URL = "https://img.example.com/photo.jpg";
+
+    private static void advance(long millis) {
+        ShadowSystemClock.advanceBy(millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void notFound_isSuppressedForFixedTtl() {
+        NegativeCache cache = new NegativeCache(16);
+        cache.onFailure(URL, new HttpException("Not Found", 404));
+        ImageFailure failure = cache.suppressed(URL);
+        assertNotNull(failure);
+        assertTrue(failure.isSuppressed());
+        assertEquals(ImageFailure.Kind.NOT_FOUND, failure.getKind());
+        assertEquals(404, failure.getStatusCode());
+        assertEquals(10 * 60 * 1000, failure.getRetryAfterMillis());
+        /*抑制期过后再次失败，仍是固定时间，不随失败次数增长*/
+        advance(10 * 60 * 1000);
+        cache.onFailure(URL, new HttpException("Gone", 410));
+        assertEquals(10 * 60 * 1000, cache.suppressed(URL).getRetryAfterMillis());
+        advance(10 * 60 * 1000 - 1);
+        assertNotNull(cache.suppressed(URL));
+        advance(1);
+        assertNull(cache.suppressed(URL));
+        assertEquals(2, cache.getFailureCount(ImageFailure.Kind.NOT_FOUND));
+        assertEquals(3, cache.getSuppressedCount());
+    }
+
+    @Test
+    public void clientError_isSuppressedForFixedTtl() {
+        NegativeCache cache = new NegativeCache(16);
+        cache.onFailure(URL, new HttpException("Forbidden", 403));
+        assertEquals(ImageFailure.Kind.CLIENT_ERROR, cache.suppressed(URL).getKind());
+        advance(5 * 60 * 1000);
+        assertNull(cache.suppressed(URL));
+    }
+
+    @Test
+    public void transientErrors_backOffExponentially() {
+        NegativeCache cache = new NegativeCache(16);
+        long[] expected = {2000, 4000, 8000, 16000, 32000, 64000, 120000, 120000};
+        IOException[] errors = {new SocketTimeoutException(), new HttpException("Service Unavailable", 503), new IOException("reset")};
+        for (int i = 0; i < expected.length; i++) {
+            cache.onFailure(URL, errors[i % errors.length]);
+            ImageFailure failure = cache.suppressed(URL);
+            assertEquals(i + 1, failure.getFailureCount());
+            assertEquals(expected[i], failure.getRetryAfterMillis());
+            advance(expected[i] - 1);
+            assertNotNull(cache.suppressed(URL));
+            advance(1);
+            assertNull(cache.suppressed(URL));
+        }
+        /*移位不溢出*/
+        assertEquals(120000, NegativeCache.ttl(ImageFailure.Kind.TIMEOUT, Integer.MAX_VALUE));
+        assertEquals(3, cache.getFailureCount(ImageFailure.Kind.TIMEOUT));
+        assertEquals(3, cache.getFailureCount(ImageFailure.Kind.SERVER_ERROR));
+        assertEquals(2, cache.getFailureCount(ImageFailure.Kind.NETWORK));
+    }
+
+    @Test
+    public void success_resetsBackoff() {
+        NegativeCache cache = new NegativeCache(16);
+        cache.onFailure(URL, new SocketTimeoutException());
+        cache.onFailure(URL, new SocketTimeoutException());
+        assertEquals(4000, cache.suppressed(URL).getRetryAfterMillis());
+        cache.onSuccess(URL);
+        assertNull(cache.suppressed(URL));
+        assertEquals(0, cache.getSize());
+        cache.onFailure(URL, new SocketTimeoutException());
+        assertEquals(2000, cache.suppressed(URL).getRetryAfterMillis());
+    }
+
+    @Test
+    public void failure_reportsCountAndRetryWithoutSuppressing() {
+        NegativeCache cache = new NegativeCache(16);
+        ImageFailure unknown = cache.failure(URL, ImageFailure.Kind.DECODE, -1, null);
+        assertEquals(0, unknown.getFailureCount());
+        cache.onFailure(URL, new SocketTimeoutException());
+        advance(500);
+        ImageFailure failure = cache.failure(URL, ImageFailure.Kind.TIMEOUT, -1, null);
+        assertFalse(failure.isSuppressed());
+        assertEquals(1, failure.getFailureCount());
+        assertEquals(1500, failure.getRetryAfterMillis());
+        assertEquals(0, cache.getSuppressedCount());
+    }
+
+    @Test
+    public void overCapacity_evictsLeastRecentlyUsed() {
+        NegativeCache cache = new NegativeCache(2);
+        cache.onFailure("https://a", new HttpException(404));
+        cache.onFailure("https://b", new HttpException(404));
+        assertNotNull(cache.suppressed("https://a"));
+        cache.onFailure("https://c", new HttpException(404));
+        assertEquals(2, cache.getSize());
+        assertNotNull(cache.suppressed("https://a"));
+        assertNull(cache.suppressed("https://b"));
+    }
+
+    @Test
+    public void disabledOrNonNetwork_isNeverSuppressed() {
+        NegativeCache disabled = new NegativeCache(0);
+        disabled.onFailure(URL, new HttpException(404));
+        assertNull(disabled.suppressed(URL));
+        assertNull(NegativeCache.key("/sdcard/photo.jpg"));
+        assertNull(NegativeCache.key(new Object()));
+        assertEquals(URL, NegativeCache.key(Uri.parse(URL)));
+        assertEquals(URL, NegativeCache.key(new GlideUrl(URL)));
+    }
+}
@@ -0,0 +1,116 @@
+package com.cloudling.imageloader;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 渐进式JPEG扫描边界检测：按任意分块到达的数据得到相同的扫描边界，边界处截断补上EOI后可以解码，基线JPEG和其他格式被排除
+ */
+public class ProgressiveJpegScannerTest {
+    private static final int WIDTH = 320, HEIGHT = 200;
+
+    private static byte[] jpeg(boolean progressive) throws IOException {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(0);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) image.setRGB(x, y, (x * 255 / WIDTH) << 16 | (y * 255 / HEIGHT) << 8 | random.nextInt(64));
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (progressive) param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(out);
+        writer.setOutput(stream);
+        writer.write(null, new IIOImage(image, null, null), param);
+        stream.close();
+        writer.dispose();
+        return out.toByteArray();
+    }
+
+    /**
+     * 按chunk字节一次到达时每次发现新扫描时的边界
+     */
+    private static List<Integer> scanEnds(byte[] data, int chunk) {
+        ProgressiveJpegScanner scanner = new ProgressiveJpegScanner();
+        List<Integer> ends = new ArrayList<>();
+        for (int length = Math.min(chunk, data.length); ; length = Math.min(length + chunk, data.length)) {
+            if (scanner.scan(data, length)) ends.add(scanner.getScanEnd());
+            if (length == data.length || scanner.isRejected()) break;
+        }
+        return ends;
+    }
+
+    @Test
+    public void progressive_findsScanBoundariesAndSize() throws IOException {
+        byte[] data = jpeg(true);
+        ProgressiveJpegScanner scanner = new ProgressiveJpegScanner();
+        scanner.scan(data, data.length);
+        assertEquals(WIDTH, scanner.getWidth());
+        assertEquals(HEIGHT, scanner.getHeight());
+        /*读到结束标记后停止*/
+        assertTrue(scanner.isRejected());
+        assertTrue(scanEnds(data, 1024).size() >= 2);
+    }
+
+    @Test
+    public void chunking_doesNotChangeBoundaries() throws IOException {
+        byte[] data = jpeg(true);
+        List<Integer> bytewise = scanEnds(data, 1);
+        assertFalse(bytewise.isEmpty());
+        for (int i = 1; i < bytewise.size(); i++) assertTrue(bytewise.get(i) > bytewise.get(i - 1));
+        /*分块较大时一次可能跨过多个扫描，只报告最后一个*/
+        List<Integer> chunked = scanEnds(data, 997);
+        assertTrue(bytewise.containsAll(chunked));
+        assertEquals(bytewise.get(bytewise.size() - 1), chunked.get(chunked.size() - 1));
+    }
+
+    @Test
+    public void truncatedAtBoundary_decodes() throws IOException {
+        byte[] data = jpeg(true);
+        for (int end : scanEnds(data, 1)) {
+            byte[] frame = new byte[end + 2];
+            System.arraycopy(data, 0, frame, 0, end);
+            frame[end] = (byte) 0xFF;
+            frame[end + 1] = (byte) 0xD9;
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(frame));
+            assertNotNull(image);
+            assertEquals(WIDTH, image.getWidth());
+        }
+    }
+
+    @Test
+    public void baseline_isRejected() throws IOException {
+        byte[] data = jpeg(false);
+        ProgressiveJpegScanner scanner = new ProgressiveJpegScanner();
+        assertFalse(scanner.scan(data, data.length));
+        assertTrue(scanner.isRejected());
+    }
+
+    @Test
+    public void otherFormat_isRejected() throws IOException {
+        BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        ProgressiveJpegScanner scanner = new ProgressiveJpegScanner();
+        assertFalse(scanner.scan(out.toByteArray(), out.size()));
+        assertTrue(scanner.isRejected());
+    }
+}
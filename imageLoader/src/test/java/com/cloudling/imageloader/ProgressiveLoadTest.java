@@ -0,0 +1,77 @@
+package com.cloudling.imageloader;
+
+import android.app.Activity;
+import android.os.Looper;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 渐进式加载的登记在请求被清除时移除：视图开始新的加载、页面销毁（这两种情况不回调RequestListener）
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ProgressiveLoadTest {
+    private static final String URL = "https://img.example.com/photo.jpg";
+
+    private ActivityController<Activity> mController;
+    private ImageView mView;
+
+    @Before
+    public void setUp() {
+        ImageLoader.getInstance().init(RuntimeEnvironment.application, ImageLoaderConfig.newBuilder());
+        mController = Robolectric.buildActivity(Activity.class).setup();
+        mView = new ImageView(mController.get());
+        /*尺寸为0，请求一直等待尺寸，不会开始下载（下载失败会结束加载，结果取决于网络和之前测试的负缓存）*/
+        mController.get().setContentView(mView, new ViewGroup.LayoutParams(0, 0));
+    }
+
+    private static Map<?, ?> loads() {
+        return ReflectionHelpers.getStaticField(ProgressiveLoad.class, "LOADS");
+    }
+
+    /**
+     * 视图还没有尺寸，请求停在等待尺寸，不会完成也不会回调
+     */
+    private void loadProgressive() {
+        ImageLoader.getInstance().load(mController.get(), URL, mView, ImageOptions.newBuilder().progressive(true), null);
+        shadowOf(Looper.getMainLooper()).idle();
+        assertEquals(1, loads().size());
+    }
+
+    @Test
+    public void destroy_removesLoad() {
+        loadProgressive();
+        mController.pause().stop().destroy();
+        shadowOf(Looper.getMainLooper()).idle();
+        assertTrue(loads().isEmpty());
+    }
+
+    @Test
+    public void newLoad_removesPreviousLoad() {
+        loadProgressive();
+        ImageLoader.getInstance().load(mController.get(), "https://img.example.com/other.jpg", mView);
+        shadowOf(Looper.getMainLooper()).idle();
+        assertTrue(loads().isEmpty());
+    }
+
+    @Test
+    public void clear_removesLoad() {
+        loadProgressive();
+        ImageLoader.getInstance().clear(mController.get(), mView);
+        assertTrue(loads().isEmpty());
+    }
+}
@@ -0,0 +1,59 @@
+package com.cloudling.imageloader;
+
+import android.graphics.Bitmap;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.widget.ImageView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.util.ReflectionHelpers;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 绘制时处理形状的Drawable更换图片：同一个Bitmap沿用当前的BitmapShader，动图循环使用的帧各自沿用自己的BitmapShader
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ShapedBitmapDrawableTest {
+
+    private static Shader shader(ShapedBitmapDrawable drawable) {
+        return ReflectionHelpers.<Paint>getField(drawable, "mPaint").getShader();
+    }
+
+    private static Bitmap frame() {
+        return Bitmap.createBitmap(60, 40, Bitmap.Config.ARGB_8888);
+    }
+
+    @Test
+    public void sameBitmap_keepsShader() {
+        Bitmap bitmap = frame();
+        ShapedBitmapDrawable drawable = new ShapedBitmapDrawable(bitmap, ImageShape.round(8, ImageView.ScaleType.CENTER_CROP), ImageView.ScaleType.CENTER_CROP);
+        drawable.setBounds(0, 0, 100, 100);
+        Shader shader = shader(drawable);
+        drawable.setBitmap(bitmap);
+        assertSame(shader, shader(drawable));
+    }
+
+    @Test
+    public void recycledFrames_reuseTheirShaders() {
+        /*动图的帧来自复用池，解码线程循环使用少数几个Bitmap*/
+        Bitmap[] frames = {frame(), frame(), frame(), frame()};
+        ShapedBitmapDrawable drawable = new ShapedBitmapDrawable(frames[0], ImageShape.circle(), null);
+        drawable.setBounds(0, 0, 100, 100);
+        Shader[] shaders = new Shader[frames.length];
+        for (int i = 0; i < frames.length; i++) {
+            drawable.setBitmap(frames[i]);
+            shaders[i] = shader(drawable);
+        }
+        assertNotSame(shaders[0], shaders[1]);
+        for (int loop = 0; loop < 3; loop++) {
+            for (int i = 0; i < frames.length; i++) {
+                drawable.setBitmap(frames[i]);
+                assertSame(shaders[i], shader(drawable));
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.cloudling.imageloader;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.signature.ObjectKey;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 分片磁盘缓存：索引快照写入后重新打开可直接读取、快照不完整时从目录重建、核对目录时只删除上次运行残留的临时文件
+ */
+public class ShardedDiskCacheTest {
+    private static final int COUNT = 64;
+    private static final long MAX_SIZE = 1024 * 1024;
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    private static Key key(int id) {
+        return new ObjectKey("image-" + id);
+    }
+
+    private static DiskCache.Writer writer(final int length) {
+        return new DiskCache.Writer() {
+            @Override
+            public boolean write(@NonNull File file) {
+                try (FileOutputStream out = new FileOutputStream(file)) {
+                    out.write(new byte[length]);
+                    return true;
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+        };
+    }
+
+    private static ScheduledThreadPoolExecutor background() {
+        return ReflectionHelpers.getStaticField(ShardedDiskCache.class, "BACKGROUND");
+    }
+
+    /**
+     * 等待构造时提交的核对和之前的后台任务执行完（后台只有一个线程，延迟写入的快照不在其中）
+     */
+    private static void awaitBackground() throws Exception {
+        background().submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get();
+    }
+
+    private static void flush(ShardedDiskCache cache) {
+        ReflectionHelpers.callInstanceMethod(cache, "flush");
+    }
+
+    /**
+     * 写入COUNT个文件（第i个大小为100 + i字节）并写入快照
+     */
+    private ShardedDiskCache populate(File directory) throws Exception {
+        ShardedDiskCache cache = new ShardedDiskCache(directory, MAX_SIZE);
+        awaitBackground();
+        for (int i = 0; i < COUNT; i++) cache.put(key(i), writer(100 + i));
+        flush(cache);
+        return cache;
+    }
+
+    private static long expectedSize() {
+        long size = 0;
+        for (int i = 0; i < COUNT; i++) size += 100 + i;
+        return size;
+    }
+
+    @Test
+    public void index_roundTrips() throws Exception {
+        File directory = mFolder.newFolder();
+        populate(directory);
+        ShardedDiskCache reopened = new ShardedDiskCache(directory, MAX_SIZE);
+        /*构造函数返回时快照已读取，不依赖后台核对*/
+        assertEquals(COUNT, reopened.getEntryCount());
+        assertEquals(expectedSize(), reopened.getSize());
+        for (int i = 0; i < COUNT; i++) {
+            File file = reopened.get(key(i));
+            assertNotNull(file);
+            assertEquals(100 + i, file.length());
+        }
+        assertNull(reopened.get(key(COUNT)));
+        awaitBackground();
+        assertEquals(COUNT, reopened.getEntryCount());
+    }
+
+    @Test
+    public void truncatedSnapshot_isRebuiltFromDirectory() throws Exception {
+        File directory = mFolder.newFolder();
+        populate(directory);
+        File index = new File(directory, "index");
+        try (RandomAccessFile file = new RandomAccessFile(index, "rw")) {
+            file.setLength(file.length() - 7);
+        }
+        ShardedDiskCache reopened = new ShardedDiskCache(directory, MAX_SIZE);
+        awaitBackground();
+        assertEquals(COUNT, reopened.getEntryCount());
+        assertEquals(expectedSize(), reopened.getSize());
+        for (int i = 0; i < COUNT; i++) assertNotNull(reopened.get(key(i)));
+    }
+
+    @Test
+    public void reconcile_fixesIndexAndKeepsTempFilesInFlight() throws Exception {
+        File directory = mFolder.newFolder();
+        ShardedDiskCache cache = populate(directory);
+        /*快照之后删除的文件和写入的文件*/
+        File removed = cache.get(key(0));
+        assertTrue(removed.delete());
+        cache.put(key(COUNT), writer(10));
+        File shard = removed.getParentFile();
+        File stale = new File(shard, removed.getName() + ".1.tmp");
+        File inFlight = new File(shard, removed.getName() + ".2.tmp");
+        assertTrue(stale.createNewFile());
+        assertTrue(stale.setLastModified(System.currentTimeMillis() - 60_000));
+        /*在核对开始之前创建打开之后才开始写入的临时文件*/
+        final CountDownLatch hold = new CountDownLatch(1);
+        background().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    hold.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        ShardedDiskCache reopened = new ShardedDiskCache(directory, MAX_SIZE);
+        assertTrue(inFlight.createNewFile());
+        hold.countDown();
+        awaitBackground();
+        assertEquals(COUNT, reopened.getEntryCount());
+        assertEquals(expectedSize() - 100 + 10, reopened.getSize());
+        assertNull(reopened.get(key(0)));
+        assertNotNull(reopened.get(key(COUNT)));
+        assertFalse(stale.exists());
+        assertTrue(inFlight.exists());
+    }
+}
@@ -0,0 +1,140 @@
+package com.cloudling.imageloader;
+
+import android.content.ComponentCallbacks2;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.cache.MemoryCache;
+import com.bumptech.glide.signature.ObjectKey;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * W-TinyLFU内存缓存：容量和统计、淘汰通知、频率高的缓存项不被一次性访问的缓存项挤出
+ */
+public class TinyLfuMemoryCacheTest {
+    private static final int ENTRY_SIZE = 10;
+
+    private TinyLfuMemoryCache mCache;
+    private final List<Resource<?>> mRemoved = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mCache = new TinyLfuMemoryCache(100);
+        mCache.setResourceRemovedListener(new MemoryCache.ResourceRemovedListener() {
+            @Override
+            public void onResourceRemoved(@NonNull Resource<?> removed) {
+                mRemoved.add(removed);
+                /*与Glide一致：移除的资源交还后可能立即被回收*/
+                removed.recycle();
+            }
+        });
+    }
+
+    private static Key key(int id) {
+        return new ObjectKey("image-" + id);
+    }
+
+    /**
+     * Glide命中内存缓存时先remove，请求释放后再put回
+     */
+    private void hit(int id) {
+        Resource<?> resource = mCache.remove(key(id));
+        assertNotNull(resource);
+        mCache.put(key(id), resource);
+    }
+
+    @Test
+    public void putAndRemove_trackSizeAndCounts() {
+        FakeResource resource = new FakeResource(ENTRY_SIZE);
+        assertNull(mCache.put(key(1), resource));
+        assertEquals(ENTRY_SIZE, mCache.getCurrentSize());
+        assertSame(resource, mCache.remove(key(1)));
+        assertNull(mCache.remove(key(1)));
+        assertEquals(0, mCache.getCurrentSize());
+        assertEquals(1, mCache.getHitCount());
+        assertEquals(1, mCache.getMissCount());
+    }
+
+    @Test
+    public void overCapacity_evictsAndNotifies() {
+        for (int i = 0; i < 15; i++) mCache.put(key(i), new FakeResource(ENTRY_SIZE));
+        assertTrue(mCache.getCurrentSize() <= 100);
+        assertEquals(5, mRemoved.size());
+        assertEquals(5, mCache.getEvictionCount());
+        for (Resource<?> removed : mRemoved) assertTrue(((FakeResource) removed).recycled);
+    }
+
+    @Test
+    public void frequentEntry_survivesScan() {
+        mCache.put(key(0), new FakeResource(ENTRY_SIZE));
+        for (int i = 0; i < 5; i++) hit(0);
+        /*一次性访问的大量图片（如快速滑过的列表）*/
+        for (int i = 1; i <= 100; i++) mCache.put(key(i), new FakeResource(ENTRY_SIZE));
+        assertNotNull(mCache.remove(key(0)));
+    }
+
+    @Test
+    public void oversizedResource_isRejected() {
+        FakeResource resource = new FakeResource(100);
+        mCache.put(key(1), resource);
+        assertEquals(0, mCache.getCurrentSize());
+        assertSame(resource, mRemoved.get(0));
+    }
+
+    @Test
+    public void sizeMultiplierAndTrim_shrinkCache() {
+        for (int i = 0; i < 10; i++) mCache.put(key(i), new FakeResource(ENTRY_SIZE));
+        mCache.setSizeMultiplier(0.5f);
+        assertEquals(50, mCache.getMaxSize());
+        assertTrue(mCache.getCurrentSize() <= 50);
+        mCache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals(0, mCache.getCurrentSize());
+        assertEquals(10, mRemoved.size());
+    }
+
+    private static final class FakeResource implements Resource<Object> {
+        private final int size;
+        boolean recycled;
+
+        FakeResource(int size) {
+            this.size = size;
+        }
+
+        @NonNull
+        @Override
+        public Class<Object> getResourceClass() {
+            return Object.class;
+        }
+
+        @NonNull
+        @Override
+        public Object get() {
+            return this;
+        }
+
+        @Override
+        public int getSize() {
+            /*与BitmapResource一致，回收后不能再读取大小*/
+            if (recycled) throw new IllegalStateException("Cannot obtain size for recycled resource");
+            return size;
+        }
+
+        @Override
+        public void recycle() {
+            recycled = true;
+        }
+    }
+}